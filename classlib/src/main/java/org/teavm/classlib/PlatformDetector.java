@@ -41,4 +41,24 @@ public final class PlatformDetector {
     public static boolean isLowLevel() {
         return false;
     }
+
+    @PlatformMarker(PlatformMarkers.COMPACT_STRINGS)
+    public static boolean isCompactStrings() {
+        return false;
+    }
+
+    @PlatformMarker(PlatformMarkers.NATIVE_STRINGS)
+    public static boolean isNativeStrings() {
+        return false;
+    }
+
+    @PlatformMarker(PlatformMarkers.SIMD)
+    public static boolean isSimd() {
+        return false;
+    }
+
+    @PlatformMarker(PlatformMarkers.BULK_MEMORY)
+    public static boolean isBulkMemory() {
+        return false;
+    }
 }
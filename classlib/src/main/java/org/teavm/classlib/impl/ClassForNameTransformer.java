@@ -19,8 +19,8 @@ import java.util.Arrays;
 import org.teavm.common.DisjointSet;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.model.BasicBlock;
+import org.teavm.model.CacheableClassHolderTransformer;
 import org.teavm.model.ClassHolder;
-import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.Instruction;
 import org.teavm.model.MethodHolder;
@@ -34,7 +34,7 @@ import org.teavm.model.instructions.InvocationType;
 import org.teavm.model.instructions.InvokeInstruction;
 import org.teavm.model.instructions.StringConstantInstruction;
 
-public class ClassForNameTransformer implements ClassHolderTransformer {
+public class ClassForNameTransformer implements CacheableClassHolderTransformer {
     private static final MethodReference getNameMethod = new MethodReference(Class.class, "getName", String.class);
     private static final MethodReference forNameMethod = new MethodReference(Class.class, "forName", String.class,
             boolean.class, ClassLoader.class, Class.class);
@@ -52,6 +52,11 @@ public class ClassForNameTransformer implements ClassHolderTransformer {
         }
     }
 
+    @Override
+    public String getConfiguration() {
+        return "";
+    }
+
     private void transformProgram(Program program, ClassReaderSource classSource) {
         DisjointSet varSet = new DisjointSet();
         for (int i = 0; i < program.variableCount(); i++) {
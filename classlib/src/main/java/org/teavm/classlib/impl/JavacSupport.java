@@ -17,12 +17,13 @@ package org.teavm.classlib.impl;
 
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.model.*;
+import org.teavm.model.CacheableClassHolderTransformer;
 import org.teavm.model.instructions.ConstructInstruction;
 import org.teavm.model.instructions.ExitInstruction;
 import org.teavm.model.instructions.InvocationType;
 import org.teavm.model.instructions.InvokeInstruction;
 
-public class JavacSupport implements ClassHolderTransformer {
+public class JavacSupport implements CacheableClassHolderTransformer {
     @Override
     public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
         if (cls.getName().equals("javax.tools.ToolProvider")) {
@@ -47,4 +48,9 @@ public class JavacSupport implements ClassHolderTransformer {
             method.setProgram(program);
         }
     }
+
+    @Override
+    public String getConfiguration() {
+        return "";
+    }
 }
@@ -17,8 +17,8 @@ package org.teavm.classlib.impl;
 
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.model.BasicBlock;
+import org.teavm.model.CacheableClassHolderTransformer;
 import org.teavm.model.ClassHolder;
-import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.ElementModifier;
 import org.teavm.model.MethodDescriptor;
@@ -31,7 +31,7 @@ import org.teavm.model.instructions.BinaryOperation;
 import org.teavm.model.instructions.ExitInstruction;
 import org.teavm.model.instructions.NumericOperandType;
 
-public class NumericClassTransformer implements ClassHolderTransformer {
+public class NumericClassTransformer implements CacheableClassHolderTransformer {
     @Override
     public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
         switch (cls.getName()) {
@@ -50,6 +50,11 @@ public class NumericClassTransformer implements ClassHolderTransformer {
         }
     }
 
+    @Override
+    public String getConfiguration() {
+        return "";
+    }
+
     private void transformInteger(ClassHolder cls) {
         transformCompareMethod(cls, ValueType.INTEGER, NumericOperandType.INT);
     }
@@ -15,14 +15,15 @@
  */
 package org.teavm.classlib.impl;
 
+import java.util.Arrays;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.interop.PlatformMarker;
 import org.teavm.model.AnnotationReader;
 import org.teavm.model.AnnotationValue;
 import org.teavm.model.BasicBlock;
+import org.teavm.model.CacheableClassHolderTransformer;
 import org.teavm.model.CallLocation;
 import org.teavm.model.ClassHolder;
-import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.ElementModifier;
 import org.teavm.model.FieldReader;
@@ -42,7 +43,7 @@ import org.teavm.model.optimization.ConstantConditionElimination;
 import org.teavm.model.optimization.GlobalValueNumbering;
 import org.teavm.model.optimization.UnreachableBasicBlockEliminator;
 
-public class PlatformMarkerSupport implements ClassHolderTransformer {
+public class PlatformMarkerSupport implements CacheableClassHolderTransformer {
     private String[] tags;
 
     public PlatformMarkerSupport(String[] tags) {
@@ -58,6 +59,11 @@ public class PlatformMarkerSupport implements ClassHolderTransformer {
         }
     }
 
+    @Override
+    public String getConfiguration() {
+        return Arrays.toString(tags);
+    }
+
     private void transformProgram(MethodReference containingMethod, Program program,
             ClassReaderSource innerSource, Diagnostics diagnostics) {
         boolean hasChanges = false;
@@ -18,8 +18,8 @@ package org.teavm.classlib.impl;
 import java.util.Properties;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.model.BasicBlock;
+import org.teavm.model.CacheableClassHolderTransformer;
 import org.teavm.model.ClassHolder;
-import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.FieldHolder;
 import org.teavm.model.Instruction;
@@ -30,7 +30,7 @@ import org.teavm.model.instructions.ConstructInstruction;
 import org.teavm.model.instructions.InvokeInstruction;
 import org.teavm.model.instructions.PutFieldInstruction;
 
-public class ScalaHacks implements ClassHolderTransformer {
+public class ScalaHacks implements CacheableClassHolderTransformer {
     private static final String ATTR_NAME_CLASS = "java.util.jar.Attributes$Name";
     @Override
     public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
@@ -44,6 +44,11 @@ public class ScalaHacks implements ClassHolderTransformer {
         }
     }
 
+    @Override
+    public String getConfiguration() {
+        return "";
+    }
+
     private void transformPropertiesTrait(ClassHolder cls, ClassReaderSource innerSource) {
         for (MethodHolder method : cls.getMethods()) {
             if (method.getName().equals("scalaProps")) {
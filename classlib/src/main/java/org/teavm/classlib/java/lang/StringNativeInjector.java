@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.lang;
+
+import java.io.IOException;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.rendering.Precedence;
+import org.teavm.backend.javascript.spi.Injector;
+import org.teavm.backend.javascript.spi.InjectorContext;
+import org.teavm.model.MethodReference;
+
+public class StringNativeInjector implements Injector {
+    @Override
+    public void generate(InjectorContext context, MethodReference methodRef) throws IOException {
+        SourceWriter writer = context.getWriter();
+        switch (methodRef.getName()) {
+            case "nativeEmpty":
+                writer.append("\"\"");
+                break;
+            case "nativeFromChars":
+                writer.append("$rt_charArrayToString(");
+                context.writeExpr(context.getArgument(0), Precedence.MEMBER_ACCESS);
+                writer.append(".data,").ws();
+                context.writeExpr(context.getArgument(1), Precedence.COMMA.next());
+                writer.append(",").ws();
+                context.writeExpr(context.getArgument(2), Precedence.COMMA.next());
+                writer.append(")");
+                break;
+            case "nativeFromCharCode":
+                writer.append("String.fromCharCode(");
+                context.writeExpr(context.getArgument(0), Precedence.min());
+                writer.append(")");
+                break;
+            case "nativeLength":
+                context.writeExpr(context.getArgument(0), Precedence.MEMBER_ACCESS);
+                writer.append(".length");
+                break;
+            case "nativeCharAt":
+                writeMethodCall(context, "charCodeAt");
+                break;
+            case "nativeSubstring":
+                writeMethodCall(context, "substring");
+                break;
+            case "nativeIndexOf":
+                writeMethodCall(context, "indexOf");
+                break;
+            case "nativeLastIndexOf":
+                writeMethodCall(context, "lastIndexOf");
+                break;
+            case "nativeConcat":
+                writeBinary(context, "+");
+                break;
+            case "nativeEquals":
+                writer.append("(");
+                writeBinary(context, "===");
+                writer.ws().append("?").ws().append("1").ws().append(":").ws().append("0)");
+                break;
+        }
+    }
+
+    private void writeMethodCall(InjectorContext context, String name) throws IOException {
+        SourceWriter writer = context.getWriter();
+        context.writeExpr(context.getArgument(0), Precedence.MEMBER_ACCESS);
+        writer.append(".").append(name).append("(");
+        for (int i = 1; i < context.argumentCount(); ++i) {
+            if (i > 1) {
+                writer.append(",").ws();
+            }
+            context.writeExpr(context.getArgument(i), Precedence.COMMA.next());
+        }
+        writer.append(")");
+    }
+
+    private void writeBinary(InjectorContext context, String operator) throws IOException {
+        SourceWriter writer = context.getWriter();
+        writer.append("(");
+        context.writeExpr(context.getArgument(0), Precedence.ADDITION);
+        writer.ws().append(operator).ws();
+        context.writeExpr(context.getArgument(1), Precedence.ADDITION.next());
+        writer.append(")");
+    }
+}
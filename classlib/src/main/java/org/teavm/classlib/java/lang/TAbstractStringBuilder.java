@@ -79,10 +79,7 @@ class TAbstractStringBuilder extends TObject implements TSerializable, TCharSequ
             buffer[i + string.length()] = buffer[i];
         }
         length += string.length();
-        int j = index;
-        for (int i = 0; i < string.length(); ++i) {
-            buffer[j++] = string.charAt(i);
-        }
+        string.getChars(0, string.length(), buffer, index);
         return this;
     }
 
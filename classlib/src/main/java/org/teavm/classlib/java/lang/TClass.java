@@ -155,7 +155,11 @@ public class TClass<T> extends TObject implements TAnnotatedElement {
     }
 
     private void setSimpleNameCache(TString value) {
-        simpleName = value;
+        if (PlatformDetector.isLowLevel()) {
+            setSimpleNameCacheLowLevel(Address.ofObject(value).toStructure());
+        } else {
+            simpleName = value;
+        }
     }
 
     @Unmanaged
@@ -23,12 +23,12 @@ import org.teavm.interop.Rename;
 import org.teavm.interop.Structure;
 import org.teavm.interop.Superclass;
 import org.teavm.interop.Sync;
-import org.teavm.jso.browser.TimerHandler;
 import org.teavm.platform.Platform;
 import org.teavm.platform.PlatformObject;
 import org.teavm.platform.PlatformQueue;
 import org.teavm.platform.PlatformRunnable;
 import org.teavm.platform.async.AsyncCallback;
+import org.teavm.platform.async.ScheduledTask;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
@@ -53,6 +53,8 @@ public class TObject {
 
     interface NotifyListener extends PlatformRunnable {
         boolean expired();
+
+        TThread getThread();
     }
 
     static void monitorEnterSync(TObject o) {
@@ -138,7 +140,7 @@ public class TObject {
 
         o.monitor.owner = null;
         if (!o.monitor.enteringThreads.isEmpty()) {
-            Platform.postpone(() -> {
+            TThread.resume(TThread.currentThread(), () -> {
                 if (o.isEmptyMonitor() || o.monitor.owner != null) {
                     return;
                 }
@@ -267,7 +269,7 @@ public class TObject {
         while (!listeners.isEmpty()) {
             NotifyListener listener = listeners.remove();
             if (!listener.expired()) {
-                Platform.postpone(listener);
+                TThread.resume(listener.getThread(), listener);
                 break;
             }
         }
@@ -283,7 +285,7 @@ public class TObject {
         while (!listeners.isEmpty()) {
             NotifyListener listener = listeners.remove();
             if (!listener.expired()) {
-                Platform.postpone(listener);
+                TThread.resume(listener.getThread(), listener);
             }
         }
     }
@@ -313,18 +315,16 @@ public class TObject {
         monitor.notifyListeners.add(listener);
         TThread.currentThread().interruptHandler = listener;
         if (timeout > 0 || nanos > 0) {
-            listener.timerId = Platform.schedule(listener, timeout >= Integer.MAX_VALUE ? Integer.MAX_VALUE
-                    : (int) timeout);
+            listener.timer = TThread.resumeLater(listener.currentThread, listener::onTimer, Math.max(timeout, 1));
         }
         monitorExit(this, monitor.count);
     }
 
-    private static class NotifyListenerImpl implements NotifyListener, TimerHandler, PlatformRunnable,
-            TThreadInterruptHandler {
+    private static class NotifyListenerImpl implements NotifyListener, PlatformRunnable, TThreadInterruptHandler {
         final TObject obj;
         final AsyncCallback<Void> callback;
         final TThread currentThread = TThread.currentThread();
-        int timerId = -1;
+        ScheduledTask timer;
         boolean expired;
         boolean performed;
         int lockCount;
@@ -343,12 +343,14 @@ public class TObject {
         }
 
         @Override
-        public void onTimer() {
-            Platform.postpone(() -> {
-                if (!expired()) {
-                    run();
-                }
-            });
+        public TThread getThread() {
+            return currentThread;
+        }
+
+        void onTimer() {
+            if (!expired()) {
+                run();
+            }
         }
 
         @Override
@@ -357,9 +359,9 @@ public class TObject {
                 return;
             }
             performed = true;
-            if (timerId >= 0) {
-                Platform.killSchedule(timerId);
-                timerId = -1;
+            if (timer != null) {
+                timer.cancel();
+                timer = null;
             }
             TThread.setCurrentThread(currentThread);
             monitorEnterWait(obj, lockCount, callback);
@@ -371,11 +373,11 @@ public class TObject {
                 return;
             }
             performed = true;
-            if (timerId >= 0) {
-                Platform.killSchedule(timerId);
-                timerId = -1;
+            if (timer != null) {
+                timer.cancel();
+                timer = null;
             }
-            Platform.postpone(() -> callback.error(new TInterruptedException()));
+            TThread.resume(currentThread, () -> callback.error(new TInterruptedException()));
         }
     }
 
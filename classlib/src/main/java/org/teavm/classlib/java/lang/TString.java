@@ -16,6 +16,9 @@
 package org.teavm.classlib.java.lang;
 
 import java.util.Locale;
+import org.teavm.backend.javascript.spi.InjectedBy;
+import org.teavm.backend.wasm.WasmSimd;
+import org.teavm.classlib.PlatformDetector;
 import org.teavm.classlib.java.io.TSerializable;
 import org.teavm.classlib.java.io.TUnsupportedEncodingException;
 import org.teavm.classlib.java.nio.TByteBuffer;
@@ -29,36 +32,69 @@ import org.teavm.classlib.java.util.THashMap;
 import org.teavm.classlib.java.util.TLocale;
 import org.teavm.classlib.java.util.TMap;
 import org.teavm.classlib.java.util.regex.TPattern;
+import org.teavm.interop.Address;
 import org.teavm.interop.Unmanaged;
 
 public class TString extends TObject implements TSerializable, TComparable<TString>, TCharSequence {
     public static final TComparator<TString> CASE_INSENSITIVE_ORDER = (o1, o2) -> o1.compareToIgnoreCase(o2);
     private char[] characters;
     private transient int hashCode;
+    // With compact strings, a string that has no characters above U+00FF keeps them here one byte per
+    // character and leaves characters null. Otherwise this field is null.
+    private byte[] latin1;
+    // With native strings on JavaScript, keeps JS string and is the only field that holds characters.
+    private Object nativeString;
     private static TMap<TString, TString> pool = new THashMap<>();
 
     public TString() {
-        this.characters = new char[0];
+        if (PlatformDetector.isNativeStrings()) {
+            this.nativeString = nativeEmpty();
+        } else if (PlatformDetector.isCompactStrings()) {
+            this.latin1 = new byte[0];
+        } else {
+            this.characters = new char[0];
+        }
     }
 
     public TString(TString other) {
+        if (PlatformDetector.isNativeStrings()) {
+            nativeString = other.nativeString;
+            return;
+        }
         characters = other.characters;
+        if (PlatformDetector.isCompactStrings()) {
+            latin1 = other.latin1;
+        }
     }
 
     public TString(char[] characters) {
-        this.characters = new char[characters.length];
-        for (int i = 0; i < characters.length; ++i) {
-            this.characters[i] = characters[i];
-        }
+        this(characters, 0, characters.length);
     }
 
     public TString(char[] value, int offset, int count) {
+        if (PlatformDetector.isNativeStrings()) {
+            nativeString = nativeFromChars(value, offset, count);
+            return;
+        }
+        if (PlatformDetector.isCompactStrings()) {
+            latin1 = compress(value, offset, count);
+            if (latin1 != null) {
+                return;
+            }
+        }
         this.characters = new char[count];
         for (int i = 0; i < count; ++i) {
             this.characters[i] = value[i + offset];
         }
     }
 
+    private TString(int offset, int count, byte[] latin1) {
+        this.latin1 = new byte[count];
+        for (int i = 0; i < count; ++i) {
+            this.latin1[i] = latin1[i + offset];
+        }
+    }
+
     public TString(byte[] bytes, int offset, int length, TString charsetName) throws TUnsupportedEncodingException {
         this(bytes, offset, length, TCharset.forName(charsetName.toString()));
     }
@@ -84,38 +120,122 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public TString(int[] codePoints, int offset, int count) {
-        characters = new char[count * 2];
+        char[] chars = new char[count * 2];
         int charCount = 0;
         for (int i = 0; i < count; ++i) {
             int codePoint = codePoints[offset++];
             if (codePoint >= TCharacter.MIN_SUPPLEMENTARY_CODE_POINT) {
-                characters[charCount++] = TCharacter.highSurrogate(codePoint);
-                characters[charCount++] = TCharacter.lowSurrogate(codePoint);
+                chars[charCount++] = TCharacter.highSurrogate(codePoint);
+                chars[charCount++] = TCharacter.lowSurrogate(codePoint);
             } else {
-                characters[charCount++] = (char) codePoint;
+                chars[charCount++] = (char) codePoint;
             }
         }
-        if (charCount < characters.length) {
-            characters = TArrays.copyOf(characters, charCount);
+        if (charCount < chars.length) {
+            chars = TArrays.copyOf(chars, charCount);
         }
+        initWithCharacters(chars);
     }
 
     private void initWithBytes(byte[] bytes, int offset, int length, TCharset charset) {
         TCharBuffer buffer = charset.decode(TByteBuffer.wrap(bytes, offset, length));
         if (buffer.hasArray() && buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
-            characters = buffer.array();
+            initWithCharacters(buffer.array());
         } else {
-            characters = new char[buffer.remaining()];
-            buffer.get(characters);
+            char[] chars = new char[buffer.remaining()];
+            buffer.get(chars);
+            initWithCharacters(chars);
         }
     }
 
+    private void initWithCharacters(char[] chars) {
+        if (PlatformDetector.isNativeStrings()) {
+            nativeString = nativeFromChars(chars, 0, chars.length);
+            return;
+        }
+        if (PlatformDetector.isCompactStrings()) {
+            latin1 = compress(chars, 0, chars.length);
+            if (latin1 != null) {
+                return;
+            }
+        }
+        this.characters = chars;
+    }
+
+    private static byte[] compress(char[] value, int offset, int count) {
+        byte[] result = new byte[count];
+        for (int i = 0; i < count; ++i) {
+            char c = value[i + offset];
+            if (c > 0xFF) {
+                return null;
+            }
+            result[i] = (byte) c;
+        }
+        return result;
+    }
+
     public TString(TStringBuilder sb) {
         this(sb.buffer, 0, sb.length());
     }
 
+    private static TString fromNative(Object nativeString) {
+        TString result = new TString();
+        result.nativeString = nativeString;
+        return result;
+    }
+
+    private static Object nativeFromCodePoint(int codePoint) {
+        if (codePoint >= TCharacter.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return nativeConcat(nativeFromCharCode(TCharacter.highSurrogate(codePoint)),
+                    nativeFromCharCode(TCharacter.lowSurrogate(codePoint)));
+        }
+        return nativeFromCharCode((char) codePoint);
+    }
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native Object nativeEmpty();
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native Object nativeFromChars(char[] chars, int offset, int count);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native Object nativeFromCharCode(char c);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native int nativeLength(Object str);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native char nativeCharAt(Object str, int index);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native Object nativeSubstring(Object str, int beginIndex, int endIndex);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native int nativeIndexOf(Object str, Object part, int fromIndex);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native int nativeLastIndexOf(Object str, Object part, int fromIndex);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native Object nativeConcat(Object a, Object b);
+
+    @InjectedBy(StringNativeInjector.class)
+    private static native boolean nativeEquals(Object a, Object b);
+
     @Override
     public char charAt(int index) {
+        if (PlatformDetector.isNativeStrings()) {
+            if (index < 0 || index >= nativeLength(nativeString)) {
+                throw new TStringIndexOutOfBoundsException();
+            }
+            return nativeCharAt(nativeString, index);
+        }
+        if (PlatformDetector.isCompactStrings() && latin1 != null) {
+            if (index < 0 || index >= latin1.length) {
+                throw new TStringIndexOutOfBoundsException();
+            }
+            return (char) (latin1[index] & 0xFF);
+        }
         if (index < 0 || index >= characters.length) {
             throw new TStringIndexOutOfBoundsException();
         }
@@ -140,11 +260,17 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     @Override
     public int length() {
+        if (PlatformDetector.isNativeStrings()) {
+            return nativeLength(nativeString);
+        }
+        if (PlatformDetector.isCompactStrings() && latin1 != null) {
+            return latin1.length;
+        }
         return characters.length;
     }
 
     public boolean isEmpty() {
-        return characters.length == 0;
+        return length() == 0;
     }
 
     public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
@@ -152,17 +278,29 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
                 || dstBegin + (srcEnd - srcBegin) > dst.length) {
             throw new TIndexOutOfBoundsException();
         }
+        if (PlatformDetector.isNativeStrings()) {
+            while (srcBegin < srcEnd) {
+                dst[dstBegin++] = nativeCharAt(nativeString, srcBegin++);
+            }
+            return;
+        }
+        if (PlatformDetector.isCompactStrings() && latin1 != null) {
+            while (srcBegin < srcEnd) {
+                dst[dstBegin++] = (char) (latin1[srcBegin++] & 0xFF);
+            }
+            return;
+        }
         while (srcBegin < srcEnd) {
-            dst[dstBegin++] = charAt(srcBegin++);
+            dst[dstBegin++] = characters[srcBegin++];
         }
     }
 
     public boolean contentEquals(TStringBuffer buffer) {
-        if (characters.length != buffer.length()) {
+        if (length() != buffer.length()) {
             return false;
         }
-        for (int i = 0; i < characters.length; ++i) {
-            if (characters[i] != buffer.charAt(i)) {
+        for (int i = 0; i < buffer.length(); ++i) {
+            if (charAt(i) != buffer.charAt(i)) {
                 return false;
             }
         }
@@ -173,11 +311,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (this == charSeq) {
             return true;
         }
-        if (characters.length != charSeq.length()) {
+        if (length() != charSeq.length()) {
             return false;
         }
-        for (int i = 0; i < characters.length; ++i) {
-            if (characters[i] != charSeq.charAt(i)) {
+        for (int i = 0; i < charSeq.length(); ++i) {
+            if (charAt(i) != charSeq.charAt(i)) {
                 return false;
             }
         }
@@ -282,8 +420,32 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     public int indexOf(int ch, int fromIndex) {
         fromIndex = Math.max(0, fromIndex);
+        if (PlatformDetector.isNativeStrings()) {
+            if (ch < 0 || ch > TCharacter.MAX_CODE_POINT) {
+                return -1;
+            }
+            return nativeIndexOf(nativeString, nativeFromCodePoint(ch), fromIndex);
+        }
+        if (PlatformDetector.isCompactStrings() && latin1 != null) {
+            if (ch < 0 || ch > 0xFF) {
+                return -1;
+            }
+            byte b = (byte) ch;
+            if (PlatformDetector.isSimd()) {
+                return WasmSimd.indexOfByte(Address.ofData(latin1), b, fromIndex, latin1.length);
+            }
+            for (int i = fromIndex; i < latin1.length; ++i) {
+                if (latin1[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         if (ch < TCharacter.MIN_SUPPLEMENTARY_CODE_POINT) {
             char bmpChar = (char) ch;
+            if (PlatformDetector.isSimd()) {
+                return WasmSimd.indexOfChar(Address.ofData(characters), bmpChar, fromIndex, characters.length);
+            }
             for (int i = fromIndex; i < characters.length; ++i) {
                 if (characters[i] == bmpChar) {
                     return i;
@@ -308,6 +470,24 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     public int lastIndexOf(int ch, int fromIndex) {
         fromIndex = Math.min(fromIndex, length() - 1);
+        if (PlatformDetector.isNativeStrings()) {
+            if (ch < 0 || ch > TCharacter.MAX_CODE_POINT || fromIndex < 0) {
+                return -1;
+            }
+            return nativeLastIndexOf(nativeString, nativeFromCodePoint(ch), fromIndex);
+        }
+        if (PlatformDetector.isCompactStrings() && latin1 != null) {
+            if (ch < 0 || ch > 0xFF) {
+                return -1;
+            }
+            byte b = (byte) ch;
+            for (int i = fromIndex; i >= 0; --i) {
+                if (latin1[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         if (ch < TCharacter.MIN_SUPPLEMENTARY_CODE_POINT) {
             char bmpChar = (char) ch;
             for (int i = fromIndex; i >= 0; --i) {
@@ -334,6 +514,9 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     public int indexOf(TString str, int fromIndex) {
         fromIndex = Math.max(0, fromIndex);
+        if (PlatformDetector.isNativeStrings()) {
+            return nativeIndexOf(nativeString, str.nativeString, fromIndex);
+        }
         int toIndex = length() - str.length();
         outer:
         for (int i = fromIndex; i <= toIndex; ++i) {
@@ -353,6 +536,9 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     public int lastIndexOf(TString str, int fromIndex) {
         fromIndex = Math.min(fromIndex, length() - str.length());
+        if (PlatformDetector.isNativeStrings()) {
+            return fromIndex >= 0 ? nativeLastIndexOf(nativeString, str.nativeString, fromIndex) : -1;
+        }
         outer:
         for (int i = fromIndex; i >= 0; --i) {
             for (int j = 0; j < str.length(); ++j) {
@@ -373,6 +559,15 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (beginIndex > endIndex) {
             throw new TIndexOutOfBoundsException();
         }
+        if (PlatformDetector.isNativeStrings()) {
+            if (beginIndex < 0 || endIndex > length()) {
+                throw new TIndexOutOfBoundsException();
+            }
+            return fromNative(nativeSubstring(nativeString, beginIndex, endIndex));
+        }
+        if (PlatformDetector.isCompactStrings() && latin1 != null) {
+            return new TString(beginIndex, endIndex - beginIndex, latin1);
+        }
         return new TString(characters, beginIndex, endIndex - beginIndex);
     }
 
@@ -389,6 +584,9 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (str.isEmpty()) {
             return this;
         }
+        if (PlatformDetector.isNativeStrings()) {
+            return fromNative(nativeConcat(nativeString, str.nativeString));
+        }
         char[] buffer = new char[length() + str.length()];
         int index = 0;
         for (int i = 0; i < length(); ++i) {
@@ -461,10 +659,8 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public char[] toCharArray() {
-        char[] array = new char[characters.length];
-        for (int i = 0; i < array.length; ++i) {
-            array[i] = characters[i];
-        }
+        char[] array = new char[length()];
+        getChars(0, array.length, array, 0);
         return array;
     }
 
@@ -521,9 +717,30 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
             return false;
         }
         TString str = (TString) other;
+        if (PlatformDetector.isNativeStrings()) {
+            return nativeEquals(nativeString, str.nativeString);
+        }
+        if (PlatformDetector.isCompactStrings() && (latin1 != null || str.latin1 != null)) {
+            // Strings are always compressed when possible, so Latin-1 string never equals UTF-16 one
+            if (latin1 == null || str.latin1 == null || latin1.length != str.latin1.length) {
+                return false;
+            }
+            if (PlatformDetector.isSimd()) {
+                return WasmSimd.equals(Address.ofData(latin1), Address.ofData(str.latin1), latin1.length);
+            }
+            for (int i = 0; i < latin1.length; ++i) {
+                if (latin1[i] != str.latin1[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
         if (str.length() != length()) {
             return false;
         }
+        if (PlatformDetector.isSimd()) {
+            return WasmSimd.equals(Address.ofData(characters), Address.ofData(str.characters), characters.length * 2);
+        }
         for (int i = 0; i < str.length(); ++i) {
             if (charAt(i) != str.charAt(i)) {
                 return false;
@@ -559,7 +776,10 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public byte[] getBytes(TCharset charset) {
-        TByteBuffer buffer = charset.encode(TCharBuffer.wrap(characters));
+        char[] chars = PlatformDetector.isNativeStrings() || PlatformDetector.isCompactStrings() && latin1 != null
+                ? toCharArray()
+                : characters;
+        TByteBuffer buffer = charset.encode(TCharBuffer.wrap(chars));
         if (buffer.hasArray() && buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
             return buffer.array();
         } else {
@@ -572,8 +792,25 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     @Override
     public int hashCode() {
         if (hashCode == 0) {
-            for (char c : characters) {
-                hashCode = 31 * hashCode + c;
+            if (PlatformDetector.isNativeStrings()) {
+                int length = nativeLength(nativeString);
+                for (int i = 0; i < length; ++i) {
+                    hashCode = 31 * hashCode + nativeCharAt(nativeString, i);
+                }
+            } else if (PlatformDetector.isCompactStrings() && latin1 != null) {
+                if (PlatformDetector.isSimd()) {
+                    hashCode = WasmSimd.hashBytes(Address.ofData(latin1), latin1.length);
+                } else {
+                    for (byte b : latin1) {
+                        hashCode = 31 * hashCode + (b & 0xFF);
+                    }
+                }
+            } else if (PlatformDetector.isSimd()) {
+                hashCode = WasmSimd.hashChars(Address.ofData(characters), characters.length);
+            } else {
+                for (char c : characters) {
+                    hashCode = 31 * hashCode + c;
+                }
             }
         }
         return hashCode;
@@ -588,15 +825,15 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (isEmpty()) {
             return this;
         }
-        int[] codePoints = new int[characters.length];
+        int length = length();
+        int[] codePoints = new int[length];
         int codePointCount = 0;
-        for (int i = 0; i < characters.length; ++i) {
-            if (i == characters.length - 1 || !TCharacter.isHighSurrogate(characters[i])
-                    || !TCharacter.isLowSurrogate(characters[i + 1])) {
-                codePoints[codePointCount++] = TCharacter.toLowerCase(characters[i]);
+        for (int i = 0; i < length; ++i) {
+            char c = charAt(i);
+            if (i == length - 1 || !TCharacter.isHighSurrogate(c) || !TCharacter.isLowSurrogate(charAt(i + 1))) {
+                codePoints[codePointCount++] = TCharacter.toLowerCase(c);
             } else {
-                codePoints[codePointCount++] = TCharacter.toLowerCase(TCharacter.toCodePoint(
-                        characters[i], characters[i + 1]));
+                codePoints[codePointCount++] = TCharacter.toLowerCase(TCharacter.toCodePoint(c, charAt(i + 1)));
                 ++i;
             }
         }
@@ -611,15 +848,15 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (isEmpty()) {
             return this;
         }
-        int[] codePoints = new int[characters.length];
+        int length = length();
+        int[] codePoints = new int[length];
         int codePointCount = 0;
-        for (int i = 0; i < characters.length; ++i) {
-            if (i == characters.length - 1 || !TCharacter.isHighSurrogate(characters[i])
-                    || !TCharacter.isLowSurrogate(characters[i + 1])) {
-                codePoints[codePointCount++] = TCharacter.toUpperCase(characters[i]);
+        for (int i = 0; i < length; ++i) {
+            char c = charAt(i);
+            if (i == length - 1 || !TCharacter.isHighSurrogate(c) || !TCharacter.isLowSurrogate(charAt(i + 1))) {
+                codePoints[codePointCount++] = TCharacter.toUpperCase(c);
             } else {
-                codePoints[codePointCount++] = TCharacter.toUpperCase(TCharacter.toCodePoint(
-                        characters[i], characters[i + 1]));
+                codePoints[codePointCount++] = TCharacter.toUpperCase(TCharacter.toCodePoint(c, charAt(i + 1)));
                 ++i;
             }
         }
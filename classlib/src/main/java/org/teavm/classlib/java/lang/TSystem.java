@@ -18,6 +18,7 @@ package org.teavm.classlib.java.lang;
 import java.util.Enumeration;
 import java.util.Properties;
 import org.teavm.backend.javascript.spi.GeneratedBy;
+import org.teavm.backend.wasm.WasmSimd;
 import org.teavm.classlib.PlatformDetector;
 import org.teavm.classlib.java.io.TConsole;
 import org.teavm.classlib.java.io.TInputStream;
@@ -91,6 +92,7 @@ public final class TSystem extends TObject {
         int itemSize = type.itemType.size;
         if ((type.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
             itemSize = Address.sizeOf();
+            GC.writeBarrier(dest);
         }
 
         Address srcAddress = Address.align(src.toAddress().add(RuntimeArray.class, 1), itemSize);
@@ -99,7 +101,11 @@ public final class TSystem extends TObject {
         Address destAddress = Address.align(dest.toAddress().add(RuntimeArray.class, 1), itemSize);
         destAddress = destAddress.add(itemSize * destPos);
 
-        Allocator.moveMemoryBlock(srcAddress, destAddress, length * itemSize);
+        if (PlatformDetector.isSimd() && !PlatformDetector.isBulkMemory()) {
+            WasmSimd.move(srcAddress, destAddress, length * itemSize);
+        } else {
+            Allocator.moveMemoryBlock(srcAddress, destAddress, length * itemSize);
+        }
     }
 
     @DelegateTo("currentTimeMillisLowLevel")
@@ -19,16 +19,20 @@ import org.teavm.interop.Async;
 import org.teavm.platform.Platform;
 import org.teavm.platform.PlatformRunnable;
 import org.teavm.platform.async.AsyncCallback;
+import org.teavm.platform.async.ScheduledTask;
+import org.teavm.platform.async.Scheduler;
 
 public class TThread extends TObject implements TRunnable {
+    public static final int MIN_PRIORITY = Scheduler.MIN_PRIORITY;
+    public static final int NORM_PRIORITY = Scheduler.NORM_PRIORITY;
+    public static final int MAX_PRIORITY = Scheduler.MAX_PRIORITY;
     private static TThread mainThread = new TThread(TString.wrap("main"));
     private static TThread currentThread = mainThread;
     private static long nextId = 1;
     private static int activeCount = 1;
     private long id;
-    private int priority;
-    private long timeSliceStart;
-    private int yieldCount;
+    private int priority = NORM_PRIORITY;
+    private double timeSliceStart;
     private final Object finishedLock = new Object();
     private boolean interruptedFlag;
     public TThreadInterruptHandler interruptHandler;
@@ -53,6 +57,9 @@ public class TThread extends TObject implements TRunnable {
         this.name = name;
         this.target = target;
         id = nextId++;
+        if (currentThread != null) {
+            priority = currentThread.priority;
+        }
     }
 
     public void start() {
@@ -63,9 +70,9 @@ public class TThread extends TObject implements TRunnable {
                 TThread.this.run();
             } finally {
                 synchronized (finishedLock) {
+                    alive = false;
                     finishedLock.notifyAll();
                 }
-                alive = false;
                 activeCount--;
                 setCurrentThread(mainThread);
             }
@@ -76,7 +83,7 @@ public class TThread extends TObject implements TRunnable {
         if (currentThread != thread) {
             currentThread = thread;
         }
-        currentThread.timeSliceStart = System.currentTimeMillis();
+        currentThread.timeSliceStart = Scheduler.currentTime();
     }
 
     static TThread getMainThread() {
@@ -103,7 +110,9 @@ public class TThread extends TObject implements TRunnable {
             return;
         }
         synchronized (finishedLock) {
-            finishedLock.wait(millis, nanos);
+            if (alive) {
+                finishedLock.wait(millis, nanos);
+            }
         }
     }
 
@@ -117,11 +126,7 @@ public class TThread extends TObject implements TRunnable {
 
     public static void yield() {
         TThread currentThread = currentThread();
-        if (++currentThread.yieldCount < 30) {
-            return;
-        }
-        currentThread().yieldCount = 0;
-        if (currentThread.timeSliceStart + 100 < System.currentTimeMillis()) {
+        if (Scheduler.shouldYield(currentThread.priority, currentThread.timeSliceStart)) {
             switchContext(currentThread);
         }
     }
@@ -130,10 +135,18 @@ public class TThread extends TObject implements TRunnable {
     static native void switchContext(TThread thread);
 
     private static void switchContext(final TThread thread, final AsyncCallback<Void> callback) {
-        Platform.postpone(() -> {
+        Scheduler.enqueue(() -> {
             setCurrentThread(thread);
             callback.complete(null);
-        });
+        }, thread.priority);
+    }
+
+    static void resume(TThread thread, PlatformRunnable runnable) {
+        Scheduler.enqueue(runnable, thread.priority);
+    }
+
+    static ScheduledTask resumeLater(TThread thread, PlatformRunnable runnable, long millis) {
+        return Scheduler.schedule(runnable, thread.priority, millis);
     }
 
     public void interrupt() {
@@ -176,9 +189,8 @@ public class TThread extends TObject implements TRunnable {
 
     private static void sleep(long millis, final AsyncCallback<Void> callback) {
         final TThread current = currentThread();
-        int intMillis = millis < Integer.MAX_VALUE ? (int) millis : Integer.MAX_VALUE;
         SleepHandler handler = new SleepHandler(current, callback);
-        handler.scheduleId = Platform.schedule(handler, intMillis);
+        handler.timer = resumeLater(current, handler, millis);
         current.interruptHandler = handler;
     }
 
@@ -186,7 +198,7 @@ public class TThread extends TObject implements TRunnable {
         private TThread thread;
         private AsyncCallback<Void> callback;
         private boolean isInterrupted;
-        int scheduleId;
+        ScheduledTask timer;
 
         public SleepHandler(TThread thread, AsyncCallback<Void> callback) {
             this.thread = thread;
@@ -197,8 +209,8 @@ public class TThread extends TObject implements TRunnable {
         public void interrupted() {
             thread.interruptedFlag = false;
             isInterrupted = true;
-            Platform.killSchedule(scheduleId);
-            Platform.postpone(() -> callback.error(new TInterruptedException()));
+            timer.cancel();
+            resume(thread, () -> callback.error(new TInterruptedException()));
         }
 
         @Override
@@ -212,6 +224,9 @@ public class TThread extends TObject implements TRunnable {
     }
 
     public final void setPriority(int newPriority) {
+        if (newPriority < MIN_PRIORITY || newPriority > MAX_PRIORITY) {
+            throw new TIllegalArgumentException();
+        }
         this.priority = newPriority;
     }
 
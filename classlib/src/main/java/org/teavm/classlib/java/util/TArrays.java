@@ -22,6 +22,9 @@ import java.util.function.IntFunction;
 import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
 import java.util.function.IntUnaryOperator;
+import org.teavm.backend.wasm.WasmSimd;
+import org.teavm.classlib.PlatformDetector;
+import org.teavm.classlib.java.lang.TArrayIndexOutOfBoundsException;
 import org.teavm.classlib.java.lang.TClass;
 import org.teavm.classlib.java.lang.TComparable;
 import org.teavm.classlib.java.lang.TDouble;
@@ -41,6 +44,7 @@ import org.teavm.classlib.java.util.stream.doubleimpl.TArrayDoubleStreamImpl;
 import org.teavm.classlib.java.util.stream.impl.TArrayStreamImpl;
 import org.teavm.classlib.java.util.stream.intimpl.TArrayIntStreamImpl;
 import org.teavm.classlib.java.util.stream.longimpl.TArrayLongStreamImpl;
+import org.teavm.interop.Address;
 
 public class TArrays extends TObject {
     public static char[] copyOf(char[] array, int length) {
@@ -340,6 +344,13 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isSimd()) {
+            if (fromIndex < 0 || toIndex > a.length) {
+                throw new TArrayIndexOutOfBoundsException();
+            }
+            WasmSimd.fill(Address.ofData(a).add(fromIndex * 8), val, (toIndex - fromIndex) * 8);
+            return;
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -353,6 +364,13 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isSimd()) {
+            if (fromIndex < 0 || toIndex > a.length) {
+                throw new TArrayIndexOutOfBoundsException();
+            }
+            WasmSimd.fill(Address.ofData(a).add(fromIndex * 4), val, (toIndex - fromIndex) * 4);
+            return;
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -366,6 +384,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isSimd()) {
+            if (fromIndex < 0 || toIndex > a.length) {
+                throw new TArrayIndexOutOfBoundsException();
+            }
+            WasmSimd.fill(Address.ofData(a).add(fromIndex * 2), (val & 0xFFFF) * 0x10001,
+                    (toIndex - fromIndex) * 2);
+            return;
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -379,6 +405,13 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isSimd()) {
+            if (fromIndex < 0 || toIndex > a.length) {
+                throw new TArrayIndexOutOfBoundsException();
+            }
+            WasmSimd.fill(Address.ofData(a).add(fromIndex * 2), val * 0x10001, (toIndex - fromIndex) * 2);
+            return;
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -392,6 +425,13 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isSimd()) {
+            if (fromIndex < 0 || toIndex > a.length) {
+                throw new TArrayIndexOutOfBoundsException();
+            }
+            WasmSimd.fill(Address.ofData(a).add(fromIndex), (val & 0xFF) * 0x1010101, toIndex - fromIndex);
+            return;
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -1220,6 +1260,9 @@ public class TArrays extends TObject {
         if (a == null || a2 == null || a.length != a2.length) {
             return false;
         }
+        if (PlatformDetector.isSimd()) {
+            return WasmSimd.equals(Address.ofData(a), Address.ofData(a2), a.length * 8);
+        }
         for (int i = 0; i < a.length; ++i) {
             if (a[i] != a2[i]) {
                 return false;
@@ -1235,6 +1278,9 @@ public class TArrays extends TObject {
         if (a == null || a2 == null || a.length != a2.length) {
             return false;
         }
+        if (PlatformDetector.isSimd()) {
+            return WasmSimd.equals(Address.ofData(a), Address.ofData(a2), a.length * 4);
+        }
         for (int i = 0; i < a.length; ++i) {
             if (a[i] != a2[i]) {
                 return false;
@@ -1250,6 +1296,9 @@ public class TArrays extends TObject {
         if (a == null || a2 == null || a.length != a2.length) {
             return false;
         }
+        if (PlatformDetector.isSimd()) {
+            return WasmSimd.equals(Address.ofData(a), Address.ofData(a2), a.length * 2);
+        }
         for (int i = 0; i < a.length; ++i) {
             if (a[i] != a2[i]) {
                 return false;
@@ -1265,6 +1314,9 @@ public class TArrays extends TObject {
         if (a == null || a2 == null || a.length != a2.length) {
             return false;
         }
+        if (PlatformDetector.isSimd()) {
+            return WasmSimd.equals(Address.ofData(a), Address.ofData(a2), a.length * 2);
+        }
         for (int i = 0; i < a.length; ++i) {
             if (a[i] != a2[i]) {
                 return false;
@@ -1280,6 +1332,9 @@ public class TArrays extends TObject {
         if (a == null || a2 == null || a.length != a2.length) {
             return false;
         }
+        if (PlatformDetector.isSimd()) {
+            return WasmSimd.equals(Address.ofData(a), Address.ofData(a2), a.length);
+        }
         for (int i = 0; i < a.length; ++i) {
             if (a[i] != a2[i]) {
                 return false;
@@ -30,7 +30,10 @@ import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import org.teavm.ast.decompilation.Decompiler;
 import org.teavm.backend.c.analyze.CDependencyListener;
 import org.teavm.backend.c.generate.BufferedCodeWriter;
@@ -40,6 +43,7 @@ import org.teavm.backend.c.generate.CodeWriter;
 import org.teavm.backend.c.generate.GenerationContext;
 import org.teavm.backend.c.generate.NameProvider;
 import org.teavm.backend.c.generate.StringPool;
+import org.teavm.backend.c.generate.TranslationUnit;
 import org.teavm.backend.c.generators.ArrayGenerator;
 import org.teavm.backend.c.generators.Generator;
 import org.teavm.backend.c.intrinsic.AddressIntrinsic;
@@ -67,6 +71,8 @@ import org.teavm.model.BasicBlock;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReader;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldHolder;
 import org.teavm.model.FieldReader;
 import org.teavm.model.FieldReference;
 import org.teavm.model.Instruction;
@@ -90,10 +96,12 @@ import org.teavm.model.lowlevel.ExportDependencyListener;
 import org.teavm.model.lowlevel.NullCheckInsertion;
 import org.teavm.model.lowlevel.NullCheckTransformation;
 import org.teavm.model.lowlevel.ShadowStackTransformer;
+import org.teavm.model.lowlevel.WriteBarrierInsertion;
 import org.teavm.model.transformation.ClassInitializerInsertionTransformer;
 import org.teavm.model.transformation.ClassPatch;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.ExceptionHandling;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -109,16 +117,66 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     private ClassInitializerEliminator classInitializerEliminator;
     private ClassInitializerTransformer classInitializerTransformer;
     private ShadowStackTransformer shadowStackTransformer;
+    private WriteBarrierInsertion writeBarrierInsertion;
     private NullCheckInsertion nullCheckInsertion;
     private NullCheckTransformation nullCheckTransformation;
     private ExportDependencyListener exportDependencyListener = new ExportDependencyListener();
     private int minHeapSize = 32 * 1024 * 1024;
+    private boolean generationalGC;
+    private boolean compactingGC;
+    private boolean incrementalGC;
+    private int gcSliceBudget = 1024;
+    private boolean compactStrings;
+    private boolean splitUnits;
     private List<IntrinsicFactory> intrinsicFactories = new ArrayList<>();
 
     public void setMinHeapSize(int minHeapSize) {
         this.minHeapSize = minHeapSize;
     }
 
+    public void setGenerationalGC(boolean generationalGC) {
+        this.generationalGC = generationalGC;
+    }
+
+    public void setCompactingGC(boolean compactingGC) {
+        this.compactingGC = compactingGC;
+    }
+
+    /**
+     * Makes full collection proceed in slices interleaved with allocation. Can't be combined with
+     * generational GC.
+     */
+    public void setIncrementalGC(boolean incrementalGC) {
+        this.incrementalGC = incrementalGC;
+    }
+
+    /**
+     * Sets how many objects incremental GC marks or sweeps in one slice. Must be positive.
+     */
+    public void setGCSliceBudget(int gcSliceBudget) {
+        if (gcSliceBudget <= 0) {
+            throw new IllegalArgumentException("GC slice budget must be positive: " + gcSliceBudget);
+        }
+        this.gcSliceBudget = gcSliceBudget;
+    }
+
+    /**
+     * Makes strings that consist only of characters up to U+00FF take one byte per character.
+     */
+    public void setCompactStrings(boolean compactStrings) {
+        this.compactStrings = compactStrings;
+    }
+
+    /**
+     * Makes target write a header with declarations shared by all translation units, a unit with data and
+     * <code>main</code> function, and one unit with code per Java package instead of single C file.
+     * Units are named after packages, so that native build can compile them in parallel and skip units
+     * that did not change.
+     */
+    public void setSplitUnits(boolean splitUnits) {
+        this.splitUnits = splitUnits;
+    }
+
     @Override
     public List<ClassHolderTransformer> getTransformers() {
         List<ClassHolderTransformer> transformers = new ArrayList<>();
@@ -134,11 +192,15 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
 
     @Override
     public void setController(TeaVMTargetController controller) {
+        if (incrementalGC && generationalGC) {
+            throw new IllegalStateException("Incremental GC can't be combined with generational GC");
+        }
         this.controller = controller;
         Characteristics characteristics = new Characteristics(controller.getUnprocessedClassSource());
         classInitializerEliminator = new ClassInitializerEliminator(controller.getUnprocessedClassSource());
         classInitializerTransformer = new ClassInitializerTransformer();
         shadowStackTransformer = new ShadowStackTransformer(characteristics);
+        writeBarrierInsertion = new WriteBarrierInsertion(characteristics);
         clinitInsertionTransformer = new ClassInitializerInsertionTransformer(controller.getUnprocessedClassSource());
         nullCheckInsertion = new NullCheckInsertion(characteristics);
         nullCheckTransformation = new NullCheckTransformation();
@@ -169,6 +231,8 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
                 RuntimeClass.class, Address.class, int.class, RuntimeArray.class), null).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "<clinit>", void.class), null).use();
+        dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "writeBarrier", Object.class, void.class),
+                null).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(ExceptionHandling.class, "throwException",
                 Throwable.class, void.class), null).use();
@@ -183,6 +247,9 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         dependencyAnalyzer.linkClass("java.lang.String", null);
         dependencyAnalyzer.linkClass("java.lang.Class", null);
         dependencyAnalyzer.linkField(new FieldReference("java.lang.String", "hashCode"), null);
+        if (compactStrings) {
+            dependencyAnalyzer.linkField(new FieldReference("java.lang.String", "latin1"), null);
+        }
 
         ClassDependency runtimeClassDep = dependencyAnalyzer.linkClass(RuntimeClass.class.getName(), null);
         ClassDependency runtimeObjectDep = dependencyAnalyzer.linkClass(RuntimeObject.class.getName(), null);
@@ -205,6 +272,9 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         classInitializerEliminator.apply(program);
         classInitializerTransformer.transform(program);
         nullCheckTransformation.apply(program, method.getResultType());
+        if (generationalGC || incrementalGC) {
+            writeBarrierInsertion.apply(program, method);
+        }
         shadowStackTransformer.apply(program, method);
     }
 
@@ -229,7 +299,8 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         intrinsics.add(new PlatformObjectIntrinsic());
         intrinsics.add(new PlatformClassIntrinsic());
         intrinsics.add(new PlatformClassMetadataIntrinsic());
-        intrinsics.add(new GCIntrinsic());
+        intrinsics.add(new GCIntrinsic(generationalGC, compactingGC,
+                incrementalGC ? gcSliceBudget : 0));
         intrinsics.add(new MutatorIntrinsic());
         intrinsics.add(new ExceptionHandlingIntrinsic());
         intrinsics.add(new FunctionIntrinsic(characteristics, exportDependencyListener.getResolvedMethods()));
@@ -239,13 +310,33 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         generators.add(new ArrayGenerator());
 
         GenerationContext context = new GenerationContext(vtableProvider, characteristics, stringPool, nameProvider,
-                controller.getDiagnostics(), classes, intrinsics, generators);
+                controller.getDiagnostics(), classes, intrinsics, generators, compactStrings, splitUnits);
 
         BufferedCodeWriter codeWriter = new BufferedCodeWriter();
+        if (compactStrings) {
+            codeWriter.println("#define TEAVM_COMPACT_STRINGS 1");
+        }
+        if (splitUnits) {
+            codeWriter.println("#define TEAVM_SPLIT_UNITS 1");
+        }
         copyResource(codeWriter, "runtime.c");
 
-        ClassGenerator classGenerator = new ClassGenerator(context, controller.getUnprocessedClassSource(),
-                tagRegistry, decompiler, codeWriter);
+        String baseName = outputName.endsWith(".c") ? outputName.substring(0, outputName.length() - 2) : outputName;
+        String headerName = baseName + ".h";
+        BufferedCodeWriter dataWriter;
+        ClassGenerator classGenerator;
+        if (splitUnits) {
+            dataWriter = new BufferedCodeWriter();
+            dataWriter.println("#include \"" + headerName.substring(headerName.lastIndexOf('/') + 1) + "\"");
+            copyResource(dataWriter, "runtime-data.c");
+            classGenerator = new ClassGenerator(context, controller.getUnprocessedClassSource(), tagRegistry,
+                    decompiler, codeWriter, dataWriter);
+        } else {
+            copyResource(codeWriter, "runtime-data.c");
+            dataWriter = codeWriter;
+            classGenerator = new ClassGenerator(context, controller.getUnprocessedClassSource(), tagRegistry,
+                    decompiler, codeWriter);
+        }
         IntrinsicFactoryContextImpl intrinsicFactoryContext = new IntrinsicFactoryContextImpl(
                 classGenerator.getStructuresWriter(), classGenerator.getPreCodeWriter(),
                 controller.getUnprocessedClassSource(), controller.getClassLoader(), controller.getServices(),
@@ -254,13 +345,27 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
             context.addIntrinsic(intrinsicFactory.createIntrinsic(intrinsicFactoryContext));
         }
 
-        generateClasses(classes, classGenerator);
-        generateSpecialFunctions(context, codeWriter);
+        if (splitUnits) {
+            generateUnits(classes, context, classGenerator, buildTarget, baseName, headerName);
+        } else {
+            generateClasses(classes, classGenerator);
+        }
+        generateSpecialFunctions(context, dataWriter);
         copyResource(codeWriter, "runtime-epilogue.c");
-        generateMain(context, codeWriter, classes, classGenerator.getTypes());
+        generateMain(context, dataWriter, classes, classGenerator.getTypes());
+
+        if (splitUnits) {
+            writeCode(buildTarget, headerName, codeWriter);
+            writeCode(buildTarget, outputName, dataWriter);
+        } else {
+            writeCode(buildTarget, outputName, codeWriter);
+        }
+    }
 
+    private void writeCode(BuildTarget buildTarget, String fileName, BufferedCodeWriter codeWriter)
+            throws IOException {
         try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
-                buildTarget.createResource(outputName), "UTF-8"))) {
+                buildTarget.createResource(fileName), "UTF-8"))) {
             codeWriter.writeTo(writer);
         }
     }
@@ -292,9 +397,61 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         classGenerator.generateRemainingData(classNames, shadowStackTransformer);
     }
 
+    private void generateUnits(ListableClassHolderSource classes, GenerationContext context,
+            ClassGenerator classGenerator, BuildTarget buildTarget, String baseName, String headerName)
+            throws IOException {
+        List<String> classNames = sortClassNames(classes);
+        Map<String, List<String>> units = new TreeMap<>();
+        for (String className : new TreeSet<>(classNames)) {
+            int index = className.lastIndexOf('.');
+            String unitName = index >= 0 ? className.substring(0, index) : "default";
+            units.computeIfAbsent(unitName, k -> new ArrayList<>()).add(className);
+        }
+
+        // Names of overloaded methods get suffixes in order of first use. Reserve names in order of
+        // declaration, so that a change in one unit does not rename functions in other units
+        for (List<String> unitClassNames : units.values()) {
+            for (String className : unitClassNames) {
+                ClassHolder cls = classes.get(className);
+                for (MethodHolder method : cls.getMethods()) {
+                    context.getNames().forMethod(method.getReference());
+                }
+                for (FieldHolder field : cls.getFields()) {
+                    if (field.hasModifier(ElementModifier.STATIC)) {
+                        context.getNames().forStaticField(field.getReference());
+                    }
+                }
+            }
+        }
+
+        for (String className : classNames) {
+            classGenerator.generateClassStructure(classes.get(className));
+        }
+
+        String includeName = headerName.substring(headerName.lastIndexOf('/') + 1);
+        List<TranslationUnit> translationUnits = new ArrayList<>();
+        for (Map.Entry<String, List<String>> unit : units.entrySet()) {
+            TranslationUnit translationUnit = new TranslationUnit(unit.getKey());
+            translationUnits.add(translationUnit);
+            BufferedCodeWriter unitWriter = new BufferedCodeWriter();
+            unitWriter.println("#include \"" + includeName + "\"");
+            translationUnit.writeDeclarations(unitWriter);
+            classGenerator.setCodeWriter(unitWriter);
+            context.setCurrentUnit(translationUnit);
+            for (String className : unit.getValue()) {
+                classGenerator.generateClassCode(classes.get(className));
+            }
+            context.setCurrentUnit(null);
+            writeCode(buildTarget, baseName + "-" + unit.getKey() + ".c", unitWriter);
+        }
+
+        classGenerator.generateUnitTables(translationUnits);
+        classGenerator.generateRemainingData(classNames, shadowStackTransformer);
+    }
+
     private List<String> sortClassNames(ListableClassReaderSource classes) {
         List<String> classNames = new ArrayList<>(classes.getClassNames().size());
-        Deque<String> stack = new ArrayDeque<>(classes.getClassNames());
+        Deque<String> stack = new ArrayDeque<>(new TreeSet<>(classes.getClassNames()));
         ObjectByteMap<String> stateMap = new ObjectByteHashMap<>();
 
         while (!stack.isEmpty()) {
@@ -360,7 +517,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     }
 
     private void generateThrowCCE(GenerationContext context, CodeWriter writer) {
-        writer.println("static void* throwClassCastException() {").indent();
+        writer.print(context.isSplitUnits() ? "" : "static ").println("void* throwClassCastException() {").indent();
         String methodName = context.getNames().forMethod(new MethodReference(ExceptionHandling.class,
                 "throwClassCastException", void.class));
         writer.println(methodName + "();");
@@ -369,7 +526,8 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     }
 
     private void generateAllocateStringArray(GenerationContext context, CodeWriter writer) {
-        writer.println("static JavaArray* teavm_allocateStringArray(int32_t size) {").indent();
+        writer.print(context.isSplitUnits() ? "" : "static ")
+                .println("JavaArray* teavm_allocateStringArray(int32_t size) {").indent();
         String allocateArrayName = context.getNames().forMethod(new MethodReference(Allocator.class,
                         "allocateArray", RuntimeClass.class, int.class, Address.class));
         String stringClassName = context.getNames().forClassInstance(ValueType.arrayOf(
@@ -453,6 +611,9 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
 
     @Override
     public String[] getPlatformTags() {
+        if (compactStrings) {
+            return new String[] { PlatformMarkers.C, PlatformMarkers.LOW_LEVEL, PlatformMarkers.COMPACT_STRINGS };
+        }
         return new String[] { PlatformMarkers.C, PlatformMarkers.LOW_LEVEL };
     }
 
@@ -460,4 +621,9 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     public boolean isAsyncSupported() {
         return false;
     }
+
+    @Override
+    public boolean isGuardedDevirtualizationSupported() {
+        return true;
+    }
 }
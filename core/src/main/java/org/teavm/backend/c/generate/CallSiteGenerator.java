@@ -59,7 +59,10 @@ public class CallSiteGenerator {
     private void generateCallSites(List<CallSiteDescriptor> callSites) {
         String callSiteName = context.getNames().forClass(CALL_SITE);
 
-        writer.print("static ").print(callSiteName).print(" callSites[" + callSites.size() + "] = {").indent();
+        if (!context.isSplitUnits()) {
+            writer.print("static ");
+        }
+        writer.print(callSiteName).print(" callSites[" + callSites.size() + "] = {").indent();
         String handlerCountName = fieldName(CALL_SITE, "handlerCount");
         String firstHandlerName = fieldName(CALL_SITE, "firstHandler");
         String locationName = fieldName(CALL_SITE, "location");
@@ -19,6 +19,7 @@ import com.carrotsearch.hppc.ObjectIntHashMap;
 import com.carrotsearch.hppc.ObjectIntMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -49,6 +50,7 @@ import org.teavm.model.classes.VirtualTable;
 import org.teavm.model.classes.VirtualTableEntry;
 import org.teavm.model.lowlevel.Characteristics;
 import org.teavm.model.lowlevel.ShadowStackTransformer;
+import org.teavm.runtime.CallSite;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
 
@@ -60,6 +62,7 @@ public class ClassGenerator {
     private CodeGenerator codeGenerator;
     private ObjectIntMap<String> classLayoutOffsets = new ObjectIntHashMap<>();
     private List<FieldReference[]> staticGcRoots = new ArrayList<>();
+    private List<String> classInstances = new ArrayList<>();
     private List<FieldReference[]> layouts = new ArrayList<>();
     private int currentLayoutIndex;
     private Set<ValueType> types = new LinkedHashSet<>();
@@ -67,6 +70,7 @@ public class ClassGenerator {
     private CodeWriter includesWriter;
     private CodeWriter forwardDeclarationsWriter;
     private CodeWriter structuresWriter;
+    private CodeWriter staticFieldsWriter;
     private CodeWriter vtableStructuresWriter;
     private CodeWriter stringPoolWriter;
     private CodeWriter layoutWriter;
@@ -75,35 +79,66 @@ public class ClassGenerator {
     private CodeWriter isSupertypeWriter;
     private CodeWriter staticGcRootsWriter;
     private CodeWriter callSiteWriter;
+    private CodeWriter unitTablesWriter;
     private CodeWriter preCodeWriter;
     private CodeWriter codeWriter;
     private CodeWriter staticFieldInitWriter;
 
     public ClassGenerator(GenerationContext context, ClassReaderSource unprocessedClassSource,
             TagRegistry tagRegistry, Decompiler decompiler, CodeWriter writer) {
+        this(context, unprocessedClassSource, tagRegistry, decompiler, writer, null);
+    }
+
+    /**
+     * Creates generator that writes declarations to {@code headerWriter} and data to {@code dataWriter}.
+     * Code of methods goes to writer passed to {@link #setCodeWriter(CodeWriter)}.
+     */
+    public ClassGenerator(GenerationContext context, ClassReaderSource unprocessedClassSource,
+            TagRegistry tagRegistry, Decompiler decompiler, CodeWriter headerWriter, CodeWriter dataWriter) {
         this.context = context;
         this.unprocessedClassSource = unprocessedClassSource;
         this.tagRegistry = tagRegistry;
         this.decompiler = decompiler;
 
-        includesWriter = writer.fragment();
-        forwardDeclarationsWriter = writer.fragment();
-        structuresWriter = writer.fragment();
-        vtableStructuresWriter = writer.fragment();
-        stringPoolWriter = writer.fragment();
-        layoutWriter = writer.fragment();
-        vtableForwardWriter = writer.fragment();
-        vtableWriter = writer.fragment();
-        isSupertypeWriter = writer.fragment();
-        staticGcRootsWriter = writer.fragment();
-        callSiteWriter = writer.fragment();
-        preCodeWriter = writer.fragment();
-        codeWriter = writer.fragment();
-
-        writer.println("static void initStaticFields() {").indent();
-        staticFieldInitWriter = writer.fragment();
-        writer.outdent().println("}");
+        includesWriter = headerWriter.fragment();
+        forwardDeclarationsWriter = headerWriter.fragment();
+        structuresWriter = headerWriter.fragment();
+        vtableStructuresWriter = headerWriter.fragment();
+        if (dataWriter == null) {
+            dataWriter = headerWriter;
+            stringPoolWriter = headerWriter.fragment();
+            layoutWriter = headerWriter.fragment();
+            vtableForwardWriter = headerWriter.fragment();
+            vtableWriter = headerWriter.fragment();
+            isSupertypeWriter = headerWriter.fragment();
+            staticGcRootsWriter = headerWriter.fragment();
+            callSiteWriter = headerWriter.fragment();
+            preCodeWriter = headerWriter.fragment();
+            codeWriter = headerWriter.fragment();
+        } else {
+            vtableForwardWriter = headerWriter.fragment();
+            preCodeWriter = headerWriter.fragment();
+            staticFieldsWriter = dataWriter.fragment();
+            stringPoolWriter = dataWriter.fragment();
+            layoutWriter = dataWriter.fragment();
+            vtableWriter = dataWriter.fragment();
+            isSupertypeWriter = dataWriter.fragment();
+            staticGcRootsWriter = dataWriter.fragment();
+            callSiteWriter = dataWriter.fragment();
+            unitTablesWriter = dataWriter.fragment();
+        }
+
+        dataWriter.println("static void initStaticFields() {").indent();
+        staticFieldInitWriter = dataWriter.fragment();
+        dataWriter.outdent().println("}");
 
+        if (codeWriter != null) {
+            codeGenerator = new CodeGenerator(context, codeWriter, includes);
+        }
+    }
+
+    public void setCodeWriter(CodeWriter codeWriter) {
+        this.codeWriter = codeWriter;
         codeGenerator = new CodeGenerator(context, codeWriter, includes);
     }
 
@@ -117,6 +152,10 @@ public class ClassGenerator {
 
     public void generateClass(ClassHolder cls) {
         generateClassStructure(cls);
+        generateClassCode(cls);
+    }
+
+    public void generateClassCode(ClassHolder cls) {
         generateClassMethods(cls);
         generateInitializer(cls);
     }
@@ -131,13 +170,34 @@ public class ClassGenerator {
         generateStaticGCRoots();
         generateLayoutArray();
 
-        new StringPoolGenerator(stringPoolWriter).generate(context.getStringPool().getStrings());
+        new StringPoolGenerator(stringPoolWriter, context.isCompactStrings(), context.isSplitUnits())
+                .generate(context.getStringPool().getStrings());
+        if (context.isSplitUnits()) {
+            generateSharedDataDeclarations();
+        }
 
         for (String include : includes) {
             includesWriter.println("#include " + include);
         }
     }
 
+    /**
+     * Writes tables of strings and call sites referenced by code of given units. Must be called before
+     * {@link #generateRemainingData(List, ShadowStackTransformer)}, since tables may add strings to the pool.
+     */
+    public void generateUnitTables(Collection<TranslationUnit> units) {
+        for (TranslationUnit unit : units) {
+            unit.writeTables(unitTablesWriter, context.getStringPool());
+        }
+    }
+
+    private void generateSharedDataDeclarations() {
+        vtableForwardWriter.println("extern JavaString stringPool[];");
+        vtableForwardWriter.println("extern void** gc_staticRoots[];");
+        vtableForwardWriter.print("extern ").print(context.getNames().forClass(CallSite.class.getName()))
+                .println(" callSites[];");
+    }
+
     public Set<ValueType> getTypes() {
         return types;
     }
@@ -199,10 +259,10 @@ public class ClassGenerator {
             return;
         }
 
-        forwardDeclarationsWriter.print("static void ")
+        forwardDeclarationsWriter.print(storagePrefix()).print("void ")
                 .print(context.getNames().forClassInitializer(cls.getName())).println("();");
 
-        codeWriter.print("static void ").print(context.getNames().forClassInitializer(cls.getName()))
+        codeWriter.print(storagePrefix()).print("void ").print(context.getNames().forClassInitializer(cls.getName()))
                 .println("() {").indent();
 
         String classInstanceName = context.getNames().forClassInstance(ValueType.object(cls.getName()));
@@ -217,7 +277,7 @@ public class ClassGenerator {
         codeWriter.outdent().println("}");
     }
 
-    private void generateClassStructure(ClassHolder cls) {
+    public void generateClassStructure(ClassHolder cls) {
         if (!needsData(cls)) {
             return;
         }
@@ -247,8 +307,14 @@ public class ClassGenerator {
         for (FieldHolder field : cls.getFields()) {
             if (field.hasModifier(ElementModifier.STATIC)) {
                 String fieldName = context.getNames().forStaticField(field.getReference());
-                fieldsWriter.print("static ").printStrictType(field.getType()).print(" ").print(fieldName)
-                        .println(";");
+                if (context.isSplitUnits()) {
+                    fieldsWriter.print("extern ").printStrictType(field.getType()).print(" ").print(fieldName)
+                            .println(";");
+                    staticFieldsWriter.printStrictType(field.getType()).print(" ").print(fieldName).println(";");
+                } else {
+                    fieldsWriter.print("static ").printStrictType(field.getType()).print(" ").print(fieldName)
+                            .println(";");
+                }
                 if (isReferenceType(field.getType())) {
                     staticFields[staticIndex++] = field.getReference();
                 }
@@ -332,8 +398,10 @@ public class ClassGenerator {
                 ? context.getNames().forClassClass(className)
                 : "JavaClass";
         String name = context.getNames().forClassInstance(type);
+        classInstances.add(name);
 
-        vtableForwardWriter.print("static ").print(structName).print(" ").print(name).println(";");
+        vtableForwardWriter.print(context.isSplitUnits() ? "extern " : "static ").print(structName).print(" ")
+                .print(name).println(";");
 
         ClassReader cls = className != null ? context.getClassSource().get(className) : null;
         String enumConstants;
@@ -343,7 +411,8 @@ public class ClassGenerator {
             enumConstants = "NULL";
         }
 
-        vtableWriter.print("static alignas(8) ").print(structName).print(" ").print(name).println(" = {").indent();
+        vtableWriter.print(storagePrefix()).print("alignas(8) ").print(structName).print(" ").print(name)
+                .println(" = {").indent();
 
         if (className != null) {
             vtableWriter.println(".parent = {").indent();
@@ -506,9 +575,10 @@ public class ClassGenerator {
     }
 
     private void generateStaticGCRoots() {
-        int total = staticGcRoots.stream().mapToInt(c -> c.length).sum();
+        int total = staticGcRoots.stream().mapToInt(c -> c.length).sum() + classInstances.size();
 
-        staticGcRootsWriter.println("static void** gc_staticRoots[" + (total + 1) + "] = {").indent();
+        staticGcRootsWriter.print(storagePrefix()).println("void** gc_staticRoots[" + (total + 1) + "] = {")
+                .indent();
         staticGcRootsWriter.print("(void**) (intptr_t) " + total);
 
         for (FieldReference[] fields : staticGcRoots) {
@@ -525,6 +595,14 @@ public class ClassGenerator {
             }
         }
 
+        // Cached simple names of classes are allocated in heap, but referenced from static data
+        String simpleNameField = classFieldName("simpleName");
+        for (String classInstance : classInstances) {
+            staticGcRootsWriter.print(",").println();
+            staticGcRootsWriter.print("(void**) &((JavaClass*) &").print(classInstance).print(")->")
+                    .print(simpleNameField);
+        }
+
         staticGcRootsWriter.println().outdent().println("};");
     }
 
@@ -548,6 +626,10 @@ public class ClassGenerator {
         layoutWriter.println().outdent().println("};");
     }
 
+    private String storagePrefix() {
+        return context.isSplitUnits() ? "" : "static ";
+    }
+
     private String classFieldName(String field) {
         return context.getNames().forMemberField(new FieldReference(RuntimeClass.class.getName(), field));
     }
@@ -712,8 +794,8 @@ public class ClassGenerator {
 
     private void generateIsSupertypeFunction(ValueType type) {
         String name = context.getNames().forSupertypeFunction(type);
-        vtableForwardWriter.println("static int32_t " + name + "(JavaClass*);");
-        isSupertypeWriter.println("static int32_t " + name + "(JavaClass* cls) {").indent();
+        vtableForwardWriter.print(storagePrefix()).println("int32_t " + name + "(JavaClass*);");
+        isSupertypeWriter.print(storagePrefix()).println("int32_t " + name + "(JavaClass* cls) {").indent();
 
         if (type instanceof ValueType.Object) {
             generateIsSuperclassFunction(((ValueType.Object) type).getClassName());
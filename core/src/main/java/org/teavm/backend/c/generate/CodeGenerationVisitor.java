@@ -824,6 +824,11 @@ public class CodeGenerationVisitor implements ExprVisitor, StatementVisitor {
         public StringPool getStringPool() {
             return context.getStringPool();
         }
+
+        @Override
+        public TranslationUnit getTranslationUnit() {
+            return context.getCurrentUnit();
+        }
     };
 
     private static CVariableType typeToCType(ValueType type) {
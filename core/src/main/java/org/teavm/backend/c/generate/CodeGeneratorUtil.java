@@ -25,8 +25,13 @@ public final class CodeGeneratorUtil {
         if (value == null) {
             writer.print("NULL");
         } else if (value instanceof String) {
-            int index = context.getStringPool().getStringIndex((String) value);
-            writer.print("(stringPool + " + index + ")");
+            TranslationUnit unit = context.getCurrentUnit();
+            if (unit != null) {
+                writer.print(unit.getStringTableName() + "[" + unit.getStringIndex((String) value) + "]");
+            } else {
+                int index = context.getStringPool().getStringIndex((String) value);
+                writer.print("(stringPool + " + index + ")");
+            }
         } else if (value instanceof Integer) {
             int i = (Integer) value;
             long v = i;
@@ -36,11 +36,14 @@ public class GenerationContext {
     private ClassReaderSource classSource;
     private List<Intrinsic> intrinsics;
     private List<Generator> generators;
+    private boolean compactStrings;
+    private boolean splitUnits;
+    private TranslationUnit currentUnit;
     private Map<MethodReference, Intrinsic> intrinsicCache = new HashMap<>();
 
     public GenerationContext(VirtualTableProvider virtualTableProvider, Characteristics characteristics,
             StringPool stringPool, NameProvider names, Diagnostics diagnostics, ClassReaderSource classSource,
-            List<Intrinsic> intrinsics, List<Generator> generators) {
+            List<Intrinsic> intrinsics, List<Generator> generators, boolean compactStrings, boolean splitUnits) {
         this.virtualTableProvider = virtualTableProvider;
         this.characteristics = characteristics;
         this.stringPool = stringPool;
@@ -49,6 +52,8 @@ public class GenerationContext {
         this.classSource = classSource;
         this.intrinsics = new ArrayList<>(intrinsics);
         this.generators = new ArrayList<>(generators);
+        this.compactStrings = compactStrings;
+        this.splitUnits = splitUnits;
     }
 
     public void addIntrinsic(Intrinsic intrinsic) {
@@ -79,6 +84,30 @@ public class GenerationContext {
         return classSource;
     }
 
+    public boolean isCompactStrings() {
+        return compactStrings;
+    }
+
+    /**
+     * Tells whether code is distributed among several translation units, so that functions and data
+     * referenced across units need external linkage.
+     */
+    public boolean isSplitUnits() {
+        return splitUnits;
+    }
+
+    /**
+     * Returns translation unit which code is being generated, or <code>null</code> if output is not split
+     * into units or generated code goes to the data unit.
+     */
+    public TranslationUnit getCurrentUnit() {
+        return currentUnit;
+    }
+
+    public void setCurrentUnit(TranslationUnit currentUnit) {
+        this.currentUnit = currentUnit;
+    }
+
     public Intrinsic getIntrinsic(MethodReference method) {
         return intrinsicCache.computeIfAbsent(method,
                 m -> intrinsics.stream().filter(i -> i.canHandle(m)).findFirst().orElse(null));
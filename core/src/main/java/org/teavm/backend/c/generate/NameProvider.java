@@ -42,6 +42,7 @@ public class NameProvider extends LowLevelNameProvider {
         memberFieldNames.put(new FieldReference(RuntimeArray.class.getName(), "size"), "size");
         memberFieldNames.put(new FieldReference(String.class.getName(), "characters"), "characters");
         memberFieldNames.put(new FieldReference(String.class.getName(), "hashCode"), "hashCode");
+        memberFieldNames.put(new FieldReference(String.class.getName(), "latin1"), "latin1");
 
         occupiedClassNames.put(RuntimeObject.class.getName(), new HashSet<>(Arrays.asList("header")));
         occupiedClassNames.put(RuntimeArray.class.getName(), new HashSet<>(Arrays.asList("length")));
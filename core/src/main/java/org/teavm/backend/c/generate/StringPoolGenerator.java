@@ -19,22 +19,33 @@ import java.util.List;
 
 public class StringPoolGenerator {
     private CodeWriter writer;
+    private boolean compactStrings;
+    private boolean shared;
 
-    public StringPoolGenerator(CodeWriter writer) {
+    public StringPoolGenerator(CodeWriter writer, boolean compactStrings, boolean shared) {
         this.writer = writer;
+        this.compactStrings = compactStrings;
+        this.shared = shared;
     }
 
     public void generate(List<? extends String> strings) {
-        writer.println("static JavaString stringPool[" + strings.size() + "] = {").indent();
+        if (!shared) {
+            writer.print("static ");
+        }
+        writer.println("JavaString stringPool[" + strings.size() + "] = {").indent();
         for (int i = 0; i < strings.size(); ++i) {
             String s = strings.get(i);
             boolean codes = hasBadCharacters(s);
-            String macroName = codes ? "TEAVM_STRING_FROM_CODES" : "TEAVM_STRING";
+            boolean latin1 = compactStrings && isLatin1(s);
+            String macroName = latin1 ? "TEAVM_STRING_LATIN1" : "TEAVM_STRING";
+            if (codes) {
+                macroName += "_FROM_CODES";
+            }
             writer.print(macroName + "(" + s.length() + ", " + s.hashCode() + ",");
             if (codes) {
                 generateNumericStringLiteral(s);
             } else {
-                generateSimpleStringLiteral(s);
+                generateSimpleStringLiteral(s, latin1);
             }
             writer.print(")");
 
@@ -55,9 +66,19 @@ public class StringPoolGenerator {
         return false;
     }
 
-    private void generateSimpleStringLiteral(String string) {
+    private boolean isLatin1(String string) {
+        for (int i = 0; i < string.length(); ++i) {
+            if (string.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generateSimpleStringLiteral(String string, boolean latin1) {
+        String prefix = latin1 ? "" : "u";
         if (string.isEmpty()) {
-            writer.print("u\"\"");
+            writer.print(prefix + "\"\"");
             return;
         }
 
@@ -67,7 +88,7 @@ public class StringPoolGenerator {
                 writer.println();
             }
             int last = Math.min(i + chunkSize, string.length());
-            writer.print("u\"");
+            writer.print(prefix + "\"");
 
             for (int j = i; j < last; ++j) {
                 char c = string.charAt(j);
@@ -90,6 +111,10 @@ public class StringPoolGenerator {
                     default:
                         if (c < 32) {
                             writer.print("\\0" + Character.forDigit(c >> 3, 8) + Character.forDigit(c & 0x7, 8));
+                        } else if (c > 127 && latin1) {
+                            writer.print("\\" + Character.forDigit(c >> 6, 8)
+                                    + Character.forDigit((c >> 3) & 7, 8)
+                                    + Character.forDigit(c & 7, 8));
                         } else if (c > 127) {
                             writer.print("\\u"
                                     + Character.forDigit(c >> 12, 16)
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.c.generate;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntIntMap;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.ObjectIntMap;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects string literals and call sites used by code of a single translation unit. Code of the unit refers
+ * to them through tables indexed in order of first use within the unit. Tables are defined in the data unit,
+ * so adding a string or a call site in one unit does not change code of other units.
+ */
+public class TranslationUnit {
+    private String name;
+    private String symbolSuffix;
+    private List<String> strings = new ArrayList<>();
+    private ObjectIntMap<String> stringIndexes = new ObjectIntHashMap<>();
+    private IntArrayList callSites = new IntArrayList();
+    private IntIntMap callSiteIndexes = new IntIntHashMap();
+
+    public TranslationUnit(String name) {
+        this.name = name;
+        symbolSuffix = name.replace("_", "__").replace('.', '_').replace('$', '_');
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getStringTableName() {
+        return "teavm_strings_" + symbolSuffix;
+    }
+
+    public String getCallSiteTableName() {
+        return "teavm_callSites_" + symbolSuffix;
+    }
+
+    public int getStringIndex(String string) {
+        int index = stringIndexes.getOrDefault(string, -1);
+        if (index < 0) {
+            index = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    public int getCallSiteIndex(int callSiteId) {
+        int index = callSiteIndexes.getOrDefault(callSiteId, -1);
+        if (index < 0) {
+            index = callSites.size();
+            callSites.add(callSiteId);
+            callSiteIndexes.put(callSiteId, index);
+        }
+        return index;
+    }
+
+    public List<String> getStrings() {
+        return strings;
+    }
+
+    public int[] getCallSites() {
+        return callSites.toArray();
+    }
+
+    public void writeDeclarations(CodeWriter writer) {
+        writer.println("extern JavaString* " + getStringTableName() + "[];");
+        writer.println("extern int32_t " + getCallSiteTableName() + "[];");
+    }
+
+    public void writeTables(CodeWriter writer, StringPool stringPool) {
+        writer.print("JavaString* " + getStringTableName() + "[" + Math.max(1, strings.size()) + "] = {");
+        if (strings.isEmpty()) {
+            writer.print(" NULL");
+        }
+        for (int i = 0; i < strings.size(); ++i) {
+            writer.print(i > 0 ? ", " : " ").print("stringPool + " + stringPool.getStringIndex(strings.get(i)));
+        }
+        writer.println(" };");
+
+        writer.print("int32_t " + getCallSiteTableName() + "[" + Math.max(1, callSites.size()) + "] = {");
+        if (callSites.isEmpty()) {
+            writer.print(" 0");
+        }
+        for (int i = 0; i < callSites.size(); ++i) {
+            writer.print(i > 0 ? ", " : " ").print(String.valueOf(callSites.get(i)));
+        }
+        writer.println(" };");
+    }
+}
@@ -20,6 +20,16 @@ import org.teavm.model.MethodReference;
 import org.teavm.runtime.GC;
 
 public class GCIntrinsic implements Intrinsic {
+    private boolean generational;
+    private boolean compacting;
+    private int sliceBudget;
+
+    public GCIntrinsic(boolean generational, boolean compacting, int sliceBudget) {
+        this.generational = generational;
+        this.compacting = compacting;
+        this.sliceBudget = sliceBudget;
+    }
+
     @Override
     public boolean canHandle(MethodReference method) {
         if (!method.getClassName().equals(GC.class.getName())) {
@@ -34,6 +44,10 @@ public class GCIntrinsic implements Intrinsic {
             case "regionMaxCount":
             case "availableBytes":
             case "regionSize":
+            case "isGenerational":
+            case "isCompacting":
+            case "isIncremental":
+            case "sliceBudget":
                 return true;
             default:
                 return false;
@@ -42,6 +56,22 @@ public class GCIntrinsic implements Intrinsic {
 
     @Override
     public void apply(IntrinsicContext context, InvocationExpr invocation) {
+        if (invocation.getMethod().getName().equals("isGenerational")) {
+            context.writer().print(generational ? "1" : "0");
+            return;
+        }
+        if (invocation.getMethod().getName().equals("isCompacting")) {
+            context.writer().print(compacting ? "1" : "0");
+            return;
+        }
+        if (invocation.getMethod().getName().equals("isIncremental")) {
+            context.writer().print(sliceBudget > 0 ? "1" : "0");
+            return;
+        }
+        if (invocation.getMethod().getName().equals("sliceBudget")) {
+            context.writer().print(String.valueOf(sliceBudget));
+            return;
+        }
         context.writer().print("gc_").print(invocation.getMethod().getName());
     }
 }
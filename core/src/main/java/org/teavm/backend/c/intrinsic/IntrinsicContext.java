@@ -19,6 +19,7 @@ import org.teavm.ast.Expr;
 import org.teavm.backend.c.generate.CodeWriter;
 import org.teavm.backend.c.generate.NameProvider;
 import org.teavm.backend.c.generate.StringPool;
+import org.teavm.backend.c.generate.TranslationUnit;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.model.MethodReference;
 
@@ -35,5 +36,7 @@ public interface IntrinsicContext {
 
     StringPool getStringPool();
 
+    TranslationUnit getTranslationUnit();
+
 
 }
@@ -15,7 +15,10 @@
  */
 package org.teavm.backend.c.intrinsic;
 
+import org.teavm.ast.ConstantExpr;
+import org.teavm.ast.Expr;
 import org.teavm.ast.InvocationExpr;
+import org.teavm.backend.c.generate.TranslationUnit;
 import org.teavm.model.MethodReference;
 import org.teavm.runtime.ShadowStack;
 
@@ -33,6 +36,7 @@ public class ShadowStackIntrinsic implements Intrinsic {
             case "removeGCRoot":
             case "registerCallSite":
             case "getExceptionHandlerId":
+            case "getExceptionHandlerOffset":
             case "setExceptionHandlerId":
             case "getStackTop":
             case "getNextStackFrame":
@@ -61,11 +65,18 @@ public class ShadowStackIntrinsic implements Intrinsic {
                 context.writer().print("GC_ROOT_RELEASE");
                 break;
             case "registerCallSite":
-                context.writer().print("CALL_SITE");
-                break;
+                context.writer().print("CALL_SITE(");
+                writeCallSiteId(context, invocation.getArguments().get(0));
+                context.writer().print(")");
+                return;
             case "getExceptionHandlerId":
                 context.writer().print("EXCEPTION_HANDLER");
                 return;
+            case "getExceptionHandlerOffset":
+                context.writer().print("(EXCEPTION_HANDLER - ");
+                writeCallSiteId(context, invocation.getArguments().get(0));
+                context.writer().print(")");
+                return;
             case "setExceptionHandlerId":
                 context.writer().print("SET_EXCEPTION_HANDLER");
                 break;
@@ -103,4 +114,14 @@ public class ShadowStackIntrinsic implements Intrinsic {
         }
         context.writer().print(")");
     }
+
+    private void writeCallSiteId(IntrinsicContext context, Expr id) {
+        TranslationUnit unit = context.getTranslationUnit();
+        if (unit != null && id instanceof ConstantExpr) {
+            int index = unit.getCallSiteIndex((Integer) ((ConstantExpr) id).getValue());
+            context.writer().print(unit.getCallSiteTableName() + "[" + index + "]");
+        } else {
+            context.emit(id);
+        }
+    }
 }
@@ -0,0 +1,332 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.callgraph.CallGraphNode;
+import org.teavm.callgraph.CallSite;
+import org.teavm.callgraph.FieldAccessSite;
+import org.teavm.dependency.DependencyInfo;
+import org.teavm.interop.SplitPoint;
+import org.teavm.model.AnnotationReader;
+import org.teavm.model.BasicBlockReader;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReader;
+import org.teavm.model.FieldReference;
+import org.teavm.model.ListableClassReaderSource;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ProgramReader;
+import org.teavm.model.TryCatchBlockReader;
+import org.teavm.model.ValueType;
+import org.teavm.model.VariableReader;
+import org.teavm.model.instructions.AbstractInstructionReader;
+import org.teavm.model.instructions.InvocationType;
+
+/**
+ * <p>Distributes classes between main JavaScript file and chunks, one chunk per name given in {@link SplitPoint}.
+ * Code that runs before a chunk is loaded must not refer to classes of this chunk by name, while it can call
+ * their virtual methods, since instances only appear after the chunk is loaded.</p>
+ *
+ * <p>Method is attributed to a chunk when call graph reaches it through split points of this chunk only.
+ * Class goes to a chunk when all code that refers to it by name (constructors, static members, class literals,
+ * type checks) is attributed to this chunk, and it is not a supertype of a class outside of this chunk.
+ * Everything else stays in the main file, including classes shared by several chunks.</p>
+ */
+class ChunkPartitioner {
+    static final MethodReference LOAD_METHOD = new MethodReference("org.teavm.platform.ChunkLoader", "load",
+            ValueType.object("java.lang.String"), ValueType.VOID);
+    private static final String MAIN = "";
+
+    private DependencyInfo dependencyInfo;
+    private ListableClassReaderSource classes;
+    private CallGraph callGraph;
+    private Map<MethodReference, String> splitPoints = new HashMap<>();
+    private Set<MethodReference> mainMethods = new HashSet<>();
+    private Map<MethodReference, String> methodChunks = new HashMap<>();
+    private Set<MethodReference> rootMethods;
+    private Map<String, String> classChunks = new HashMap<>();
+
+    ChunkPartitioner(DependencyInfo dependencyInfo, ListableClassReaderSource classes) {
+        this.dependencyInfo = dependencyInfo;
+        this.classes = classes;
+        callGraph = dependencyInfo.getCallGraph();
+    }
+
+    /**
+     * Returns chunk names of classes that don't go to the main file.
+     */
+    Map<String, String> partition() {
+        findSplitPoints();
+        if (splitPoints.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        rootMethods = new HashSet<>(dependencyInfo.getRootMethods());
+        rootMethods.add(LOAD_METHOD);
+        findMainMethods();
+        for (String chunk : new TreeSet<>(splitPoints.values())) {
+            findChunkMethods(chunk);
+        }
+
+        for (String className : classes.getClassNames()) {
+            ClassReader cls = classes.get(className);
+            for (MethodReader method : cls.getMethods()) {
+                attributeMethod(method);
+            }
+        }
+        keepSupertypesConsistent();
+
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : classChunks.entrySet()) {
+            if (!entry.getValue().equals(MAIN) && classes.get(entry.getKey()) != null) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void findSplitPoints() {
+        for (String className : classes.getClassNames()) {
+            for (MethodReader method : classes.get(className).getMethods()) {
+                AnnotationReader annot = method.getAnnotations().get(SplitPoint.class.getName());
+                if (annot != null && method.getProgram() != null) {
+                    splitPoints.put(method.getReference(), annot.getValue("value").getString());
+                }
+            }
+        }
+    }
+
+    private void findMainMethods() {
+        Deque<MethodReference> queue = new ArrayDeque<>(rootMethods);
+        while (!queue.isEmpty()) {
+            MethodReference method = queue.removeLast();
+            if (!mainMethods.add(method) || splitPoints.containsKey(method)) {
+                continue;
+            }
+            queue.addAll(getCallees(method));
+        }
+    }
+
+    private void findChunkMethods(String chunk) {
+        Deque<MethodReference> queue = new ArrayDeque<>();
+        for (Map.Entry<MethodReference, String> entry : splitPoints.entrySet()) {
+            if (entry.getValue().equals(chunk)) {
+                queue.addAll(getCallees(entry.getKey()));
+            }
+        }
+
+        Set<MethodReference> visited = new HashSet<>();
+        while (!queue.isEmpty()) {
+            MethodReference method = queue.removeLast();
+            if (mainMethods.contains(method) || !visited.add(method)) {
+                continue;
+            }
+            methodChunks.merge(method, chunk, ChunkPartitioner::merge);
+            if (!splitPoints.containsKey(method)) {
+                queue.addAll(getCallees(method));
+            }
+        }
+    }
+
+    private Collection<MethodReference> getCallees(MethodReference method) {
+        CallGraphNode node = callGraph.getNode(method);
+        Collection<MethodReference> speculative = dependencyInfo.getSpeculativeCallees(method);
+        List<MethodReference> callees = new ArrayList<>();
+        for (CallSite callSite : node.getCallSites()) {
+            MethodReference callee = callSite.getCallee().getMethod();
+            if (!speculative.contains(callee)) {
+                callees.add(callee);
+            }
+        }
+        return callees;
+    }
+
+    private String getMethodChunk(MethodReference method) {
+        if (mainMethods.contains(method)) {
+            return MAIN;
+        }
+        return methodChunks.get(method);
+    }
+
+    private String getBodyChunk(MethodReference method) {
+        String chunk = splitPoints.get(method);
+        if (chunk == null) {
+            chunk = getMethodChunk(method);
+        }
+        return chunk != null ? chunk : MAIN;
+    }
+
+    /*
+     * Virtual methods are called by name of method rather than by name of class, so their own
+     * attribution does not matter for the class. Static methods and constructors are called by
+     * name of class, also from generated code, which is only visible through call graph.
+     */
+    private void attributeMethod(MethodReader method) {
+        MethodReference ref = method.getReference();
+        String chunk = getMethodChunk(ref);
+        if (chunk != null && (method.hasModifier(ElementModifier.STATIC) || ref.getName().equals("<init>")
+                || rootMethods.contains(ref))) {
+            attributeClass(ref.getClassName(), chunk);
+        }
+
+        String bodyChunk = getBodyChunk(ref);
+        ProgramReader program = method.getProgram();
+        if (program != null) {
+            ClassReferenceCollector collector = new ClassReferenceCollector(bodyChunk);
+            for (BasicBlockReader block : program.getBasicBlocks()) {
+                block.readAllInstructions(collector);
+                for (TryCatchBlockReader tryCatch : block.readTryCatchBlocks()) {
+                    if (tryCatch.getExceptionType() != null) {
+                        attributeClass(tryCatch.getExceptionType(), bodyChunk);
+                    }
+                }
+            }
+        }
+        if (chunk != null) {
+            for (FieldAccessSite fieldAccess : callGraph.getNode(ref).getFieldAccessSites()) {
+                FieldReference field = fieldAccess.getField();
+                if (isStatic(field)) {
+                    attributeClass(field.getClassName(), bodyChunk);
+                }
+            }
+        }
+    }
+
+    private boolean isStatic(FieldReference fieldRef) {
+        ClassReader cls = classes.get(fieldRef.getClassName());
+        FieldReader field = cls != null ? cls.getField(fieldRef.getFieldName()) : null;
+        return field != null && field.hasModifier(ElementModifier.STATIC);
+    }
+
+    private void attributeClass(String className, String chunk) {
+        classChunks.merge(className, chunk, ChunkPartitioner::merge);
+    }
+
+    private void attributeType(ValueType type, String chunk) {
+        while (type instanceof ValueType.Array) {
+            type = ((ValueType.Array) type).getItemType();
+        }
+        if (type instanceof ValueType.Object) {
+            attributeClass(((ValueType.Object) type).getClassName(), chunk);
+        }
+    }
+
+    private void keepSupertypesConsistent() {
+        boolean changed;
+        do {
+            changed = false;
+            for (String className : classes.getClassNames()) {
+                String chunk = classChunks.getOrDefault(className, MAIN);
+                ClassReader cls = classes.get(className);
+                List<String> supertypes = new ArrayList<>(cls.getInterfaces());
+                if (cls.getParent() != null) {
+                    supertypes.add(cls.getParent());
+                }
+                for (String supertype : supertypes) {
+                    String superChunk = classChunks.getOrDefault(supertype, MAIN);
+                    if (!superChunk.equals(MAIN) && !superChunk.equals(chunk)) {
+                        classChunks.put(supertype, MAIN);
+                        changed = true;
+                    }
+                }
+            }
+        } while (changed);
+    }
+
+    private static String merge(String first, String second) {
+        return first.equals(second) ? first : MAIN;
+    }
+
+    class ClassReferenceCollector extends AbstractInstructionReader {
+        private String chunk;
+
+        ClassReferenceCollector(String chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void classConstant(VariableReader receiver, ValueType cst) {
+            attributeType(cst, chunk);
+        }
+
+        @Override
+        public void cast(VariableReader receiver, VariableReader value, ValueType targetType) {
+            attributeType(targetType, chunk);
+        }
+
+        @Override
+        public void createArray(VariableReader receiver, ValueType itemType, VariableReader size) {
+            attributeType(itemType, chunk);
+        }
+
+        @Override
+        public void createArray(VariableReader receiver, ValueType itemType,
+                List<? extends VariableReader> dimensions) {
+            attributeType(itemType, chunk);
+        }
+
+        @Override
+        public void create(VariableReader receiver, String type) {
+            attributeClass(type, chunk);
+        }
+
+        @Override
+        public void getField(VariableReader receiver, VariableReader instance, FieldReference field,
+                ValueType fieldType) {
+            if (instance == null) {
+                attributeClass(field.getClassName(), chunk);
+            }
+        }
+
+        @Override
+        public void putField(VariableReader instance, FieldReference field, VariableReader value,
+                ValueType fieldType) {
+            if (instance == null) {
+                attributeClass(field.getClassName(), chunk);
+            }
+        }
+
+        @Override
+        public void invoke(VariableReader receiver, VariableReader instance, MethodReference method,
+                List<? extends VariableReader> arguments, InvocationType type) {
+            if (type != InvocationType.VIRTUAL) {
+                attributeClass(method.getClassName(), chunk);
+            }
+        }
+
+        @Override
+        public void isInstance(VariableReader receiver, VariableReader value, ValueType type) {
+            attributeType(type, chunk);
+        }
+
+        @Override
+        public void initClass(String className) {
+            attributeClass(className, chunk);
+        }
+    }
+}
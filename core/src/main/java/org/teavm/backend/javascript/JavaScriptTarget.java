@@ -20,12 +20,17 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import org.teavm.ast.ClassNode;
 import org.teavm.ast.cache.EmptyRegularMethodNodeCache;
@@ -39,6 +44,7 @@ import org.teavm.backend.javascript.codegen.SourceWriter;
 import org.teavm.backend.javascript.codegen.SourceWriterBuilder;
 import org.teavm.backend.javascript.rendering.Renderer;
 import org.teavm.backend.javascript.rendering.RenderingContext;
+import org.teavm.backend.javascript.rendering.RenderingUtil;
 import org.teavm.backend.javascript.spi.GeneratedBy;
 import org.teavm.backend.javascript.spi.Generator;
 import org.teavm.backend.javascript.spi.InjectedBy;
@@ -57,6 +63,7 @@ import org.teavm.model.ClassHolder;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReference;
 import org.teavm.model.ListableClassHolderSource;
 import org.teavm.model.ListableClassReaderSource;
 import org.teavm.model.MethodHolder;
@@ -85,6 +92,10 @@ import org.teavm.vm.spi.TeaVMHostExtension;
 public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     private TeaVMTargetController controller;
     private boolean minifying = true;
+    private boolean nativeStrings;
+    private boolean bigIntLongs;
+    private boolean asyncReportGenerated;
+    private int renderingThreads = 1;
     private final Map<MethodReference, Generator> methodGenerators = new HashMap<>();
     private final Map<MethodReference, Injector> methodInjectors = new HashMap<>();
     private final List<Function<ProviderContext, Generator>> generatorProviders = new ArrayList<>();
@@ -94,6 +105,7 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     private MethodNodeCache astCache = new EmptyRegularMethodNodeCache();
     private final Set<MethodReference> asyncMethods = new HashSet<>();
     private final Set<MethodReference> asyncFamilyMethods = new HashSet<>();
+    private final Map<MethodReference, List<String>> asyncReasons = new HashMap<>();
     private ClassInitializerInsertionTransformer clinitInsertionTransformer;
 
     @Override
@@ -157,6 +169,64 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         this.minifying = minifying;
     }
 
+    public boolean isNativeStrings() {
+        return nativeStrings;
+    }
+
+    /**
+     * Makes {@link String} keep its characters in JavaScript string instead of char array. This makes
+     * passing strings to and from JavaScript free and lets concatenation and comparison run natively.
+     */
+    public void setNativeStrings(boolean nativeStrings) {
+        this.nativeStrings = nativeStrings;
+    }
+
+    public boolean isBigIntLongs() {
+        return bigIntLongs;
+    }
+
+    /**
+     * Makes generated code represent {@code long} values as JavaScript BigInt and {@code long[]} as
+     * BigInt64Array, so that long arithmetic does not allocate objects. Generated code requires
+     * JavaScript engine with BigInt support.
+     */
+    public void setBigIntLongs(boolean bigIntLongs) {
+        this.bigIntLongs = bigIntLongs;
+    }
+
+    public boolean isAsyncReportGenerated() {
+        return asyncReportGenerated;
+    }
+
+    /**
+     * Specifies whether TeaVM should write file next to generated JavaScript that lists asynchronous methods
+     * and tells for each of them which chain of calls made it asynchronous.
+     */
+    public void setAsyncReportGenerated(boolean asyncReportGenerated) {
+        this.asyncReportGenerated = asyncReportGenerated;
+    }
+
+    public int getRenderingThreads() {
+        return renderingThreads;
+    }
+
+    /**
+     * Specifies how many threads TeaVM may use to decompile and render classes. When greater than one,
+     * each class is decompiled and rendered on a worker thread into a separate buffer, and buffers are
+     * concatenated in the same order as in sequential mode. Names and string constants are assigned
+     * before rendering, so output does not depend on scheduling, though it may differ from sequential output.
+     * Rendering stays sequential when debug information is generated or build is incremental.
+     *
+     * @param renderingThreads degree of parallelism, {@code 1} (default) means sequential rendering.
+     */
+    public void setRenderingThreads(int renderingThreads) {
+        if (renderingThreads < 1) {
+            throw new IllegalArgumentException("Number of rendering threads must be positive: "
+                    + renderingThreads);
+        }
+        this.renderingThreads = renderingThreads;
+    }
+
     public MethodNodeCache getAstCache() {
         return astCache;
     }
@@ -187,10 +257,16 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public void contributeDependencies(DependencyAnalyzer dependencyAnalyzer) {
         dependencyAnalyzer.linkMethod(new MethodReference(Class.class.getName(), "getClass",
                 ValueType.object("org.teavm.platform.PlatformClass"), ValueType.parse(Class.class)), null).use();
-        dependencyAnalyzer.linkMethod(new MethodReference(String.class, "<init>", char[].class, void.class),
-                null).use();
-        dependencyAnalyzer.linkMethod(new MethodReference(String.class, "getChars", int.class, int.class, char[].class,
-                int.class, void.class), null).use();
+        if (nativeStrings) {
+            dependencyAnalyzer.linkMethod(new MethodReference(String.class.getName(), "fromNative",
+                    ValueType.object("java.lang.Object"), ValueType.object("java.lang.String")), null).use();
+            dependencyAnalyzer.linkField(new FieldReference(String.class.getName(), "nativeString"), null);
+        } else {
+            dependencyAnalyzer.linkMethod(new MethodReference(String.class, "<init>", char[].class, void.class),
+                    null).use();
+            dependencyAnalyzer.linkMethod(new MethodReference(String.class, "getChars", int.class, int.class,
+                    char[].class, int.class, void.class), null).use();
+        }
 
         MethodDependency internDep = dependencyAnalyzer.linkMethod(new MethodReference(String.class, "intern",
                 String.class), null);
@@ -224,10 +300,32 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public void emit(ListableClassHolderSource classes, BuildTarget target, String outputName) {
         try (OutputStream output = target.createResource(outputName);
                 Writer writer = new OutputStreamWriter(output, "UTF-8")) {
-            emit(classes, writer, target);
+            emit(classes, writer, target, outputName);
         } catch (IOException e) {
             throw new RenderingException(e);
         }
+        if (asyncReportGenerated && !controller.wasCancelled()) {
+            try (OutputStream output = target.createResource(outputName + ".async.txt");
+                    Writer writer = new OutputStreamWriter(output, "UTF-8")) {
+                writeAsyncReport(writer);
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+    }
+
+    private void writeAsyncReport(Writer writer) throws IOException {
+        List<MethodReference> methods = new ArrayList<>(asyncReasons.keySet());
+        methods.sort(Comparator.comparing(MethodReference::toString));
+        for (MethodReference method : methods) {
+            writer.write(method.toString());
+            writer.write('\n');
+            for (String line : asyncReasons.get(method)) {
+                writer.write("    ");
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
     }
 
     @Override
@@ -239,12 +337,38 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         clinitInsertionTransformer.apply(method, program);
     }
 
-    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target) {
-        List<ClassNode> clsNodes = modelToAst(classes);
+    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target, String outputName) {
+        ForkJoinPool pool = renderingThreads > 1 && debugEmitter == null && !controller.isIncremental()
+                ? new ForkJoinPool(renderingThreads)
+                : null;
+        try {
+            emit(classes, writer, target, outputName, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target, String outputName,
+            ForkJoinPool pool) {
+        List<ClassNode> clsNodes = modelToAst(classes, pool);
         if (controller.wasCancelled()) {
             return;
         }
 
+        Map<String, String> classChunks = new ChunkPartitioner(controller.getDependencyInfo(), classes).partition();
+        Map<String, List<ClassNode>> chunks = new TreeMap<>();
+        List<ClassNode> mainClsNodes = new ArrayList<>();
+        for (ClassNode clsNode : clsNodes) {
+            String chunk = classChunks.get(clsNode.getName());
+            if (chunk != null) {
+                chunks.computeIfAbsent(chunk, k -> new ArrayList<>()).add(clsNode);
+            } else {
+                mainClsNodes.add(clsNode);
+            }
+        }
+
         AliasProvider aliasProvider = minifying ? new MinifyingAliasProvider() : new DefaultAliasProvider();
         DefaultNamingStrategy naming = new DefaultNamingStrategy(aliasProvider, controller.getUnprocessedClassSource());
         SourceWriterBuilder builder = new SourceWriterBuilder(naming);
@@ -259,10 +383,12 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
                 controller.getUnprocessedClassSource(), classes,
                 controller.getClassLoader(), controller.getServices(), controller.getProperties(), naming);
         renderingContext.setMinifying(minifying);
+        renderingContext.setBigIntLongs(bigIntLongs);
         Renderer renderer = new Renderer(sourceWriter, asyncMethods, asyncFamilyMethods,
                 controller.getDiagnostics(), renderingContext);
         renderer.setProperties(controller.getProperties());
         renderer.setMinifying(minifying);
+        renderer.setNativeStrings(nativeStrings);
         if (debugEmitter != null) {
             for (String className : classes.getClassNames()) {
                 ClassHolder cls = classes.get(className);
@@ -287,9 +413,22 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
             }
             sourceWriter.append("\"use strict\";").newLine();
             renderer.renderRuntime();
-            renderer.render(clsNodes);
+            if (pool != null) {
+                renderer.render(mainClsNodes, pool);
+            } else {
+                renderer.render(mainClsNodes);
+            }
+            Map<String, String> chunkFiles = new LinkedHashMap<>();
+            for (Map.Entry<String, List<ClassNode>> entry : chunks.entrySet()) {
+                String fileName = getChunkFileName(outputName, entry.getKey());
+                emitChunk(renderer, builder, entry.getValue(), target, fileName);
+                chunkFiles.put(entry.getKey(), fileName.substring(fileName.lastIndexOf('/') + 1));
+            }
             renderer.renderStringPool();
             renderer.renderStringConstants();
+            if (!chunkFiles.isEmpty()) {
+                renderChunkRegistration(sourceWriter, chunkFiles);
+            }
             for (Map.Entry<? extends String, ? extends TeaVMEntryPoint> entry
                     : controller.getEntryPoints().entrySet()) {
                 sourceWriter.append("var ").append(entry.getKey()).ws().append("=").ws();
@@ -305,24 +444,52 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         }
     }
 
-    private List<ClassNode> modelToAst(ListableClassHolderSource classes) {
-        AsyncMethodFinder asyncFinder = new AsyncMethodFinder(controller.getDependencyInfo().getCallGraph(),
+    private static String getChunkFileName(String outputName, String chunk) {
+        String baseName = outputName.endsWith(".js") ? outputName.substring(0, outputName.length() - 3) : outputName;
+        return baseName + "-" + chunk + ".js";
+    }
+
+    private void emitChunk(Renderer renderer, SourceWriterBuilder builder, List<ClassNode> clsNodes,
+            BuildTarget target, String fileName) throws IOException {
+        try (OutputStream output = target.createResource(fileName);
+                Writer writer = new OutputStreamWriter(output, "UTF-8")) {
+            SourceWriter sourceWriter = builder.build(writer);
+            sourceWriter.append("\"use strict\";").newLine();
+            renderer.renderChunk(clsNodes, sourceWriter);
+        }
+    }
+
+    private void renderChunkRegistration(SourceWriter writer, Map<String, String> chunkFiles) throws IOException {
+        writer.append("$rt_registerChunks({");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : chunkFiles.entrySet()) {
+            if (!first) {
+                writer.append(",").ws();
+            }
+            first = false;
+            writer.append("\"").append(RenderingUtil.escapeString(entry.getKey())).append("\":").ws()
+                    .append("\"").append(RenderingUtil.escapeString(entry.getValue())).append("\"");
+        }
+        writer.append("});").newLine();
+    }
+
+    private List<ClassNode> modelToAst(ListableClassHolderSource classes, ForkJoinPool pool) {
+        AsyncMethodFinder asyncFinder = new AsyncMethodFinder(controller.getDependencyInfo(),
                 controller.getDiagnostics());
         asyncFinder.find(classes);
         asyncMethods.addAll(asyncFinder.getAsyncMethods());
         asyncFamilyMethods.addAll(asyncFinder.getAsyncFamilyMethods());
-
-        Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), asyncMethods, asyncFamilyMethods,
-                controller.isFriendlyToDebugger(), false);
-        decompiler.setRegularMethodCache(controller.isIncremental() ? astCache : null);
-
-        for (Map.Entry<MethodReference, Generator> entry : methodGenerators.entrySet()) {
-            decompiler.addGenerator(entry.getKey(), entry.getValue());
-        }
-        for (MethodReference injectedMethod : methodInjectors.keySet()) {
-            decompiler.addMethodToSkip(injectedMethod);
+        if (asyncReportGenerated) {
+            for (MethodReference method : asyncFinder.getAsyncMethods()) {
+                asyncReasons.put(method, asyncFinder.getAsyncReason(method));
+            }
         }
+
+        Decompiler decompiler = createDecompiler(classes);
         List<String> classOrder = decompiler.getClassOrdering(classes.getClassNames());
+        if (pool != null) {
+            return modelToAstConcurrently(classes, classOrder, decompiler, pool);
+        }
         List<ClassNode> classNodes = new ArrayList<>();
         for (String className : classOrder) {
             ClassHolder cls = classes.get(className);
@@ -337,6 +504,46 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         return classNodes;
     }
 
+    /*
+     * Decompiler keeps state of the method it decompiles, so each worker thread takes its own instance.
+     * Native methods are preprocessed on the current thread in advance, since preprocessing registers
+     * generators and injectors in shared maps.
+     */
+    private List<ClassNode> modelToAstConcurrently(ListableClassHolderSource classes, List<String> classOrder,
+            Decompiler decompiler, ForkJoinPool pool) {
+        for (String className : classOrder) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                preprocessNativeMethod(method, decompiler);
+            }
+            if (controller.wasCancelled()) {
+                return Collections.emptyList();
+            }
+        }
+
+        ThreadLocal<Decompiler> decompilers = ThreadLocal.withInitial(() -> createDecompiler(classes));
+        ClassNode[] classNodes = new ClassNode[classOrder.size()];
+        RenderingUtil.runConcurrently(pool, classNodes.length, i -> {
+            if (!controller.wasCancelled()) {
+                classNodes[i] = decompilers.get().decompile(classes.get(classOrder.get(i)));
+            }
+        });
+        return Arrays.asList(classNodes);
+    }
+
+    private Decompiler createDecompiler(ListableClassHolderSource classes) {
+        Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), asyncMethods, asyncFamilyMethods,
+                controller.isFriendlyToDebugger(), false);
+        decompiler.setRegularMethodCache(controller.isIncremental() ? astCache : null);
+
+        for (Map.Entry<MethodReference, Generator> entry : methodGenerators.entrySet()) {
+            decompiler.addGenerator(entry.getKey(), entry.getValue());
+        }
+        for (MethodReference injectedMethod : methodInjectors.keySet()) {
+            decompiler.addMethodToSkip(injectedMethod);
+        }
+        return decompiler;
+    }
+
     private void preprocessNativeMethod(MethodHolder method, Decompiler decompiler) {
         if (!method.getModifiers().contains(ElementModifier.NATIVE)
                 || methodGenerators.get(method.getReference()) != null
@@ -456,6 +663,9 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
 
     @Override
     public String[] getPlatformTags() {
+        if (nativeStrings) {
+            return new String[] { PlatformMarkers.JAVASCRIPT, PlatformMarkers.NATIVE_STRINGS };
+        }
         return new String[] { PlatformMarkers.JAVASCRIPT };
     }
 
@@ -463,4 +673,11 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public boolean isAsyncSupported() {
         return true;
     }
+
+    @Override
+    public boolean isGuardedDevirtualizationSupported() {
+        // JavaScript engines already speculate on receiver type with inline caches,
+        // an explicit instanceof check only adds work
+        return false;
+    }
 }
@@ -19,6 +19,9 @@ import java.util.HashMap;
 import java.util.Map;
 import org.teavm.model.*;
 
+/**
+ * Assigns names lazily, when they are first requested. Names can be requested from several threads at once.
+ */
 public class DefaultNamingStrategy implements NamingStrategy {
     private final AliasProvider aliasProvider;
     private final ClassReaderSource classSource;
@@ -35,12 +38,12 @@ public class DefaultNamingStrategy implements NamingStrategy {
     }
 
     @Override
-    public String getNameFor(String cls) {
+    public synchronized String getNameFor(String cls) {
         return classAliases.computeIfAbsent(cls, key -> aliasProvider.getClassAlias(cls));
     }
 
     @Override
-    public String getNameFor(MethodDescriptor method) {
+    public synchronized String getNameFor(MethodDescriptor method) {
         String key = method.toString();
         String alias = aliases.get(key);
         if (alias == null) {
@@ -51,12 +54,12 @@ public class DefaultNamingStrategy implements NamingStrategy {
     }
 
     @Override
-    public String getFullNameFor(MethodReference method) throws NamingException {
+    public synchronized String getFullNameFor(MethodReference method) throws NamingException {
         return getFullNameFor(method, 'M');
     }
 
     @Override
-    public String getNameForInit(MethodReference method) throws NamingException {
+    public synchronized String getNameForInit(MethodReference method) throws NamingException {
         return getFullNameFor(method, 'I');
     }
 
@@ -73,7 +76,7 @@ public class DefaultNamingStrategy implements NamingStrategy {
     }
 
     @Override
-    public String getNameFor(FieldReference field) {
+    public synchronized String getNameFor(FieldReference field) {
         String realCls = getRealFieldOwner(field.getClassName(), field.getFieldName());
         if (!realCls.equals(field.getClassName())) {
             String alias = getNameFor(new FieldReference(realCls, field.getFieldName()));
@@ -85,7 +88,7 @@ public class DefaultNamingStrategy implements NamingStrategy {
     }
 
     @Override
-    public String getFullNameFor(FieldReference field) throws NamingException {
+    public synchronized String getFullNameFor(FieldReference field) throws NamingException {
         String realCls = getRealFieldOwner(field.getClassName(), field.getFieldName());
         if (!realCls.equals(field.getClassName())) {
             String alias = getNameFor(new FieldReference(realCls, field.getFieldName()));
@@ -98,7 +101,7 @@ public class DefaultNamingStrategy implements NamingStrategy {
     }
 
     @Override
-    public String getNameForFunction(String name) throws NamingException {
+    public synchronized String getNameForFunction(String name) throws NamingException {
         return functionAliases.computeIfAbsent(name, key -> aliasProvider.getFunctionAlias(name));
     }
 
@@ -30,5 +30,7 @@ public interface NameFrequencyConsumer {
 
     void consume(FieldReference field);
 
+    void consumeStatic(FieldReference field);
+
     void consumeFunction(String name);
 }
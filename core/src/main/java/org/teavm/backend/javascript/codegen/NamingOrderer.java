@@ -84,6 +84,18 @@ public class NamingOrderer implements NameFrequencyConsumer {
         entry.frequency++;
     }
 
+    @Override
+    public void consumeStatic(final FieldReference field) {
+        String key = "s:" + field;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entry.operation = naming -> naming.getFullNameFor(field);
+            entries.put(key, entry);
+        }
+        entry.frequency++;
+    }
+
     @Override
     public void consumeFunction(final String name) {
         String key = "n:" + name;
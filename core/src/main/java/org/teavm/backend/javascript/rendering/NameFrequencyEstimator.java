@@ -113,6 +113,25 @@ class NameFrequencyEstimator extends RecursiveVisitor implements MethodNodeVisit
         }
     }
 
+    /**
+     * Estimates names that method bodies of the class refer to, along with names of its constructors
+     * and static fields, which {@link #estimate(ClassNode)} does not take into account.
+     */
+    public void estimateBodies(ClassNode cls) {
+        for (FieldNode field : cls.getFields()) {
+            if (field.getModifiers().contains(ElementModifier.STATIC)) {
+                consumer.consumeStatic(new FieldReference(cls.getName(), field.getName()));
+            }
+        }
+        for (MethodNode method : cls.getMethods()) {
+            if (!method.getModifiers().contains(ElementModifier.STATIC)
+                    && method.getReference().getName().equals("<init>")) {
+                consumer.consumeInit(method.getReference());
+            }
+            method.acceptVisitor(this);
+        }
+    }
+
     @Override
     public void visit(RegularMethodNode methodNode) {
         async = false;
@@ -253,7 +272,11 @@ class NameFrequencyEstimator extends RecursiveVisitor implements MethodNodeVisit
     @Override
     public void visit(QualificationExpr expr) {
         super.visit(expr);
-        consumer.consume(expr.getField());
+        if (expr.getQualified() != null) {
+            consumer.consume(expr.getField());
+        } else {
+            consumer.consumeStatic(expr.getField());
+        }
     }
 
     @Override
@@ -21,20 +21,24 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import org.teavm.ast.AsyncMethodNode;
 import org.teavm.ast.AsyncMethodPart;
 import org.teavm.ast.ClassNode;
+import org.teavm.ast.ConstantExpr;
 import org.teavm.ast.FieldNode;
 import org.teavm.ast.MethodNode;
 import org.teavm.ast.MethodNodeVisitor;
 import org.teavm.ast.NativeMethodNode;
+import org.teavm.ast.RecursiveVisitor;
 import org.teavm.ast.RegularMethodNode;
 import org.teavm.ast.VariableNode;
 import org.teavm.backend.javascript.codegen.NamingException;
 import org.teavm.backend.javascript.codegen.NamingOrderer;
 import org.teavm.backend.javascript.codegen.NamingStrategy;
 import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.codegen.SourceWriterBuilder;
 import org.teavm.backend.javascript.spi.GeneratorContext;
 import org.teavm.common.ServiceRepository;
 import org.teavm.debugging.information.DebugInformationEmitter;
@@ -52,11 +56,14 @@ import org.teavm.model.ValueType;
 import org.teavm.vm.RenderingException;
 
 public class Renderer implements RenderingManager {
+    private static final FieldReference NATIVE_STRING_FIELD = new FieldReference(String.class.getName(),
+            "nativeString");
     private final NamingStrategy naming;
     private final SourceWriter writer;
     private final ListableClassReaderSource classSource;
     private final ClassLoader classLoader;
     private boolean minifying;
+    private boolean nativeStrings;
     private final Properties properties = new Properties();
     private final ServiceRepository services;
     private DebugInformationEmitter debugEmitter = new DummyDebugInformationEmitter();
@@ -79,6 +86,21 @@ public class Renderer implements RenderingManager {
         this.context = context;
     }
 
+    private Renderer(Renderer parent, SourceWriter writer) {
+        naming = parent.naming;
+        this.writer = writer;
+        classSource = parent.classSource;
+        classLoader = parent.classLoader;
+        services = parent.services;
+        asyncMethods = parent.asyncMethods;
+        asyncFamilyMethods = parent.asyncFamilyMethods;
+        diagnostics = parent.diagnostics;
+        context = parent.context;
+        minifying = parent.minifying;
+        nativeStrings = parent.nativeStrings;
+        properties.putAll(parent.properties);
+    }
+
     @Override
     public SourceWriter getWriter() {
         return writer;
@@ -98,6 +120,14 @@ public class Renderer implements RenderingManager {
         this.minifying = minifying;
     }
 
+    /**
+     * Makes runtime convert between Java and JavaScript strings by wrapping and unwrapping JavaScript string
+     * kept by Java string, instead of copying characters.
+     */
+    public void setNativeStrings(boolean nativeStrings) {
+        this.nativeStrings = nativeStrings;
+    }
+
     @Override
     public ListableClassReaderSource getClassSource() {
         return classSource;
@@ -167,6 +197,9 @@ public class Renderer implements RenderingManager {
             renderRuntimeNullCheck();
             renderRuntimeIntern();
             renderRuntimeThreads();
+            if (context.isBigIntLongs()) {
+                renderRuntimeBigIntLongs();
+            }
         } catch (NamingException e) {
             throw new RenderingException("Error rendering runtime methods. See a cause for details", e);
         } catch (IOException e) {
@@ -191,6 +224,10 @@ public class Renderer implements RenderingManager {
     }
 
     private void renderRuntimeString() throws IOException {
+        if (nativeStrings) {
+            renderRuntimeNativeString();
+            return;
+        }
         MethodReference stringCons = new MethodReference(String.class, "<init>", char[].class, void.class);
         writer.append("function $rt_str(str) {").indent().softNewLine();
         writer.append("if (str === null) {").indent().softNewLine();
@@ -205,7 +242,36 @@ public class Renderer implements RenderingManager {
         writer.outdent().append("}").newLine();
     }
 
+    private void renderRuntimeNativeString() throws IOException {
+        MethodReference fromNative = new MethodReference(String.class.getName(), "fromNative",
+                ValueType.object("java.lang.Object"), ValueType.object("java.lang.String"));
+        writer.append("function $rt_str(str) {").indent().softNewLine();
+        writer.append("return str === null ? null : ").appendMethodBody(fromNative).append("(str);").softNewLine();
+        writer.outdent().append("}").newLine();
+
+        writer.append("function $rt_charArrayToString(array, offset, count) {").indent().softNewLine();
+        writer.append("var result = \"\";").softNewLine();
+        writer.append("var end = offset + count;").softNewLine();
+        writer.append("var chunk = [];").softNewLine();
+        writer.append("for (var i = offset; i < end; i = (i + 1) | 0) {").indent().softNewLine();
+        writer.append("chunk.push(array[i]);").softNewLine();
+        writer.append("if (chunk.length === 1024) {").indent().softNewLine();
+        writer.append("result += String.fromCharCode.apply(null, chunk);").softNewLine();
+        writer.append("chunk.length = 0;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return result + String.fromCharCode.apply(null, chunk);").softNewLine();
+        writer.outdent().append("}").newLine();
+    }
+
     private void renderRuntimeUnwrapString() throws IOException {
+        if (nativeStrings) {
+            writer.append("function $rt_ustr(str) {").indent().softNewLine();
+            writer.append("return str === null ? null : str.").appendField(NATIVE_STRING_FIELD).append(";")
+                    .softNewLine();
+            writer.outdent().append("}").newLine();
+            return;
+        }
         MethodReference stringLen = new MethodReference(String.class, "length", int.class);
         MethodReference getChars = new MethodReference(String.class, "getChars", int.class, int.class,
                 char[].class, int.class, void.class);
@@ -257,6 +323,39 @@ public class Renderer implements RenderingManager {
         writer.outdent().append("}").newLine();
     }
 
+    private void renderRuntimeBigIntLongs() throws IOException {
+        writer.append("var Long_ZERO").ws().append("=").ws().append("0n;").newLine();
+
+        writer.append("function Long_fromInt(val)").ws().append("{").indent().softNewLine();
+        writer.append("return BigInt(val);").softNewLine();
+        writer.outdent().append("}").newLine();
+
+        writer.append("function Long_fromNumber(val)").ws().append("{").indent().softNewLine();
+        writer.append("if (val !== val) {").indent().softNewLine();
+        writer.append("return 0n;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("if (val >= 9223372036854775807) {").indent().softNewLine();
+        writer.append("return 9223372036854775807n;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("if (val <= -9223372036854775808) {").indent().softNewLine();
+        writer.append("return -9223372036854775808n;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return BigInt(Math.trunc(val));").softNewLine();
+        writer.outdent().append("}").newLine();
+
+        writer.append("function Long_toNumber(val)").ws().append("{").indent().softNewLine();
+        writer.append("return Number(val);").softNewLine();
+        writer.outdent().append("}").newLine();
+
+        writer.append("function Long_compare(a, b)").ws().append("{").indent().softNewLine();
+        writer.append("return a < b ? -1 : a > b ? 1 : 0;").softNewLine();
+        writer.outdent().append("}").newLine();
+
+        writer.append("function $rt_createLongArray(sz)").ws().append("{").indent().softNewLine();
+        writer.append("return new ($rt_arraycls($rt_longcls()))(new BigInt64Array(sz));").softNewLine();
+        writer.outdent().append("}").newLine();
+    }
+
     private void renderRuntimeAliases() throws IOException {
         String[] names = { "$rt_throw", "$rt_compare", "$rt_nullCheck", "$rt_cls", "$rt_createArray",
                 "$rt_isInstance", "$rt_nativeThread", "$rt_suspending", "$rt_resuming", "$rt_invalidPointer",
@@ -297,6 +396,69 @@ public class Renderer implements RenderingManager {
         renderClassMetadata(classes);
     }
 
+    /**
+     * Renders classes like {@link #render(List)} does, but renders declaration and methods of each class
+     * on threads of the given pool, every class into its own buffer. Buffers are written in the order
+     * of classes. Names and string constants are assigned before rendering starts, so output does not depend
+     * on how classes are scheduled. Debug information is not emitted.
+     */
+    public void render(List<ClassNode> classes, ForkJoinPool pool) throws RenderingException {
+        NamingOrderer orderer = new NamingOrderer();
+        NameFrequencyEstimator estimator = new NameFrequencyEstimator(orderer, classSource, asyncMethods,
+                asyncFamilyMethods);
+        StringConstantCollector stringCollector = new StringConstantCollector();
+        for (ClassNode cls : classes) {
+            estimator.estimate(cls);
+            estimator.estimateBodies(cls);
+            stringCollector.collect(cls);
+        }
+        orderer.apply(naming);
+        if (minifying) {
+            try {
+                renderRuntimeAliases();
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+
+        RenderedClass[] renderedClasses = new RenderedClass[classes.size()];
+        RenderingUtil.runConcurrently(pool, classes.size(), i -> {
+            StringBuilder sb = new StringBuilder();
+            SourceWriterBuilder builder = new SourceWriterBuilder(naming);
+            builder.setMinified(minifying);
+            Renderer classRenderer = new Renderer(this, builder.build(sb));
+            classRenderer.renderDeclaration(classes.get(i));
+            classRenderer.renderMethodBodies(classes.get(i));
+            renderedClasses[i] = new RenderedClass(sb, classRenderer.postponedFieldInitializers);
+        });
+
+        try {
+            for (RenderedClass renderedClass : renderedClasses) {
+                writer.append(renderedClass.code);
+                postponedFieldInitializers.addAll(renderedClass.postponedFieldInitializers);
+            }
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+        renderClassMetadata(classes);
+    }
+
+    /**
+     * Renders classes of a lazily loaded chunk to a separate writer: declarations, method bodies, metadata
+     * and initializers of string fields. Chunk is loaded after the main file, so string constants of a chunk
+     * go to the common string pool, which must be rendered by {@link #renderStringPool()} after all chunks.
+     * Debug information is not emitted for chunks.
+     */
+    public void renderChunk(List<ClassNode> classes, SourceWriter writer) throws RenderingException {
+        Renderer chunkRenderer = new Renderer(this, writer);
+        for (ClassNode cls : classes) {
+            chunkRenderer.renderDeclaration(cls);
+            chunkRenderer.renderMethodBodies(cls);
+        }
+        chunkRenderer.renderClassMetadata(classes);
+        chunkRenderer.renderStringConstants();
+    }
+
     private void renderDeclaration(ClassNode cls) throws RenderingException {
         debugEmitter.addClass(cls.getName(), cls.getParentName());
         try {
@@ -921,6 +1083,57 @@ public class Renderer implements RenderingManager {
         return services.getService(type);
     }
 
+    private static class RenderedClass {
+        final CharSequence code;
+        final List<PostponedFieldInitializer> postponedFieldInitializers;
+
+        RenderedClass(CharSequence code, List<PostponedFieldInitializer> postponedFieldInitializers) {
+            this.code = code;
+            this.postponedFieldInitializers = postponedFieldInitializers;
+        }
+    }
+
+    /*
+     * Puts string constants to the string pool in the order they appear in classes, so that
+     * their indexes are the same whatever order classes are rendered in.
+     */
+    private class StringConstantCollector extends RecursiveVisitor implements MethodNodeVisitor {
+        void collect(ClassNode cls) {
+            for (FieldNode field : cls.getFields()) {
+                Object value = field.getInitialValue();
+                if (field.getModifiers().contains(ElementModifier.STATIC) && value instanceof String) {
+                    context.lookupString((String) value);
+                }
+            }
+            for (MethodNode method : cls.getMethods()) {
+                method.acceptVisitor(this);
+            }
+        }
+
+        @Override
+        public void visit(RegularMethodNode methodNode) {
+            methodNode.getBody().acceptVisitor(this);
+        }
+
+        @Override
+        public void visit(AsyncMethodNode methodNode) {
+            for (AsyncMethodPart part : methodNode.getBody()) {
+                part.getStatement().acceptVisitor(this);
+            }
+        }
+
+        @Override
+        public void visit(NativeMethodNode methodNode) {
+        }
+
+        @Override
+        public void visit(ConstantExpr expr) {
+            if (expr.getValue() instanceof String) {
+                context.lookupString((String) expr.getValue());
+            }
+        }
+    }
+
     private static class PostponedFieldInitializer {
         FieldReference field;
         String value;
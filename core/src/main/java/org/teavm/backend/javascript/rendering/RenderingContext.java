@@ -48,12 +48,13 @@ public class RenderingContext {
     private ServiceRepository services;
     private Properties properties;
     private NamingStrategy naming;
-    private final Deque<LocationStackEntry> locationStack = new ArrayDeque<>();
+    private final ThreadLocal<Deque<LocationStackEntry>> locationStack = ThreadLocal.withInitial(ArrayDeque::new);
     private final Map<String, Integer> stringPoolMap = new HashMap<>();
     private final List<String> stringPool = new ArrayList<>();
     private final List<String> readonlyStringPool = Collections.unmodifiableList(stringPool);
     private final Map<MethodReference, InjectorHolder> injectorMap = new HashMap<>();
     private boolean minifying;
+    private boolean bigIntLongs;
 
     public RenderingContext(DebugInformationEmitter debugEmitter,
             ClassReaderSource initialClassSource, ListableClassReaderSource classSource,
@@ -96,11 +97,24 @@ public class RenderingContext {
         this.minifying = minifying;
     }
 
+    public boolean isBigIntLongs() {
+        return bigIntLongs;
+    }
+
+    /**
+     * Makes renderer represent {@code long} values as JavaScript BigInt instead of objects from
+     * <code>runtime.js</code>.
+     */
+    public void setBigIntLongs(boolean bigIntLongs) {
+        this.bigIntLongs = bigIntLongs;
+    }
+
     public DebugInformationEmitter getDebugEmitter() {
         return debugEmitter;
     }
 
     public void pushLocation(TextLocation location) {
+        Deque<LocationStackEntry> locationStack = this.locationStack.get();
         LocationStackEntry prevEntry = locationStack.peek();
         if (location != null) {
             if (prevEntry == null || !location.equals(prevEntry.location)) {
@@ -115,6 +129,7 @@ public class RenderingContext {
     }
 
     public void popLocation() {
+        Deque<LocationStackEntry> locationStack = this.locationStack.get();
         LocationStackEntry prevEntry = locationStack.pop();
         LocationStackEntry entry = locationStack.peek();
         if (entry != null) {
@@ -130,7 +145,7 @@ public class RenderingContext {
         return minifying;
     }
 
-    public int lookupString(String string) {
+    public synchronized int lookupString(String string) {
         return stringPoolMap.computeIfAbsent(string, key -> {
             stringPool.add(key);
             return stringPool.size() - 1;
@@ -154,7 +169,9 @@ public class RenderingContext {
             return naming.getNameForFunction("$rt_s") + "(" + index + ")";
         } else if (cst instanceof Long) {
             long value = (Long) cst;
-            if (value == 0) {
+            if (bigIntLongs) {
+                return value + "n";
+            } else if (value == 0) {
                 return "Long_ZERO";
             } else if ((int) value == value) {
                 return "Long_fromInt(" + value + ")";
@@ -250,7 +267,7 @@ public class RenderingContext {
         injectorMap.put(method, new InjectorHolder(injector));
     }
 
-    public Injector getInjector(MethodReference ref) {
+    public synchronized Injector getInjector(MethodReference ref) {
         InjectorHolder holder = injectorMap.get(ref);
         if (holder == null) {
             holder = new InjectorHolder(null);
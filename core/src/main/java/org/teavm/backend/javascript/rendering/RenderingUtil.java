@@ -19,6 +19,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.teavm.vm.RenderingException;
 
 public final class RenderingUtil {
     public static final Set<String> KEYWORDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("break", "case",
@@ -97,4 +102,26 @@ public final class RenderingUtil {
     public static String indexToId(int index) {
         return indexToId(index, VARIABLE_START_CHARS);
     }
+
+    /**
+     * Runs action for each index from {@code 0} to {@code count - 1} on threads of the given pool
+     * and waits until all of them complete. Exceptions thrown by the action are rethrown on the current thread.
+     */
+    public static void runConcurrently(ForkJoinPool pool, int count, IntConsumer action) {
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(action)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RenderingException("Rendering was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RenderingException(cause);
+        }
+    }
 }
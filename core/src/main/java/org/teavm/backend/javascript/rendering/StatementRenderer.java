@@ -89,6 +89,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
     private ClassReaderSource classSource;
     private boolean async;
     private boolean minifying;
+    private boolean bigIntLongs;
     private Precedence precedence;
     private DebugInformationEmitter debugEmitter;
     private NamingStrategy naming;
@@ -108,6 +109,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         this.writer = writer;
         this.classSource = context.getClassSource();
         this.minifying = context.isMinifying();
+        this.bigIntLongs = context.isBigIntLongs();
         this.naming = context.getNaming();
         this.debugEmitter = context.getDebugEmitter();
     }
@@ -622,9 +624,130 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         }
     }
 
+    private void visitBigIntBinary(BinaryExpr expr) {
+        switch (expr.getOperation()) {
+            case ADD:
+                visitBigIntWrapped(expr, "+");
+                break;
+            case SUBTRACT:
+                visitBigIntWrapped(expr, "-");
+                break;
+            case MULTIPLY:
+                visitBigIntWrapped(expr, "*");
+                break;
+            case DIVIDE:
+                visitBigIntWrapped(expr, "/");
+                break;
+            case MODULO:
+                visitBinary(expr, "%", false);
+                break;
+            case BITWISE_OR:
+                visitBinary(expr, "|", false);
+                break;
+            case BITWISE_AND:
+                visitBinary(expr, "&", false);
+                break;
+            case BITWISE_XOR:
+                visitBinary(expr, "^", false);
+                break;
+            case LEFT_SHIFT:
+            case RIGHT_SHIFT:
+            case UNSIGNED_RIGHT_SHIFT:
+                visitBigIntShift(expr);
+                break;
+            case COMPARE:
+                visitBinaryFunction(expr, "Long_compare");
+                break;
+            case EQUALS:
+                visitBinary(expr, "===", false);
+                break;
+            case NOT_EQUALS:
+                visitBinary(expr, "!==", false);
+                break;
+            case LESS:
+                visitBinary(expr, "<", false);
+                break;
+            case LESS_OR_EQUALS:
+                visitBinary(expr, "<=", false);
+                break;
+            case GREATER:
+                visitBinary(expr, ">", false);
+                break;
+            case GREATER_OR_EQUALS:
+                visitBinary(expr, ">=", false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void visitBigIntWrapped(BinaryExpr expr, String op) {
+        try {
+            writer.append("BigInt.asIntN(64,").ws();
+            precedence = Precedence.min();
+            visitBinary(expr, op, false);
+            writer.append(')');
+        } catch (IOException e) {
+            throw new RenderingException("IO error occured", e);
+        }
+    }
+
+    private void visitBigIntShift(BinaryExpr expr) {
+        try {
+            if (expr.getLocation() != null) {
+                pushLocation(expr.getLocation());
+            }
+            boolean unsigned = expr.getOperation() == BinaryOperation.UNSIGNED_RIGHT_SHIFT;
+            Integer constantShift = null;
+            if (expr.getSecondOperand() instanceof ConstantExpr) {
+                Object value = ((ConstantExpr) expr.getSecondOperand()).getValue();
+                if (value instanceof Integer) {
+                    constantShift = (Integer) value & 63;
+                }
+            }
+            // Unsigned shift by non-zero distance always produces non-negative 63-bit value
+            boolean wrapped = expr.getOperation() == BinaryOperation.LEFT_SHIFT
+                    || (unsigned && (constantShift == null || constantShift == 0));
+            boolean parenthesized = !wrapped && precedence.ordinal() > Precedence.BITWISE_SHIFT.ordinal();
+            if (wrapped) {
+                writer.append("BigInt.asIntN(64,").ws();
+            } else if (parenthesized) {
+                writer.append('(');
+            }
+            if (unsigned) {
+                writer.append("BigInt.asUintN(64,").ws();
+                precedence = Precedence.min();
+                expr.getFirstOperand().acceptVisitor(this);
+                writer.append(')');
+            } else {
+                precedence = Precedence.BITWISE_SHIFT;
+                expr.getFirstOperand().acceptVisitor(this);
+            }
+            writer.ws().append(expr.getOperation() == BinaryOperation.LEFT_SHIFT ? "<<" : ">>").ws();
+            if (constantShift != null) {
+                writer.append(constantShift + "n");
+            } else {
+                writer.append("BigInt(");
+                precedence = Precedence.BITWISE_AND;
+                expr.getSecondOperand().acceptVisitor(this);
+                writer.ws().append('&').ws().append("63)");
+            }
+            if (wrapped || parenthesized) {
+                writer.append(')');
+            }
+            if (expr.getLocation() != null) {
+                popLocation();
+            }
+        } catch (IOException e) {
+            throw new RenderingException("IO error occured", e);
+        }
+    }
+
     @Override
     public void visit(BinaryExpr expr) {
-        if (expr.getType() == OperationType.LONG) {
+        if (expr.getType() == OperationType.LONG && bigIntLongs) {
+            visitBigIntBinary(expr);
+        } else if (expr.getType() == OperationType.LONG) {
             switch (expr.getOperation()) {
                 case ADD:
                     visitBinaryFunction(expr, "Long_add");
@@ -766,7 +889,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             Precedence outerPrecedence = precedence;
             switch (expr.getOperation()) {
                 case NOT: {
-                    if (expr.getType() == OperationType.LONG) {
+                    if (expr.getType() == OperationType.LONG && !bigIntLongs) {
                         writer.append("Long_not(");
                         precedence = Precedence.min();
                         expr.getOperand().acceptVisitor(this);
@@ -785,7 +908,12 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                     break;
                 }
                 case NEGATE:
-                    if (expr.getType() == OperationType.LONG) {
+                    if (expr.getType() == OperationType.LONG && bigIntLongs) {
+                        writer.append("BigInt.asIntN(64,").ws().append('-');
+                        precedence = Precedence.UNARY;
+                        expr.getOperand().acceptVisitor(this);
+                        writer.append(')');
+                    } else if (expr.getType() == OperationType.LONG) {
                         writer.append("Long_neg(");
                         precedence = Precedence.min();
                         expr.getOperand().acceptVisitor(this);
@@ -869,7 +997,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             switch (expr.getSource()) {
                 case INT:
                     if (expr.getTarget() == OperationType.LONG) {
-                        writer.append("Long_fromInt(");
+                        writer.append(bigIntLongs ? "BigInt(" : "Long_fromInt(");
                         precedence = Precedence.min();
                         expr.getValue().acceptVisitor(this);
                         writer.append(')');
@@ -880,6 +1008,13 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                 case LONG:
                     switch (expr.getTarget()) {
                         case INT:
+                            if (bigIntLongs) {
+                                writer.append("Number(BigInt.asIntN(32,").ws();
+                                precedence = Precedence.min();
+                                expr.getValue().acceptVisitor(this);
+                                writer.append("))");
+                                break;
+                            }
                             precedence = Precedence.MEMBER_ACCESS;
                             Expr longShifted = extractLongRightShiftedBy32(expr.getValue());
                             if (longShifted != null) {
@@ -892,7 +1027,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                             break;
                         case FLOAT:
                         case DOUBLE:
-                            writer.append("Long_toNumber(");
+                            writer.append(bigIntLongs ? "Number(" : "Long_toNumber(");
                             precedence = Precedence.min();
                             expr.getValue().acceptVisitor(this);
                             writer.append(')');
@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm;
+
+import org.teavm.interop.Address;
+import org.teavm.interop.Unmanaged;
+
+/**
+ * Bulk memory operations built on 128-bit vector instructions. Methods that work with a single 16-byte block are
+ * implemented by {@link org.teavm.backend.wasm.intrinsics.WasmSimdIntrinsic}, the rest process the block-sized
+ * part of a memory region with them and fall back to scalar code for the remainder. Only available when
+ * {@link WasmTarget#setSimd(boolean)} is enabled.
+ */
+@Unmanaged
+public final class WasmSimd {
+    private static final int BLOCK_SIZE = 16;
+    private static final int HASH_BLOCK_FACTOR = -1807454463; // 31^8
+
+    private WasmSimd() {
+    }
+
+    public static void fill(Address address, int pattern, int byteCount) {
+        Address end = address.add(byteCount);
+        Address blockEnd = address.add(byteCount & -BLOCK_SIZE);
+        while (address.isLessThan(blockEnd)) {
+            fillBlock(address, pattern);
+            address = address.add(BLOCK_SIZE);
+        }
+        while (address.add(4).toInt() <= end.toInt()) {
+            address.putInt(pattern);
+            address = address.add(4);
+        }
+        if (address.add(2).toInt() <= end.toInt()) {
+            address.putShort((short) pattern);
+            address = address.add(2);
+        }
+        if (address.isLessThan(end)) {
+            address.putByte((byte) pattern);
+        }
+    }
+
+    public static void fill(Address address, long pattern, int byteCount) {
+        Address end = address.add(byteCount);
+        Address blockEnd = address.add(byteCount & -BLOCK_SIZE);
+        while (address.isLessThan(blockEnd)) {
+            fillBlock(address, pattern);
+            address = address.add(BLOCK_SIZE);
+        }
+        if (address.isLessThan(end)) {
+            address.putLong(pattern);
+        }
+    }
+
+    public static void move(Address source, Address target, int byteCount) {
+        if (source.toInt() >= target.toInt() || source.add(byteCount).toInt() <= target.toInt()) {
+            Address blockEnd = source.add(byteCount & -BLOCK_SIZE);
+            Address end = source.add(byteCount);
+            while (source.isLessThan(blockEnd)) {
+                copyBlock(source, target);
+                source = source.add(BLOCK_SIZE);
+                target = target.add(BLOCK_SIZE);
+            }
+            while (source.isLessThan(end)) {
+                target.putByte(source.getByte());
+                source = source.add(1);
+                target = target.add(1);
+            }
+        } else {
+            Address start = source;
+            Address blockStart = source.add(byteCount & (BLOCK_SIZE - 1));
+            source = source.add(byteCount);
+            target = target.add(byteCount);
+            while (blockStart.isLessThan(source)) {
+                source = source.add(-BLOCK_SIZE);
+                target = target.add(-BLOCK_SIZE);
+                copyBlock(source, target);
+            }
+            while (start.isLessThan(source)) {
+                source = source.add(-1);
+                target = target.add(-1);
+                target.putByte(source.getByte());
+            }
+        }
+    }
+
+    public static boolean equals(Address first, Address second, int byteCount) {
+        Address end = first.add(byteCount);
+        Address blockEnd = first.add(byteCount & -BLOCK_SIZE);
+        while (first.isLessThan(blockEnd)) {
+            if (!equalBlocks(first, second)) {
+                return false;
+            }
+            first = first.add(BLOCK_SIZE);
+            second = second.add(BLOCK_SIZE);
+        }
+        while (first.isLessThan(end)) {
+            if (first.getByte() != second.getByte()) {
+                return false;
+            }
+            first = first.add(1);
+            second = second.add(1);
+        }
+        return true;
+    }
+
+    public static int indexOfByte(Address data, byte value, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        while (index + BLOCK_SIZE <= toIndex) {
+            int offset = findByte(data.add(index), value);
+            if (offset < BLOCK_SIZE) {
+                return index + offset;
+            }
+            index += BLOCK_SIZE;
+        }
+        while (index < toIndex) {
+            if (data.add(index).getByte() == value) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    public static int indexOfChar(Address data, char value, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        while (index + BLOCK_SIZE / 2 <= toIndex) {
+            int offset = findChar(data.add(index * 2), value);
+            if (offset < BLOCK_SIZE / 2) {
+                return index + offset;
+            }
+            index += BLOCK_SIZE / 2;
+        }
+        while (index < toIndex) {
+            if (data.add(index * 2).getChar() == value) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    public static int hashBytes(Address data, int count) {
+        int hash = 0;
+        while (count >= 8) {
+            hash = hash * HASH_BLOCK_FACTOR + hashByteBlock(data);
+            data = data.add(8);
+            count -= 8;
+        }
+        while (count-- > 0) {
+            hash = 31 * hash + (data.getByte() & 0xFF);
+            data = data.add(1);
+        }
+        return hash;
+    }
+
+    public static int hashChars(Address data, int count) {
+        int hash = 0;
+        while (count >= 8) {
+            hash = hash * HASH_BLOCK_FACTOR + hashCharBlock(data);
+            data = data.add(16);
+            count -= 8;
+        }
+        while (count-- > 0) {
+            hash = 31 * hash + data.getChar();
+            data = data.add(2);
+        }
+        return hash;
+    }
+
+    private static native void fillBlock(Address address, int pattern);
+
+    private static native void fillBlock(Address address, long pattern);
+
+    private static native void copyBlock(Address source, Address target);
+
+    private static native boolean equalBlocks(Address first, Address second);
+
+    private static native int findByte(Address address, byte value);
+
+    private static native int findChar(Address address, char value);
+
+    private static native int hashByteBlock(Address address);
+
+    private static native int hashCharBlock(Address address);
+}
@@ -60,6 +60,7 @@ import org.teavm.backend.wasm.intrinsics.StructureIntrinsic;
 import org.teavm.backend.wasm.intrinsics.WasmIntrinsicFactory;
 import org.teavm.backend.wasm.intrinsics.WasmIntrinsicFactoryContext;
 import org.teavm.backend.wasm.intrinsics.WasmRuntimeIntrinsic;
+import org.teavm.backend.wasm.intrinsics.WasmSimdIntrinsic;
 import org.teavm.backend.wasm.model.WasmFunction;
 import org.teavm.backend.wasm.model.WasmLocal;
 import org.teavm.backend.wasm.model.WasmMemorySegment;
@@ -126,10 +127,12 @@ import org.teavm.model.lowlevel.Characteristics;
 import org.teavm.model.lowlevel.ClassInitializerEliminator;
 import org.teavm.model.lowlevel.ClassInitializerTransformer;
 import org.teavm.model.lowlevel.ShadowStackTransformer;
+import org.teavm.model.lowlevel.WriteBarrierInsertion;
 import org.teavm.model.transformation.ClassInitializerInsertionTransformer;
 import org.teavm.model.transformation.ClassPatch;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.ExceptionHandling;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -149,18 +152,30 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
     private ClassInitializerEliminator classInitializerEliminator;
     private ClassInitializerTransformer classInitializerTransformer;
     private ShadowStackTransformer shadowStackTransformer;
+    private WriteBarrierInsertion writeBarrierInsertion;
     private WasmBinaryVersion version = WasmBinaryVersion.V_0x1;
     private List<WasmIntrinsicFactory> additionalIntrinsics = new ArrayList<>();
     private int minHeapSize;
+    private boolean generationalGC;
+    private boolean compactingGC;
+    private boolean incrementalGC;
+    private int gcSliceBudget = 1024;
+    private boolean compactStrings;
+    private boolean simd;
+    private boolean bulkMemory;
 
     @Override
     public void setController(TeaVMTargetController controller) {
+        if (incrementalGC && generationalGC) {
+            throw new IllegalStateException("Incremental GC can't be combined with generational GC");
+        }
         this.controller = controller;
         Characteristics managedMethodRepository = new Characteristics(
                 controller.getUnprocessedClassSource());
         classInitializerEliminator = new ClassInitializerEliminator(controller.getUnprocessedClassSource());
         classInitializerTransformer = new ClassInitializerTransformer();
         shadowStackTransformer = new ShadowStackTransformer(managedMethodRepository);
+        writeBarrierInsertion = new WriteBarrierInsertion(managedMethodRepository);
         clinitInsertionTransformer = new ClassInitializerInsertionTransformer(controller.getUnprocessedClassSource());
     }
 
@@ -234,6 +249,55 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         this.minHeapSize = minHeapSize;
     }
 
+    public void setGenerationalGC(boolean generationalGC) {
+        this.generationalGC = generationalGC;
+    }
+
+    public void setCompactingGC(boolean compactingGC) {
+        this.compactingGC = compactingGC;
+    }
+
+    /**
+     * Makes full collection proceed in slices interleaved with allocation. Can't be combined with
+     * generational GC.
+     */
+    public void setIncrementalGC(boolean incrementalGC) {
+        this.incrementalGC = incrementalGC;
+    }
+
+    /**
+     * Sets how many objects incremental GC marks or sweeps in one slice. Must be positive.
+     */
+    public void setGCSliceBudget(int gcSliceBudget) {
+        if (gcSliceBudget <= 0) {
+            throw new IllegalArgumentException("GC slice budget must be positive: " + gcSliceBudget);
+        }
+        this.gcSliceBudget = gcSliceBudget;
+    }
+
+    /**
+     * Makes strings that consist only of characters up to U+00FF take one byte per character.
+     */
+    public void setCompactStrings(boolean compactStrings) {
+        this.compactStrings = compactStrings;
+    }
+
+    /**
+     * Lets bulk array and string operations of the class library use 128-bit SIMD instructions. Produced module
+     * requires a runtime that supports fixed-width SIMD proposal.
+     */
+    public void setSimd(boolean simd) {
+        this.simd = simd;
+    }
+
+    /**
+     * Lowers zeroing of allocated memory and memory block moves to <code>memory.fill</code> and
+     * <code>memory.copy</code> instructions. Produced module requires a runtime that supports bulk memory proposal.
+     */
+    public void setBulkMemory(boolean bulkMemory) {
+        this.bulkMemory = bulkMemory;
+    }
+
     @Override
     public void contributeDependencies(DependencyAnalyzer dependencyAnalyzer) {
         for (Class<?> type : Arrays.asList(int.class, long.class, float.class, double.class)) {
@@ -247,10 +311,12 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
 
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "align", Address.class, int.class,
                 Address.class), null).use();
-        dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "fillZero", Address.class, int.class,
-                void.class), null).use();
-        dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "moveMemoryBlock", Address.class,
-                Address.class, int.class, void.class), null).use();
+        if (!bulkMemory) {
+            dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "fillZero", Address.class,
+                    int.class, void.class), null).use();
+            dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "moveMemoryBlock", Address.class,
+                    Address.class, int.class, void.class), null).use();
+        }
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "allocStack",
                 int.class, Address.class), null).use();
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "getStackTop", Address.class),
@@ -266,6 +332,11 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "getCallSiteId", Address.class,
                 int.class), null).use();
 
+        if (compactStrings) {
+            dependencyAnalyzer.linkField(new FieldReference(String.class.getName(), "hashCode"), null);
+            dependencyAnalyzer.linkField(new FieldReference(String.class.getName(), "latin1"), null);
+        }
+
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "allocate",
                 RuntimeClass.class, Address.class), null).use();
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "allocateArray",
@@ -274,6 +345,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
                 RuntimeClass.class, Address.class, int.class, RuntimeArray.class), null).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "<clinit>", void.class), null).use();
+        dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "writeBarrier", Object.class, void.class),
+                null).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(ExceptionHandling.class, "throwException",
                 Throwable.class, void.class), null).use();
@@ -302,6 +375,9 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         clinitInsertionTransformer.apply(method, program);
         classInitializerEliminator.apply(program);
         classInitializerTransformer.transform(program);
+        if (generationalGC || incrementalGC) {
+            writeBarrierInsertion.apply(program, method);
+        }
         shadowStackTransformer.apply(program, method);
     }
 
@@ -316,7 +392,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         BinaryWriter binaryWriter = new BinaryWriter(256);
         NameProvider names = new NameProvider(controller.getUnprocessedClassSource());
         WasmClassGenerator classGenerator = new WasmClassGenerator(classes, controller.getUnprocessedClassSource(),
-                vtableProvider, tagRegistry, binaryWriter, names);
+                vtableProvider, tagRegistry, binaryWriter, names, compactStrings);
 
         Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), new HashSet<>(),
                 new HashSet<>(), false, true);
@@ -329,7 +405,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         context.addIntrinsic(new FunctionIntrinsic(classGenerator));
         WasmRuntimeIntrinsic wasmRuntimeIntrinsic = new WasmRuntimeIntrinsic();
         context.addIntrinsic(wasmRuntimeIntrinsic);
-        context.addIntrinsic(new AllocatorIntrinsic(classGenerator));
+        context.addIntrinsic(new AllocatorIntrinsic(classGenerator, bulkMemory));
         context.addIntrinsic(new PlatformIntrinsic());
         context.addIntrinsic(new PlatformClassIntrinsic());
         context.addIntrinsic(new PlatformObjectIntrinsic(classGenerator));
@@ -338,6 +414,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         context.addIntrinsic(new RuntimeClassIntrinsic());
         context.addIntrinsic(new FloatIntrinsic());
         context.addIntrinsic(new DoubleIntrinsic());
+        context.addIntrinsic(new WasmSimdIntrinsic());
         context.addGenerator(new ArrayGenerator());
 
         IntrinsicFactoryContext intrinsicFactoryContext = new IntrinsicFactoryContext();
@@ -345,7 +422,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
             context.addIntrinsic(additionalIntrinsicFactory.create(intrinsicFactoryContext));
         }
 
-        GCIntrinsic gcIntrinsic = new GCIntrinsic();
+        GCIntrinsic gcIntrinsic = new GCIntrinsic(generationalGC, compactingGC,
+                incrementalGC ? gcSliceBudget : 0);
         context.addIntrinsic(gcIntrinsic);
         MutatorIntrinsic mutatorIntrinsic = new MutatorIntrinsic();
         context.addIntrinsic(mutatorIntrinsic);
@@ -791,7 +869,17 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
 
     @Override
     public String[] getPlatformTags() {
-        return new String[] { PlatformMarkers.WEBASSEMBLY, PlatformMarkers.LOW_LEVEL };
+        List<String> tags = new ArrayList<>(Arrays.asList(PlatformMarkers.WEBASSEMBLY, PlatformMarkers.LOW_LEVEL));
+        if (compactStrings) {
+            tags.add(PlatformMarkers.COMPACT_STRINGS);
+        }
+        if (simd) {
+            tags.add(PlatformMarkers.SIMD);
+        }
+        if (bulkMemory) {
+            tags.add(PlatformMarkers.BULK_MEMORY);
+        }
+        return tags.toArray(new String[0]);
     }
 
     @Override
@@ -799,6 +887,11 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         return false;
     }
 
+    @Override
+    public boolean isGuardedDevirtualizationSupported() {
+        return true;
+    }
+
     static class MethodGeneratorContextImpl implements WasmMethodGeneratorContext {
         private BinaryWriter binaryWriter;
         private WasmStringPool stringPool;
@@ -98,13 +98,13 @@ public class WasmClassGenerator {
 
     public WasmClassGenerator(ClassReaderSource processedClassSource, ClassReaderSource classSource,
             VirtualTableProvider vtableProvider, TagRegistry tagRegistry, BinaryWriter binaryWriter,
-            NameProvider names) {
+            NameProvider names, boolean compactStrings) {
         this.processedClassSource = processedClassSource;
         this.classSource = classSource;
         this.vtableProvider = vtableProvider;
         this.tagRegistry = tagRegistry;
         this.binaryWriter = binaryWriter;
-        this.stringPool = new WasmStringPool(this, binaryWriter);
+        this.stringPool = new WasmStringPool(this, binaryWriter, compactStrings);
         this.names = names;
     }
 
@@ -580,6 +580,14 @@ public class WasmClassGenerator {
                 }
             }
         }
+
+        // Cached simple names of classes are allocated in heap, but referenced from static data
+        int simpleNameOffset = getFieldOffset(new FieldReference(RuntimeClass.class.getName(), "simpleName"));
+        for (ClassBinaryData classData : binaryDataMap.values()) {
+            if (classData.data != null) {
+                staticGcRoots.add(classData.start + simpleNameOffset);
+            }
+        }
         writeStaticGcRoots();
     }
 
@@ -900,6 +900,9 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
                 case "getExceptionHandlerId":
                     generateGetHandlerId();
                     return;
+                case "getExceptionHandlerOffset":
+                    generateGetHandlerOffset(expr.getArguments().get(0));
+                    return;
             }
         }
 
@@ -1032,6 +1035,16 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
         result = new WasmLoadInt32(4, new WasmGetLocal(stackVariable), WasmInt32Subtype.INT32);
     }
 
+    private void generateGetHandlerOffset(Expr callSiteExpr) {
+        generateGetHandlerId();
+        WasmExpression handlerId = result;
+
+        callSiteExpr.acceptVisitor(this);
+        WasmExpression callSite = result;
+
+        result = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB, handlerId, callSite);
+    }
+
     private void generateRegisterGcRoot(Expr slotExpr, Expr gcRootExpr) {
         if (stackVariable == null) {
             throw new IllegalStateException("Call to ShadowStack.registerGCRoot must be dominated by "
@@ -28,20 +28,32 @@ import org.teavm.runtime.RuntimeObject;
 public class WasmStringPool {
     private WasmClassGenerator classGenerator;
     private BinaryWriter binaryWriter;
+    private boolean compactStrings;
     private Map<String, Integer> stringMap = new HashMap<>();
     private DataStructure arrayHeaderType = new DataStructure((byte) 0,
             DataPrimitives.INT, /* class pointer */
             DataPrimitives.ADDRESS, /* monitor */
             DataPrimitives.INT /* size */);
-    private DataStructure stringType = new DataStructure((byte) 0,
-            DataPrimitives.INT, /* class pointer */
-            DataPrimitives.ADDRESS, /* monitor */
-            DataPrimitives.ADDRESS, /* characters */
-            DataPrimitives.INT /* hash code */);
+    private DataStructure stringType;
 
-    public WasmStringPool(WasmClassGenerator classGenerator, BinaryWriter binaryWriter) {
+    public WasmStringPool(WasmClassGenerator classGenerator, BinaryWriter binaryWriter, boolean compactStrings) {
         this.classGenerator = classGenerator;
         this.binaryWriter = binaryWriter;
+        this.compactStrings = compactStrings;
+        if (compactStrings) {
+            stringType = new DataStructure((byte) 0,
+                    DataPrimitives.INT, /* class pointer */
+                    DataPrimitives.ADDRESS, /* monitor */
+                    DataPrimitives.ADDRESS, /* characters */
+                    DataPrimitives.INT, /* hash code */
+                    DataPrimitives.ADDRESS /* latin1 */);
+        } else {
+            stringType = new DataStructure((byte) 0,
+                    DataPrimitives.INT, /* class pointer */
+                    DataPrimitives.ADDRESS, /* monitor */
+                    DataPrimitives.ADDRESS, /* characters */
+                    DataPrimitives.INT /* hash code */);
+        }
     }
 
     public int getStringPointer(String value) {
@@ -54,6 +66,20 @@ public class WasmStringPool {
     }
 
     private int generateStringPointer(String value) {
+        DataValue stringObject = stringType.createValue();
+        int stringPointer = binaryWriter.append(stringObject);
+        int classPointer = classGenerator.getClassPointer(ValueType.object(String.class.getName()));
+        stringObject.setInt(0, (classPointer >>> 3) | RuntimeObject.GC_MARKED);
+        if (compactStrings && isLatin1(value)) {
+            stringObject.setAddress(4, generateLatin1Array(value));
+        } else {
+            stringObject.setAddress(2, generateCharArray(value));
+        }
+
+        return stringPointer;
+    }
+
+    private int generateCharArray(String value) {
         DataArray charactersType = new DataArray(DataPrimitives.SHORT, value.length());
         DataStructure wrapperType = new DataStructure((byte) 0, arrayHeaderType, charactersType);
         DataValue wrapper = wrapperType.createValue();
@@ -67,12 +93,32 @@ public class WasmStringPool {
             characters.setShort(i, (short) value.charAt(i));
         }
 
-        DataValue stringObject = stringType.createValue();
-        int stringPointer = binaryWriter.append(stringObject);
-        classPointer = classGenerator.getClassPointer(ValueType.object(String.class.getName()));
-        stringObject.setInt(0, (classPointer >>> 3) | RuntimeObject.GC_MARKED);
-        stringObject.setAddress(2, binaryWriter.append(wrapper));
+        return binaryWriter.append(wrapper);
+    }
 
-        return stringPointer;
+    private int generateLatin1Array(String value) {
+        DataArray bytesType = new DataArray(DataPrimitives.BYTE, value.length());
+        DataStructure wrapperType = new DataStructure((byte) 0, arrayHeaderType, bytesType);
+        DataValue wrapper = wrapperType.createValue();
+        DataValue header = wrapper.getValue(0);
+        DataValue bytes = wrapper.getValue(1);
+
+        int classPointer = classGenerator.getClassPointer(ValueType.arrayOf(ValueType.BYTE));
+        header.setInt(0, (classPointer >>> 3) | RuntimeObject.GC_MARKED);
+        header.setInt(2, value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            bytes.setByte(i, (byte) value.charAt(i));
+        }
+
+        return binaryWriter.append(wrapper);
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
     }
 }
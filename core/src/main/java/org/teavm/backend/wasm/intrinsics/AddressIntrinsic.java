@@ -41,6 +41,7 @@ import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
 import org.teavm.interop.Address;
 import org.teavm.model.MethodReference;
 import org.teavm.model.ValueType;
+import org.teavm.runtime.RuntimeArray;
 
 public class AddressIntrinsic implements WasmIntrinsic {
     private WasmClassGenerator classGenerator;
@@ -159,6 +160,14 @@ public class AddressIntrinsic implements WasmIntrinsic {
                         .collect(Collectors.toList()));
                 return call;
             }
+            case "ofData": {
+                ValueType.Array type = (ValueType.Array) invocation.getMethod().parameterType(0);
+                int alignment = getTypeSize(type.getItemType());
+                int start = WasmClassGenerator.align(classGenerator.getClassSize(RuntimeArray.class.getName()),
+                        alignment);
+                return new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
+                        manager.generate(invocation.getArguments().get(0)), new WasmInt32Constant(start));
+            }
             case "isLessThan": {
                 return new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LT_UNSIGNED,
                         manager.generate(invocation.getArguments().get(0)),
@@ -168,4 +177,22 @@ public class AddressIntrinsic implements WasmIntrinsic {
                 throw new IllegalArgumentException(invocation.getMethod().toString());
         }
     }
+
+    private static int getTypeSize(ValueType type) {
+        switch (((ValueType.Primitive) type).getKind()) {
+            case BYTE:
+                return 1;
+            case SHORT:
+            case CHARACTER:
+                return 2;
+            case INTEGER:
+            case FLOAT:
+                return 4;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                throw new IllegalArgumentException(type.toString());
+        }
+    }
 }
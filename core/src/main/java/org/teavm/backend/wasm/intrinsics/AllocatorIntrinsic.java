@@ -19,14 +19,21 @@ import java.util.stream.Collectors;
 import org.teavm.ast.InvocationExpr;
 import org.teavm.backend.wasm.WasmRuntime;
 import org.teavm.backend.wasm.generate.WasmClassGenerator;
+import org.teavm.backend.wasm.model.WasmLocal;
+import org.teavm.backend.wasm.model.WasmType;
+import org.teavm.backend.wasm.model.expression.WasmBlock;
 import org.teavm.backend.wasm.model.expression.WasmCall;
+import org.teavm.backend.wasm.model.expression.WasmCopyMemory;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmFillMemory;
+import org.teavm.backend.wasm.model.expression.WasmGetLocal;
 import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
 import org.teavm.backend.wasm.model.expression.WasmInt32Subtype;
 import org.teavm.backend.wasm.model.expression.WasmIntBinary;
 import org.teavm.backend.wasm.model.expression.WasmIntBinaryOperation;
 import org.teavm.backend.wasm.model.expression.WasmIntType;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
+import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.model.FieldReference;
 import org.teavm.model.MethodReference;
 import org.teavm.runtime.Allocator;
@@ -35,9 +42,11 @@ import org.teavm.runtime.RuntimeClass;
 public class AllocatorIntrinsic implements WasmIntrinsic {
     private static final FieldReference flagsField = new FieldReference(RuntimeClass.class.getName(), "flags");
     private int flagsFieldOffset;
+    private boolean bulkMemory;
 
-    public AllocatorIntrinsic(WasmClassGenerator classGenerator) {
+    public AllocatorIntrinsic(WasmClassGenerator classGenerator, boolean bulkMemory) {
         flagsFieldOffset = classGenerator.getFieldOffset(flagsField);
+        this.bulkMemory = bulkMemory;
     }
 
     @Override
@@ -59,15 +68,16 @@ public class AllocatorIntrinsic implements WasmIntrinsic {
     public WasmExpression apply(InvocationExpr invocation, WasmIntrinsicManager manager) {
         switch (invocation.getMethod().getName()) {
             case "fillZero":
-            case "moveMemoryBlock": {
-                MethodReference delegateMethod = new MethodReference(WasmRuntime.class.getName(),
-                        invocation.getMethod().getDescriptor());
-                WasmCall call = new WasmCall(manager.getNames().forMethod(delegateMethod));
-                call.getArguments().addAll(invocation.getArguments().stream()
-                        .map(manager::generate)
-                        .collect(Collectors.toList()));
-                return call;
-            }
+                if (bulkMemory) {
+                    return new WasmFillMemory(manager.generate(invocation.getArguments().get(0)),
+                            new WasmInt32Constant(0), manager.generate(invocation.getArguments().get(1)));
+                }
+                return callRuntime(invocation, manager);
+            case "moveMemoryBlock":
+                if (bulkMemory) {
+                    return copyMemory(invocation, manager);
+                }
+                return callRuntime(invocation, manager);
             case "isInitialized": {
                 WasmExpression pointer = manager.generate(invocation.getArguments().get(0));
                 if (pointer instanceof WasmInt32Constant) {
@@ -85,4 +95,26 @@ public class AllocatorIntrinsic implements WasmIntrinsic {
                 throw new IllegalArgumentException(invocation.getMethod().toString());
         }
     }
+
+    private WasmExpression callRuntime(InvocationExpr invocation, WasmIntrinsicManager manager) {
+        MethodReference delegateMethod = new MethodReference(WasmRuntime.class.getName(),
+                invocation.getMethod().getDescriptor());
+        WasmCall call = new WasmCall(manager.getNames().forMethod(delegateMethod));
+        call.getArguments().addAll(invocation.getArguments().stream()
+                .map(manager::generate)
+                .collect(Collectors.toList()));
+        return call;
+    }
+
+    private WasmExpression copyMemory(InvocationExpr invocation, WasmIntrinsicManager manager) {
+        // memory.copy takes destination first, while Java evaluates source first
+        WasmBlock block = new WasmBlock(false);
+        WasmLocal source = manager.getTemporary(WasmType.INT32);
+        block.getBody().add(new WasmSetLocal(source, manager.generate(invocation.getArguments().get(0))));
+        WasmExpression target = manager.generate(invocation.getArguments().get(1));
+        WasmExpression count = manager.generate(invocation.getArguments().get(2));
+        block.getBody().add(new WasmCopyMemory(target, new WasmGetLocal(source), count));
+        manager.releaseTemporary(source);
+        return block;
+    }
 }
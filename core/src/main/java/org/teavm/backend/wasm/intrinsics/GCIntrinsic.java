@@ -32,6 +32,15 @@ public class GCIntrinsic implements WasmIntrinsic {
     private List<WasmInt32Constant> regionSizeExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionsAddressExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionMaxCountExpressions = new ArrayList<>();
+    private boolean generational;
+    private boolean compacting;
+    private int sliceBudget;
+
+    public GCIntrinsic(boolean generational, boolean compacting, int sliceBudget) {
+        this.generational = generational;
+        this.compacting = compacting;
+        this.sliceBudget = sliceBudget;
+    }
 
     public void setHeapAddress(int address) {
         for (WasmInt32Constant constant : heapAddressExpressions) {
@@ -89,6 +98,10 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "regionsAddress":
             case "regionMaxCount":
             case "regionSize":
+            case "isGenerational":
+            case "isCompacting":
+            case "isIncremental":
+            case "sliceBudget":
                 return true;
             default:
                 return false;
@@ -117,6 +130,14 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "regionSize":
                 list = regionSizeExpressions;
                 break;
+            case "isGenerational":
+                return new WasmInt32Constant(generational ? 1 : 0);
+            case "isCompacting":
+                return new WasmInt32Constant(compacting ? 1 : 0);
+            case "isIncremental":
+                return new WasmInt32Constant(sliceBudget > 0 ? 1 : 0);
+            case "sliceBudget":
+                return new WasmInt32Constant(sliceBudget);
             case "availableBytes": {
                 WasmInt64Constant constant = new WasmInt64Constant(0);
                 availableBytesExpressions.add(constant);
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.intrinsics;
+
+import org.teavm.ast.InvocationExpr;
+import org.teavm.backend.wasm.WasmSimd;
+import org.teavm.backend.wasm.model.WasmLocal;
+import org.teavm.backend.wasm.model.WasmType;
+import org.teavm.backend.wasm.model.expression.WasmBlock;
+import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmGetLocal;
+import org.teavm.backend.wasm.model.expression.WasmIntBinary;
+import org.teavm.backend.wasm.model.expression.WasmIntBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmIntType;
+import org.teavm.backend.wasm.model.expression.WasmIntUnary;
+import org.teavm.backend.wasm.model.expression.WasmIntUnaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
+import org.teavm.backend.wasm.model.expression.WasmSetLocal;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmVectorConstant;
+import org.teavm.backend.wasm.model.expression.WasmVectorExtractLane;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
+import org.teavm.backend.wasm.model.expression.WasmVectorSubtype;
+import org.teavm.backend.wasm.model.expression.WasmVectorUnary;
+import org.teavm.backend.wasm.model.expression.WasmVectorUnaryOperation;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+public class WasmSimdIntrinsic implements WasmIntrinsic {
+    private static final int[] HIGH_HASH_WEIGHTS = { pow31(7), pow31(6), pow31(5), pow31(4) };
+    private static final int[] LOW_HASH_WEIGHTS = { pow31(3), pow31(2), pow31(1), pow31(0) };
+
+    @Override
+    public boolean isApplicable(MethodReference methodReference) {
+        if (!methodReference.getClassName().equals(WasmSimd.class.getName())) {
+            return false;
+        }
+
+        switch (methodReference.getName()) {
+            case "fillBlock":
+            case "copyBlock":
+            case "equalBlocks":
+            case "findByte":
+            case "findChar":
+            case "hashByteBlock":
+            case "hashCharBlock":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public WasmExpression apply(InvocationExpr invocation, WasmIntrinsicManager manager) {
+        switch (invocation.getMethod().getName()) {
+            case "fillBlock": {
+                WasmVectorShape shape = invocation.getMethod().parameterType(1) == ValueType.LONG
+                        ? WasmVectorShape.INT64X2
+                        : WasmVectorShape.INT32X4;
+                WasmExpression address = manager.generate(invocation.getArguments().get(0));
+                WasmExpression pattern = manager.generate(invocation.getArguments().get(1));
+                return new WasmStoreVector(1, address, new WasmVectorSplat(shape, pattern));
+            }
+            case "copyBlock": {
+                WasmBlock block = new WasmBlock(false);
+                WasmLocal source = manager.getTemporary(WasmType.INT32);
+                block.getBody().add(new WasmSetLocal(source, manager.generate(invocation.getArguments().get(0))));
+                WasmExpression target = manager.generate(invocation.getArguments().get(1));
+                WasmExpression value = new WasmLoadVector(1, new WasmGetLocal(source), WasmVectorSubtype.V128);
+                block.getBody().add(new WasmStoreVector(1, target, value));
+                manager.releaseTemporary(source);
+                return block;
+            }
+            case "equalBlocks": {
+                WasmExpression first = load(invocation, 0, manager);
+                WasmExpression second = load(invocation, 1, manager);
+                return new WasmVectorUnary(WasmVectorShape.INT8X16, WasmVectorUnaryOperation.ALL_TRUE,
+                        new WasmVectorBinary(WasmVectorShape.INT8X16, WasmVectorBinaryOperation.EQ, first, second));
+            }
+            case "findByte":
+                return find(WasmVectorShape.INT8X16, invocation, manager);
+            case "findChar":
+                return find(WasmVectorShape.INT16X8, invocation, manager);
+            case "hashByteBlock": {
+                WasmExpression address = manager.generate(invocation.getArguments().get(0));
+                return hash(new WasmLoadVector(1, address, WasmVectorSubtype.UINT8X8), manager);
+            }
+            case "hashCharBlock":
+                return hash(load(invocation, 0, manager), manager);
+            default:
+                throw new IllegalArgumentException(invocation.getMethod().toString());
+        }
+    }
+
+    private static WasmExpression load(InvocationExpr invocation, int index, WasmIntrinsicManager manager) {
+        WasmExpression address = manager.generate(invocation.getArguments().get(index));
+        return new WasmLoadVector(1, address, WasmVectorSubtype.V128);
+    }
+
+    private static WasmExpression find(WasmVectorShape shape, InvocationExpr invocation,
+            WasmIntrinsicManager manager) {
+        WasmExpression data = load(invocation, 0, manager);
+        WasmExpression value = new WasmVectorSplat(shape, manager.generate(invocation.getArguments().get(1)));
+        WasmExpression matches = new WasmVectorBinary(shape, WasmVectorBinaryOperation.EQ, data, value);
+        WasmExpression mask = new WasmVectorUnary(shape, WasmVectorUnaryOperation.BITMASK, matches);
+        return new WasmIntUnary(WasmIntType.INT32, WasmIntUnaryOperation.CTZ, mask);
+    }
+
+    // Takes eight 16-bit lanes c0..c7 and computes c0 * 31^7 + c1 * 31^6 + ... + c7, that is, eight steps
+    // of String.hashCode starting with zero
+    private static WasmExpression hash(WasmExpression chars, WasmIntrinsicManager manager) {
+        WasmBlock block = new WasmBlock(false);
+        block.setType(WasmType.INT32);
+        WasmLocal vector = manager.getTemporary(WasmType.V128);
+        block.getBody().add(new WasmSetLocal(vector, chars));
+
+        WasmExpression high = weight(WasmVectorUnaryOperation.EXTEND_LOW_UNSIGNED, vector, HIGH_HASH_WEIGHTS);
+        WasmExpression low = weight(WasmVectorUnaryOperation.EXTEND_HIGH_UNSIGNED, vector, LOW_HASH_WEIGHTS);
+        block.getBody().add(new WasmSetLocal(vector, new WasmVectorBinary(WasmVectorShape.INT32X4,
+                WasmVectorBinaryOperation.ADD, high, low)));
+
+        WasmExpression sum = null;
+        for (int i = 0; i < 4; ++i) {
+            WasmExpression lane = new WasmVectorExtractLane(WasmVectorShape.INT32X4, i, new WasmGetLocal(vector));
+            sum = sum == null ? lane : new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD, sum, lane);
+        }
+        block.getBody().add(sum);
+        manager.releaseTemporary(vector);
+        return block;
+    }
+
+    private static WasmExpression weight(WasmVectorUnaryOperation extension, WasmLocal vector, int[] weights) {
+        WasmExpression lanes = new WasmVectorUnary(WasmVectorShape.INT32X4, extension, new WasmGetLocal(vector));
+        return new WasmVectorBinary(WasmVectorShape.INT32X4, WasmVectorBinaryOperation.MUL, lanes,
+                new WasmVectorConstant(weights));
+    }
+
+    private static int pow31(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; ++i) {
+            result *= 31;
+        }
+        return result;
+    }
+}
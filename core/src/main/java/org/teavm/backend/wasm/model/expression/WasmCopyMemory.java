@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.model.expression;
+
+import java.util.Objects;
+
+public class WasmCopyMemory extends WasmExpression {
+    private WasmExpression destinationIndex;
+    private WasmExpression sourceIndex;
+    private WasmExpression count;
+
+    public WasmCopyMemory(WasmExpression destinationIndex, WasmExpression sourceIndex, WasmExpression count) {
+        Objects.requireNonNull(destinationIndex);
+        Objects.requireNonNull(sourceIndex);
+        Objects.requireNonNull(count);
+        this.destinationIndex = destinationIndex;
+        this.sourceIndex = sourceIndex;
+        this.count = count;
+    }
+
+    public WasmExpression getDestinationIndex() {
+        return destinationIndex;
+    }
+
+    public void setDestinationIndex(WasmExpression destinationIndex) {
+        Objects.requireNonNull(destinationIndex);
+        this.destinationIndex = destinationIndex;
+    }
+
+    public WasmExpression getSourceIndex() {
+        return sourceIndex;
+    }
+
+    public void setSourceIndex(WasmExpression sourceIndex) {
+        Objects.requireNonNull(sourceIndex);
+        this.sourceIndex = sourceIndex;
+    }
+
+    public WasmExpression getCount() {
+        return count;
+    }
+
+    public void setCount(WasmExpression count) {
+        Objects.requireNonNull(count);
+        this.count = count;
+    }
+
+    @Override
+    public void acceptVisitor(WasmExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
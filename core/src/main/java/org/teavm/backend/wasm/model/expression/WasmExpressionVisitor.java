@@ -73,4 +73,22 @@ public interface WasmExpressionVisitor {
     void visit(WasmStoreFloat32 expression);
 
     void visit(WasmStoreFloat64 expression);
+
+    void visit(WasmLoadVector expression);
+
+    void visit(WasmStoreVector expression);
+
+    void visit(WasmVectorConstant expression);
+
+    void visit(WasmVectorSplat expression);
+
+    void visit(WasmVectorExtractLane expression);
+
+    void visit(WasmVectorUnary expression);
+
+    void visit(WasmVectorBinary expression);
+
+    void visit(WasmFillMemory expression);
+
+    void visit(WasmCopyMemory expression);
 }
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.model.expression;
+
+import java.util.Objects;
+
+public class WasmVectorConstant extends WasmExpression {
+    private int[] value;
+
+    public WasmVectorConstant(int... value) {
+        setValue(value);
+    }
+
+    /**
+     * Returns four 32-bit lanes of the constant, the lowest lane first.
+     */
+    public int[] getValue() {
+        return value.clone();
+    }
+
+    public void setValue(int... value) {
+        Objects.requireNonNull(value);
+        if (value.length != 4) {
+            throw new IllegalArgumentException("Vector constant should consist of 4 lanes");
+        }
+        this.value = value.clone();
+    }
+
+    @Override
+    public void acceptVisitor(WasmExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.model.expression;
+
+import java.util.Objects;
+
+public class WasmVectorUnary extends WasmExpression {
+    private WasmVectorShape shape;
+    private WasmVectorUnaryOperation operation;
+    private WasmExpression operand;
+
+    public WasmVectorUnary(WasmVectorShape shape, WasmVectorUnaryOperation operation, WasmExpression operand) {
+        Objects.requireNonNull(shape);
+        Objects.requireNonNull(operation);
+        Objects.requireNonNull(operand);
+        this.shape = shape;
+        this.operation = operation;
+        this.operand = operand;
+    }
+
+    /**
+     * Returns the shape of the lanes the operation works with. For extensions this is the shape of the result,
+     * so that extending {@link WasmVectorShape#INT16X8} lanes produces {@link WasmVectorShape#INT32X4}.
+     */
+    public WasmVectorShape getShape() {
+        return shape;
+    }
+
+    public void setShape(WasmVectorShape shape) {
+        Objects.requireNonNull(shape);
+        this.shape = shape;
+    }
+
+    public WasmVectorUnaryOperation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(WasmVectorUnaryOperation operation) {
+        Objects.requireNonNull(operation);
+        this.operation = operation;
+    }
+
+    public WasmExpression getOperand() {
+        return operand;
+    }
+
+    public void setOperand(WasmExpression operand) {
+        Objects.requireNonNull(operand);
+        this.operand = operand;
+    }
+
+    @Override
+    public void acceptVisitor(WasmExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
@@ -24,9 +24,11 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopyMemory;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFillMemory;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -41,14 +43,22 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorConstant;
+import org.teavm.backend.wasm.model.expression.WasmVectorExtractLane;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
+import org.teavm.backend.wasm.model.expression.WasmVectorUnary;
 
 class WasmBinaryRenderingVisitor implements WasmExpressionVisitor {
     private WasmBinaryWriter writer;
@@ -824,6 +834,172 @@ class WasmBinaryRenderingVisitor implements WasmExpressionVisitor {
         writer.writeLEB(expression.getOffset());
     }
 
+    @Override
+    public void visit(WasmLoadVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        switch (expression.getConvertFrom()) {
+            case V128:
+                writeVectorOpcode(0x00);
+                break;
+            case UINT8X8:
+                writeVectorOpcode(0x02);
+                break;
+            case UINT16X4:
+                writeVectorOpcode(0x04);
+                break;
+        }
+        writer.writeByte(alignment(expression.getAlignment()));
+        writer.writeLEB(expression.getOffset());
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.getValue().acceptVisitor(this);
+        writeVectorOpcode(0x0B);
+        writer.writeByte(alignment(expression.getAlignment()));
+        writer.writeLEB(expression.getOffset());
+    }
+
+    @Override
+    public void visit(WasmVectorConstant expression) {
+        writeVectorOpcode(0x0C);
+        for (int lane : expression.getValue()) {
+            writer.writeFixed(lane);
+        }
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        expression.getValue().acceptVisitor(this);
+        writeVectorOpcode(0x0F + expression.getShape().ordinal());
+    }
+
+    @Override
+    public void visit(WasmVectorExtractLane expression) {
+        expression.getVector().acceptVisitor(this);
+        switch (expression.getShape()) {
+            case INT8X16:
+                writeVectorOpcode(0x16);
+                break;
+            case INT16X8:
+                writeVectorOpcode(0x19);
+                break;
+            case INT32X4:
+                writeVectorOpcode(0x1B);
+                break;
+            case INT64X2:
+                writeVectorOpcode(0x1D);
+                break;
+        }
+        writer.writeByte(expression.getLane());
+    }
+
+    @Override
+    public void visit(WasmVectorUnary expression) {
+        expression.getOperand().acceptVisitor(this);
+        switch (expression.getOperation()) {
+            case ANY_TRUE:
+                writeVectorOpcode(0x53);
+                break;
+            case ALL_TRUE:
+                writeVectorOpcode(laneOpcode(expression.getShape(), 0x63, 0x83, 0xA3, 0xC3));
+                break;
+            case BITMASK:
+                writeVectorOpcode(laneOpcode(expression.getShape(), 0x64, 0x84, 0xA4, 0xC4));
+                break;
+            case EXTEND_LOW_UNSIGNED:
+                writeVectorOpcode(laneOpcode(expression.getShape(), -1, 0x89, 0xA9, 0xC9));
+                break;
+            case EXTEND_HIGH_UNSIGNED:
+                writeVectorOpcode(laneOpcode(expression.getShape(), -1, 0x8A, 0xAA, 0xCA));
+                break;
+        }
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        expression.getFirst().acceptVisitor(this);
+        expression.getSecond().acceptVisitor(this);
+        switch (expression.getOperation()) {
+            case EQ:
+                writeVectorOpcode(laneOpcode(expression.getShape(), 0x23, 0x2D, 0x37, 0xD6));
+                break;
+            case NE:
+                writeVectorOpcode(laneOpcode(expression.getShape(), 0x24, 0x2E, 0x38, 0xD7));
+                break;
+            case ADD:
+                writeVectorOpcode(laneOpcode(expression.getShape(), 0x6E, 0x8E, 0xAE, 0xCE));
+                break;
+            case SUB:
+                writeVectorOpcode(laneOpcode(expression.getShape(), 0x71, 0x91, 0xB1, 0xD1));
+                break;
+            case MUL:
+                writeVectorOpcode(laneOpcode(expression.getShape(), -1, 0x95, 0xB5, 0xD5));
+                break;
+            case AND:
+                writeVectorOpcode(0x4E);
+                break;
+            case OR:
+                writeVectorOpcode(0x50);
+                break;
+            case XOR:
+                writeVectorOpcode(0x51);
+                break;
+        }
+    }
+
+    @Override
+    public void visit(WasmFillMemory expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.getValue().acceptVisitor(this);
+        expression.getCount().acceptVisitor(this);
+        writeBulkMemoryOpcode(0x0B);
+        writer.writeByte(0);
+    }
+
+    @Override
+    public void visit(WasmCopyMemory expression) {
+        expression.getDestinationIndex().acceptVisitor(this);
+        expression.getSourceIndex().acceptVisitor(this);
+        expression.getCount().acceptVisitor(this);
+        writeBulkMemoryOpcode(0x0A);
+        writer.writeByte(0);
+        writer.writeByte(0);
+    }
+
+    private int laneOpcode(WasmVectorShape shape, int int8, int int16, int int32, int int64) {
+        int opcode;
+        switch (shape) {
+            case INT8X16:
+                opcode = int8;
+                break;
+            case INT16X8:
+                opcode = int16;
+                break;
+            case INT32X4:
+                opcode = int32;
+                break;
+            default:
+                opcode = int64;
+                break;
+        }
+        if (opcode < 0) {
+            throw new IllegalArgumentException("Operation is not supported for " + shape);
+        }
+        return opcode;
+    }
+
+    private void writeVectorOpcode(int opcode) {
+        writer.writeByte(0xFD);
+        writer.writeLEB(opcode);
+    }
+
+    private void writeBulkMemoryOpcode(int opcode) {
+        writer.writeByte(0xFC);
+        writer.writeLEB(opcode);
+    }
+
     private int alignment(int value) {
         return 31 - Integer.numberOfLeadingZeros(Math.max(1, value));
     }
@@ -16,10 +16,12 @@
 package org.teavm.backend.wasm.render;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.teavm.backend.wasm.model.WasmFunction;
@@ -32,9 +34,11 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopyMemory;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFillMemory;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -51,14 +55,22 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorConstant;
+import org.teavm.backend.wasm.model.expression.WasmVectorExtractLane;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
+import org.teavm.backend.wasm.model.expression.WasmVectorUnary;
 import org.teavm.model.TextLocation;
 
 class WasmCRenderingVisitor implements WasmExpressionVisitor {
@@ -747,6 +759,17 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
         if (wasmArguments.isEmpty()) {
             return;
         }
+        List<String> arguments = translateArgumentList(wasmArguments, signature, result);
+        for (int i = 0; i < arguments.size(); ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(arguments.get(i));
+        }
+    }
+
+    private List<String> translateArgumentList(List<WasmExpression> wasmArguments, List<WasmType> signature,
+            CExpression result) {
         List<CExpression> arguments = new ArrayList<>();
         int needsCachingUntil = 0;
         for (int i = wasmArguments.size() - 1; i >= 0; --i) {
@@ -759,19 +782,18 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
         }
         Collections.reverse(arguments);
 
+        List<String> texts = new ArrayList<>();
         for (int i = 0; i < arguments.size(); ++i) {
             CExpression argument = arguments.get(i);
             result.getLines().addAll(argument.getLines());
             if (i < needsCachingUntil) {
                 argument = cacheIfNeeded(signature.get(i), argument, result);
             }
-            if (i > 0) {
-                sb.append(", ");
-            }
-            sb.append(argument.getText());
+            texts.add(argument.getText());
         }
 
         value = result;
+        return texts;
     }
 
     @Override
@@ -1030,6 +1052,204 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
         value = result;
     }
 
+    @Override
+    public void visit(WasmLoadVector expression) {
+        CExpression result = new CExpression();
+        WasmType type = requiredType;
+
+        requiredType = WasmType.INT32;
+        expression.getIndex().acceptVisitor(this);
+        CExpression index = checkAddress(value);
+        if (type == null) {
+            value = index;
+            return;
+        }
+
+        result.getLines().addAll(index.getLines());
+        String function;
+        switch (expression.getConvertFrom()) {
+            case UINT8X8:
+                function = "v128_load8x8_u";
+                break;
+            case UINT16X4:
+                function = "v128_load16x4_u";
+                break;
+            default:
+                function = "v128_load";
+                break;
+        }
+        result.setText(function + "(&wasm_heap[" + index.getText() + " + " + expression.getOffset() + "])");
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.INT32;
+        expression.getIndex().acceptVisitor(this);
+        CExpression index = checkAddress(value);
+
+        requiredType = WasmType.V128;
+        expression.getValue().acceptVisitor(this);
+        CExpression valueToStore = value;
+
+        result.getLines().addAll(index.getLines());
+        result.getLines().addAll(valueToStore.getLines());
+
+        result.addLine("v128_store(&wasm_heap[" + index.getText() + " + " + expression.getOffset() + "], "
+                + valueToStore.getText() + ");", expression.getLocation());
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmVectorConstant expression) {
+        StringBuilder sb = new StringBuilder("v128_const(");
+        int[] lanes = expression.getValue();
+        for (int i = 0; i < lanes.length; ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("INT32_C(").append(lanes[i]).append(")");
+        }
+        sb.append(")");
+        value = CExpression.relocatable(sb.toString());
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        WasmType laneType = expression.getShape() == WasmVectorShape.INT64X2 ? WasmType.INT64 : WasmType.INT32;
+        vectorFunction(shape(expression.getShape()) + "_splat", Collections.singletonList(laneType),
+                expression.getValue());
+    }
+
+    @Override
+    public void visit(WasmVectorExtractLane expression) {
+        WasmType type = requiredType;
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.V128;
+        expression.getVector().acceptVisitor(this);
+        result.getLines().addAll(value.getLines());
+        if (type != null) {
+            String lane = "[" + expression.getLane() + "]";
+            switch (expression.getShape()) {
+                case INT8X16:
+                    result.setText("(int32_t) " + value.getText() + ".u8" + lane);
+                    break;
+                case INT16X8:
+                    result.setText("(int32_t) " + value.getText() + ".u16" + lane);
+                    break;
+                case INT32X4:
+                    result.setText(value.getText() + ".i32" + lane);
+                    break;
+                case INT64X2:
+                    result.setText(value.getText() + ".i64" + lane);
+                    break;
+            }
+        }
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmVectorUnary expression) {
+        String function;
+        switch (expression.getOperation()) {
+            case ANY_TRUE:
+                function = "v128_any_true";
+                break;
+            case ALL_TRUE:
+                function = shape(expression.getShape()) + "_all_true";
+                break;
+            case BITMASK:
+                function = shape(expression.getShape()) + "_bitmask";
+                break;
+            case EXTEND_LOW_UNSIGNED:
+                function = shape(expression.getShape()) + "_extend_low_u";
+                break;
+            case EXTEND_HIGH_UNSIGNED:
+                function = shape(expression.getShape()) + "_extend_high_u";
+                break;
+            default:
+                throw new AssertionError(expression.getOperation().toString());
+        }
+        vectorFunction(function, Collections.singletonList(WasmType.V128), expression.getOperand());
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        String function;
+        switch (expression.getOperation()) {
+            case AND:
+                function = "v128_and";
+                break;
+            case OR:
+                function = "v128_or";
+                break;
+            case XOR:
+                function = "v128_xor";
+                break;
+            default:
+                function = shape(expression.getShape()) + "_"
+                        + expression.getOperation().name().toLowerCase(Locale.ROOT);
+                break;
+        }
+        vectorFunction(function, Arrays.asList(WasmType.V128, WasmType.V128), expression.getFirst(),
+                expression.getSecond());
+    }
+
+    @Override
+    public void visit(WasmFillMemory expression) {
+        CExpression result = new CExpression();
+        List<String> arguments = translateArgumentList(
+                Arrays.asList(expression.getIndex(), expression.getValue(), expression.getCount()),
+                Arrays.asList(WasmType.INT32, WasmType.INT32, WasmType.INT32), result);
+        result.addLine("memset(&wasm_heap[" + arguments.get(0) + "], " + arguments.get(1) + ", "
+                + arguments.get(2) + ");", expression.getLocation());
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmCopyMemory expression) {
+        CExpression result = new CExpression();
+        List<String> arguments = translateArgumentList(
+                Arrays.asList(expression.getDestinationIndex(), expression.getSourceIndex(), expression.getCount()),
+                Arrays.asList(WasmType.INT32, WasmType.INT32, WasmType.INT32), result);
+        result.addLine("memmove(&wasm_heap[" + arguments.get(0) + "], &wasm_heap[" + arguments.get(1) + "], "
+                + arguments.get(2) + ");", expression.getLocation());
+        value = result;
+    }
+
+    private void vectorFunction(String function, List<WasmType> signature, WasmExpression... operands) {
+        WasmType type = requiredType;
+        CExpression result = new CExpression();
+        StringBuilder sb = new StringBuilder();
+        sb.append(function).append('(');
+        translateArguments(Arrays.asList(operands), signature, result, sb);
+        sb.append(')');
+        if (type != null) {
+            result.setText(sb.toString());
+        }
+        value = result;
+    }
+
+    private static String shape(WasmVectorShape shape) {
+        switch (shape) {
+            case INT8X16:
+                return "i8x16";
+            case INT16X8:
+                return "i16x8";
+            case INT32X4:
+                return "i32x4";
+            case INT64X2:
+                return "i64x2";
+        }
+        throw new AssertionError(shape.toString());
+    }
+
     private CExpression checkAddress(CExpression index) {
         if (!memoryAccessChecked) {
             return index;
@@ -1068,6 +1288,8 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
                 return "float";
             case FLOAT64:
                 return "double";
+            case V128:
+                return "wasm_v128";
         }
         throw new AssertionError(type.toString());
     }
@@ -27,10 +27,12 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopyMemory;
 import org.teavm.backend.wasm.model.expression.WasmDefaultExpressionVisitor;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFillMemory;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -51,14 +53,23 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmVectorConstant;
+import org.teavm.backend.wasm.model.expression.WasmVectorExtractLane;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
+import org.teavm.backend.wasm.model.expression.WasmVectorUnary;
 
 class WasmRenderingVisitor implements WasmExpressionVisitor {
     StringBuilder sb = new StringBuilder();
@@ -594,6 +605,131 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
         close();
     }
 
+    @Override
+    public void visit(WasmLoadVector expression) {
+        open();
+        switch (expression.getConvertFrom()) {
+            case V128:
+                append("v128.load");
+                break;
+            case UINT8X8:
+                append("v128.load8x8_u");
+                break;
+            case UINT16X4:
+                append("v128.load16x4_u");
+                break;
+        }
+        if (expression.getOffset() > 0) {
+            append(" offset=" + expression.getOffset());
+        }
+        append(" align=" + expression.getAlignment());
+        line(expression.getIndex());
+        close();
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        open().append("v128.store");
+        if (expression.getOffset() > 0) {
+            append(" offset=" + expression.getOffset());
+        }
+        append(" align=" + expression.getAlignment());
+        line(expression.getIndex());
+        line(expression.getValue());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorConstant expression) {
+        open().append("v128.const i32x4");
+        for (int lane : expression.getValue()) {
+            append(" " + lane);
+        }
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        open().append(shape(expression.getShape()) + ".splat");
+        line(expression.getValue());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorExtractLane expression) {
+        open().append(shape(expression.getShape()) + ".extract_lane");
+        if (expression.getShape() == WasmVectorShape.INT8X16 || expression.getShape() == WasmVectorShape.INT16X8) {
+            append("_u");
+        }
+        append(" " + expression.getLane());
+        line(expression.getVector());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorUnary expression) {
+        open();
+        switch (expression.getOperation()) {
+            case ANY_TRUE:
+                append("v128.any_true");
+                break;
+            case ALL_TRUE:
+                append(shape(expression.getShape()) + ".all_true");
+                break;
+            case BITMASK:
+                append(shape(expression.getShape()) + ".bitmask");
+                break;
+            case EXTEND_LOW_UNSIGNED:
+                append(shape(expression.getShape()) + ".extend_low_" + narrowShape(expression.getShape()) + "_u");
+                break;
+            case EXTEND_HIGH_UNSIGNED:
+                append(shape(expression.getShape()) + ".extend_high_" + narrowShape(expression.getShape()) + "_u");
+                break;
+        }
+        line(expression.getOperand());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        open();
+        switch (expression.getOperation()) {
+            case AND:
+                append("v128.and");
+                break;
+            case OR:
+                append("v128.or");
+                break;
+            case XOR:
+                append("v128.xor");
+                break;
+            default:
+                append(shape(expression.getShape()) + "." + operation(expression.getOperation()));
+                break;
+        }
+        line(expression.getFirst());
+        line(expression.getSecond());
+        close();
+    }
+
+    @Override
+    public void visit(WasmFillMemory expression) {
+        open().append("memory.fill");
+        line(expression.getIndex());
+        line(expression.getValue());
+        line(expression.getCount());
+        close();
+    }
+
+    @Override
+    public void visit(WasmCopyMemory expression) {
+        open().append("memory.copy");
+        line(expression.getDestinationIndex());
+        line(expression.getSourceIndex());
+        line(expression.getCount());
+        close();
+    }
+
     private String type(WasmType type) {
         switch (type) {
             case INT32:
@@ -604,6 +740,8 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
                 return "f32";
             case FLOAT64:
                 return "f64";
+            case V128:
+                return "v128";
         }
         throw new AssertionError(type.toString());
     }
@@ -628,6 +766,34 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
         throw new AssertionError(type.toString());
     }
 
+    private String shape(WasmVectorShape shape) {
+        switch (shape) {
+            case INT8X16:
+                return "i8x16";
+            case INT16X8:
+                return "i16x8";
+            case INT32X4:
+                return "i32x4";
+            case INT64X2:
+                return "i64x2";
+        }
+        throw new AssertionError(shape.toString());
+    }
+
+    private String narrowShape(WasmVectorShape shape) {
+        switch (shape) {
+            case INT16X8:
+                return "i8x16";
+            case INT32X4:
+                return "i16x8";
+            case INT64X2:
+                return "i32x4";
+            default:
+                break;
+        }
+        throw new AssertionError(shape.toString());
+    }
+
     private String operation(WasmIntBinaryOperation operation) {
         switch (operation) {
             case ADD:
@@ -726,6 +892,28 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
         throw new AssertionError(operation.toString());
     }
 
+    private String operation(WasmVectorBinaryOperation operation) {
+        switch (operation) {
+            case EQ:
+                return "eq";
+            case NE:
+                return "ne";
+            case ADD:
+                return "add";
+            case SUB:
+                return "sub";
+            case MUL:
+                return "mul";
+            case AND:
+                return "and";
+            case OR:
+                return "or";
+            case XOR:
+                return "xor";
+        }
+        throw new AssertionError(operation.toString());
+    }
+
     private String operation(WasmFloatUnaryOperation operation) {
         switch (operation) {
             case ABS:
@@ -24,8 +24,10 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopyMemory;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFillMemory;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -42,14 +44,22 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorConstant;
+import org.teavm.backend.wasm.model.expression.WasmVectorExtractLane;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
+import org.teavm.backend.wasm.model.expression.WasmVectorUnary;
 
 public class WasmTypeInference implements WasmExpressionVisitor {
     private WasmGenerationContext context;
@@ -209,6 +219,60 @@ public class WasmTypeInference implements WasmExpressionVisitor {
         result = null;
     }
 
+    @Override
+    public void visit(WasmLoadVector expression) {
+        result = WasmType.V128;
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        result = null;
+    }
+
+    @Override
+    public void visit(WasmVectorConstant expression) {
+        result = WasmType.V128;
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        result = WasmType.V128;
+    }
+
+    @Override
+    public void visit(WasmVectorExtractLane expression) {
+        result = expression.getShape() == WasmVectorShape.INT64X2 ? WasmType.INT64 : WasmType.INT32;
+    }
+
+    @Override
+    public void visit(WasmVectorUnary expression) {
+        switch (expression.getOperation()) {
+            case ANY_TRUE:
+            case ALL_TRUE:
+            case BITMASK:
+                result = WasmType.INT32;
+                break;
+            default:
+                result = WasmType.V128;
+                break;
+        }
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        result = WasmType.V128;
+    }
+
+    @Override
+    public void visit(WasmFillMemory expression) {
+        result = null;
+    }
+
+    @Override
+    public void visit(WasmCopyMemory expression) {
+        result = null;
+    }
+
     private static WasmType map(WasmIntType type) {
         switch (type) {
             case INT32:
@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import org.teavm.parsing.ClassDateProvider;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * Writes and checks list of classes a cache entry depends on. By default, entry is considered outdated
+ * when any of its dependencies was modified after the entry was stored. When {@link ClassHashProvider}
+ * is specified, fingerprints of dependencies are stored along with the entry and compared instead,
+ * so the entry survives touching class files and can be reused on another machine.
+ */
+class CacheDependencies {
+    private static final byte BY_DATE = 0;
+    private static final byte BY_HASH = 1;
+    private final ClassDateProvider classDateProvider;
+    private ClassHashProvider classHashProvider;
+
+    CacheDependencies(ClassDateProvider classDateProvider) {
+        this.classDateProvider = classDateProvider;
+    }
+
+    void setClassHashProvider(ClassHashProvider classHashProvider) {
+        this.classHashProvider = classHashProvider;
+    }
+
+    void write(DataOutput output, Collection<String> dependencies) throws IOException {
+        output.writeByte(classHashProvider != null ? BY_HASH : BY_DATE);
+        output.writeShort(dependencies.size());
+        for (String dependency : dependencies) {
+            output.writeUTF(dependency);
+            if (classHashProvider != null) {
+                byte[] hash = classHashProvider.getClassHash(dependency);
+                if (hash == null) {
+                    output.writeByte(0);
+                } else {
+                    output.writeByte(hash.length);
+                    output.write(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads list of dependencies and checks whether any of them changed.
+     *
+     * @param input input to read dependencies from.
+     * @param storeTime time when the entry was stored.
+     * @return {@code true} if entry is still valid.
+     */
+    boolean check(DataInput input, long storeTime) throws IOException {
+        byte mode = input.readByte();
+        if (mode != (classHashProvider != null ? BY_HASH : BY_DATE)) {
+            return false;
+        }
+        Date storeDate = new Date(storeTime);
+        int count = input.readShort();
+        for (int i = 0; i < count; ++i) {
+            String dependency = input.readUTF();
+            if (classHashProvider != null) {
+                byte[] hash = new byte[input.readByte() & 0xFF];
+                input.readFully(hash);
+                byte[] actualHash = classHashProvider.getClassHash(dependency);
+                if (hash.length == 0 || actualHash == null || !Arrays.equals(hash, actualHash)) {
+                    return false;
+                }
+            } else {
+                Date date = classDateProvider.getModificationDate(dependency);
+                if (date == null || date.after(storeDate)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
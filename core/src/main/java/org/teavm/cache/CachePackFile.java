@@ -0,0 +1,339 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Stores cache entries in one append-only file instead of a file per entry. Entries are
+ * identified by string keys and are read through a memory mapping of the file, so that reading
+ * an entry does not copy it.</p>
+ *
+ * <p>The file consists of a header, entry data and an index, followed by a fixed-size trailer that
+ * points to the index. Every {@link #flush()} appends new entries followed by a new index, so
+ * entries that were replaced or removed, as well as old indexes, remain in the file as garbage.
+ * When garbage takes more than a half of the file, flush rewrites the file with live entries only.</p>
+ */
+public class CachePackFile {
+    private static final int MAGIC = 0x5456_4D50;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 12;
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final File file;
+    private boolean opened;
+    private Map<String, Entry> index = new LinkedHashMap<>();
+    private Map<String, PendingEntry> pending = new LinkedHashMap<>();
+    private MappedByteBuffer mapping;
+    private long fileSize;
+
+    public CachePackFile(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the data of the entry, or {@code null} if there is no such entry. The returned buffer
+     * is positioned at the start of the entry and limited by its end. When the data of the entry
+     * is located in the file, the buffer is a view of the file mapping.
+     */
+    public ByteBuffer get(String key) {
+        PendingEntry pendingEntry = pending.get(key);
+        if (pendingEntry != null) {
+            return ByteBuffer.wrap(pendingEntry.data).asReadOnlyBuffer();
+        }
+        ensureOpen();
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer result = mapping.duplicate();
+        result.position((int) entry.offset);
+        result.limit((int) entry.offset + entry.length);
+        return result.slice();
+    }
+
+    public InputStream getStream(String key) {
+        ByteBuffer buffer = get(key);
+        return buffer != null ? new ByteBufferInputStream(buffer) : null;
+    }
+
+    /**
+     * Returns the time when the entry was stored, or {@code -1} if there is no such entry.
+     */
+    public long getTimestamp(String key) {
+        PendingEntry pendingEntry = pending.get(key);
+        if (pendingEntry != null) {
+            return pendingEntry.timestamp;
+        }
+        ensureOpen();
+        Entry entry = index.get(key);
+        return entry != null ? entry.timestamp : -1;
+    }
+
+    public boolean contains(String key) {
+        if (pending.containsKey(key)) {
+            return true;
+        }
+        ensureOpen();
+        return index.containsKey(key);
+    }
+
+    public void put(String key, byte[] data) {
+        pending.put(key, new PendingEntry(data, System.currentTimeMillis()));
+    }
+
+    public void remove(String key) {
+        pending.remove(key);
+        ensureOpen();
+        index.remove(key);
+    }
+
+    public void flush() throws IOException {
+        ensureOpen();
+        if (pending.isEmpty() && !needsCompaction()) {
+            return;
+        }
+
+        long dataOffset = fileSize > 0 ? fileSize : HEADER_SIZE;
+        Map<String, Entry> newIndex = new LinkedHashMap<>(index);
+        for (Map.Entry<String, PendingEntry> mapEntry : pending.entrySet()) {
+            PendingEntry pendingEntry = mapEntry.getValue();
+            newIndex.put(mapEntry.getKey(), new Entry(dataOffset, pendingEntry.data.length,
+                    pendingEntry.timestamp));
+            dataOffset += pendingEntry.data.length;
+        }
+
+        long totalSize = fileSize + getPendingSize();
+        if (totalSize > MIN_COMPACTION_SIZE && totalSize - getLiveSize(newIndex) > totalSize / 2) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // Could not replace the file (e.g. it is still mapped on Windows), so keep garbage for now
+                new File(file.getPath() + ".tmp").delete();
+                append(newIndex, dataOffset);
+            }
+        } else {
+            append(newIndex, dataOffset);
+        }
+        pending.clear();
+        remap();
+    }
+
+    private boolean needsCompaction() {
+        return fileSize > MIN_COMPACTION_SIZE && fileSize - getLiveSize(index) > fileSize / 2;
+    }
+
+    private long getPendingSize() {
+        long size = 0;
+        for (PendingEntry entry : pending.values()) {
+            size += entry.data.length;
+        }
+        return size;
+    }
+
+    private static long getLiveSize(Map<String, Entry> index) {
+        long size = 0;
+        for (Entry entry : index.values()) {
+            size += entry.length;
+        }
+        return size;
+    }
+
+    private void append(Map<String, Entry> newIndex, long indexOffset) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            if (fileSize == 0) {
+                channel.truncate(0);
+                writeFully(channel, header(), 0);
+            }
+            long position = fileSize > 0 ? fileSize : HEADER_SIZE;
+            for (PendingEntry pendingEntry : pending.values()) {
+                writeFully(channel, ByteBuffer.wrap(pendingEntry.data), position);
+                position += pendingEntry.data.length;
+            }
+            position += writeFully(channel, ByteBuffer.wrap(serializeIndex(newIndex)), position);
+            writeFully(channel, trailer(indexOffset), position);
+            channel.force(false);
+        }
+        index = newIndex;
+    }
+
+    private void compact() throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        Map<String, Entry> newIndex = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_SIZE;
+            writeFully(channel, header(), 0);
+            for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+                if (pending.containsKey(mapEntry.getKey())) {
+                    continue;
+                }
+                Entry entry = mapEntry.getValue();
+                ByteBuffer data = mapping.duplicate();
+                data.position((int) entry.offset);
+                data.limit((int) entry.offset + entry.length);
+                writeFully(channel, data, position);
+                newIndex.put(mapEntry.getKey(), new Entry(position, entry.length, entry.timestamp));
+                position += entry.length;
+            }
+            for (Map.Entry<String, PendingEntry> mapEntry : pending.entrySet()) {
+                PendingEntry pendingEntry = mapEntry.getValue();
+                writeFully(channel, ByteBuffer.wrap(pendingEntry.data), position);
+                newIndex.put(mapEntry.getKey(), new Entry(position, pendingEntry.data.length,
+                        pendingEntry.timestamp));
+                position += pendingEntry.data.length;
+            }
+            long indexOffset = position;
+            position += writeFully(channel, ByteBuffer.wrap(serializeIndex(newIndex)), position);
+            writeFully(channel, trailer(indexOffset), position);
+            channel.force(false);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        index = newIndex;
+    }
+
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        opened = true;
+        try {
+            if (file.exists()) {
+                remap();
+                readIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Pack is corrupted or has incompatible format, start from scratch
+            index.clear();
+            mapping = null;
+            fileSize = 0;
+        }
+    }
+
+    private void remap() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Cache file is too large: " + file);
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+    }
+
+    private void readIndex() throws IOException {
+        if (fileSize < HEADER_SIZE + TRAILER_SIZE || mapping.getInt(0) != MAGIC || mapping.getInt(4) != VERSION
+                || mapping.getInt((int) fileSize - 4) != MAGIC) {
+            throw new IOException("Invalid cache file: " + file);
+        }
+        long indexOffset = mapping.getLong((int) fileSize - TRAILER_SIZE);
+        ByteBuffer indexBuffer = mapping.duplicate();
+        indexBuffer.position((int) indexOffset);
+        indexBuffer.limit((int) fileSize - TRAILER_SIZE);
+        DataInputStream input = new DataInputStream(new ByteBufferInputStream(indexBuffer.slice()));
+        int count = input.readInt();
+        for (int i = 0; i < count; ++i) {
+            String key = input.readUTF();
+            long offset = input.readLong();
+            int length = input.readInt();
+            long timestamp = input.readLong();
+            if (offset < HEADER_SIZE || offset + length > indexOffset) {
+                throw new IOException("Invalid cache file: " + file);
+            }
+            index.put(key, new Entry(offset, length, timestamp));
+        }
+    }
+
+    private static byte[] serializeIndex(Map<String, Entry> index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(index.size());
+        for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            output.writeUTF(mapEntry.getKey());
+            output.writeLong(entry.offset);
+            output.writeInt(entry.length);
+            output.writeLong(entry.timestamp);
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer trailer(long indexOffset) {
+        ByteBuffer buffer = ByteBuffer.allocate(TRAILER_SIZE);
+        buffer.putLong(indexOffset);
+        buffer.putInt(MAGIC);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int size = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return size;
+    }
+
+    static class Entry {
+        final long offset;
+        final int length;
+        final long timestamp;
+
+        Entry(long offset, int length, long timestamp) {
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+    }
+
+    static class PendingEntry {
+        final byte[] data;
+        final long timestamp;
+
+        PendingEntry(byte[] data, long timestamp) {
+            this.data = data;
+            this.timestamp = timestamp;
+        }
+    }
+}
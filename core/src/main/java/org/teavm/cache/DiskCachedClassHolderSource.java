@@ -19,43 +19,50 @@ import java.io.*;
 import java.util.*;
 import org.teavm.model.*;
 import org.teavm.parsing.ClassDateProvider;
+import org.teavm.parsing.ClassHashProvider;
 
 public class DiskCachedClassHolderSource implements ClassHolderSource {
     private static AccessLevel[] accessLevels = AccessLevel.values();
     private static ElementModifier[] elementModifiers = ElementModifier.values();
-    private File directory;
+    private CachePackFile pack;
     private SymbolTable symbolTable;
     private ClassHolderSource innerSource;
-    private ClassDateProvider classDateProvider;
+    private CacheDependencies dependencies;
     private Map<String, Item> cache = new LinkedHashMap<>();
     private Set<String> newClasses = new HashSet<>();
     private ProgramIO programIO;
 
     public DiskCachedClassHolderSource(File directory, SymbolTable symbolTable, SymbolTable fileTable,
             ClassHolderSource innerSource, ClassDateProvider classDateProvider) {
-        this.directory = directory;
+        pack = new CachePackFile(new File(directory, "classes.teavm-pack"));
         this.symbolTable = symbolTable;
         this.innerSource = innerSource;
-        this.classDateProvider = classDateProvider;
+        dependencies = new CacheDependencies(classDateProvider);
         programIO = new ProgramIO(symbolTable, fileTable);
     }
 
+    /**
+     * Makes cache validate stored classes by fingerprints of class files rather than by modification dates.
+     */
+    public void setClassHashProvider(ClassHashProvider classHashProvider) {
+        dependencies.setClassHashProvider(classHashProvider);
+    }
+
     @Override
     public ClassHolder get(String name) {
         Item item = cache.get(name);
         if (item == null) {
             item = new Item();
             cache.put(name, item);
-            File classFile = new File(directory, name.replace('.', '/') + ".teavm-cls");
-            if (classFile.exists()) {
-                Date classDate = classDateProvider.getModificationDate(name);
-                if (classDate != null && classDate.before(new Date(classFile.lastModified()))) {
-                    try (InputStream input = new BufferedInputStream(new FileInputStream(classFile))) {
+            InputStream input = pack.getStream(name);
+            if (input != null) {
+                try {
+                    if (dependencies.check(new DataInputStream(input), pack.getTimestamp(name))) {
                         item.cls = readClass(input, name);
-                    } catch (IOException e) {
-                        // We could not access cache file, so let's parse class file
-                        item.cls = null;
                     }
+                } catch (IOException e) {
+                    // We could not read cache entry, so let's parse class file
+                    item.cls = null;
                 }
             }
             if (item.cls == null) {
@@ -70,17 +77,27 @@ public class DiskCachedClassHolderSource implements ClassHolderSource {
         ClassHolder cls;
     }
 
-    public void flush() throws IOException {
+    /**
+     * Serializes entries stored since the last flush. Symbols they refer to are added to symbol tables,
+     * so symbol tables should be flushed after this method and before {@link #flush()}. Otherwise cache files
+     * may refer to symbols that are missing on disk when process is killed in between.
+     */
+    public void storeNewEntries() throws IOException {
         for (String className : newClasses) {
             Item item = cache.get(className);
             if (item.cls != null) {
-                File classFile = new File(directory, className.replace('.', '/') + ".teavm-cls");
-                classFile.getParentFile().mkdirs();
-                try (OutputStream output = new BufferedOutputStream(new FileOutputStream(classFile))) {
-                    writeClass(output, item.cls);
-                }
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                dependencies.write(new DataOutputStream(output), Collections.singletonList(className));
+                writeClass(output, item.cls);
+                pack.put(className, output.toByteArray());
             }
         }
+        newClasses.clear();
+    }
+
+    public void flush() throws IOException {
+        storeNewEntries();
+        pack.flush();
     }
 
     private void writeClass(OutputStream stream, ClassHolder cls) throws IOException {
@@ -20,42 +20,58 @@ import java.util.*;
 import org.teavm.model.*;
 import org.teavm.model.instructions.*;
 import org.teavm.parsing.ClassDateProvider;
+import org.teavm.parsing.ClassHashProvider;
 
 public class DiskProgramCache implements ProgramCache {
-    private File directory;
+    private CachePackFile pack;
     private ProgramIO programIO;
     private Map<MethodReference, Item> cache = new HashMap<>();
     private Set<MethodReference> newMethods = new HashSet<>();
-    private ClassDateProvider classDateProvider;
+    private CacheDependencies dependencies;
 
     public DiskProgramCache(File directory, SymbolTable symbolTable, SymbolTable fileTable,
             ClassDateProvider classDateProvider) {
-        this.directory = directory;
+        pack = new CachePackFile(new File(directory, "programs.teavm-pack"));
         programIO = new ProgramIO(symbolTable, fileTable);
-        this.classDateProvider = classDateProvider;
+        dependencies = new CacheDependencies(classDateProvider);
+    }
+
+    /**
+     * Makes cache validate stored programs by fingerprints of class files rather than by modification dates.
+     */
+    public void setClassHashProvider(ClassHashProvider classHashProvider) {
+        dependencies.setClassHashProvider(classHashProvider);
+    }
+
+    /**
+     * Makes cache check programs kept in memory against their dependencies again, so that the same cache
+     * can be reused by subsequent builds.
+     */
+    public void revalidate() {
+        cache.values().removeIf(item -> item.program == null);
+        for (Item item : cache.values()) {
+            item.checked = false;
+        }
     }
 
     @Override
     public Program get(MethodReference method) {
         Item item = cache.get(method);
+        if (item != null && !item.checked) {
+            item.checked = true;
+            if (!isStoredEntryValid(method.toString())) {
+                item.program = null;
+            }
+        }
         if (item == null) {
             item = new Item();
             cache.put(method, item);
-            File file = getMethodFile(method);
-            if (file.exists()) {
-                try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            String key = method.toString();
+            InputStream stream = pack.getStream(key);
+            if (stream != null) {
+                try {
                     DataInput input = new DataInputStream(stream);
-                    int depCount = input.readShort();
-                    boolean dependenciesChanged = false;
-                    for (int i = 0; i < depCount; ++i) {
-                        String depClass = input.readUTF();
-                        Date depDate = classDateProvider.getModificationDate(depClass);
-                        if (depDate == null || depDate.after(new Date(file.lastModified()))) {
-                            dependenciesChanged = true;
-                            break;
-                        }
-                    }
-                    if (!dependenciesChanged) {
+                    if (dependencies.check(input, pack.getTimestamp(key))) {
                         item.program = programIO.read(stream);
                     }
                 } catch (IOException e) {
@@ -66,6 +82,18 @@ public class DiskProgramCache implements ProgramCache {
         return item.program;
     }
 
+    private boolean isStoredEntryValid(String key) {
+        InputStream stream = pack.getStream(key);
+        if (stream == null) {
+            return false;
+        }
+        try {
+            return dependencies.check(new DataInputStream(stream), pack.getTimestamp(key));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     @Override
     public void store(MethodReference method, Program program) {
         Item item = new Item();
@@ -74,9 +102,13 @@ public class DiskProgramCache implements ProgramCache {
         newMethods.add(method);
     }
 
-    public void flush() throws IOException {
+    /**
+     * Serializes entries stored since the last flush. Symbols they refer to are added to symbol tables,
+     * so symbol tables should be flushed after this method and before {@link #flush()}. Otherwise cache files
+     * may refer to symbols that are missing on disk when process is killed in between.
+     */
+    public void storeNewEntries() throws IOException {
         for (MethodReference method : newMethods) {
-            File file = getMethodFile(method);
             ProgramDependencyAnalyzer analyzer = new ProgramDependencyAnalyzer();
             analyzer.dependencies.add(method.getClassName());
             Program program = cache.get(method).program;
@@ -86,25 +118,22 @@ public class DiskProgramCache implements ProgramCache {
                     insn.acceptVisitor(analyzer);
                 }
             }
-            file.getParentFile().mkdirs();
-            try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
-                DataOutput output = new DataOutputStream(stream);
-                output.writeShort(analyzer.dependencies.size());
-                for (String dep : analyzer.dependencies) {
-                    output.writeUTF(dep);
-                }
-                programIO.write(program, stream);
-            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            dependencies.write(new DataOutputStream(stream), analyzer.dependencies);
+            programIO.write(program, stream);
+            pack.put(method.toString(), stream.toByteArray());
         }
+        newMethods.clear();
     }
 
-    private File getMethodFile(MethodReference method) {
-        File dir = new File(directory, method.getClassName().replace('.', '/'));
-        return new File(dir, FileNameEncoder.encodeFileName(method.getDescriptor().toString()) + ".teavm-opt");
+    public void flush() throws IOException {
+        storeNewEntries();
+        pack.flush();
     }
 
     static class Item {
         Program program;
+        boolean checked = true;
     }
 
     static class ProgramDependencyAnalyzer implements InstructionVisitor {
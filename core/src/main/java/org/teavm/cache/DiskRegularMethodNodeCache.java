@@ -15,17 +15,13 @@
  */
 package org.teavm.cache;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -39,11 +35,12 @@ import org.teavm.ast.RegularMethodNode;
 import org.teavm.ast.cache.MethodNodeCache;
 import org.teavm.model.MethodReference;
 import org.teavm.parsing.ClassDateProvider;
+import org.teavm.parsing.ClassHashProvider;
 
 public class DiskRegularMethodNodeCache implements MethodNodeCache {
-    private final File directory;
+    private final CachePackFile pack;
     private final AstIO astIO;
-    private final ClassDateProvider classDateProvider;
+    private final CacheDependencies dependencies;
     private final Map<MethodReference, Item> cache = new HashMap<>();
     private final Map<MethodReference, AsyncItem> asyncCache = new HashMap<>();
     private final Set<MethodReference> newMethods = new HashSet<>();
@@ -51,22 +48,52 @@ public class DiskRegularMethodNodeCache implements MethodNodeCache {
 
     public DiskRegularMethodNodeCache(File directory, SymbolTable symbolTable, SymbolTable fileTable,
             ClassDateProvider classDateProvider) {
-        this.directory = directory;
+        pack = new CachePackFile(new File(directory, "ast.teavm-pack"));
         astIO = new AstIO(symbolTable, fileTable);
-        this.classDateProvider = classDateProvider;
+        dependencies = new CacheDependencies(classDateProvider);
+    }
+
+    /**
+     * Makes cache validate stored method bodies by fingerprints of class files rather than
+     * by modification dates.
+     */
+    public void setClassHashProvider(ClassHashProvider classHashProvider) {
+        dependencies.setClassHashProvider(classHashProvider);
+    }
+
+    /**
+     * Makes cache check method bodies kept in memory against their dependencies again, so that the same cache
+     * can be reused by subsequent builds.
+     */
+    public void revalidate() {
+        cache.values().removeIf(item -> item.node == null);
+        asyncCache.values().removeIf(item -> item.node == null);
+        for (Item item : cache.values()) {
+            item.checked = false;
+        }
+        for (AsyncItem item : asyncCache.values()) {
+            item.checked = false;
+        }
     }
 
     @Override
     public RegularMethodNode get(MethodReference methodReference) {
         Item item = cache.get(methodReference);
+        if (item != null && !item.checked) {
+            item.checked = true;
+            if (!isStoredEntryValid(getMethodKey(methodReference, false))) {
+                item.node = null;
+            }
+        }
         if (item == null) {
             item = new Item();
             cache.put(methodReference, item);
-            File file = getMethodFile(methodReference, false);
-            if (file.exists()) {
-                try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            String key = getMethodKey(methodReference, false);
+            InputStream stream = pack.getStream(key);
+            if (stream != null) {
+                try {
                     DataInput input = new DataInputStream(stream);
-                    if (!checkIfDependenciesChanged(input, file)) {
+                    if (dependencies.check(input, pack.getTimestamp(key))) {
                         item.node = astIO.read(input, methodReference);
                     }
                 } catch (IOException e) {
@@ -88,14 +115,21 @@ public class DiskRegularMethodNodeCache implements MethodNodeCache {
     @Override
     public AsyncMethodNode getAsync(MethodReference methodReference) {
         AsyncItem item = asyncCache.get(methodReference);
+        if (item != null && !item.checked) {
+            item.checked = true;
+            if (!isStoredEntryValid(getMethodKey(methodReference, true))) {
+                item.node = null;
+            }
+        }
         if (item == null) {
             item = new AsyncItem();
             asyncCache.put(methodReference, item);
-            File file = getMethodFile(methodReference, true);
-            if (file.exists()) {
-                try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            String key = getMethodKey(methodReference, true);
+            InputStream stream = pack.getStream(key);
+            if (stream != null) {
+                try {
                     DataInput input = new DataInputStream(stream);
-                    if (!checkIfDependenciesChanged(input, file)) {
+                    if (dependencies.check(input, pack.getTimestamp(key))) {
                         item.node = astIO.readAsync(input, methodReference);
                     }
                 } catch (IOException e) {
@@ -106,16 +140,16 @@ public class DiskRegularMethodNodeCache implements MethodNodeCache {
         return item.node;
     }
 
-    private boolean checkIfDependenciesChanged(DataInput input, File file) throws IOException {
-        int depCount = input.readShort();
-        for (int i = 0; i < depCount; ++i) {
-            String depClass = input.readUTF();
-            Date depDate = classDateProvider.getModificationDate(depClass);
-            if (depDate == null || depDate.after(new Date(file.lastModified()))) {
-                return true;
-            }
+    private boolean isStoredEntryValid(String key) {
+        InputStream stream = pack.getStream(key);
+        if (stream == null) {
+            return false;
+        }
+        try {
+            return dependencies.check(new DataInputStream(stream), pack.getTimestamp(key));
+        } catch (IOException e) {
+            return false;
         }
-        return false;
     }
 
     @Override
@@ -126,43 +160,49 @@ public class DiskRegularMethodNodeCache implements MethodNodeCache {
         newAsyncMethods.add(methodReference);
     }
 
-    public void flush() throws IOException {
+    /**
+     * Serializes entries stored since the last flush. Symbols they refer to are added to symbol tables,
+     * so symbol tables should be flushed after this method and before {@link #flush()}. Otherwise cache files
+     * may refer to symbols that are missing on disk when process is killed in between.
+     */
+    public void storeNewEntries() throws IOException {
         for (MethodReference method : newMethods) {
-            File file = getMethodFile(method, true);
             AstDependencyAnalyzer analyzer = new AstDependencyAnalyzer();
             RegularMethodNode node = cache.get(method).node;
             node.getBody().acceptVisitor(analyzer);
             analyzer.dependencies.add(method.getClassName());
-            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
-                output.writeShort(analyzer.dependencies.size());
-                for (String dependency : analyzer.dependencies) {
-                    output.writeUTF(dependency);
-                }
-                astIO.write(output, node);
-            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            dependencies.write(output, analyzer.dependencies);
+            astIO.write(output, node);
+            output.flush();
+            pack.put(getMethodKey(method, false), bytes.toByteArray());
         }
         for (MethodReference method : newAsyncMethods) {
-            File file = getMethodFile(method, true);
             AstDependencyAnalyzer analyzer = new AstDependencyAnalyzer();
             AsyncMethodNode node = asyncCache.get(method).node;
             for (AsyncMethodPart part : node.getBody()) {
                 part.getStatement().acceptVisitor(analyzer);
             }
             analyzer.dependencies.add(method.getClassName());
-            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
-                output.writeShort(analyzer.dependencies.size());
-                for (String dependency : analyzer.dependencies) {
-                    output.writeUTF(dependency);
-                }
-                astIO.writeAsync(output, node);
-            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            dependencies.write(output, analyzer.dependencies);
+            astIO.writeAsync(output, node);
+            output.flush();
+            pack.put(getMethodKey(method, true), bytes.toByteArray());
         }
+        newMethods.clear();
+        newAsyncMethods.clear();
+    }
+
+    public void flush() throws IOException {
+        storeNewEntries();
+        pack.flush();
     }
 
-    private File getMethodFile(MethodReference method, boolean async) {
-        File dir = new File(directory, method.getClassName().replace('.', '/'));
-        return new File(dir, FileNameEncoder.encodeFileName(method.getDescriptor().toString()) + ".teavm-ast"
-                + (async ? "-async" : ""));
+    private static String getMethodKey(MethodReference method, boolean async) {
+        return async ? method + "#async" : method.toString();
     }
 
     private static class AstDependencyAnalyzer extends RecursiveVisitor {
@@ -183,9 +223,11 @@ public class DiskRegularMethodNodeCache implements MethodNodeCache {
 
     private static class Item {
         RegularMethodNode node;
+        boolean checked = true;
     }
 
     private static class AsyncItem {
         AsyncMethodNode node;
+        boolean checked = true;
     }
 }
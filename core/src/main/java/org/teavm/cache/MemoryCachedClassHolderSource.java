@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderSource;
+import org.teavm.parsing.ClassDateProvider;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * <p>Keeps parsed classes in memory between builds, so that a process that runs several builds
+ * (like a build daemon or the watch mode of CLI) parses and pre-optimizes only classes whose class files
+ * changed. Classes are validated by fingerprints of their class files once per build.</p>
+ *
+ * <p>Before each build, {@link #setUnderlyingSource(ClassHolderSource, ClassHashProvider)} should be called
+ * with class source and hash provider that reflect actual state of class path. Classes returned by this
+ * source are shared between builds, so they must not be modified.</p>
+ *
+ * <p>This class also serves as date and hash provider for caches that live as long as this source.</p>
+ */
+public class MemoryCachedClassHolderSource implements ClassHolderSource, ClassDateProvider, ClassHashProvider {
+    private ClassHolderSource underlyingSource;
+    private ClassHashProvider hashProvider;
+    private ClassDateProvider dateProvider;
+    private Map<String, Item> cache = new HashMap<>();
+    private Set<String> validClasses = new HashSet<>();
+    private int parsedClassCount;
+
+    /**
+     * Starts new build.
+     *
+     * @param underlyingSource class source to take changed classes from.
+     * @param hashProvider provides fingerprints of class files of the current class path. When it also
+     * implements {@link ClassDateProvider}, it is used to report modification dates of class files.
+     */
+    public synchronized void setUnderlyingSource(ClassHolderSource underlyingSource,
+            ClassHashProvider hashProvider) {
+        this.underlyingSource = underlyingSource;
+        this.hashProvider = hashProvider;
+        dateProvider = hashProvider instanceof ClassDateProvider ? (ClassDateProvider) hashProvider : null;
+        validClasses.clear();
+        parsedClassCount = 0;
+    }
+
+    @Override
+    public synchronized ClassHolder get(String name) {
+        Item item = cache.get(name);
+        if (item != null && validClasses.contains(name)) {
+            return item.cls;
+        }
+        byte[] hash = hashProvider.getClassHash(name);
+        if (item == null || hash == null || !Arrays.equals(hash, item.hash)) {
+            item = new Item();
+            item.cls = underlyingSource.get(name);
+            item.hash = hash;
+            cache.put(name, item);
+            if (item.cls != null) {
+                parsedClassCount++;
+            }
+        }
+        validClasses.add(name);
+        return item.cls;
+    }
+
+    /**
+     * Returns number of classes taken from underlying source during the current build.
+     */
+    public synchronized int getParsedClassCount() {
+        return parsedClassCount;
+    }
+
+    @Override
+    public synchronized Date getModificationDate(String className) {
+        return dateProvider != null ? dateProvider.getModificationDate(className) : null;
+    }
+
+    @Override
+    public synchronized byte[] getClassHash(String className) {
+        return hashProvider.getClassHash(className);
+    }
+
+    static class Item {
+        ClassHolder cls;
+        byte[] hash;
+    }
+}
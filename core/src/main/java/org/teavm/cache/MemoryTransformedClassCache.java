@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassReader;
+import org.teavm.model.TransformedClassCache;
+import org.teavm.model.util.ModelUtils;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * Keeps transformed classes in memory between builds. Every entry remembers fingerprints of the class and
+ * of classes that transformers read, and is reused while all of them stay the same.
+ */
+public class MemoryTransformedClassCache implements TransformedClassCache {
+    private ClassHashProvider hashProvider;
+    private Map<String, Item> cache = new HashMap<>();
+
+    public MemoryTransformedClassCache(ClassHashProvider hashProvider) {
+        this.hashProvider = hashProvider;
+    }
+
+    @Override
+    public synchronized ClassHolder get(String className, String transformation) {
+        Item item = cache.get(className);
+        if (item == null || !item.transformation.equals(transformation)) {
+            return null;
+        }
+        for (int i = 0; i < item.dependencies.length; ++i) {
+            if (!Arrays.equals(item.hashes[i], hashProvider.getClassHash(item.dependencies[i]))) {
+                cache.remove(className);
+                return null;
+            }
+        }
+        return ModelUtils.copyClass(item.cls);
+    }
+
+    @Override
+    public synchronized void store(String className, String transformation, ClassReader cls,
+            Collection<String> dependencies) {
+        if (hashProvider.getClassHash(className) == null) {
+            return;
+        }
+        Item item = new Item();
+        item.transformation = transformation;
+        item.cls = ModelUtils.copyClass(cls);
+        Set<String> allDependencies = new LinkedHashSet<>();
+        allDependencies.add(className);
+        allDependencies.addAll(dependencies);
+        item.dependencies = allDependencies.toArray(new String[0]);
+        item.hashes = new byte[item.dependencies.length][];
+        for (int i = 0; i < item.dependencies.length; ++i) {
+            item.hashes[i] = hashProvider.getClassHash(item.dependencies[i]);
+        }
+        cache.put(className, item);
+    }
+
+    static class Item {
+        String transformation;
+        ClassHolder cls;
+        String[] dependencies;
+        byte[][] hashes;
+    }
+}
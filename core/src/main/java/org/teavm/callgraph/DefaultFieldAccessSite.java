@@ -33,7 +33,7 @@ public class DefaultFieldAccessSite implements FieldAccessSite, Serializable {
 
     @Override
     public TextLocation getLocation() {
-        return null;
+        return location;
     }
 
     @Override
@@ -43,7 +43,7 @@ public class DefaultFieldAccessSite implements FieldAccessSite, Serializable {
 
     @Override
     public FieldReference getField() {
-        return null;
+        return field;
     }
 
     @Override
@@ -17,7 +17,6 @@ package org.teavm.common;
 
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntSet;
-import com.carrotsearch.hppc.cursors.IntCursor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -157,7 +156,8 @@ public class GraphIndexer {
                     List<WeightedNode> succList = new ArrayList<>(successors.length);
                     IntegerArray orderedSuccessors = new IntegerArray(successors.length);
                     if (terminalNodes.size() > 0) {
-                        IntSet loopNodes = IntHashSet.from(findNaturalLoop(node, terminalNodes.getAll()));
+                        int[] loopNodeArray = findNaturalLoop(node, terminalNodes.getAll());
+                        IntSet loopNodes = IntHashSet.from(loopNodeArray);
                         for (int succ : successors) {
                             if (loopNodes.contains(succ)) {
                                 succList.add(new WeightedNode(succ, priorities[succ], weights[succ]));
@@ -170,8 +170,8 @@ public class GraphIndexer {
 
                         IntSet outerSuccessors = new IntHashSet(successors.length);
                         succList.clear();
-                        for (IntCursor loopNode : loopNodes) {
-                            for (int succ : graph.outgoingEdges(loopNode.value)) {
+                        for (int loopNode : loopNodeArray) {
+                            for (int succ : graph.outgoingEdges(loopNode)) {
                                 if (!loopNodes.contains(succ)) {
                                     if (outerSuccessors.add(succ)) {
                                         succList.add(new WeightedNode(succ, priorities[succ], weights[succ]));
@@ -220,7 +220,9 @@ public class GraphIndexer {
                 stack.push(pred);
             }
         }
-        return loop.toArray();
+        int[] result = loop.toArray();
+        Arrays.sort(result);
+        return result;
     }
 
     public int nodeAt(int index) {
@@ -122,4 +122,14 @@ public class DependencyAgent implements DependencyInfo, ServiceRepository {
     public CallGraph getCallGraph() {
         return analyzer.getCallGraph();
     }
+
+    @Override
+    public Collection<MethodReference> getSpeculativeCallees(MethodReference caller) {
+        return analyzer.getSpeculativeCallees(caller);
+    }
+
+    @Override
+    public Collection<MethodReference> getRootMethods() {
+        return analyzer.getRootMethods();
+    }
 }
@@ -21,6 +21,7 @@ import com.carrotsearch.hppc.cursors.IntCursor;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,6 +53,7 @@ import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.Program;
 import org.teavm.model.ReferenceCache;
+import org.teavm.model.TransformedClassCache;
 import org.teavm.model.ValueType;
 import org.teavm.model.optimization.UnreachableBasicBlockEliminator;
 import org.teavm.model.util.ModelUtils;
@@ -77,6 +79,7 @@ public class DependencyAnalyzer implements DependencyInfo {
     private Deque<Runnable> tasks = new ArrayDeque<>();
     private Queue<Runnable> deferredTasks = new ArrayDeque<>();
     List<DependencyType> types = new ArrayList<>();
+    DependencyTypeSets typeSets = new DependencyTypeSets();
     private Map<String, DependencyType> typeMap = new HashMap<>();
     private DependencyAnalyzerInterruptor interruptor;
     private boolean interrupted;
@@ -237,6 +240,10 @@ public class DependencyAnalyzer implements DependencyInfo {
         classSource.addTransformer(transformer);
     }
 
+    public void setTransformedClassCache(TransformedClassCache transformedClassCache) {
+        classSource.setTransformedClassCache(transformedClassCache);
+    }
+
     public void addEntryPoint(MethodReference methodRef, String... argumentTypes) {
         ValueType[] parameters = methodRef.getDescriptor().getParameterTypes();
         if (parameters.length + 1 != argumentTypes.length) {
@@ -325,6 +332,47 @@ public class DependencyAnalyzer implements DependencyInfo {
         }
     }
 
+    void schedulePropagation(DependencyNodeToNodeTransition consumer, DependencyTypeSet types) {
+        if (types.isEmpty()) {
+            return;
+        }
+
+        if (consumer.pendingTypes == null && propagationDepth < PROPAGATION_STACK_THRESHOLD) {
+            ++propagationDepth;
+            consumer.consume(types);
+            --propagationDepth;
+        } else {
+            if (consumer.pendingTypes == null) {
+                pendingTransitions.add(consumer);
+                consumer.pendingTypes = new IntHashSet();
+            }
+            for (int index = types.next(0); index >= 0; index = types.next(index + 1)) {
+                consumer.pendingTypes.add(index);
+            }
+        }
+    }
+
+    void schedulePropagation(DependencyConsumer consumer, DependencyTypeSet types) {
+        if (types.isEmpty()) {
+            return;
+        }
+
+        // Type sets are immutable, so they can be captured by deferred task as is
+        if (propagationDepth < PROPAGATION_STACK_THRESHOLD) {
+            ++propagationDepth;
+            consumeAll(consumer, types);
+            --propagationDepth;
+        } else {
+            tasks.add(() -> consumeAll(consumer, types));
+        }
+    }
+
+    private void consumeAll(DependencyConsumer consumer, DependencyTypeSet typeSet) {
+        for (int index = typeSet.next(0); index >= 0; index = typeSet.next(index + 1)) {
+            consumer.consume(types.get(index));
+        }
+    }
+
     private Set<String> classesAddedByRoot = new HashSet<>();
 
     public void defer(Runnable task) {
@@ -374,8 +422,19 @@ public class DependencyAnalyzer implements DependencyInfo {
     }
 
     private Set<MethodReference> methodsAddedByRoot = new HashSet<>();
+    private Map<MethodReference, Set<MethodReference>> speculativeCallees = new HashMap<>();
 
     public MethodDependency linkMethod(MethodReference methodRef, CallLocation callLocation) {
+        return linkMethod(methodRef, callLocation, false);
+    }
+
+    /**
+     * Links method like {@link #linkMethod(MethodReference, CallLocation)} does. Speculative call is a call
+     * graph edge that is added only because callee overrides a method that caller invokes virtually.
+     * Such edges are confirmed once an object that dispatches to callee reaches the invocation,
+     * or the same callee is linked from the same caller by other means.
+     */
+    MethodDependency linkMethod(MethodReference methodRef, CallLocation callLocation, boolean speculative) {
         if (methodRef == null) {
             throw new IllegalArgumentException();
         }
@@ -392,6 +451,17 @@ public class DependencyAnalyzer implements DependencyInfo {
         if (callLocation != null && callLocation.getMethod() != null) {
             added = callGraph.getNode(callLocation.getMethod()).addCallSite(methodRef,
                     callLocation.getSourceLocation());
+            if (speculative) {
+                if (added) {
+                    speculativeCallees.computeIfAbsent(callLocation.getMethod(), k -> new HashSet<>())
+                            .add(methodRef);
+                }
+            } else {
+                Set<MethodReference> callees = speculativeCallees.get(callLocation.getMethod());
+                if (callees != null) {
+                    callees.remove(methodRef);
+                }
+            }
         } else {
             added = methodsAddedByRoot.add(methodRef);
         }
@@ -678,6 +748,17 @@ public class DependencyAnalyzer implements DependencyInfo {
         return callGraph;
     }
 
+    @Override
+    public Collection<MethodReference> getSpeculativeCallees(MethodReference caller) {
+        Set<MethodReference> callees = speculativeCallees.get(caller);
+        return callees != null ? Collections.unmodifiableSet(callees) : Collections.emptySet();
+    }
+
+    @Override
+    public Collection<MethodReference> getRootMethods() {
+        return Collections.unmodifiableSet(methodsAddedByRoot);
+    }
+
     public void addBootstrapMethodSubstitutor(MethodReference method, BootstrapMethodSubstitutor substitutor) {
         bootstrapMethodSubstitutors.put(method, substitutor);
     }
@@ -18,15 +18,20 @@ package org.teavm.dependency;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.CacheableClassHolderTransformer;
+import org.teavm.model.CallLocation;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.ClassHolderSource;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.MethodHolder;
+import org.teavm.model.TransformedClassCache;
 import org.teavm.model.optimization.UnreachableBasicBlockEliminator;
 import org.teavm.model.util.ModelUtils;
 
@@ -36,6 +41,11 @@ class DependencyClassSource implements ClassHolderSource {
     private Map<String, ClassHolder> generatedClasses = new LinkedHashMap<>();
     private List<ClassHolderTransformer> transformers = new ArrayList<>();
     private Map<String, ClassHolder> cache = new LinkedHashMap<>();
+    private TransformedClassCache transformedClassCache;
+    private int cacheableTransformerCount = -1;
+    private String transformation;
+    private Set<String> dependencies = new LinkedHashSet<>();
+    private boolean reported;
 
     DependencyClassSource(ClassReaderSource innerSource, Diagnostics diagnostics) {
         this.innerSource = innerSource;
@@ -67,21 +77,79 @@ class DependencyClassSource implements ClassHolderSource {
     }
 
     private ClassHolder findAndTransformClass(String name) {
-        ClassHolder cls = findClass(name);
-        if (cls != null && !transformers.isEmpty()) {
-            for (ClassHolderTransformer transformer : transformers) {
-                transformer.transformClass(cls, innerSource, diagnostics);
+        ClassReader original = innerSource.get(name);
+        if (original == null) {
+            ClassHolder cls = generatedClasses.get(name);
+            if (cls != null) {
+                transform(cls, 0);
+            }
+            return cls;
+        }
+
+        if (transformedClassCache == null || getCacheableTransformerCount() == 0) {
+            ClassHolder cls = ModelUtils.copyClass(original);
+            transform(cls, 0);
+            return cls;
+        }
+
+        ClassHolder cls = transformedClassCache.get(name, transformation);
+        if (cls == null) {
+            cls = ModelUtils.copyClass(original);
+            if (applyCacheableTransformers(cls)) {
+                transformedClassCache.store(name, transformation, cls, dependencies);
             }
         }
+        transform(cls, cacheableTransformerCount);
         return cls;
     }
 
-    private ClassHolder findClass(String name) {
-        ClassReader cls = innerSource.get(name);
-        if (cls != null) {
-            return ModelUtils.copyClass(cls);
+    private void transform(ClassHolder cls, int firstTransformer) {
+        for (int i = firstTransformer; i < transformers.size(); ++i) {
+            transformers.get(i).transformClass(cls, innerSource, diagnostics);
+        }
+    }
+
+    private boolean applyCacheableTransformers(ClassHolder cls) {
+        dependencies.clear();
+        reported = false;
+        ClassReaderSource recordingSource = className -> {
+            dependencies.add(className);
+            return innerSource.get(className);
+        };
+        Diagnostics recordingDiagnostics = new Diagnostics() {
+            @Override
+            public void error(CallLocation location, String error, Object... params) {
+                reported = true;
+                diagnostics.error(location, error, params);
+            }
+
+            @Override
+            public void warning(CallLocation location, String error, Object... params) {
+                reported = true;
+                diagnostics.warning(location, error, params);
+            }
+        };
+        for (int i = 0; i < cacheableTransformerCount; ++i) {
+            transformers.get(i).transformClass(cls, recordingSource, recordingDiagnostics);
+        }
+        return !reported;
+    }
+
+    private int getCacheableTransformerCount() {
+        if (cacheableTransformerCount < 0) {
+            StringBuilder sb = new StringBuilder();
+            cacheableTransformerCount = 0;
+            for (ClassHolderTransformer transformer : transformers) {
+                if (!(transformer instanceof CacheableClassHolderTransformer)) {
+                    break;
+                }
+                sb.append(transformer.getClass().getName()).append('(')
+                        .append(((CacheableClassHolderTransformer) transformer).getConfiguration()).append(')');
+                cacheableTransformerCount++;
+            }
+            transformation = sb.toString();
         }
-        return generatedClasses.get(name);
+        return cacheableTransformerCount;
     }
 
     public Collection<ClassHolder> getGeneratedClasses() {
@@ -90,5 +158,10 @@ class DependencyClassSource implements ClassHolderSource {
 
     public void addTransformer(ClassHolderTransformer transformer) {
         transformers.add(transformer);
+        cacheableTransformerCount = -1;
+    }
+
+    public void setTransformedClassCache(TransformedClassCache transformedClassCache) {
+        this.transformedClassCache = transformedClassCache;
     }
 }
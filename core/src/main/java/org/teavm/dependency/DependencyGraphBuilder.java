@@ -662,7 +662,7 @@ class DependencyGraphBuilder {
 
             dependencyAnalyzer.getClassSource().overriddenMethods(method).forEach(methodImpl -> {
                 CallLocation callLocation = new CallLocation(caller.getMethod(), currentLocation);
-                dependencyAnalyzer.linkMethod(methodImpl.getReference(), callLocation);
+                dependencyAnalyzer.linkMethod(methodImpl.getReference(), callLocation, true);
             });
         }
 
@@ -41,4 +41,18 @@ public interface DependencyInfo {
     ClassDependencyInfo getClass(String className);
 
     CallGraph getCallGraph();
+
+    /**
+     * Returns methods that call graph links to the given caller only because they override methods
+     * that the caller invokes virtually, while no object that dispatches to them reaches the invocations.
+     * Such calls never happen at run time.
+     */
+    Collection<MethodReference> getSpeculativeCallees(MethodReference caller);
+
+    /**
+     * Returns methods that were linked without call location, i.e. entry points and methods that compiler
+     * or plugins require, for example, to call them from generated code. Call graph may have no incoming
+     * edges for such methods.
+     */
+    Collection<MethodReference> getRootMethods();
 }
@@ -20,11 +20,9 @@ import org.teavm.model.MethodReference;
 import org.teavm.model.ValueType;
 
 public class DependencyNode implements ValueDependencyInfo {
-    private static final int SMALL_TYPES_THRESHOLD = 6;
     private DependencyAnalyzer dependencyAnalyzer;
     private List<DependencyConsumer> followers;
-    private int[] smallTypes;
-    private BitSet types;
+    private DependencyTypeSet types;
     private List<DependencyNodeToNodeTransition> transitions;
     private volatile String tag;
     private DependencyNode arrayItemNode;
@@ -41,51 +39,25 @@ public class DependencyNode implements ValueDependencyInfo {
 
     private DependencyNode(DependencyAnalyzer dependencyAnalyzer, ValueType typeFilter, int degree) {
         this.dependencyAnalyzer = dependencyAnalyzer;
+        types = dependencyAnalyzer.typeSets.empty();
         this.degree = degree;
         this.typeFilter = typeFilter;
     }
 
+    DependencyAnalyzer getDependencyAnalyzer() {
+        return dependencyAnalyzer;
+    }
+
     private boolean addType(DependencyType type) {
-        if (types == null) {
-            if (smallTypes == null) {
-                if (locked) {
-                    throw new IllegalStateException("Error propagating type " + type.getName()
-                            + " to node in " + method);
-                }
-                smallTypes = new int[] { type.index };
-                return true;
-            }
-        }
-        if (smallTypes != null) {
-            for (int i = 0; i < smallTypes.length; ++i) {
-                if (smallTypes[i] == type.index) {
-                    return false;
-                }
-            }
-            if (smallTypes.length == SMALL_TYPES_THRESHOLD) {
-                types = new BitSet(dependencyAnalyzer.types.size() * 2);
-                for (int existingType : smallTypes) {
-                    types.set(existingType);
-                }
-                smallTypes = null;
-            } else {
-                if (locked) {
-                    throw new IllegalStateException("Error propagating type " + type.getName() + " to node in method "
-                            + method);
-                }
-                smallTypes = Arrays.copyOf(smallTypes, smallTypes.length + 1);
-                smallTypes[smallTypes.length - 1] = type.index;
-                return true;
-            }
+        if (types.contains(type.index)) {
+            return false;
         }
-        if (!types.get(type.index)) {
-            if (locked) {
-                throw new IllegalStateException("Error propagating type " + type.getName() + " to node " + tag);
-            }
-            types.set(type.index);
-            return true;
+        if (locked) {
+            throw new IllegalStateException("Error propagating type " + type.getName() + " to node in method "
+                    + method);
         }
-        return false;
+        types = dependencyAnalyzer.typeSets.add(types, type.index);
+        return true;
     }
 
     public void propagate(DependencyType type) {
@@ -119,17 +91,30 @@ public class DependencyNode implements ValueDependencyInfo {
             return;
         }
 
+        // Compute delta against current set, then add it to the set at once,
+        // so that no intermediate sets get interned
+        int[] addedIndexes = new int[newTypes.length];
+        int addedCount = 0;
         int j = 0;
         boolean copied = false;
         for (int i = 0; i < newTypes.length; ++i) {
             DependencyType type = newTypes[i];
-            if (addType(type) && filter(type)) {
+            boolean added = !types.contains(type.index) && !contains(addedIndexes, addedCount, type.index);
+            if (added) {
+                if (locked) {
+                    throw new IllegalStateException("Error propagating type " + type.getName()
+                            + " to node in method " + method);
+                }
+                addedIndexes[addedCount++] = type.index;
+            }
+            if (added && filter(type)) {
                 newTypes[j++] = type;
             } else if (!copied) {
                 copied = true;
                 newTypes = newTypes.clone();
             }
         }
+        types = dependencyAnalyzer.typeSets.addAll(types, addedIndexes, addedCount);
         if (j == 0) {
             return;
         }
@@ -162,6 +147,15 @@ public class DependencyNode implements ValueDependencyInfo {
         }
     }
 
+    private static boolean contains(int[] indexes, int count, int index) {
+        for (int i = 0; i < count; ++i) {
+            if (indexes[i] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean filter(DependencyType type) {
         if (typeFilter == null) {
             return true;
@@ -220,41 +214,11 @@ public class DependencyNode implements ValueDependencyInfo {
     }
 
     private void propagateTypes(DependencyConsumer transition) {
-        if (this.types != null) {
-            DependencyType[] types = new DependencyType[this.types.cardinality()];
-            int j = 0;
-            for (int index = this.types.nextSetBit(0); index >= 0; index = this.types.nextSetBit(index + 1)) {
-                DependencyType type = dependencyAnalyzer.types.get(index);
-                types[j++] = type;
-            }
-            dependencyAnalyzer.schedulePropagation(transition, types);
-        } else if (this.smallTypes != null) {
-            DependencyType[] types = new DependencyType[smallTypes.length];
-            for (int i = 0; i < types.length; ++i) {
-                DependencyType type = dependencyAnalyzer.types.get(smallTypes[i]);
-                types[i] = type;
-            }
-            dependencyAnalyzer.schedulePropagation(transition, types);
-        }
+        dependencyAnalyzer.schedulePropagation(transition, types);
     }
 
     private void propagateTypes(DependencyNodeToNodeTransition transition) {
-        if (this.types != null) {
-            DependencyType[] types = new DependencyType[this.types.cardinality()];
-            int j = 0;
-            for (int index = this.types.nextSetBit(0); index >= 0; index = this.types.nextSetBit(index + 1)) {
-                DependencyType type = dependencyAnalyzer.types.get(index);
-                types[j++] = type;
-            }
-            dependencyAnalyzer.schedulePropagation(transition, types);
-        } else if (this.smallTypes != null) {
-            DependencyType[] types = new DependencyType[smallTypes.length];
-            for (int i = 0; i < types.length; ++i) {
-                DependencyType type = dependencyAnalyzer.types.get(smallTypes[i]);
-                types[i] = type;
-            }
-            dependencyAnalyzer.schedulePropagation(transition, types);
-        }
+        dependencyAnalyzer.schedulePropagation(transition, types);
     }
 
     public void connect(DependencyNode node) {
@@ -289,19 +253,11 @@ public class DependencyNode implements ValueDependencyInfo {
 
     @Override
     public boolean hasArrayType() {
-        return arrayItemNode != null && (arrayItemNode.types != null || arrayItemNode.smallTypes != null);
+        return arrayItemNode != null && !arrayItemNode.types.isEmpty();
     }
 
     public boolean hasType(DependencyType type) {
-        if (smallTypes != null) {
-            for (int i = 0; i < smallTypes.length; ++i) {
-                if (smallTypes[i] == type.index) {
-                    return true;
-                }
-            }
-            return false;
-        }
-        return types != null && types.get(type.index);
+        return types.contains(type.index);
     }
 
     @Override
@@ -311,26 +267,10 @@ public class DependencyNode implements ValueDependencyInfo {
 
     @Override
     public String[] getTypes() {
-        if (smallTypes != null) {
-            String[] result = new String[smallTypes.length];
-            int j = 0;
-            for (int i = 0; i < result.length; ++i) {
-                DependencyType type = dependencyAnalyzer.types.get(smallTypes[i]);
-                if (filter(type)) {
-                    result[j++] = type.getName();
-                }
-            }
-            if (j < result.length) {
-                result = Arrays.copyOf(result, j);
-            }
-            return result;
-        }
-        if (types == null) {
-            return new String[0];
-        }
-        String[] result = new String[types.cardinality()];
+        int[] indexes = types.toArray();
+        String[] result = new String[indexes.length];
         int j = 0;
-        for (int index = types.nextSetBit(0); index >= 0; index = types.nextSetBit(index + 1)) {
+        for (int index : indexes) {
             DependencyType type = dependencyAnalyzer.types.get(index);
             if (filter(type)) {
                 result[j++] = type.getName();
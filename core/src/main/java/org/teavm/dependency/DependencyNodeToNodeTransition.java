@@ -37,13 +37,7 @@ class DependencyNodeToNodeTransition implements DependencyConsumer {
         if (!filterType(type)) {
             return;
         }
-        if (type.getName().startsWith("[")) {
-            source.getArrayItem().connect(destination.getArrayItem());
-            destination.getArrayItem().connect(source.getArrayItem());
-        }
-        if (type.getName().equals("java.lang.Class")) {
-            source.getClassValueNode().connect(destination.getClassValueNode());
-        }
+        connectNestedNodes(type);
         if (!destination.hasType(type)) {
             destination.propagate(type);
         }
@@ -59,32 +53,55 @@ class DependencyNodeToNodeTransition implements DependencyConsumer {
                     types[j++] = type;
                     added = true;
                 }
-
-                if (type.getName().startsWith("[")) {
-                    source.getArrayItem().connect(destination.getArrayItem());
-                    destination.getArrayItem().connect(source.getArrayItem());
-                }
-                if (type.getName().equals("java.lang.Class")) {
-                    source.getClassValueNode().connect(destination.getClassValueNode());
-                }
+                connectNestedNodes(type);
             }
             if (!added && !copied) {
                 copied = true;
                 types = types.clone();
             }
         }
+        propagateToDestination(types, j);
+    }
 
-        if (j == 0) {
-            return;
+    void consume(DependencyTypeSet typeSet) {
+        DependencyAnalyzer analyzer = destination.getDependencyAnalyzer();
+        DependencyType[] types = null;
+        int j = 0;
+        for (int index = typeSet.next(0); index >= 0; index = typeSet.next(index + 1)) {
+            DependencyType type = analyzer.types.get(index);
+            if (filterType(type)) {
+                if (!destination.hasType(type)) {
+                    if (types == null) {
+                        types = new DependencyType[typeSet.size()];
+                    }
+                    types[j++] = type;
+                }
+                connectNestedNodes(type);
+            }
         }
+        propagateToDestination(types, j);
+    }
 
-        if (j == 1) {
+    private void connectNestedNodes(DependencyType type) {
+        if (type.getName().startsWith("[")) {
+            source.getArrayItem().connect(destination.getArrayItem());
+            destination.getArrayItem().connect(source.getArrayItem());
+        }
+        if (type.getName().equals("java.lang.Class")) {
+            source.getClassValueNode().connect(destination.getClassValueNode());
+        }
+    }
+
+    private void propagateToDestination(DependencyType[] types, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (count == 1) {
             destination.propagate(types[0]);
         } else {
-            if (j < types.length) {
-                types = Arrays.copyOf(types, j);
+            if (count < types.length) {
+                types = Arrays.copyOf(types, count);
             }
-
             destination.propagate(types);
         }
     }
@@ -0,0 +1,233 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Immutable set of type indexes. Small sets are kept as sorted arrays. Large sets are kept as bit sets split
+ * into fixed-size pages, so that adding types copies only the affected pages and shares the rest with
+ * the original set.
+ */
+final class DependencyTypeSet {
+    static final int SMALL_SIZE_THRESHOLD = 32;
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_WORDS = 1 << (PAGE_SHIFT - 6);
+
+    private final int[] smallTypes;
+    private final long[][] pages;
+    private final int size;
+    private final int hash;
+    private IntObjectMap<WeakReference<DependencyTypeSet>> successors;
+
+    private DependencyTypeSet(int[] smallTypes, long[][] pages, int size, int hash) {
+        this.smallTypes = smallTypes;
+        this.pages = pages;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    static DependencyTypeSet empty() {
+        return new DependencyTypeSet(new int[0], null, 0, 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int index) {
+        if (smallTypes != null) {
+            return Arrays.binarySearch(smallTypes, index) >= 0;
+        }
+        int page = index >>> PAGE_SHIFT;
+        if (page >= pages.length || pages[page] == null) {
+            return false;
+        }
+        return (pages[page][(index >>> 6) & (PAGE_WORDS - 1)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the least index in this set that is greater than or equal to the given one,
+     * or <code>-1</code> if there is no such index.
+     */
+    int next(int from) {
+        if (smallTypes != null) {
+            int position = Arrays.binarySearch(smallTypes, from);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            return position < smallTypes.length ? smallTypes[position] : -1;
+        }
+
+        int page = from >>> PAGE_SHIFT;
+        int word = (from >>> 6) & (PAGE_WORDS - 1);
+        long mask = -1L << from;
+        for (; page < pages.length; ++page) {
+            long[] bits = pages[page];
+            if (bits != null) {
+                for (; word < PAGE_WORDS; ++word) {
+                    long value = bits[word] & mask;
+                    if (value != 0) {
+                        return (page << PAGE_SHIFT) + (word << 6) + Long.numberOfTrailingZeros(value);
+                    }
+                    mask = -1L;
+                }
+            }
+            word = 0;
+            mask = -1L;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns all indexes in ascending order. The returned array must not be modified.
+     */
+    int[] toArray() {
+        if (smallTypes != null) {
+            return smallTypes;
+        }
+        int[] result = new int[size];
+        int j = 0;
+        for (int index = next(0); index >= 0; index = next(index + 1)) {
+            result[j++] = index;
+        }
+        return result;
+    }
+
+    /**
+     * Creates set that contains all elements of this set and the given indexes. Indexes must not
+     * be contained in this set and must be unique. The result is not interned.
+     */
+    DependencyTypeSet with(int[] indexes, int count) {
+        int newSize = size + count;
+        int newHash = hash;
+        for (int i = 0; i < count; ++i) {
+            newHash += hash(indexes[i]);
+        }
+
+        if (newSize <= SMALL_SIZE_THRESHOLD) {
+            int[] result = Arrays.copyOf(smallTypes, newSize);
+            System.arraycopy(indexes, 0, result, size, count);
+            Arrays.sort(result);
+            return new DependencyTypeSet(result, null, newSize, newHash);
+        }
+
+        int maxIndex = 0;
+        for (int i = 0; i < count; ++i) {
+            maxIndex = Math.max(maxIndex, indexes[i]);
+        }
+        long[][] newPages;
+        if (pages != null) {
+            newPages = Arrays.copyOf(pages, Math.max(pages.length, (maxIndex >>> PAGE_SHIFT) + 1));
+            for (int i = 0; i < count; ++i) {
+                int page = indexes[i] >>> PAGE_SHIFT;
+                long[] original = page < pages.length ? pages[page] : null;
+                if (newPages[page] == original) {
+                    newPages[page] = original != null ? original.clone() : new long[PAGE_WORDS];
+                }
+            }
+        } else {
+            for (int index : smallTypes) {
+                maxIndex = Math.max(maxIndex, index);
+            }
+            newPages = new long[(maxIndex >>> PAGE_SHIFT) + 1][];
+            for (int index : smallTypes) {
+                set(newPages, index);
+            }
+            for (int i = 0; i < count; ++i) {
+                int page = indexes[i] >>> PAGE_SHIFT;
+                if (newPages[page] == null) {
+                    newPages[page] = new long[PAGE_WORDS];
+                }
+            }
+        }
+        for (int i = 0; i < count; ++i) {
+            set(newPages, indexes[i]);
+        }
+        return new DependencyTypeSet(null, newPages, newSize, newHash);
+    }
+
+    private static void set(long[][] pages, int index) {
+        long[] page = pages[index >>> PAGE_SHIFT];
+        if (page == null) {
+            page = new long[PAGE_WORDS];
+            pages[index >>> PAGE_SHIFT] = page;
+        }
+        page[(index >>> 6) & (PAGE_WORDS - 1)] |= 1L << index;
+    }
+
+    private static int hash(int index) {
+        int h = index * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    DependencyTypeSet getSuccessor(int index) {
+        if (successors == null) {
+            return null;
+        }
+        WeakReference<DependencyTypeSet> ref = successors.get(index);
+        return ref != null ? ref.get() : null;
+    }
+
+    void addSuccessor(int index, DependencyTypeSet successor) {
+        if (successors == null) {
+            successors = new IntObjectHashMap<>(4);
+        }
+        successors.put(index, new WeakReference<>(successor));
+    }
+
+    boolean isSmall() {
+        return smallTypes != null;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DependencyTypeSet)) {
+            return false;
+        }
+        DependencyTypeSet other = (DependencyTypeSet) obj;
+        if (hash != other.hash || size != other.size) {
+            return false;
+        }
+        if (smallTypes != null) {
+            return Arrays.equals(smallTypes, other.smallTypes);
+        }
+        if (other.pages == null || pages.length != other.pages.length) {
+            return false;
+        }
+        for (int i = 0; i < pages.length; ++i) {
+            if (pages[i] != other.pages[i] && !Arrays.equals(pages[i], other.pages[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-consing table of {@link DependencyTypeSet}s. Sets which are no longer used by any node
+ * are reclaimed by GC. Single-type additions to small sets are memoized, since most of the nodes
+ * receive types in the same order as the nodes they are connected to.
+ */
+final class DependencyTypeSets {
+    private Map<DependencyTypeSet, WeakReference<DependencyTypeSet>> sets = new WeakHashMap<>();
+    private final DependencyTypeSet empty = DependencyTypeSet.empty();
+    private int[] buffer = new int[1];
+
+    DependencyTypeSet empty() {
+        return empty;
+    }
+
+    DependencyTypeSet add(DependencyTypeSet set, int index) {
+        DependencyTypeSet result = set.getSuccessor(index);
+        if (result != null) {
+            return result;
+        }
+        buffer[0] = index;
+        result = intern(set.with(buffer, 1));
+        if (set.isSmall()) {
+            set.addSuccessor(index, result);
+        }
+        return result;
+    }
+
+    DependencyTypeSet addAll(DependencyTypeSet set, int[] indexes, int count) {
+        if (count == 0) {
+            return set;
+        }
+        if (count == 1) {
+            return add(set, indexes[0]);
+        }
+        return intern(set.with(indexes, count));
+    }
+
+    private DependencyTypeSet intern(DependencyTypeSet set) {
+        WeakReference<DependencyTypeSet> ref = sets.get(set);
+        DependencyTypeSet existing = ref != null ? ref.get() : null;
+        if (existing != null) {
+            return existing;
+        }
+        sets.put(set, new WeakReference<>(set));
+        return set;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import java.util.Collection;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+
+/**
+ * Wraps {@link DependencyInfo} so that it can be queried from several threads at once.
+ * Dependency analyzer lazily populates its caches (method implementations, transformed classes,
+ * type filters) even when it is only read, so every query, including queries to the returned
+ * nodes, is serialized with a single lock.
+ */
+public class SynchronizedDependencyInfo implements DependencyInfo {
+    private final DependencyInfo inner;
+    private final Object lock = new Object();
+    private final ClassReaderSource classSource;
+
+    public SynchronizedDependencyInfo(DependencyInfo inner) {
+        this.inner = inner;
+        ClassReaderSource innerClassSource = inner.getClassSource();
+        classSource = name -> {
+            synchronized (lock) {
+                return innerClassSource.get(name);
+            }
+        };
+    }
+
+    @Override
+    public ClassReaderSource getClassSource() {
+        return classSource;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return inner.getClassLoader();
+    }
+
+    @Override
+    public Collection<MethodReference> getReachableMethods() {
+        synchronized (lock) {
+            return inner.getReachableMethods();
+        }
+    }
+
+    @Override
+    public Collection<FieldReference> getReachableFields() {
+        synchronized (lock) {
+            return inner.getReachableFields();
+        }
+    }
+
+    @Override
+    public Collection<String> getReachableClasses() {
+        synchronized (lock) {
+            return inner.getReachableClasses();
+        }
+    }
+
+    @Override
+    public FieldDependencyInfo getField(FieldReference fieldRef) {
+        synchronized (lock) {
+            return wrap(inner.getField(fieldRef));
+        }
+    }
+
+    @Override
+    public MethodDependencyInfo getMethod(MethodReference methodRef) {
+        synchronized (lock) {
+            return wrap(inner.getMethod(methodRef));
+        }
+    }
+
+    @Override
+    public MethodDependencyInfo getMethodImplementation(MethodReference methodRef) {
+        synchronized (lock) {
+            return wrap(inner.getMethodImplementation(methodRef));
+        }
+    }
+
+    @Override
+    public ClassDependencyInfo getClass(String className) {
+        synchronized (lock) {
+            return inner.getClass(className);
+        }
+    }
+
+    @Override
+    public CallGraph getCallGraph() {
+        synchronized (lock) {
+            return inner.getCallGraph();
+        }
+    }
+
+    @Override
+    public Collection<MethodReference> getSpeculativeCallees(MethodReference caller) {
+        synchronized (lock) {
+            return inner.getSpeculativeCallees(caller);
+        }
+    }
+
+    @Override
+    public Collection<MethodReference> getRootMethods() {
+        synchronized (lock) {
+            return inner.getRootMethods();
+        }
+    }
+
+    private MethodDependencyInfo wrap(MethodDependencyInfo method) {
+        return method != null ? new SynchronizedMethod(method) : null;
+    }
+
+    private FieldDependencyInfo wrap(FieldDependencyInfo field) {
+        return field != null ? new SynchronizedField(field) : null;
+    }
+
+    private ValueDependencyInfo wrap(ValueDependencyInfo value) {
+        return value != null ? new SynchronizedValue(value) : null;
+    }
+
+    class SynchronizedMethod implements MethodDependencyInfo {
+        private final MethodDependencyInfo inner;
+
+        SynchronizedMethod(MethodDependencyInfo inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public ValueDependencyInfo[] getVariables() {
+            synchronized (lock) {
+                ValueDependencyInfo[] variables = inner.getVariables().clone();
+                for (int i = 0; i < variables.length; ++i) {
+                    variables[i] = wrap(variables[i]);
+                }
+                return variables;
+            }
+        }
+
+        @Override
+        public int getVariableCount() {
+            synchronized (lock) {
+                return inner.getVariableCount();
+            }
+        }
+
+        @Override
+        public ValueDependencyInfo getVariable(int index) {
+            synchronized (lock) {
+                return wrap(inner.getVariable(index));
+            }
+        }
+
+        @Override
+        public int getParameterCount() {
+            synchronized (lock) {
+                return inner.getParameterCount();
+            }
+        }
+
+        @Override
+        public ValueDependencyInfo getResult() {
+            synchronized (lock) {
+                return wrap(inner.getResult());
+            }
+        }
+
+        @Override
+        public ValueDependencyInfo getThrown() {
+            synchronized (lock) {
+                return wrap(inner.getThrown());
+            }
+        }
+
+        @Override
+        public MethodReference getReference() {
+            return inner.getReference();
+        }
+
+        @Override
+        public boolean isUsed() {
+            synchronized (lock) {
+                return inner.isUsed();
+            }
+        }
+
+        @Override
+        public boolean isMissing() {
+            synchronized (lock) {
+                return inner.isMissing();
+            }
+        }
+    }
+
+    class SynchronizedField implements FieldDependencyInfo {
+        private final FieldDependencyInfo inner;
+
+        SynchronizedField(FieldDependencyInfo inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public ValueDependencyInfo getValue() {
+            synchronized (lock) {
+                return wrap(inner.getValue());
+            }
+        }
+
+        @Override
+        public FieldReference getReference() {
+            return inner.getReference();
+        }
+
+        @Override
+        public boolean isMissing() {
+            synchronized (lock) {
+                return inner.isMissing();
+            }
+        }
+    }
+
+    class SynchronizedValue implements ValueDependencyInfo {
+        private final ValueDependencyInfo inner;
+
+        SynchronizedValue(ValueDependencyInfo inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public String[] getTypes() {
+            synchronized (lock) {
+                return inner.getTypes();
+            }
+        }
+
+        @Override
+        public boolean hasType(String type) {
+            synchronized (lock) {
+                return inner.hasType(type);
+            }
+        }
+
+        @Override
+        public boolean hasArrayType() {
+            synchronized (lock) {
+                return inner.hasArrayType();
+            }
+        }
+
+        @Override
+        public ValueDependencyInfo getArrayItem() {
+            synchronized (lock) {
+                return wrap(inner.getArrayItem());
+            }
+        }
+
+        @Override
+        public ValueDependencyInfo getClassValueNode() {
+            synchronized (lock) {
+                return wrap(inner.getClassValueNode());
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model;
+
+/**
+ * <p>Class transformer whose result depends only on the transformed class, on classes it takes from
+ * the inner class source and on its own configuration. Such transformer must not report diagnostics
+ * or change any state except for the transformed class.</p>
+ *
+ * <p>Results of leading cacheable transformers may be taken from {@link TransformedClassCache} instead
+ * of running these transformers again, until any of classes they read changes.</p>
+ */
+public interface CacheableClassHolderTransformer extends ClassHolderTransformer {
+    /**
+     * Returns string that identifies configuration of this transformer, so that results produced
+     * with different configurations are not mixed up.
+     */
+    String getConfiguration();
+}
@@ -29,7 +29,7 @@ public class PreOptimizingClassHolderSource implements ClassHolderSource {
     }
 
     @Override
-    public ClassHolder get(String name) {
+    public synchronized ClassHolder get(String name) {
         ClassHolder cls = cache.get(name);
         if (cls == null) {
             cls = innerClassSource.get(name);
@@ -0,0 +1,33 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model;
+
+import java.util.Collection;
+
+public interface TransformedClassCache {
+    /**
+     * Returns a copy of class that was stored with the same transformation, provided that none
+     * of its dependencies changed since then, otherwise returns {@code null}.
+     */
+    ClassHolder get(String className, String transformation);
+
+    /**
+     * Stores transformed class.
+     *
+     * @param dependencies classes that were read by transformers, besides the transformed class itself.
+     */
+    void store(String className, String transformation, ClassReader cls, Collection<String> dependencies);
+}
@@ -312,10 +312,20 @@ public class ExceptionHandlingShadowStackContributor {
         Program program = block.getProgram();
         List<Instruction> instructions = new ArrayList<>();
 
+        Variable callSiteIdVariable = program.createVariable();
+        IntegerConstantInstruction callSiteIdInsn = new IntegerConstantInstruction();
+        callSiteIdInsn.setConstant(callSite.getId());
+        callSiteIdInsn.setReceiver(callSiteIdVariable);
+        instructions.add(callSiteIdInsn);
+
+        // Handlers are compared by their offset from the call site id, so that only call site registration
+        // refers to absolute ids, which backends may renumber
         Variable handlerIdVariable = program.createVariable();
         InvokeInstruction getHandlerIdInsn = new InvokeInstruction();
-        getHandlerIdInsn.setMethod(new MethodReference(ShadowStack.class, "getExceptionHandlerId", int.class));
+        getHandlerIdInsn.setMethod(new MethodReference(ShadowStack.class, "getExceptionHandlerOffset",
+                int.class, int.class));
         getHandlerIdInsn.setType(InvocationType.SPECIAL);
+        getHandlerIdInsn.getArguments().add(callSiteIdVariable);
         getHandlerIdInsn.setReceiver(handlerIdVariable);
         instructions.add(getHandlerIdInsn);
 
@@ -324,7 +334,7 @@ public class ExceptionHandlingShadowStackContributor {
 
         if (next != null) {
             SwitchTableEntry continueExecutionEntry = new SwitchTableEntry();
-            continueExecutionEntry.setCondition(callSite.getId());
+            continueExecutionEntry.setCondition(0);
             continueExecutionEntry.setTarget(next);
             switchInsn.getEntries().add(continueExecutionEntry);
         }
@@ -342,7 +352,7 @@ public class ExceptionHandlingShadowStackContributor {
             } else {
                 SwitchTableEntry catchEntry = new SwitchTableEntry();
                 catchEntry.setTarget(tryCatch.getHandler());
-                catchEntry.setCondition(handler.getId());
+                catchEntry.setCondition(handler.getId() - callSite.getId());
                 switchInsn.getEntries().add(catchEntry);
             }
         }
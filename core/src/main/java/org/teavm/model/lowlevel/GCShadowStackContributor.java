@@ -61,6 +61,7 @@ import org.teavm.model.util.VariableType;
 import org.teavm.runtime.ShadowStack;
 
 public class GCShadowStackContributor {
+    private static final int UNKNOWN_SLOT_STATE = -3;
     private Characteristics characteristics;
 
     public GCShadowStackContributor(Characteristics characteristics) {
@@ -88,13 +89,14 @@ public class GCShadowStackContributor {
         }
 
         // If a variable is spilled to stack, then phi which input this variable also spilled to stack
-        // If all of phi inputs are spilled to stack, then we don't need to insert spilling instruction
-        // for this phi.
+        // If all of phi inputs are spilled to stack to the same slot as phi, then we don't need to insert
+        // spilling instruction for this phi.
         List<Set<Phi>> destinationPhis = getDestinationPhis(program);
         int[] inputCount = getInputCount(program);
         boolean[] autoSpilled = new boolean[spilled.length];
+        boolean[] stored = spilled.clone();
         for (int i = 0; i < spilled.length; ++i) {
-            findAutoSpilledPhis(spilled, destinationPhis, inputCount, autoSpilled, i);
+            findAutoSpilledPhis(spilled, stored, colors, destinationPhis, inputCount, autoSpilled, i);
         }
 
         List<Map<Instruction, int[]>> liveInStores = reduceGCRootStores(program, usedColors, liveInInformation,
@@ -104,18 +106,21 @@ public class GCShadowStackContributor {
         return usedColors;
     }
 
-    private void findAutoSpilledPhis(boolean[] spilled, List<Set<Phi>> destinationPhis, int[] inputCount,
-            boolean[] autoSpilled, int i) {
+    private void findAutoSpilledPhis(boolean[] spilled, boolean[] stored, int[] colors,
+            List<Set<Phi>> destinationPhis, int[] inputCount, boolean[] autoSpilled, int i) {
         if (spilled[i]) {
             Set<Phi> phis = destinationPhis.get(i);
             if (phis != null) {
                 for (Phi phi : destinationPhis.get(i)) {
                     int destination = phi.getReceiver().getIndex();
-                    autoSpilled[destination] = --inputCount[destination] == 0;
+                    if (stored[i] && stored[destination] && colors[i] == colors[destination]) {
+                        autoSpilled[destination] = --inputCount[destination] == 0;
+                    }
                     if (!spilled[destination]) {
                         spilled[destination] = true;
                         if (i > destination) {
-                            findAutoSpilledPhis(spilled, destinationPhis, inputCount, autoSpilled, destination);
+                            findAutoSpilledPhis(spilled, stored, colors, destinationPhis, inputCount,
+                                    autoSpilled, destination);
                         }
                     }
                 }
@@ -141,6 +146,13 @@ public class GCShadowStackContributor {
             BitSet currentLiveOut = new BitSet();
             for (int successor : cfg.outgoingEdges(i)) {
                 currentLiveOut.or(livenessAnalyzer.liveIn(successor));
+                for (Phi phi : program.basicBlockAt(successor).getPhis()) {
+                    for (Incoming incoming : phi.getIncomings()) {
+                        if (incoming.getSource() == block) {
+                            currentLiveOut.set(incoming.getValue().getIndex());
+                        }
+                    }
+                }
             }
 
             for (Instruction insn = block.getLastInstruction(); insn != null; insn = insn.getPrevious()) {
@@ -267,7 +279,7 @@ public class GCShadowStackContributor {
         Step[] stack = new Step[program.basicBlockCount() * 2];
         int head = 0;
         Step start = new Step(0);
-        Arrays.fill(start.slotStates, usedColors);
+        Arrays.fill(start.slotStates, UNKNOWN_SLOT_STATE);
         stack[head++] = start;
 
         while (head > 0) {
@@ -285,7 +297,8 @@ public class GCShadowStackContributor {
                     states[slot] = liveVar;
                 }
                 for (int slot = 0; slot < states.length; ++slot) {
-                    if (states[slot] >= 0 && !liveIns.get(states[slot])) {
+                    if (states[slot] == UNKNOWN_SLOT_STATE
+                            || states[slot] >= 0 && !liveIns.get(states[slot])) {
                         states[slot] = -1;
                     }
                 }
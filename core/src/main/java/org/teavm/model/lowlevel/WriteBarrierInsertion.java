@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ArrayElementType;
+import org.teavm.model.instructions.ArrayLengthInstruction;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.ConstructArrayInstruction;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.DoubleConstantInstruction;
+import org.teavm.model.instructions.FloatConstantInstruction;
+import org.teavm.model.instructions.GetElementInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.LongConstantInstruction;
+import org.teavm.model.instructions.NullConstantInstruction;
+import org.teavm.model.instructions.PutElementInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+import org.teavm.model.instructions.UnwrapArrayInstruction;
+import org.teavm.runtime.GC;
+
+/**
+ * Inserts {@link GC#writeBarrier(Object)} after writes of references to fields and array elements,
+ * which is required by generational and incremental GC. The barrier is omitted for objects allocated in the same
+ * basic block when nothing that can cause GC happens between allocation and write, since such objects
+ * are always young and unmarked.
+ */
+public class WriteBarrierInsertion {
+    private static final MethodReference WRITE_BARRIER = new MethodReference(GC.class, "writeBarrier",
+            Object.class, void.class);
+    private Characteristics characteristics;
+
+    public WriteBarrierInsertion(Characteristics characteristics) {
+        this.characteristics = characteristics;
+    }
+
+    public void apply(Program program, MethodReader method) {
+        if (!characteristics.isManaged(method.getReference())) {
+            return;
+        }
+
+        List<Instruction> writes = new ArrayList<>();
+        List<Variable> targets = new ArrayList<>();
+        Set<Variable> freshObjects = new HashSet<>();
+        for (BasicBlock block : program.getBasicBlocks()) {
+            freshObjects.clear();
+            for (Instruction instruction : block) {
+                Variable target = null;
+                if (instruction instanceof PutFieldInstruction) {
+                    PutFieldInstruction putField = (PutFieldInstruction) instruction;
+                    if (putField.getInstance() != null && !(putField.getFieldType() instanceof ValueType.Primitive)) {
+                        target = putField.getInstance();
+                    }
+                } else if (instruction instanceof PutElementInstruction) {
+                    PutElementInstruction putElement = (PutElementInstruction) instruction;
+                    if (putElement.getType() == ArrayElementType.OBJECT) {
+                        target = putElement.getArray();
+                    }
+                } else if (instruction instanceof ConstructInstruction) {
+                    freshObjects.clear();
+                    freshObjects.add(((ConstructInstruction) instruction).getReceiver());
+                } else if (instruction instanceof ConstructArrayInstruction) {
+                    freshObjects.clear();
+                    freshObjects.add(((ConstructArrayInstruction) instruction).getReceiver());
+                } else if (!cannotCauseGC(instruction)) {
+                    freshObjects.clear();
+                }
+
+                if (target != null && !freshObjects.contains(target)) {
+                    writes.add(instruction);
+                    targets.add(target);
+                }
+            }
+        }
+
+        for (int i = 0; i < writes.size(); ++i) {
+            InvokeInstruction barrier = new InvokeInstruction();
+            barrier.setType(InvocationType.SPECIAL);
+            barrier.setMethod(WRITE_BARRIER);
+            barrier.getArguments().add(targets.get(i));
+            barrier.setLocation(writes.get(i).getLocation());
+            writes.get(i).insertNext(barrier);
+        }
+    }
+
+    private static boolean cannotCauseGC(Instruction instruction) {
+        return instruction instanceof AssignInstruction
+                || instruction instanceof NullConstantInstruction
+                || instruction instanceof IntegerConstantInstruction
+                || instruction instanceof LongConstantInstruction
+                || instruction instanceof FloatConstantInstruction
+                || instruction instanceof DoubleConstantInstruction
+                || instruction instanceof StringConstantInstruction
+                || instruction instanceof BinaryInstruction
+                || instruction instanceof GetFieldInstruction
+                || instruction instanceof GetElementInstruction
+                || instruction instanceof UnwrapArrayInstruction
+                || instruction instanceof ArrayLengthInstruction
+                || instruction instanceof PutFieldInstruction
+                || instruction instanceof PutElementInstruction;
+    }
+}
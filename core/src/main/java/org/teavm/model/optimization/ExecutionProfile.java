@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.ObjectIntMap;
+import com.carrotsearch.hppc.ObjectLongHashMap;
+import com.carrotsearch.hppc.ObjectLongMap;
+import com.carrotsearch.hppc.cursors.ObjectLongCursor;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.TextLocation;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.runtime.ProfileRecorder;
+
+/**
+ * <p>Call counts and receiver types collected by a program built with profiling instrumentation
+ * (see {@link org.teavm.model.transformation.ProfilingTransformer}).</p>
+ *
+ * <p>Call sites are identified by source location and by descriptor of the invoked method, so they survive
+ * devirtualization and inlining, which change the invoked class and the enclosing method, but keep
+ * both the location and the descriptor. Calls of the same method on the same line are told apart
+ * by their order in the basic block, see {@link #siteKeys(BasicBlock)}.</p>
+ */
+public class ExecutionProfile {
+    private static final int HOT_MIN_COUNT = 1000;
+    private static final int HOT_RATIO = 100;
+    private static final double DOMINANT_RECEIVER_RATIO = 0.9;
+    private ObjectLongMap<String> callCounts = new ObjectLongHashMap<>();
+    private Map<String, ObjectLongMap<String>> receiverCounts = new HashMap<>();
+    private long hotThreshold = HOT_MIN_COUNT;
+
+    public static String siteKey(TextLocation location, MethodDescriptor method, int ordinal) {
+        if (location == null || location.getFileName() == null || location.getLine() < 0) {
+            return null;
+        }
+        return location.getFileName() + ":" + location.getLine() + ":" + ordinal + ":" + method;
+    }
+
+    /**
+     * Computes keys of call sites in the given block. The n-th call of a method on a line gets
+     * ordinal n, counting from zero. Ordinals are counted within a block, since inlining and guarded
+     * devirtualization move calls to new blocks, but keep their relative order.
+     *
+     * @param block basic block.
+     * @return keys of invocations that have location.
+     */
+    public static Map<InvokeInstruction, String> siteKeys(BasicBlock block) {
+        Map<InvokeInstruction, String> keys = new HashMap<>();
+        ObjectIntMap<String> ordinals = new ObjectIntHashMap<>();
+        for (Instruction instruction : block) {
+            if (!(instruction instanceof InvokeInstruction)) {
+                continue;
+            }
+            InvokeInstruction invoke = (InvokeInstruction) instruction;
+            MethodDescriptor method = invoke.getMethod().getDescriptor();
+            String lineKey = siteKey(invoke.getLocation(), method, 0);
+            if (lineKey == null) {
+                continue;
+            }
+            int ordinal = ordinals.getOrDefault(lineKey, 0);
+            ordinals.put(lineKey, ordinal + 1);
+            keys.put(invoke, siteKey(invoke.getLocation(), method, ordinal));
+        }
+        return keys;
+    }
+
+    public static ExecutionProfile read(Reader input) throws IOException {
+        ExecutionProfile profile = new ExecutionProfile();
+        BufferedReader reader = new BufferedReader(input);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int start = line.indexOf(ProfileRecorder.PREFIX);
+            if (start >= 0) {
+                profile.parseLine(line.substring(start + ProfileRecorder.PREFIX.length()).trim().split("\t"));
+            }
+        }
+
+        long maxCount = 0;
+        for (ObjectLongCursor<String> cursor : profile.callCounts) {
+            maxCount = Math.max(maxCount, cursor.value);
+        }
+        profile.hotThreshold = Math.max(HOT_MIN_COUNT, maxCount / HOT_RATIO);
+        return profile;
+    }
+
+    private void parseLine(String[] parts) {
+        if (parts.length == 3 && parts[0].equals(ProfileRecorder.CALL)) {
+            callCounts.putOrAdd(parts[1], parseCount(parts[2]), parseCount(parts[2]));
+        } else if (parts.length == 4 && parts[0].equals(ProfileRecorder.RECEIVER)) {
+            ObjectLongMap<String> counts = receiverCounts.computeIfAbsent(parts[1], k -> new ObjectLongHashMap<>());
+            counts.putOrAdd(parts[2], parseCount(parts[3]), parseCount(parts[3]));
+        }
+    }
+
+    private static long parseCount(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public long getCallCount(String site) {
+        return site != null ? callCounts.getOrDefault(site, 0) : 0;
+    }
+
+    public boolean isHot(String site) {
+        return getCallCount(site) >= hotThreshold;
+    }
+
+    /**
+     * Returns the class that was the receiver of almost all calls at the given site.
+     *
+     * @param site call site, as returned by {@link #siteKey(TextLocation, MethodDescriptor, int)}.
+     * @return name of the class or <code>null</code>, if site was not reached or receivers were diverse.
+     */
+    public String getDominantReceiver(String site) {
+        ObjectLongMap<String> counts = site != null ? receiverCounts.get(site) : null;
+        if (counts == null) {
+            return null;
+        }
+        long total = 0;
+        long maxCount = 0;
+        String result = null;
+        for (ObjectLongCursor<String> cursor : counts) {
+            total += cursor.value;
+            if (cursor.value > maxCount) {
+                maxCount = cursor.value;
+                result = cursor.key;
+            }
+        }
+        return maxCount >= total * DOMINANT_RECEIVER_RATIO ? result : null;
+    }
+}
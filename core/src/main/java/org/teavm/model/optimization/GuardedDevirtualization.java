@@ -0,0 +1,222 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.teavm.dependency.DependencyInfo;
+import org.teavm.dependency.MethodDependencyInfo;
+import org.teavm.dependency.ValueDependencyInfo;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.IsInstanceInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.util.TransitionExtractor;
+
+/**
+ * <p>Turns hot virtual calls, whose receiver almost always had the same class in the execution profile,
+ * into a type check followed by a direct call, falling back to the virtual call otherwise.
+ * The direct call can be inlined later.</p>
+ *
+ * <p>Type check is <code>instanceof</code>, so a call is guarded only when no other class reachable at this
+ * site is a subclass of the dominant class with a different implementation of the method.</p>
+ */
+public class GuardedDevirtualization {
+    private DependencyInfo dependency;
+    private ClassReaderSource classSource;
+    private ExecutionProfile profile;
+
+    public GuardedDevirtualization(DependencyInfo dependency, ClassReaderSource classSource,
+            ExecutionProfile profile) {
+        this.dependency = dependency;
+        this.classSource = classSource;
+        this.profile = profile;
+    }
+
+    public void apply(MethodHolder method) {
+        MethodDependencyInfo methodDep = dependency.getMethod(method.getReference());
+        if (methodDep == null) {
+            return;
+        }
+        Program program = method.getProgram();
+
+        List<InvokeInstruction> invocations = new ArrayList<>();
+        List<String> receivers = new ArrayList<>();
+        List<MethodReference> implementations = new ArrayList<>();
+        for (BasicBlock block : program.getBasicBlocks()) {
+            if (!block.getTryCatchBlocks().isEmpty()) {
+                continue;
+            }
+            Map<InvokeInstruction, String> sites = ExecutionProfile.siteKeys(block);
+            for (Instruction insn : block) {
+                if (!(insn instanceof InvokeInstruction)) {
+                    continue;
+                }
+                InvokeInstruction invoke = (InvokeInstruction) insn;
+                if (invoke.getType() != InvocationType.VIRTUAL) {
+                    continue;
+                }
+                String site = sites.get(invoke);
+                if (!profile.isHot(site)) {
+                    continue;
+                }
+                String receiver = profile.getDominantReceiver(site);
+                if (receiver == null || receiver.startsWith("[")) {
+                    continue;
+                }
+                ValueDependencyInfo var = methodDep.getVariable(invoke.getInstance().getIndex());
+                MethodReference implementation = getGuardedImplementation(var, receiver, invoke.getMethod());
+                if (implementation != null) {
+                    invocations.add(invoke);
+                    receivers.add(receiver);
+                    implementations.add(implementation);
+                }
+            }
+        }
+
+        for (int i = 0; i < invocations.size(); ++i) {
+            guard(program, invocations.get(i), receivers.get(i), implementations.get(i));
+        }
+    }
+
+    private MethodReference getGuardedImplementation(ValueDependencyInfo var, String receiver,
+            MethodReference method) {
+        if (!var.hasType(receiver)) {
+            return null;
+        }
+        MethodReference implementation = getImplementation(receiver, method);
+        if (implementation == null) {
+            return null;
+        }
+        boolean polymorphic = false;
+        for (String type : var.getTypes()) {
+            if (type.equals(receiver)) {
+                continue;
+            }
+            MethodReference otherImplementation = getImplementation(type, method);
+            if (Objects.equals(otherImplementation, implementation)) {
+                continue;
+            }
+            polymorphic = true;
+            if (!type.startsWith("[") && classSource.isSuperType(receiver, type).orElse(false)) {
+                return null;
+            }
+        }
+        return polymorphic ? implementation : null;
+    }
+
+    private MethodReference getImplementation(String className, MethodReference method) {
+        if (className.startsWith("[")) {
+            className = "java.lang.Object";
+        }
+        ClassReader cls = classSource.get(className);
+        if (cls == null || !classSource.isSuperType(method.getClassName(), cls.getName()).orElse(false)) {
+            return null;
+        }
+        MethodDependencyInfo methodDep = dependency.getMethodImplementation(new MethodReference(
+                className, method.getDescriptor()));
+        return methodDep != null ? methodDep.getReference() : null;
+    }
+
+    private void guard(Program program, InvokeInstruction invoke, String receiver, MethodReference implementation) {
+        BasicBlock block = invoke.getBasicBlock();
+        BasicBlock directBlock = program.createBasicBlock();
+        BasicBlock virtualBlock = program.createBasicBlock();
+        BasicBlock joinBlock = program.createBasicBlock();
+
+        while (invoke.getNext() != null) {
+            Instruction insn = invoke.getNext();
+            insn.delete();
+            joinBlock.add(insn);
+        }
+        TransitionExtractor transitionExtractor = new TransitionExtractor();
+        joinBlock.getLastInstruction().acceptVisitor(transitionExtractor);
+        if (transitionExtractor.getTargets() != null) {
+            Arrays.stream(transitionExtractor.getTargets())
+                    .flatMap(target -> target.getPhis().stream())
+                    .flatMap(phi -> phi.getIncomings().stream())
+                    .filter(incoming -> incoming.getSource() == block)
+                    .forEach(incoming -> incoming.setSource(joinBlock));
+        }
+
+        IsInstanceInstruction typeCheck = new IsInstanceInstruction();
+        typeCheck.setValue(invoke.getInstance());
+        typeCheck.setType(ValueType.object(receiver));
+        typeCheck.setReceiver(program.createVariable());
+        typeCheck.setLocation(invoke.getLocation());
+        invoke.insertPrevious(typeCheck);
+
+        BranchingInstruction branch = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+        branch.setOperand(typeCheck.getReceiver());
+        branch.setConsequent(directBlock);
+        branch.setAlternative(virtualBlock);
+        branch.setLocation(invoke.getLocation());
+        invoke.insertPrevious(branch);
+
+        InvokeInstruction directInvoke = new InvokeInstruction();
+        directInvoke.setType(InvocationType.SPECIAL);
+        directInvoke.setMethod(implementation);
+        directInvoke.setInstance(invoke.getInstance());
+        directInvoke.getArguments().addAll(invoke.getArguments());
+        directInvoke.setLocation(invoke.getLocation());
+        directBlock.add(directInvoke);
+
+        invoke.delete();
+        virtualBlock.add(invoke);
+
+        if (invoke.getReceiver() != null) {
+            Phi phi = new Phi();
+            phi.setReceiver(invoke.getReceiver());
+            directInvoke.setReceiver(program.createVariable());
+            invoke.setReceiver(program.createVariable());
+            phi.getIncomings().add(incoming(directBlock, directInvoke));
+            phi.getIncomings().add(incoming(virtualBlock, invoke));
+            joinBlock.getPhis().add(phi);
+        }
+
+        directBlock.add(jump(joinBlock, invoke));
+        virtualBlock.add(jump(joinBlock, invoke));
+    }
+
+    private static Incoming incoming(BasicBlock source, InvokeInstruction invoke) {
+        Incoming incoming = new Incoming();
+        incoming.setSource(source);
+        incoming.setValue(invoke.getReceiver());
+        return incoming;
+    }
+
+    private static JumpInstruction jump(BasicBlock target, Instruction location) {
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(target);
+        jump.setLocation(location.getLocation());
+        return jump;
+    }
+}
@@ -21,12 +21,15 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.teavm.dependency.DependencyInfo;
+import org.teavm.interop.SplitPoint;
 import org.teavm.model.BasicBlock;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ElementModifier;
 import org.teavm.model.Incoming;
 import org.teavm.model.Instruction;
 import org.teavm.model.MethodReader;
@@ -52,9 +55,24 @@ import org.teavm.model.util.TransitionExtractor;
 
 public class Inlining {
     private static final int DEFAULT_THRESHOLD = 17;
+    private static final int HOT_THRESHOLD = 60;
     private static final int MAX_DEPTH = 7;
     private IntArrayList depthsByBlock;
     private Set<Instruction> instructionsToSkip;
+    private ExecutionProfile profile;
+
+    public Inlining() {
+    }
+
+    /**
+     * Creates inlining that allows larger methods to be inlined at call sites that are hot
+     * according to the given profile.
+     *
+     * @param profile execution profile, may be <code>null</code>.
+     */
+    public Inlining(ExecutionProfile profile) {
+        this.profile = profile;
+    }
 
     public void apply(Program program, MethodReference method, ClassReaderSource classes,
             DependencyInfo dependencyInfo) {
@@ -230,6 +248,9 @@ public class Inlining {
                 }
             }
 
+            Map<InvokeInstruction, String> sites = profile != null
+                    ? ExecutionProfile.siteKeys(block)
+                    : Collections.emptyMap();
             for (Instruction insn : block) {
                 if (instructionsToSkip.contains(insn)) {
                     continue;
@@ -245,7 +266,9 @@ public class Inlining {
 
                 MethodReader invokedMethod = getMethod(classSource, invoke.getMethod());
                 if (invokedMethod == null || invokedMethod.getProgram() == null
-                        || invokedMethod.getProgram().basicBlockCount() == 0) {
+                        || invokedMethod.getProgram().basicBlockCount() == 0
+                        || invokedMethod.hasModifier(ElementModifier.SYNCHRONIZED)
+                        || invokedMethod.getAnnotations().get(SplitPoint.class.getName()) != null) {
                     instructionsToSkip.add(insn);
                     continue;
                 }
@@ -255,6 +278,9 @@ public class Inlining {
                 if (ownComplexity < DEFAULT_THRESHOLD) {
                     complexityThreshold += DEFAULT_THRESHOLD;
                 }
+                if (profile != null && profile.isHot(sites.get(invoke))) {
+                    complexityThreshold = Math.max(complexityThreshold, HOT_THRESHOLD);
+                }
                 if (getComplexity(invokedProgram) > complexityThreshold) {
                     instructionsToSkip.add(insn);
                     continue;
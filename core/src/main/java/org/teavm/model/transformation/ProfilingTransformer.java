@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.transformation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.RaiseInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+import org.teavm.model.optimization.ExecutionProfile;
+import org.teavm.runtime.ProfileRecorder;
+
+/**
+ * Inserts calls to {@link ProfileRecorder} before each call site of application classes and makes
+ * <code>main</code> methods write collected counters on exit, including exit by an uncaught exception.
+ * Counters are also written before application calls <code>System.exit</code> or <code>Runtime.exit</code>,
+ * which do not return.
+ * Class library and TeaVM classes are left intact, since the recorder itself depends on them.
+ */
+public class ProfilingTransformer implements ClassHolderTransformer {
+    private static final String[] EXCLUDED_PREFIXES = { "java.", "javax.", "org.teavm." };
+    private static final MethodDescriptor MAIN = new MethodDescriptor("main", ValueType.arrayOf(
+            ValueType.object("java.lang.String")), ValueType.VOID);
+    private static final MethodReference CALL = new MethodReference(ProfileRecorder.class, "call",
+            String.class, void.class);
+    private static final MethodReference RECEIVER = new MethodReference(ProfileRecorder.class, "receiver",
+            String.class, Object.class, void.class);
+    private static final MethodReference DUMP = new MethodReference(ProfileRecorder.class, "dump", void.class);
+    private static final MethodDescriptor EXIT = new MethodDescriptor("exit", int.class, void.class);
+    private static final MethodDescriptor HALT = new MethodDescriptor("halt", int.class, void.class);
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
+        for (String prefix : EXCLUDED_PREFIXES) {
+            if (cls.getName().startsWith(prefix)) {
+                return;
+            }
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.getProgram() != null) {
+                instrumentCallSites(method.getProgram());
+                if (method.getDescriptor().equals(MAIN) && method.hasModifier(ElementModifier.STATIC)) {
+                    instrumentExits(method.getProgram());
+                }
+            }
+        }
+    }
+
+    private void instrumentCallSites(Program program) {
+        Map<InvokeInstruction, String> sites = new LinkedHashMap<>();
+        for (BasicBlock block : program.getBasicBlocks()) {
+            Map<InvokeInstruction, String> blockSites = ExecutionProfile.siteKeys(block);
+            for (Instruction instruction : block) {
+                if (blockSites.containsKey(instruction)) {
+                    sites.put((InvokeInstruction) instruction, blockSites.get(instruction));
+                }
+            }
+        }
+
+        for (Map.Entry<InvokeInstruction, String> entry : sites.entrySet()) {
+            InvokeInstruction invoke = entry.getKey();
+            String site = entry.getValue();
+
+            StringConstantInstruction siteConstant = new StringConstantInstruction();
+            siteConstant.setConstant(site);
+            siteConstant.setReceiver(program.createVariable());
+            siteConstant.setLocation(invoke.getLocation());
+            invoke.insertPrevious(siteConstant);
+
+            InvokeInstruction record = new InvokeInstruction();
+            record.setType(InvocationType.SPECIAL);
+            record.getArguments().add(siteConstant.getReceiver());
+            if (invoke.getType() == InvocationType.VIRTUAL) {
+                record.setMethod(RECEIVER);
+                record.getArguments().add(invoke.getInstance());
+            } else {
+                record.setMethod(CALL);
+            }
+            record.setLocation(invoke.getLocation());
+            invoke.insertPrevious(record);
+
+            if (isExit(invoke.getMethod())) {
+                invoke.insertPrevious(dump(invoke.getLocation()));
+            }
+        }
+    }
+
+    private static boolean isExit(MethodReference method) {
+        switch (method.getClassName()) {
+            case "java.lang.System":
+                return method.getDescriptor().equals(EXIT);
+            case "java.lang.Runtime":
+                return method.getDescriptor().equals(EXIT) || method.getDescriptor().equals(HALT);
+            default:
+                return false;
+        }
+    }
+
+    private void instrumentExits(Program program) {
+        int blockCount = program.basicBlockCount();
+        BasicBlock handler = program.createBasicBlock();
+        handler.setExceptionVariable(program.createVariable());
+
+        for (int i = 0; i < blockCount; ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            if (block == null) {
+                continue;
+            }
+            Instruction last = block.getLastInstruction();
+            if (last instanceof ExitInstruction) {
+                last.insertPrevious(dump(last.getLocation()));
+            }
+
+            TryCatchBlock tryCatch = new TryCatchBlock();
+            tryCatch.setHandler(handler);
+            block.getTryCatchBlocks().add(tryCatch);
+        }
+
+        handler.add(dump(null));
+        RaiseInstruction rethrow = new RaiseInstruction();
+        rethrow.setException(handler.getExceptionVariable());
+        handler.add(rethrow);
+    }
+
+    private static InvokeInstruction dump(TextLocation location) {
+        InvokeInstruction dump = new InvokeInstruction();
+        dump.setType(InvocationType.SPECIAL);
+        dump.setMethod(DUMP);
+        dump.setLocation(location);
+        return dump;
+    }
+}
@@ -26,6 +26,7 @@ import org.teavm.backend.javascript.spi.InjectedBy;
 import org.teavm.callgraph.CallGraph;
 import org.teavm.callgraph.CallGraphNode;
 import org.teavm.callgraph.CallSite;
+import org.teavm.dependency.DependencyInfo;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.interop.Async;
 import org.teavm.interop.SuppressSyncErrors;
@@ -41,12 +42,24 @@ import org.teavm.model.ProgramReader;
 import org.teavm.model.VariableReader;
 import org.teavm.model.instructions.AbstractInstructionReader;
 
+/**
+ * <p>Finds methods that should be split into continuations, i.e. methods that may suspend current thread.
+ * These are methods marked with {@link Async}, methods that enter monitors (when threads are actually used)
+ * and all methods that call them.</p>
+ *
+ * <p>When dependency information is available, calls that exist in call graph only because a callee
+ * overrides a virtually invoked method are not followed, unless an object that dispatches to the callee
+ * actually reaches the invocation. This keeps synchronous the methods whose virtual calls never dispatch
+ * to asynchronous implementations.</p>
+ */
 public class AsyncMethodFinder {
     private Set<MethodReference> asyncMethods = new HashSet<>();
+    private Map<MethodReference, CallStack> callStacks = new HashMap<>();
     private Map<MethodReference, Boolean> asyncFamilyMethods = new HashMap<>();
     private Set<MethodReference> readonlyAsyncMethods = Collections.unmodifiableSet(asyncMethods);
     private Set<MethodReference> readonlyAsyncFamilyMethods = Collections.unmodifiableSet(asyncFamilyMethods.keySet());
     private CallGraph callGraph;
+    private DependencyInfo dependency;
     private Diagnostics diagnostics;
     private ListableClassReaderSource classSource;
 
@@ -55,6 +68,11 @@ public class AsyncMethodFinder {
         this.diagnostics = diagnostics;
     }
 
+    public AsyncMethodFinder(DependencyInfo dependency, Diagnostics diagnostics) {
+        this(dependency.getCallGraph(), diagnostics);
+        this.dependency = dependency;
+    }
+
     public Set<MethodReference> getAsyncMethods() {
         return readonlyAsyncMethods;
     }
@@ -63,6 +81,26 @@ public class AsyncMethodFinder {
         return readonlyAsyncFamilyMethods;
     }
 
+    /**
+     * Describes why the given method is asynchronous, as a chain of calls that starts at the method
+     * and ends at a method that suspends thread by itself.
+     *
+     * @return list of lines, or {@code null} if the method is synchronous.
+     */
+    public List<String> getAsyncReason(MethodReference method) {
+        CallStack stack = callStacks.get(method);
+        if (stack == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        while (stack.next != null) {
+            stack = stack.next;
+            result.add("calls " + stack.method);
+        }
+        result.add(stack.reason);
+        return result;
+    }
+
     public void find(ListableClassReaderSource classSource) {
         this.classSource = classSource;
         for (String clsName : classSource.getClassNames()) {
@@ -72,7 +110,7 @@ public class AsyncMethodFinder {
                     continue;
                 }
                 if (method.getAnnotations().get(Async.class.getName()) != null) {
-                    add(method.getReference(), new CallStack(method.getReference(), null));
+                    add(method.getReference(), new CallStack(method.getReference(), "marked with @Async"));
                 }
             }
         }
@@ -84,7 +122,7 @@ public class AsyncMethodFinder {
                         continue;
                     }
                     if (hasMonitor(method)) {
-                        add(method.getReference(), new CallStack(method.getReference(), null));
+                        add(method.getReference(), new CallStack(method.getReference(), "enters monitor"));
                     }
                 }
             }
@@ -143,6 +181,7 @@ public class AsyncMethodFinder {
         if (!asyncMethods.add(methodRef)) {
             return;
         }
+        callStacks.put(methodRef, stack);
         CallGraphNode node = callGraph.getNode(methodRef);
         if (node == null) {
             return;
@@ -171,6 +210,9 @@ public class AsyncMethodFinder {
         }
         for (CallSite callSite : node.getCallerCallSites()) {
             MethodReference nextMethod = callSite.getCaller().getMethod();
+            if (dependency != null && dependency.getSpeculativeCallees(nextMethod).contains(methodRef)) {
+                continue;
+            }
             add(nextMethod, new CallStack(nextMethod, stack));
         }
     }
@@ -178,12 +220,18 @@ public class AsyncMethodFinder {
     static class CallStack {
         MethodReference method;
         CallStack next;
+        String reason;
 
         CallStack(MethodReference method, CallStack next) {
             this.method = method;
             this.next = next;
         }
 
+        CallStack(MethodReference method, String reason) {
+            this.method = method;
+            this.reason = reason;
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
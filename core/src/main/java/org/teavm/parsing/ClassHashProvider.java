@@ -0,0 +1,27 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.parsing;
+
+/**
+ * Provides fingerprints of class files. Unlike modification dates, fingerprints only depend on
+ * contents of class files, so they are same on different machines and after checking out same sources.
+ */
+public interface ClassHashProvider {
+    /**
+     * Returns fingerprint of the class file, or {@code null} if the class file was not found.
+     */
+    byte[] getClassHash(String className);
+}
@@ -22,15 +22,35 @@ import org.teavm.parsing.resource.ClasspathResourceReader;
 import org.teavm.parsing.resource.MapperClassHolderSource;
 import org.teavm.parsing.resource.ResourceClassHolderMapper;
 
-public class ClasspathClassHolderSource implements ClassHolderSource, ClassDateProvider {
-    private MapperClassHolderSource innerClassSource;
+public class ClasspathClassHolderSource implements ClassHolderSource, ClassDateProvider, ClassHashProvider,
+        AutoCloseable {
+    private ClassHolderSource innerClassSource;
+    private PrefetchingClassHolderSource prefetchingClassSource;
     private ClasspathResourceMapper classPathMapper;
 
     public ClasspathClassHolderSource(ClassLoader classLoader) {
+        this(classLoader, 1);
+    }
+
+    /**
+     * Creates class source that parses classes found in the given class loader.
+     *
+     * @param classLoader class loader to take class files from.
+     * @param parsingThreads number of threads that parse class files. When greater than one,
+     * classes are parsed ahead of time by {@link PrefetchingClassHolderSource}, which has to be shut down
+     * by {@link #close()}.
+     */
+    public ClasspathClassHolderSource(ClassLoader classLoader, int parsingThreads) {
         ClasspathResourceReader reader = new ClasspathResourceReader(classLoader);
         ResourceClassHolderMapper rawMapper = new ResourceClassHolderMapper(reader);
         classPathMapper = new ClasspathResourceMapper(classLoader, rawMapper);
-        innerClassSource = new MapperClassHolderSource(classPathMapper);
+        if (parsingThreads > 1) {
+            prefetchingClassSource = new PrefetchingClassHolderSource(() -> new ClasspathResourceMapper(
+                    classLoader, new ResourceClassHolderMapper(reader)), parsingThreads);
+            innerClassSource = prefetchingClassSource;
+        } else {
+            innerClassSource = new MapperClassHolderSource(classPathMapper);
+        }
     }
 
     public ClasspathClassHolderSource() {
@@ -46,4 +66,20 @@ public class ClasspathClassHolderSource implements ClassHolderSource, ClassDateP
     public Date getModificationDate(String className) {
         return classPathMapper.getModificationDate(className);
     }
+
+    @Override
+    public byte[] getClassHash(String className) {
+        return classPathMapper.getClassHash(className);
+    }
+
+    /**
+     * Stops threads that parse classes ahead of time. Classes can still be requested afterwards,
+     * they are parsed on the calling thread.
+     */
+    @Override
+    public void close() {
+        if (prefetchingClassSource != null) {
+            prefetchingClassSource.close();
+        }
+    }
 }
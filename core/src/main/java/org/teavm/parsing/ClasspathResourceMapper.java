@@ -20,12 +20,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.Function;
 import org.teavm.common.CachedMapper;
 import org.teavm.common.Mapper;
 import org.teavm.model.ClassHolder;
 
-public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, ClassDateProvider {
+public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, ClassDateProvider, ClassHashProvider {
     private static final String PACKAGE_PREFIX = "packagePrefix.";
     private static final String CLASS_PREFIX = "classPrefix.";
     private Mapper<String, ClassHolder> innerMapper;
@@ -33,6 +36,7 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
     private ClassRefsRenamer renamer;
     private ClassLoader classLoader;
     private Map<String, ModificationDate> modificationDates = new HashMap<>();
+    private Map<String, ClassHash> classHashes = new HashMap<>();
 
     private static class Transformation {
         String packageName;
@@ -143,6 +147,10 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
     }
 
     private Date calculateModificationDate(String className) {
+        return findClassFile(className, this::getOriginalModificationDate);
+    }
+
+    private <T> T findClassFile(String className, Function<String, T> function) {
         int dotIndex = className.lastIndexOf('.');
         String packageName;
         String simpleName;
@@ -156,13 +164,13 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
         for (Transformation transformation : transformations) {
             if (packageName.startsWith(transformation.packageName)) {
                 String fullName = transformation.packagePrefix + packageName + transformation.classPrefix + simpleName;
-                Date date = getOriginalModificationDate(fullName);
-                if (date != null) {
-                    return date;
+                T result = function.apply(fullName);
+                if (result != null) {
+                    return result;
                 }
             }
         }
-        return getOriginalModificationDate(className);
+        return function.apply(className);
     }
 
     private Date getOriginalModificationDate(String className) {
@@ -191,7 +199,48 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
         }
     }
 
+    @Override
+    public byte[] getClassHash(String className) {
+        ClassHash hash = classHashes.get(className);
+        if (hash == null) {
+            hash = new ClassHash();
+            classHashes.put(className, hash);
+            hash.hash = findClassFile(className, this::calculateOriginalHash);
+        }
+        return hash.hash;
+    }
+
+    private byte[] calculateOriginalHash(String className) {
+        if (classLoader == null) {
+            return null;
+        }
+        try (InputStream input = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (input == null) {
+                return null;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[4096];
+            while (true) {
+                int bytesRead = input.read(buffer);
+                if (bytesRead < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, bytesRead);
+            }
+            return digest.digest();
+        } catch (IOException e) {
+            // If class file can't be read, we just report that class should be reparsed
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     static class ModificationDate {
         Date date;
     }
+
+    static class ClassHash {
+        byte[] hash;
+    }
 }
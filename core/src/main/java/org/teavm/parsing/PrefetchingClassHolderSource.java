@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.parsing;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import org.teavm.common.Mapper;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Program;
+import org.teavm.model.instructions.AbstractInstructionVisitor;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.InitClassInstruction;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+
+/**
+ * <p>Class source that parses classes on a pool of worker threads ahead of time.
+ * Every time a class is requested, classes it refers to (super types, owners of invoked methods
+ * and accessed fields, instantiated classes) are scheduled for parsing, so that by the time
+ * dependency analyzer reaches them, they are likely to be ready.</p>
+ *
+ * <p>Mappers are not required to be thread-safe, each thread gets its own mapper from the given factory.</p>
+ *
+ * <p>Worker threads are only useful while dependency analysis discovers new classes, so the source should be
+ * closed after it. Closed source stops prefetching and parses requested classes on the calling thread.</p>
+ */
+public class PrefetchingClassHolderSource implements ClassHolderSource, AutoCloseable {
+    private final ThreadLocal<Mapper<String, ClassHolder>> mapper;
+    private final ConcurrentMap<String, FutureTask<ParsedClass>> cache = new ConcurrentHashMap<>();
+    private final Set<String> requestedClasses = ConcurrentHashMap.newKeySet();
+    private final ForkJoinPool pool;
+
+    public PrefetchingClassHolderSource(Supplier<Mapper<String, ClassHolder>> mapperFactory, int threads) {
+        mapper = ThreadLocal.withInitial(mapperFactory);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @Override
+    public ClassHolder get(String name) {
+        FutureTask<ParsedClass> task = getTask(name);
+
+        // If no worker has taken this class yet, parse it on current thread instead of waiting
+        task.run();
+
+        ParsedClass parsedClass;
+        try {
+            parsedClass = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing class " + name, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+
+        if (requestedClasses.add(name)) {
+            for (String reference : parsedClass.references) {
+                prefetch(reference);
+            }
+        }
+        return parsedClass.cls;
+    }
+
+    private FutureTask<ParsedClass> getTask(String name) {
+        return cache.computeIfAbsent(name, key -> new FutureTask<>(() -> parse(key)));
+    }
+
+    private void prefetch(String name) {
+        if (pool.isShutdown() || cache.containsKey(name)) {
+            return;
+        }
+        FutureTask<ParsedClass> task = new FutureTask<>(() -> parse(name));
+        if (cache.putIfAbsent(name, task) == null) {
+            pool.execute(task);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private ParsedClass parse(String name) {
+        ClassHolder cls = mapper.get().map(name);
+        ParsedClass result = new ParsedClass();
+        result.cls = cls;
+        if (cls != null) {
+            collectReferences(cls, result.references);
+            result.references.remove(name);
+        }
+        return result;
+    }
+
+    private static void collectReferences(ClassHolder cls, Set<String> references) {
+        if (cls.getParent() != null) {
+            references.add(cls.getParent());
+        }
+        references.addAll(cls.getInterfaces());
+
+        ReferenceCollector collector = new ReferenceCollector(references);
+        for (MethodHolder method : cls.getMethods()) {
+            Program program = method.getProgram();
+            if (program == null) {
+                continue;
+            }
+            for (int i = 0; i < program.basicBlockCount(); ++i) {
+                BasicBlock block = program.basicBlockAt(i);
+                for (Instruction insn : block) {
+                    insn.acceptVisitor(collector);
+                }
+            }
+        }
+    }
+
+    static class ParsedClass {
+        ClassHolder cls;
+        Set<String> references = new LinkedHashSet<>();
+    }
+
+    static class ReferenceCollector extends AbstractInstructionVisitor {
+        private Set<String> references;
+
+        ReferenceCollector(Set<String> references) {
+            this.references = references;
+        }
+
+        @Override
+        public void visit(ConstructInstruction insn) {
+            references.add(insn.getType());
+        }
+
+        @Override
+        public void visit(GetFieldInstruction insn) {
+            references.add(insn.getField().getClassName());
+        }
+
+        @Override
+        public void visit(PutFieldInstruction insn) {
+            references.add(insn.getField().getClassName());
+        }
+
+        @Override
+        public void visit(InvokeInstruction insn) {
+            references.add(insn.getMethod().getClassName());
+        }
+
+        @Override
+        public void visit(InitClassInstruction insn) {
+            references.add(insn.getClassName());
+        }
+    }
+}
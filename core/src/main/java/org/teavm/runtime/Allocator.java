@@ -22,6 +22,8 @@ import org.teavm.interop.Unmanaged;
 
 @StaticInit
 public final class Allocator {
+    static Object multiArrayRoot;
+
     private Allocator() {
     }
 
@@ -49,20 +51,59 @@ public final class Allocator {
 
     @Unmanaged
     public static RuntimeArray allocateMultiArray(RuntimeClass tag, Address dimensions, int dimensionCount) {
-        int size = dimensions.getInt();
         RuntimeArray array = allocateArray(tag, dimensions.getInt()).toStructure();
-        if (dimensionCount > 1) {
-            Address arrayData = Structure.add(RuntimeArray.class, array, 1).toAddress();
-            arrayData = Address.align(arrayData, Address.sizeOf());
-            for (int i = 0; i < size; ++i) {
-                RuntimeArray innerArray = allocateMultiArray(tag.itemType, dimensions.add(4), dimensionCount - 1);
-                arrayData.putAddress(innerArray.toAddress());
-                arrayData = arrayData.add(Address.sizeOf());
+        if (dimensionCount == 1) {
+            return array;
+        }
+
+        // Unmanaged code does not register GC roots, so keep the outermost array in a static field while
+        // inner arrays are allocated. Each inner array is stored into its parent right after allocation, and
+        // parents are looked up from the root every time, since compacting GC may move them.
+        multiArrayRoot = array;
+        RuntimeClass parentTag = tag;
+        int parentCount = 1;
+        for (int level = 1; level < dimensionCount; ++level) {
+            int parentSize = dimensions.add((level - 1) * 4).getInt();
+            int size = dimensions.add(level * 4).getInt();
+            RuntimeClass itemTag = parentTag.itemType;
+            int count = parentCount * parentSize;
+            for (int i = 0; i < count; ++i) {
+                Address item = allocateArray(itemTag, size);
+                RuntimeArray parent = multiArrayItem(dimensions, level - 1, i / parentSize);
+                arrayData(parent).add((i % parentSize) * Address.sizeOf()).putAddress(item);
+                GC.writeBarrier(parent);
+            }
+            parentTag = itemTag;
+            parentCount = count;
+        }
+
+        array = Address.ofObject(multiArrayRoot).toStructure();
+        multiArrayRoot = null;
+        return array;
+    }
+
+    @Unmanaged
+    private static RuntimeArray multiArrayItem(Address dimensions, int level, int index) {
+        RuntimeArray array = Address.ofObject(multiArrayRoot).toStructure();
+        int divisor = 1;
+        for (int i = 1; i < level; ++i) {
+            divisor *= dimensions.add(i * 4).getInt();
+        }
+        for (int i = 0; i < level; ++i) {
+            array = arrayData(array).add(index / divisor * Address.sizeOf()).getAddress().toStructure();
+            index %= divisor;
+            if (i + 1 < level) {
+                divisor /= dimensions.add((i + 1) * 4).getInt();
             }
         }
         return array;
     }
 
+    @Unmanaged
+    private static Address arrayData(RuntimeArray array) {
+        return Address.align(Structure.add(RuntimeArray.class, array, 1).toAddress(), Address.sizeOf());
+    }
+
     @Unmanaged
     public static native void fillZero(Address address, int count);
 
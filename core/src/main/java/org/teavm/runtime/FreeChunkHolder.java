@@ -19,4 +19,5 @@ import org.teavm.interop.Structure;
 
 class FreeChunkHolder extends Structure {
     FreeChunk value;
+    int size;
 }
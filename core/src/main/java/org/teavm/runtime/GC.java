@@ -26,11 +26,24 @@ public final class GC {
     private GC() {
     }
 
+    private static final int BIN_COUNT = 128;
+
     static Address currentChunkLimit;
     static FreeChunk currentChunk;
     static FreeChunkHolder currentChunkPointer;
     static int freeChunks;
     static int freeMemory = (int) availableBytes();
+    static int rememberedSetSize;
+    static boolean fullGCRequired;
+    static boolean compactionRequired;
+    static int binnedMemory;
+    static int freeChunkHolderCount;
+    static int freeMemoryAfterCollection = (int) availableBytes();
+    static int allocatedSinceSlice;
+    static boolean marking;
+    static boolean sweeping;
+    static FreeChunk sweepPosition;
+    static FreeChunk sweepFreeSpace;
 
     static native Address gcStorageAddress();
 
@@ -46,22 +59,72 @@ public final class GC {
 
     private static native int regionSize();
 
+    /**
+     * <p>Tells whether the heap is divided into generations. In generational mode objects that survived
+     * a collection keep {@link RuntimeObject#GC_MARKED} flag and are considered old. Collection first tries
+     * to reclaim young objects only, i.e. the ones allocated after previous collection, which requires
+     * marking from roots and from the remembered set and sweeping free chunks consumed since previous
+     * collection. Full collection only happens when young collection does not reclaim enough memory.</p>
+     *
+     * <p>Objects are never moved, since compiled code is allowed to keep references to objects in local
+     * variables that GC does not update.</p>
+     */
+    static native boolean isGenerational();
+
+    /**
+     * <p>Tells whether full collection may compact the heap. Compaction happens when previous collection
+     * left free memory too fragmented, or when allocation fails after collection while there is enough free
+     * memory in total.</p>
+     *
+     * <p>Compaction slides live objects towards the start of the heap and updates references to them
+     * in static fields and in other objects. Objects that are referenced from the shadow stack are pinned,
+     * since compiled code keeps same references in local variables, which GC can't update.</p>
+     */
+    static native boolean isCompacting();
+
+    /**
+     * <p>Tells whether full collection is split into slices, which are performed by allocation after each
+     * {@code 16 * sliceBudget()} allocated bytes. Marking starts when a half of memory reclaimed by previous
+     * collection is consumed. Write barrier puts objects that were already scanned back into the mark queue
+     * when references are written to them, and new objects are allocated unmarked, so the last slice scans
+     * roots once again before marking finishes. Then sweeping proceeds in slices as well, and allocation only
+     * uses free chunks that sweeping has already found.</p>
+     *
+     * <p>When allocation fails in the middle of a collection, the rest of the collection is performed at once.
+     * Incremental mode is never enabled along with generational mode.</p>
+     */
+    static native boolean isIncremental();
+
+    /**
+     * Tells how many objects are marked or swept in one slice of incremental collection.
+     */
+    private static native int sliceBudget();
+
     public static int getFreeMemory() {
         return freeMemory;
     }
 
     static {
+        Allocator.fillZero(gcStorageAddress(), BIN_COUNT * Address.sizeOf());
         currentChunk = heapAddress().toStructure();
         currentChunk.classReference = 0;
         currentChunk.size = (int) availableBytes();
         currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
-        currentChunkPointer = gcStorageAddress().toStructure();
+        currentChunkPointer = freeChunkHolders();
         currentChunkPointer.value = currentChunk;
+        currentChunkPointer.size = currentChunk.size;
         freeChunks = 1;
         getAvailableChunkIfPossible(0);
     }
 
     public static RuntimeObject alloc(int size) {
+        if (isIncremental()) {
+            allocatedSinceSlice += size;
+            if (allocatedSinceSlice >= sliceBudget() * 16) {
+                allocatedSinceSlice = 0;
+                collectGarbageSlice();
+            }
+        }
         FreeChunk current = currentChunk;
         Address next = current.toAddress().add(size);
         if (!next.add(Structure.sizeOf(FreeChunk.class)).isLessThan(currentChunkLimit)) {
@@ -74,26 +137,52 @@ public final class GC {
         if (freeSize > 0) {
             currentChunk = next.toStructure();
             currentChunk.size = freeSize;
+            currentChunk.classReference = 0;
         } else {
-            freeMemory -= size;
-            getAvailableChunkIfPossible(currentChunk.size + 1);
+            takeNextChunk();
         }
-        currentChunk.classReference = 0;
         freeMemory -= size;
         return current.toAddress().toStructure();
     }
 
+    private static void takeNextChunk() {
+        if (freeChunks > 1) {
+            --freeChunks;
+            currentChunkPointer = Structure.add(FreeChunkHolder.class, currentChunkPointer, 1);
+            currentChunk = currentChunkPointer.value;
+            currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        } else {
+            // Current chunk is occupied by the object, so make any subsequent allocation fail
+            freeChunks = 0;
+            currentChunkLimit = currentChunk.toAddress();
+        }
+    }
+
     private static void getAvailableChunk(int size) {
-        if (getAvailableChunkIfPossible(size)) {
+        if (getAvailableChunkIfPossible(size) || sweepUntilAvailable(size)) {
+            return;
+        }
+        if (isGenerational() && !fullGCRequired && collectYoungGarbage()) {
+            if (freeMemory < availableBytes() / 8) {
+                fullGCRequired = true;
+            }
+            if (getAvailableChunkIfPossible(size)) {
+                return;
+            }
+        }
+        boolean compacted = isCompacting() && compactionRequired;
+        collectGarbage(size);
+        if (getAvailableChunkIfPossible(size) || sweepUntilAvailable(size) || !isCompacting() || compacted) {
             return;
         }
+        compactionRequired = true;
         collectGarbage(size);
         getAvailableChunkIfPossible(size);
     }
 
     private static boolean getAvailableChunkIfPossible(int size) {
         if (freeChunks == 0) {
-            return false;
+            return takeChunkFromBin(size);
         }
         while (true) {
             if (currentChunk.toAddress().add(size) == currentChunkLimit) {
@@ -103,9 +192,11 @@ public final class GC {
                 break;
             }
             if (--freeChunks == 0) {
-                return false;
+                return takeChunkFromBin(size);
+            }
+            if (currentChunk.toAddress().isLessThan(currentChunkLimit)) {
+                releaseChunk(currentChunk);
             }
-            freeMemory -= currentChunk.size;
             currentChunkPointer = Structure.add(FreeChunkHolder.class, currentChunkPointer, 1);
             currentChunk = currentChunkPointer.value;
             currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
@@ -113,23 +204,239 @@ public final class GC {
         return true;
     }
 
+    /*
+     * Free chunks smaller than BIN_COUNT * 4 bytes are kept in bins, one list per size, rather than in the
+     * list of free chunks sorted by size, so that small objects can use them when large chunks are exhausted.
+     * Bins are not used in generational mode: young collection only sweeps chunks consumed from the list
+     * of free chunks, so young objects allocated in a chunk taken from a bin would not be reclaimed until
+     * full collection.
+     */
+    private static boolean takeChunkFromBin(int size) {
+        int index = size >> 2;
+        if (binnedMemory < size || index >= BIN_COUNT) {
+            return false;
+        }
+        Address bin = binAddress(index);
+        if (bin.getAddress() == null) {
+            // Chunk of another size must leave enough space for free chunk after allocation
+            index = (size + Structure.sizeOf(FreeChunk.class) + 3) >> 2;
+            while (true) {
+                if (index >= BIN_COUNT) {
+                    return false;
+                }
+                bin = binAddress(index);
+                if (bin.getAddress() != null) {
+                    break;
+                }
+                ++index;
+            }
+        }
+
+        FreeListEntry entry = bin.getAddress().toStructure();
+        bin.putAddress(entry.next.toAddress());
+        binnedMemory -= entry.size;
+        if (currentChunk.toAddress().isLessThan(currentChunkLimit)) {
+            releaseChunk(currentChunk);
+        }
+        currentChunk = entry;
+        currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        return true;
+    }
+
+    private static void releaseChunk(FreeChunk chunk) {
+        if (isBinnable(chunk.size)) {
+            putChunkToBin(chunk);
+        } else {
+            freeMemory -= chunk.size;
+        }
+    }
+
+    private static boolean isBinnable(int size) {
+        return !isGenerational() && size >= Structure.sizeOf(FreeListEntry.class) && size >> 2 < BIN_COUNT;
+    }
+
+    private static void putChunkToBin(FreeChunk chunk) {
+        FreeListEntry entry = chunk.toAddress().toStructure();
+        Address bin = binAddress(chunk.size >> 2);
+        entry.next = bin.getAddress().toStructure();
+        bin.putAddress(entry.toAddress());
+        binnedMemory += chunk.size;
+    }
+
+    private static Address binAddress(int index) {
+        return gcStorageAddress().add(index * Address.sizeOf());
+    }
+
+    private static FreeChunkHolder freeChunkHolders() {
+        return gcStorageAddress().add(BIN_COUNT * Address.sizeOf()).toStructure();
+    }
+
+    private static int freeChunkHolderIndex(FreeChunkHolder holder) {
+        return (int) ((holder.toAddress().toLong() - freeChunkHolders().toAddress().toLong())
+                / Structure.sizeOf(FreeChunkHolder.class));
+    }
+
+    /**
+     * Records that a reference was written to the given object. Must be called after each write
+     * of a reference to a field of an object or to an element of an array, except for objects that
+     * are known to be allocated after the last possible collection. Does nothing unless GC is generational
+     * or incremental marking is in progress.
+     */
+    public static void writeBarrier(Object object) {
+        if (!isGenerational() && !marking) {
+            return;
+        }
+        RuntimeObject header = Address.ofObject(object).toStructure();
+        int tag = header.classReference;
+        if ((tag & (RuntimeObject.GC_MARKED | RuntimeObject.GC_REMEMBERED)) != RuntimeObject.GC_MARKED) {
+            return;
+        }
+        if (!isGenerational()) {
+            // Object was already scanned by incremental marking, so scan it once again
+            if (MarkQueue.enqueue(header)) {
+                header.classReference = tag | RuntimeObject.GC_REMEMBERED;
+            }
+            return;
+        }
+        if (rememberedSetSize * Address.sizeOf() >= gcStorageSize() / 4) {
+            fullGCRequired = true;
+            return;
+        }
+        header.classReference = tag | RuntimeObject.GC_REMEMBERED;
+        rememberedSetSize++;
+        rememberedSetEntry(rememberedSetSize).putAddress(header.toAddress());
+    }
+
+    private static Address rememberedSetEntry(int index) {
+        return gcStorageAddress().add(gcStorageSize() - index * Address.sizeOf());
+    }
+
     public static boolean collectGarbage(int size) {
+        if (isGenerational()) {
+            forgetRememberedSet();
+            clearMarks();
+            fullGCRequired = false;
+        }
+        if (marking) {
+            finishMarking();
+            return true;
+        }
+        if (sweeping) {
+            sweepSlice(Integer.MAX_VALUE);
+        }
+        MarkQueue.init();
         mark();
+        if (isCompacting() && compactionRequired) {
+            compact();
+        }
         sweep();
         updateFreeMemory();
         return true;
     }
 
+    private static boolean collectYoungGarbage() {
+        FreeChunkHolder chunks = freeChunkHolders();
+        int consumedChunks = (int) ((currentChunkPointer.toAddress().toLong() - chunks.toAddress().toLong())
+                / Structure.sizeOf(FreeChunkHolder.class)) + 1;
+        int remainingChunks = freeChunks > 0 ? freeChunks - 1 : 0;
+        Address queueStart = Structure.add(FreeChunkHolder.class, chunks, consumedChunks + remainingChunks)
+                .toAddress();
+        int queueSize = (int) (rememberedSetEntry(rememberedSetSize).toLong() - queueStart.toLong());
+        if (queueSize < gcStorageSize() / 4) {
+            return false;
+        }
+
+        MarkQueue.init(queueStart, queueSize);
+        markRoots();
+        for (int i = 1; i <= rememberedSetSize; ++i) {
+            RuntimeObject object = rememberedSetEntry(i).getAddress().toStructure();
+            object.classReference &= ~RuntimeObject.GC_REMEMBERED;
+            markReferences(object);
+            drainMarkQueue(Integer.MAX_VALUE);
+        }
+        rememberedSetSize = 0;
+        markOverflowedObjects();
+
+        return sweepYoung(consumedChunks, remainingChunks);
+    }
+
+    private static void forgetRememberedSet() {
+        for (int i = 1; i <= rememberedSetSize; ++i) {
+            RuntimeObject object = rememberedSetEntry(i).getAddress().toStructure();
+            object.classReference &= ~RuntimeObject.GC_REMEMBERED;
+        }
+        rememberedSetSize = 0;
+    }
+
+    private static void clearMarks() {
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            object.classReference &= ~RuntimeObject.GC_MARKED;
+            object = object.toAddress().add(objectSize(object)).toStructure();
+        }
+    }
+
+    private static void collectGarbageSlice() {
+        if (sweeping) {
+            sweepSlice(sliceBudget());
+        } else if (marking) {
+            drainMarkQueue(sliceBudget());
+            if (MarkQueue.isEmpty()) {
+                finishMarking();
+            }
+        } else if (freeMemory < freeMemoryAfterCollection / 2) {
+            startMarking();
+        }
+    }
+
+    private static void startMarking() {
+        Address queueStart = Structure.add(FreeChunkHolder.class, freeChunkHolders(), freeChunkHolderCount)
+                .toAddress();
+        int queueSize = (int) (gcStorageAddress().toLong() + gcStorageSize() - queueStart.toLong());
+        if (queueSize < gcStorageSize() / 4) {
+            // Too many free chunks, so wait until allocation fails and perform collection at once
+            return;
+        }
+        Allocator.fillZero(regionsAddress().toAddress(), regionMaxCount() * Structure.sizeOf(Region.class));
+        MarkQueue.init(queueStart, queueSize);
+        marking = true;
+        enqueueRoots();
+    }
+
+    private static void finishMarking() {
+        enqueueRoots();
+        drainMarkQueue(Integer.MAX_VALUE);
+        markOverflowedObjects();
+        marking = false;
+        if (isCompacting() && compactionRequired) {
+            compact();
+            sweep();
+            updateFreeMemory();
+        } else {
+            startSweep();
+        }
+    }
+
     private static void mark() {
         Allocator.fillZero(regionsAddress().toAddress(), regionMaxCount() * Structure.sizeOf(Region.class));
+        markRoots();
+        markOverflowedObjects();
+    }
+
+    private static void markRoots() {
+        enqueueRoots();
+        drainMarkQueue(Integer.MAX_VALUE);
+    }
 
+    private static void enqueueRoots() {
         Address staticRoots = Mutator.getStaticGCRoots();
         int staticCount = staticRoots.getInt();
         staticRoots = staticRoots.add(Address.sizeOf());
         while (staticCount-- > 0) {
             RuntimeObject object = staticRoots.getAddress().getAddress().toStructure();
-            if (object != null) {
-                mark(object);
+            if (object != null && !isMarked(object)) {
+                MarkQueue.enqueue(object);
             }
             staticRoots = staticRoots.add(Address.sizeOf());
         }
@@ -140,68 +447,99 @@ public final class GC {
             Address stackRootsPtr = ShadowStack.getStackRootPointer(stackRoots);
             while (count-- > 0) {
                 RuntimeObject obj = stackRootsPtr.getAddress().toStructure();
-                mark(obj);
+                if (obj != null && !isMarked(obj)) {
+                    MarkQueue.enqueue(obj);
+                }
                 stackRootsPtr = stackRootsPtr.add(Address.sizeOf());
             }
         }
     }
 
-    private static void mark(RuntimeObject object) {
-        if (object == null || isMarked(object)) {
-            return;
-        }
-
-        MarkQueue.init();
-        MarkQueue.enqueue(object);
-        while (!MarkQueue.isEmpty()) {
-            object = MarkQueue.dequeue();
+    private static void drainMarkQueue(int budget) {
+        while (budget-- > 0 && !MarkQueue.isEmpty()) {
+            RuntimeObject object = MarkQueue.dequeue();
+            int tag = object.classReference;
+            if ((tag & RuntimeObject.GC_REMEMBERED) != 0) {
+                // Put to the queue by write barrier during incremental marking
+                object.classReference = tag & ~RuntimeObject.GC_REMEMBERED;
+                markReferences(object);
+                continue;
+            }
             if (isMarked(object)) {
                 continue;
             }
             object.classReference |= RuntimeObject.GC_MARKED;
+            updateRegion(object);
+            markReferences(object);
+        }
+    }
 
-            long offset = object.toAddress().toLong() - heapAddress().toLong();
-            Region region = Structure.add(Region.class, regionsAddress(), (int) (offset /  regionSize()));
-            short relativeOffset = (short) (offset % regionSize() + 1);
-            if (region.start == 0 || region.start > relativeOffset) {
-                region.start = relativeOffset;
+    /*
+     * Objects that did not fit into the mark queue are only referenced by marked objects, so scan marked objects
+     * until the queue manages to hold all objects reachable from them.
+     */
+    private static void markOverflowedObjects() {
+        while (MarkQueue.hasOverflowed()) {
+            MarkQueue.resetOverflow();
+            FreeChunk object = heapAddress().toStructure();
+            Address limit = heapAddress().add(availableBytes());
+            while (object.toAddress().isLessThan(limit)) {
+                int tag = object.classReference;
+                if (tag != 0 && (tag & RuntimeObject.GC_MARKED) != 0) {
+                    markReferences(object.toAddress().toStructure());
+                    drainMarkQueue(Integer.MAX_VALUE);
+                }
+                object = object.toAddress().add(objectSize(object)).toStructure();
             }
+        }
+    }
 
-            RuntimeClass cls = RuntimeClass.getClass(object);
-            if (cls.itemType == null) {
-                while (cls != null) {
-                    Address layout = cls.layout;
-                    if (layout != null) {
-                        short fieldCount = layout.getShort();
-                        while (fieldCount-- > 0) {
-                            layout = layout.add(2);
-                            int fieldOffset = layout.getShort();
-                            RuntimeObject reference = object.toAddress().add(fieldOffset).getAddress().toStructure();
-                            if (reference != null && !isMarked(reference)) {
-                                MarkQueue.enqueue(reference);
-                            }
-                        }
-                    }
-                    cls = cls.parent;
-                }
-            } else {
-                if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
-                    RuntimeArray array = (RuntimeArray) object;
-                    Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
-                    for (int i = 0; i < array.size; ++i) {
-                        RuntimeObject reference = base.getAddress().toStructure();
+    private static void updateRegion(RuntimeObject object) {
+        long offset = object.toAddress().toLong() - heapAddress().toLong();
+        Region region = Structure.add(Region.class, regionsAddress(), (int) (offset /  regionSize()));
+        short relativeOffset = (short) (offset % regionSize() + 1);
+        if (region.start == 0 || region.start > relativeOffset) {
+            region.start = relativeOffset;
+        }
+    }
+
+    private static void markReferences(RuntimeObject object) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            while (cls != null) {
+                Address layout = cls.layout;
+                if (layout != null) {
+                    short fieldCount = layout.getShort();
+                    while (fieldCount-- > 0) {
+                        layout = layout.add(2);
+                        int fieldOffset = layout.getShort();
+                        RuntimeObject reference = object.toAddress().add(fieldOffset).getAddress().toStructure();
                         if (reference != null && !isMarked(reference)) {
                             MarkQueue.enqueue(reference);
                         }
-                        base = base.add(Address.sizeOf());
                     }
                 }
+                cls = cls.parent;
+            }
+        } else {
+            if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+                RuntimeArray array = (RuntimeArray) object;
+                Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
+                for (int i = 0; i < array.size; ++i) {
+                    RuntimeObject reference = base.getAddress().toStructure();
+                    if (reference != null && !isMarked(reference)) {
+                        MarkQueue.enqueue(reference);
+                    }
+                    base = base.add(Address.sizeOf());
+                }
             }
         }
     }
 
     private static void sweep() {
-        FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
+        Allocator.fillZero(gcStorageAddress(), BIN_COUNT * Address.sizeOf());
+        binnedMemory = 0;
+        FreeChunkHolder freeChunkPtr = freeChunkHolders();
         freeChunks = 0;
 
         FreeChunk object = heapAddress().toStructure();
@@ -221,7 +559,7 @@ public final class GC {
                 free = true;
             } else {
                 free = (tag & RuntimeObject.GC_MARKED) == 0;
-                if (!free) {
+                if (!free && !isGenerational()) {
                     tag &= ~RuntimeObject.GC_MARKED;
                 }
                 object.classReference = tag;
@@ -250,9 +588,14 @@ public final class GC {
                 if (lastFreeSpace != null) {
                     lastFreeSpace.classReference = 0;
                     lastFreeSpace.size = (int) (object.toAddress().toLong() - lastFreeSpace.toAddress().toLong());
-                    freeChunkPtr.value = lastFreeSpace;
-                    freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
-                    freeChunks++;
+                    if (isBinnable(lastFreeSpace.size)) {
+                        putChunkToBin(lastFreeSpace);
+                    } else {
+                        freeChunkPtr.value = lastFreeSpace;
+                        freeChunkPtr.size = lastFreeSpace.size;
+                        freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+                        freeChunks++;
+                    }
                     reclaimedSpace += lastFreeSpace.size;
                     if (maxFreeChunk < lastFreeSpace.size) {
                         maxFreeChunk = lastFreeSpace.size;
@@ -269,28 +612,352 @@ public final class GC {
             int freeSize = (int) (object.toAddress().toLong() - lastFreeSpace.toAddress().toLong());
             lastFreeSpace.classReference = 0;
             lastFreeSpace.size = freeSize;
-            freeChunkPtr.value = lastFreeSpace;
-            freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
-            freeChunks++;
+            if (isBinnable(freeSize)) {
+                putChunkToBin(lastFreeSpace);
+            } else {
+                freeChunkPtr.value = lastFreeSpace;
+                freeChunkPtr.size = freeSize;
+                freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+                freeChunks++;
+            }
             reclaimedSpace += freeSize;
             if (maxFreeChunk < freeSize) {
                 maxFreeChunk = freeSize;
             }
         }
 
-        currentChunkPointer = gcStorageAddress().toStructure();
+        compactionRequired = maxFreeChunk < reclaimedSpace / 4;
+        freeChunkHolderCount = freeChunks;
+
+        currentChunkPointer = freeChunkHolders();
+        if (freeChunks > 0) {
+            sortFreeChunks(0, freeChunks - 1);
+            currentChunk = currentChunkPointer.value;
+            currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        } else {
+            // No large chunks left, so make allocation take chunks from bins
+            currentChunk = heapAddress().toStructure();
+            currentChunkLimit = currentChunk.toAddress();
+        }
+    }
+
+    /*
+     * Sweeping in slices appends free chunks to the list of free chunks, which allocation consumes at the same
+     * time, so the list is not sorted. Allocation starts with a holder preceding the first one, which
+     * it never reads, and skips it as soon as sweeping finds the first chunk.
+     */
+    private static void startSweep() {
+        Allocator.fillZero(gcStorageAddress(), BIN_COUNT * Address.sizeOf());
+        binnedMemory = 0;
+        freeMemory = 0;
+        freeChunkHolderCount = 0;
+        freeChunks = 0;
+        currentChunkPointer = Structure.add(FreeChunkHolder.class, freeChunkHolders(), -1);
+        currentChunk = heapAddress().toStructure();
+        currentChunkLimit = currentChunk.toAddress();
+        sweepPosition = heapAddress().toStructure();
+        sweepFreeSpace = null;
+        sweeping = true;
+    }
+
+    private static void sweepSlice(int budget) {
+        FreeChunk object = sweepPosition;
+        FreeChunk lastFreeSpace = sweepFreeSpace;
+        Address limit = heapAddress().add(availableBytes());
+        while (budget-- > 0 && object.toAddress().isLessThan(limit)) {
+            int size = objectSize(object);
+            int tag = object.classReference;
+            if (tag != 0 && (tag & RuntimeObject.GC_MARKED) != 0) {
+                object.classReference = tag & ~RuntimeObject.GC_MARKED;
+                if (lastFreeSpace != null) {
+                    addSweptChunk(lastFreeSpace, object.toAddress());
+                    lastFreeSpace = null;
+                }
+            } else if (lastFreeSpace == null) {
+                lastFreeSpace = object;
+            }
+            object = object.toAddress().add(size).toStructure();
+        }
+
+        if (!object.toAddress().isLessThan(limit)) {
+            if (lastFreeSpace != null) {
+                addSweptChunk(lastFreeSpace, limit);
+                lastFreeSpace = null;
+            }
+            sweeping = false;
+            freeMemoryAfterCollection = freeMemory;
+        }
+        sweepPosition = object;
+        sweepFreeSpace = lastFreeSpace;
+    }
+
+    private static void addSweptChunk(FreeChunk chunk, Address end) {
+        chunk.classReference = 0;
+        chunk.size = (int) (end.toLong() - chunk.toAddress().toLong());
+        freeMemory += chunk.size;
+        if (isBinnable(chunk.size)) {
+            putChunkToBin(chunk);
+        } else {
+            FreeChunkHolder holder = Structure.add(FreeChunkHolder.class, freeChunkHolders(), freeChunkHolderCount++);
+            holder.value = chunk;
+            holder.size = chunk.size;
+            freeChunks = freeChunkHolderCount - freeChunkHolderIndex(currentChunkPointer);
+        }
+    }
+
+    private static boolean sweepUntilAvailable(int size) {
+        while (sweeping) {
+            sweepSlice(sliceBudget());
+            if (getAvailableChunkIfPossible(size)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void compact() {
+        pinStackRoots();
+        int relocationCount = computeRelocations();
+        updateReferences(relocationCount);
+        moveObjects(relocationCount);
+    }
+
+    private static void pinStackRoots() {
+        for (Address stackRoots = ShadowStack.getStackTop(); stackRoots != null;
+             stackRoots = ShadowStack.getNextStackFrame(stackRoots)) {
+            int count = ShadowStack.getStackRootCount(stackRoots);
+            Address stackRootsPtr = ShadowStack.getStackRootPointer(stackRoots);
+            while (count-- > 0) {
+                Address root = stackRootsPtr.getAddress();
+                if (isInHeap(root)) {
+                    RuntimeObject object = root.toStructure();
+                    object.classReference |= RuntimeObject.GC_PINNED;
+                }
+                stackRootsPtr = stackRootsPtr.add(Address.sizeOf());
+            }
+        }
+    }
+
+    /*
+     * Relocation table is stored in GC storage and consists of blocks of adjacent live objects that are moved
+     * by the same distance, ordered by address. When the table does not fit into storage, the remaining
+     * objects stay where they are.
+     */
+    private static int computeRelocations() {
+        Relocation relocations = gcStorageAddress().toStructure();
+        int capacity = gcStorageSize() / Structure.sizeOf(Relocation.class);
+        int count = 0;
+        int lastDelta = 0;
+        boolean tableFull = false;
+        Address free = heapAddress();
+
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            int size = objectSize(object);
+            int tag = object.classReference;
+            if (tag != 0 && (tag & RuntimeObject.GC_MARKED) != 0) {
+                int delta = 0;
+                if (!tableFull && (tag & RuntimeObject.GC_PINNED) == 0) {
+                    delta = (int) (object.toAddress().toLong() - free.toLong());
+                }
+                if (delta != lastDelta && delta != 0 && count == capacity - 1) {
+                    // Keep last entry to switch back to zero distance
+                    tableFull = true;
+                    delta = 0;
+                }
+                if (delta != lastDelta) {
+                    Relocation relocation = Structure.add(Relocation.class, relocations, count++);
+                    relocation.start = object.toAddress();
+                    relocation.delta = delta;
+                    lastDelta = delta;
+                }
+                free = object.toAddress().add(size - delta);
+            }
+            object = object.toAddress().add(size).toStructure();
+        }
+
+        return count;
+    }
+
+    private static Address relocate(Address address, int relocationCount) {
+        if (!isInHeap(address)) {
+            return address;
+        }
+        Relocation relocations = gcStorageAddress().toStructure();
+        int lower = 0;
+        int upper = relocationCount - 1;
+        int delta = 0;
+        while (lower <= upper) {
+            int mid = (lower + upper) >>> 1;
+            Relocation relocation = Structure.add(Relocation.class, relocations, mid);
+            if (address.isLessThan(relocation.start)) {
+                upper = mid - 1;
+            } else {
+                delta = relocation.delta;
+                lower = mid + 1;
+            }
+        }
+        return address.add(-delta);
+    }
+
+    private static void updateReferences(int relocationCount) {
+        Address staticRoots = Mutator.getStaticGCRoots();
+        int staticCount = staticRoots.getInt();
+        staticRoots = staticRoots.add(Address.sizeOf());
+        while (staticCount-- > 0) {
+            Address field = staticRoots.getAddress();
+            field.putAddress(relocate(field.getAddress(), relocationCount));
+            staticRoots = staticRoots.add(Address.sizeOf());
+        }
+
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            int tag = object.classReference;
+            if (tag != 0 && (tag & RuntimeObject.GC_MARKED) != 0) {
+                updateFields(object.toAddress().toStructure(), relocationCount);
+            }
+            object = object.toAddress().add(objectSize(object)).toStructure();
+        }
+    }
+
+    private static void updateFields(RuntimeObject object, int relocationCount) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            while (cls != null) {
+                Address layout = cls.layout;
+                if (layout != null) {
+                    short fieldCount = layout.getShort();
+                    while (fieldCount-- > 0) {
+                        layout = layout.add(2);
+                        Address field = object.toAddress().add(layout.getShort());
+                        field.putAddress(relocate(field.getAddress(), relocationCount));
+                    }
+                }
+                cls = cls.parent;
+            }
+        } else if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+            RuntimeArray array = (RuntimeArray) object;
+            Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
+            for (int i = 0; i < array.size; ++i) {
+                base.putAddress(relocate(base.getAddress(), relocationCount));
+                base = base.add(Address.sizeOf());
+            }
+        }
+    }
+
+    /*
+     * Objects only move towards the start of the heap, and each object is moved after all preceding objects,
+     * so headers of objects that are not processed yet are never overwritten. Space between moved objects
+     * and objects that stay in place is turned into free chunks, so that sweep can walk the heap.
+     */
+    private static void moveObjects(int relocationCount) {
+        Allocator.fillZero(regionsAddress().toAddress(), regionMaxCount() * Structure.sizeOf(Region.class));
+        Relocation relocation = gcStorageAddress().toStructure();
+        int relocationIndex = 0;
+        int delta = 0;
+        Address compactedEnd = heapAddress();
+
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            int size = objectSize(object);
+            int tag = object.classReference;
+            if (tag != 0 && (tag & RuntimeObject.GC_MARKED) != 0) {
+                while (relocationIndex < relocationCount && !object.toAddress().isLessThan(relocation.start)) {
+                    delta = relocation.delta;
+                    relocation = Structure.add(Relocation.class, relocation, 1);
+                    relocationIndex++;
+                }
+                object.classReference = tag & ~RuntimeObject.GC_PINNED;
+                Address newAddress = object.toAddress().add(-delta);
+                if (compactedEnd.isLessThan(newAddress)) {
+                    FreeChunk gap = compactedEnd.toStructure();
+                    gap.classReference = 0;
+                    gap.size = (int) (newAddress.toLong() - compactedEnd.toLong());
+                }
+                if (delta != 0) {
+                    Allocator.moveMemoryBlock(object.toAddress(), newAddress, size);
+                }
+                updateRegion(newAddress.toStructure());
+                compactedEnd = newAddress.add(size);
+            }
+            object = object.toAddress().add(size).toStructure();
+        }
+
+        if (compactedEnd.isLessThan(limit)) {
+            FreeChunk gap = compactedEnd.toStructure();
+            gap.classReference = 0;
+            gap.size = (int) (limit.toLong() - compactedEnd.toLong());
+        }
+    }
+
+    private static boolean isInHeap(Address address) {
+        return !address.isLessThan(heapAddress()) && address.isLessThan(heapAddress().add(availableBytes()));
+    }
+
+    private static boolean sweepYoung(int consumedChunks, int remainingChunks) {
+        FreeChunkHolder chunks = freeChunkHolders();
+        FreeChunkHolder newChunkPtr = Structure.add(FreeChunkHolder.class, chunks, consumedChunks + remainingChunks);
+        Address newChunksLimit = gcStorageAddress().add(gcStorageSize() - Structure.sizeOf(FreeChunkHolder.class));
+        int newChunks = 0;
+
+        for (int i = 0; i < consumedChunks; ++i) {
+            FreeChunkHolder consumedChunk = Structure.add(FreeChunkHolder.class, chunks, i);
+            FreeChunk object = consumedChunk.value;
+            Address limit = object.toAddress().add(consumedChunk.size);
+            FreeChunk lastFreeSpace = null;
+            while (true) {
+                boolean atEnd = !object.toAddress().isLessThan(limit);
+                if (atEnd || (object.classReference & RuntimeObject.GC_MARKED) != 0) {
+                    if (lastFreeSpace != null) {
+                        if (newChunkPtr.toAddress().isLessThan(newChunksLimit)) {
+                            lastFreeSpace.classReference = 0;
+                            lastFreeSpace.size = (int) (object.toAddress().toLong()
+                                    - lastFreeSpace.toAddress().toLong());
+                            newChunkPtr.value = lastFreeSpace;
+                            newChunkPtr.size = lastFreeSpace.size;
+                            newChunkPtr = Structure.add(FreeChunkHolder.class, newChunkPtr, 1);
+                            newChunks++;
+                        } else {
+                            // Dead objects remain parseable, so full GC will reclaim them
+                            fullGCRequired = true;
+                        }
+                        lastFreeSpace = null;
+                    }
+                    if (atEnd) {
+                        break;
+                    }
+                } else if (lastFreeSpace == null) {
+                    lastFreeSpace = object;
+                }
+                object = object.toAddress().add(objectSize(object)).toStructure();
+            }
+        }
+
+        freeChunks = remainingChunks + newChunks;
+        if (freeChunks == 0) {
+            return false;
+        }
+        Allocator.moveMemoryBlock(Structure.add(FreeChunkHolder.class, chunks, consumedChunks).toAddress(),
+                chunks.toAddress(), freeChunks * Structure.sizeOf(FreeChunkHolder.class));
+        currentChunkPointer = chunks;
         sortFreeChunks(0, freeChunks - 1);
         currentChunk = currentChunkPointer.value;
         currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        updateFreeMemory();
+        return true;
     }
 
     private static void updateFreeMemory() {
-        freeMemory = 0;
+        freeMemory = binnedMemory;
         FreeChunkHolder freeChunkPtr = currentChunkPointer;
         for (int i = 0; i < freeChunks; ++i) {
             freeMemory += freeChunkPtr.value.size;
             freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
         }
+        freeMemoryAfterCollection = freeMemory;
     }
 
     private static void sortFreeChunks(int lower, int upper) {
@@ -318,9 +985,14 @@ public final class GC {
                 }
                 --upper;
             }
-            FreeChunk tmp = getFreeChunk(lower).value;
-            getFreeChunk(lower).value = getFreeChunk(upper).value;
-            getFreeChunk(upper).value = tmp;
+            FreeChunkHolder lowerChunk = getFreeChunk(lower);
+            FreeChunkHolder upperChunk = getFreeChunk(upper);
+            FreeChunk tmp = lowerChunk.value;
+            lowerChunk.value = upperChunk.value;
+            upperChunk.value = tmp;
+            int tmpSize = lowerChunk.size;
+            lowerChunk.size = upperChunk.size;
+            upperChunk.size = tmpSize;
         }
 
         if (lower - start > 0) {
@@ -363,4 +1035,9 @@ public final class GC {
     static class Region extends Structure {
         short start;
     }
+
+    static class Relocation extends Structure {
+        Address start;
+        int delta;
+    }
 }
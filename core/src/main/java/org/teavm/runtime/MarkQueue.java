@@ -21,25 +21,46 @@ final class MarkQueue {
     private MarkQueue() {
     }
 
+    private static Address start;
     private static int head;
     private static int tail;
     private static int limit;
+    private static boolean overflow;
 
     static void init() {
+        init(GC.gcStorageAddress(), GC.gcStorageSize());
+    }
+
+    static void init(Address address, int size) {
+        start = address;
         head = 0;
         tail = 0;
-        limit = GC.gcStorageSize() / Address.sizeOf();
+        limit = size / Address.sizeOf();
+        overflow = false;
     }
 
-    static void enqueue(RuntimeObject object) {
-        GC.gcStorageAddress().add(Address.sizeOf() * tail).putAddress(object.toAddress());
-        if (++tail >= limit) {
-            tail = 0;
+    /**
+     * Adds object to the queue. When the queue is full, the object is dropped and the queue remembers
+     * that it overflowed, so that GC can find dropped objects later by scanning marked objects.
+     *
+     * @return {@code false} if the queue is full.
+     */
+    static boolean enqueue(RuntimeObject object) {
+        int next = tail + 1;
+        if (next >= limit) {
+            next = 0;
         }
+        if (next == head) {
+            overflow = true;
+            return false;
+        }
+        start.add(Address.sizeOf() * tail).putAddress(object.toAddress());
+        tail = next;
+        return true;
     }
 
     static RuntimeObject dequeue() {
-        Address result = GC.gcStorageAddress().add(Address.sizeOf() * head).getAddress();
+        Address result = start.add(Address.sizeOf() * head).getAddress();
         if (++head >= limit) {
             head = 0;
         }
@@ -49,4 +70,12 @@ final class MarkQueue {
     static boolean isEmpty() {
         return head == tail;
     }
+
+    static boolean hasOverflowed() {
+        return overflow;
+    }
+
+    static void resetOverflow() {
+        overflow = false;
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.runtime;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Collects call counts and receiver types in programs built with profiling instrumentation.
+ * Calls to this class are inserted by {@link org.teavm.model.transformation.ProfilingTransformer}.</p>
+ *
+ * <p>Counters are written to {@link System#err} (which goes to console in JavaScript) when <code>main</code>
+ * method returns or throws, and before <code>System.exit</code> or <code>Runtime.exit</code>, one site per line,
+ * prefixed with {@link #PREFIX}. Other lines are ignored when the profile is read back, so output of the program
+ * may be captured into the same file. Counters are cleared after they are written, and counts of a site written
+ * several times are summed up.</p>
+ */
+public final class ProfileRecorder {
+    public static final String PREFIX = "teavm-profile:";
+    public static final String CALL = "call";
+    public static final String RECEIVER = "receiver";
+    private static Map<String, long[]> calls = new HashMap<>();
+    private static Map<String, Map<String, long[]>> receivers = new HashMap<>();
+
+    private ProfileRecorder() {
+    }
+
+    public static void call(String site) {
+        increment(calls, site);
+    }
+
+    public static void receiver(String site, Object instance) {
+        increment(calls, site);
+        if (instance != null) {
+            Map<String, long[]> siteReceivers = receivers.get(site);
+            if (siteReceivers == null) {
+                siteReceivers = new HashMap<>();
+                receivers.put(site, siteReceivers);
+            }
+            increment(siteReceivers, instance.getClass().getName());
+        }
+    }
+
+    private static void increment(Map<String, long[]> counters, String key) {
+        long[] counter = counters.get(key);
+        if (counter == null) {
+            counter = new long[1];
+            counters.put(key, counter);
+        }
+        counter[0]++;
+    }
+
+    public static void dump() {
+        PrintStream out = System.err;
+        for (Map.Entry<String, long[]> entry : calls.entrySet()) {
+            out.println(PREFIX + "\t" + CALL + "\t" + entry.getKey() + "\t" + entry.getValue()[0]);
+        }
+        for (Map.Entry<String, Map<String, long[]>> siteEntry : receivers.entrySet()) {
+            for (Map.Entry<String, long[]> entry : siteEntry.getValue().entrySet()) {
+                out.println(PREFIX + "\t" + RECEIVER + "\t" + siteEntry.getKey() + "\t" + entry.getKey()
+                        + "\t" + entry.getValue()[0]);
+            }
+        }
+        out.flush();
+        calls.clear();
+        receivers.clear();
+    }
+}
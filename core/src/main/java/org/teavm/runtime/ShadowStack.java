@@ -47,5 +47,7 @@ public final class ShadowStack {
 
     public static native int getExceptionHandlerId();
 
+    public static native int getExceptionHandlerOffset(int callSiteId);
+
     public static native void setExceptionHandlerId(Address stackFrame, int id);
 }
@@ -28,6 +28,9 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.teavm.cache.NoCache;
 import org.teavm.common.ServiceRepository;
@@ -37,6 +40,7 @@ import org.teavm.dependency.DependencyInfo;
 import org.teavm.dependency.DependencyListener;
 import org.teavm.dependency.DependencyPlugin;
 import org.teavm.dependency.Linker;
+import org.teavm.dependency.SynchronizedDependencyInfo;
 import org.teavm.diagnostics.AccumulationDiagnostics;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.diagnostics.ProblemProvider;
@@ -53,11 +57,14 @@ import org.teavm.model.MethodReference;
 import org.teavm.model.MutableClassHolderSource;
 import org.teavm.model.Program;
 import org.teavm.model.ProgramCache;
+import org.teavm.model.TransformedClassCache;
 import org.teavm.model.optimization.ArrayUnwrapMotion;
 import org.teavm.model.optimization.ClassInitElimination;
 import org.teavm.model.optimization.ConstantConditionElimination;
 import org.teavm.model.optimization.Devirtualization;
+import org.teavm.model.optimization.ExecutionProfile;
 import org.teavm.model.optimization.GlobalValueNumbering;
+import org.teavm.model.optimization.GuardedDevirtualization;
 import org.teavm.model.optimization.Inlining;
 import org.teavm.model.optimization.LoopInvariantMotion;
 import org.teavm.model.optimization.MethodOptimization;
@@ -119,16 +126,20 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     private ProgramCache programCache;
     private boolean incremental;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
+    private ExecutionProfile profile;
     private TeaVMProgressListener progressListener;
-    private boolean cancelled;
+    private int optimizationThreads = 1;
+    private volatile boolean cancelled;
     private ListableClassHolderSource writtenClasses;
     private TeaVMTarget target;
     private Map<Class<?>, TeaVMHostExtension> extensions = new HashMap<>();
+    private List<AutoCloseable> dependencyAnalysisResources;
 
     TeaVM(TeaVMBuilder builder) {
         target = builder.target;
         classSource = builder.classSource;
         classLoader = builder.classLoader;
+        dependencyAnalysisResources = new ArrayList<>(builder.dependencyAnalysisResources);
         dependencyAnalyzer = new DependencyAnalyzer(this.classSource, classLoader, this, diagnostics);
         progressListener = new TeaVMProgressListener() {
             @Override public TeaVMProgressFeedback progressReached(int progress) {
@@ -205,6 +216,14 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.programCache = programCache;
     }
 
+    /**
+     * Sets cache of classes transformed by {@link org.teavm.model.CacheableClassHolderTransformer}s, which
+     * allows to skip these transformers for classes that did not change since previous build.
+     */
+    public void setTransformedClassCache(TransformedClassCache transformedClassCache) {
+        dependencyAnalyzer.setTransformedClassCache(transformedClassCache);
+    }
+
     public boolean isIncremental() {
         return incremental;
     }
@@ -221,6 +240,40 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.optimizationLevel = optimizationLevel;
     }
 
+    public ExecutionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Specifies execution profile collected by a program built with
+     * {@link org.teavm.model.transformation.ProfilingTransformer}. Hot call sites get a larger inlining budget.
+     * On targets that support it, hot virtual calls with a dominant receiver class get a guarded direct call.
+     *
+     * @param profile execution profile, {@code null} (default) means no profile-guided optimizations.
+     */
+    public void setProfile(ExecutionProfile profile) {
+        this.profile = profile;
+    }
+
+    public int getOptimizationThreads() {
+        return optimizationThreads;
+    }
+
+    /**
+     * Specifies how many threads TeaVM may use to optimize methods. When greater than one, devirtualization,
+     * inlining and per-method optimizations run concurrently on a fork/join pool of the given size.
+     * Produced code is identical to that of sequential optimization.
+     *
+     * @param optimizationThreads degree of parallelism, {@code 1} (default) means sequential optimization.
+     */
+    public void setOptimizationThreads(int optimizationThreads) {
+        if (optimizationThreads < 1) {
+            throw new IllegalArgumentException("Number of optimization threads must be positive: "
+                    + optimizationThreads);
+        }
+        this.optimizationThreads = optimizationThreads;
+    }
+
     public TeaVMProgressListener getProgressListener() {
         return progressListener;
     }
@@ -360,8 +413,12 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
 
         dependencyAnalyzer.setAsyncSupported(target.isAsyncSupported());
         dependencyAnalyzer.setInterruptor(() -> progressListener.progressReached(0) == TeaVMProgressFeedback.CONTINUE);
-        target.contributeDependencies(dependencyAnalyzer);
-        dependencyAnalyzer.processDependencies();
+        try {
+            target.contributeDependencies(dependencyAnalyzer);
+            dependencyAnalyzer.processDependencies();
+        } finally {
+            closeDependencyAnalysisResources();
+        }
         if (wasCancelled() || !diagnostics.getSevereProblems().isEmpty()) {
             return;
         }
@@ -434,6 +491,17 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         return cutClasses;
     }
 
+    private void closeDependencyAnalysisResources() {
+        for (AutoCloseable resource : dependencyAnalysisResources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                throw new RuntimeException("Error closing resource after dependency analysis", e);
+            }
+        }
+        dependencyAnalysisResources.clear();
+    }
+
     private void reportPhase(TeaVMPhase phase, int progressLimit) {
         if (progressListener.phaseStarted(phase, progressLimit) == TeaVMProgressFeedback.CANCEL) {
             cancelled = true;
@@ -444,12 +512,32 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         if (wasCancelled()) {
             return;
         }
+        if (optimizationThreads > 1) {
+            DependencyInfo synchronizedDependency = new SynchronizedDependencyInfo(dependency);
+            Devirtualization devirtualization = new Devirtualization(synchronizedDependency, classes);
+            GuardedDevirtualization guardedDevirtualization = isGuardedDevirtualizationEnabled()
+                    ? new GuardedDevirtualization(synchronizedDependency, classes, profile)
+                    : null;
+            runConcurrently(getMethodsWithPrograms(classes), method -> {
+                devirtualization.apply(method);
+                if (guardedDevirtualization != null) {
+                    guardedDevirtualization.apply(method);
+                }
+            });
+            return;
+        }
         Devirtualization devirtualization = new Devirtualization(dependency, classes);
+        GuardedDevirtualization guardedDevirtualization = isGuardedDevirtualizationEnabled()
+                ? new GuardedDevirtualization(dependency, classes, profile)
+                : null;
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
             for (final MethodHolder method : cls.getMethods()) {
                 if (method.getProgram() != null) {
                     devirtualization.apply(method);
+                    if (guardedDevirtualization != null) {
+                        guardedDevirtualization.apply(method);
+                    }
                 }
             }
             if (wasCancelled()) {
@@ -458,13 +546,21 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         }
     }
 
+    private boolean isGuardedDevirtualizationEnabled() {
+        return profile != null && target.isGuardedDevirtualizationSupported();
+    }
+
     private void inline(ListableClassHolderSource classes, DependencyInfo dependencyInfo) {
         if (optimizationLevel != TeaVMOptimizationLevel.FULL) {
             return;
         }
+        if (optimizationThreads > 1) {
+            inlineConcurrently(classes, dependencyInfo);
+            return;
+        }
 
         Map<MethodReference, Program> inlinedPrograms = new HashMap<>();
-        Inlining inlining = new Inlining();
+        Inlining inlining = new Inlining(profile);
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
             for (MethodHolder method : cls.getMethods()) {
@@ -491,7 +587,51 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         }
     }
 
+    /*
+     * Inlining reads original programs of callees, so all methods are inlined into copies first,
+     * and the copies replace original programs only after every worker finished. Results are kept
+     * in the class order, and each inlined program depends only on original programs,
+     * so the outcome does not depend on scheduling.
+     */
+    private void inlineConcurrently(ListableClassHolderSource classes, DependencyInfo dependencyInfo) {
+        DependencyInfo synchronizedDependencyInfo = new SynchronizedDependencyInfo(dependencyInfo);
+        List<MethodOptimizationTask> tasks = new ArrayList<>();
+        for (MethodHolder method : getMethodsWithPrograms(classes)) {
+            tasks.add(new MethodOptimizationTask(method, ProgramUtils.copy(method.getProgram())));
+        }
+
+        runConcurrently(tasks, task -> {
+            MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(task.method, classes);
+            new Inlining(profile).apply(task.program, task.method.getReference(), classes, synchronizedDependencyInfo);
+            new UnusedVariableElimination().optimize(context, task.program);
+        });
+        if (wasCancelled()) {
+            return;
+        }
+
+        for (MethodOptimizationTask task : tasks) {
+            task.method.setProgram(task.program);
+        }
+    }
+
+    private List<MethodHolder> getMethodsWithPrograms(ListableClassHolderSource classes) {
+        List<MethodHolder> methods = new ArrayList<>();
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            for (MethodHolder method : cls.getMethods()) {
+                if (method.getProgram() != null) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
     private void optimize(ListableClassHolderSource classSource) {
+        if (optimizationThreads > 1) {
+            optimizeConcurrently(classSource);
+            return;
+        }
         for (String className : classSource.getClassNames()) {
             ClassHolder cls = classSource.get(className);
             for (MethodHolder method : cls.getMethods()) {
@@ -508,42 +648,149 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             return;
         }
 
-        boolean noCache = method.getAnnotations().get(NoCache.class.getName()) != null;
-        Program optimizedProgram = incremental && !noCache && programCache != null
-                ? programCache.get(method.getReference()) : null;
-        MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method, classSource);
+        Program optimizedProgram = getCachedProgram(method);
         if (optimizedProgram == null) {
             optimizedProgram = ProgramUtils.copy(method.getProgram());
             target.beforeOptimizations(optimizedProgram, method, classSource);
 
             if (optimizedProgram.basicBlockCount() > 0) {
-                boolean changed;
-                do {
-                    changed = false;
-                    for (MethodOptimization optimization : getOptimizations()) {
-                        try {
-                            changed |= optimization.optimize(context, optimizedProgram);
-                        } catch (Exception | AssertionError e) {
-                            ListingBuilder listingBuilder = new ListingBuilder();
-                            String listing = listingBuilder.buildListing(optimizedProgram, "");
-                            System.err.println("Error optimizing program for method " + method.getReference()
-                                    + ":\n" + listing);
-                            throw new RuntimeException(e);
-                        }
-                    }
-                } while (changed);
-
+                runOptimizations(method, optimizedProgram, classSource);
                 target.afterOptimizations(optimizedProgram, method, classSource);
-                if (target.requiresRegisterAllocation()) {
-                    RegisterAllocator allocator = new RegisterAllocator();
-                    allocator.allocateRegisters(method, optimizedProgram);
+                allocateRegisters(method, optimizedProgram);
+            }
+            storeCachedProgram(method, optimizedProgram);
+        }
+        method.setProgram(optimizedProgram);
+    }
+
+    /*
+     * Concurrent version of optimization. Only method-local work (optimization fixpoint and register
+     * allocation) runs on the pool. Program cache and target callbacks may keep shared state
+     * (for example, call site numbering in lowlevel targets), so they are called on the current thread
+     * in the same order as in sequential mode, which keeps output identical.
+     */
+    private void optimizeConcurrently(ListableClassHolderSource classSource) {
+        List<MethodOptimizationTask> tasks = new ArrayList<>();
+        for (String className : classSource.getClassNames()) {
+            ClassHolder cls = classSource.get(className);
+            for (MethodHolder method : cls.getMethods()) {
+                if (method.getProgram() == null) {
+                    continue;
                 }
+                Program cachedProgram = getCachedProgram(method);
+                if (cachedProgram != null) {
+                    method.setProgram(cachedProgram);
+                    continue;
+                }
+                Program program = ProgramUtils.copy(method.getProgram());
+                target.beforeOptimizations(program, method, classSource);
+                tasks.add(new MethodOptimizationTask(method, program));
             }
-            if (incremental && programCache != null) {
-                programCache.store(method.getReference(), optimizedProgram);
+            if (wasCancelled()) {
+                return;
             }
         }
-        method.setProgram(optimizedProgram);
+
+        runConcurrently(tasks, task -> {
+            if (task.program.basicBlockCount() > 0) {
+                runOptimizations(task.method, task.program, classSource);
+            }
+        });
+        if (wasCancelled()) {
+            return;
+        }
+
+        for (MethodOptimizationTask task : tasks) {
+            if (task.program.basicBlockCount() > 0) {
+                target.afterOptimizations(task.program, task.method, classSource);
+            }
+        }
+
+        runConcurrently(tasks, task -> {
+            if (task.program.basicBlockCount() > 0) {
+                allocateRegisters(task.method, task.program);
+            }
+        });
+        if (wasCancelled()) {
+            return;
+        }
+
+        for (MethodOptimizationTask task : tasks) {
+            storeCachedProgram(task.method, task.program);
+            task.method.setProgram(task.program);
+        }
+    }
+
+    private <T> void runConcurrently(List<T> items, Consumer<T> action) {
+        ForkJoinPool pool = new ForkJoinPool(optimizationThreads);
+        try {
+            pool.submit(() -> items.parallelStream().forEach(item -> {
+                if (!wasCancelled()) {
+                    action.accept(item);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static class MethodOptimizationTask {
+        final MethodHolder method;
+        final Program program;
+
+        MethodOptimizationTask(MethodHolder method, Program program) {
+            this.method = method;
+            this.program = program;
+        }
+    }
+
+    private Program getCachedProgram(MethodHolder method) {
+        boolean noCache = method.getAnnotations().get(NoCache.class.getName()) != null;
+        return incremental && !noCache && programCache != null ? programCache.get(method.getReference()) : null;
+    }
+
+    private void storeCachedProgram(MethodHolder method, Program program) {
+        if (incremental && programCache != null) {
+            programCache.store(method.getReference(), program);
+        }
+    }
+
+    private void runOptimizations(MethodHolder method, Program program, ListableClassReaderSource classSource) {
+        MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method, classSource);
+        boolean changed;
+        do {
+            changed = false;
+            for (MethodOptimization optimization : getOptimizations()) {
+                try {
+                    changed |= optimization.optimize(context, program);
+                } catch (Exception | AssertionError e) {
+                    ListingBuilder listingBuilder = new ListingBuilder();
+                    String listing = listingBuilder.buildListing(program, "");
+                    System.err.println("Error optimizing program for method " + method.getReference()
+                            + ":\n" + listing);
+                    throw new RuntimeException(e);
+                }
+            }
+        } while (changed);
+    }
+
+    private void allocateRegisters(MethodHolder method, Program program) {
+        if (target.requiresRegisterAllocation()) {
+            RegisterAllocator allocator = new RegisterAllocator();
+            allocator.allocateRegisters(method, program);
+        }
     }
 
     class MethodOptimizationContextImpl implements MethodOptimizationContext {
@@ -15,6 +15,8 @@
  */
 package org.teavm.vm;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.teavm.interop.PlatformMarker;
 import org.teavm.model.ClassHolderSource;
 import org.teavm.parsing.ClasspathClassHolderSource;
@@ -23,6 +25,9 @@ public class TeaVMBuilder {
     TeaVMTarget target;
     ClassHolderSource classSource;
     ClassLoader classLoader;
+    private boolean defaultClassSource = true;
+    private int dependencyAnalysisThreads = 1;
+    List<AutoCloseable> dependencyAnalysisResources = new ArrayList<>();
 
     public TeaVMBuilder(TeaVMTarget target) {
         this.target = target;
@@ -36,6 +41,7 @@ public class TeaVMBuilder {
 
     public TeaVMBuilder setClassSource(ClassHolderSource classSource) {
         this.classSource = classSource;
+        defaultClassSource = false;
         return this;
     }
 
@@ -48,7 +54,41 @@ public class TeaVMBuilder {
         return this;
     }
 
+    public int getDependencyAnalysisThreads() {
+        return dependencyAnalysisThreads;
+    }
+
+    /**
+     * <p>Allows to use several threads during dependency analysis. Propagation of types through the
+     * dependency graph is still performed by a single thread, since dependency plugins and listeners
+     * are not thread-safe, but class files are parsed ahead of time by the rest of threads.</p>
+     *
+     * <p>Only affects default class source. If you supply your own class source via
+     * {@link #setClassSource(ClassHolderSource)}, consider
+     * {@link ClasspathClassHolderSource#ClasspathClassHolderSource(ClassLoader, int)} and pass it to
+     * {@link #addDependencyAnalysisResource(AutoCloseable)}.</p>
+     */
+    public TeaVMBuilder setDependencyAnalysisThreads(int dependencyAnalysisThreads) {
+        this.dependencyAnalysisThreads = dependencyAnalysisThreads;
+        return this;
+    }
+
+    /**
+     * Registers resource that is only needed during dependency analysis, like a class source that parses
+     * classes on its own threads. TeaVM closes such resources as soon as dependency analysis finishes.
+     */
+    public TeaVMBuilder addDependencyAnalysisResource(AutoCloseable resource) {
+        dependencyAnalysisResources.add(resource);
+        return this;
+    }
+
     public TeaVM build() {
+        if (defaultClassSource && dependencyAnalysisThreads > 1 && !isBootstrap()) {
+            ClasspathClassHolderSource classpathClassSource = new ClasspathClassHolderSource(classLoader,
+                    dependencyAnalysisThreads);
+            classSource = classpathClassSource;
+            dependencyAnalysisResources.add(classpathClassSource);
+        }
         return new TeaVM(this);
     }
 
@@ -48,4 +48,6 @@ public interface TeaVMTarget {
     String[] getPlatformTags();
 
     boolean isAsyncSupported();
+
+    boolean isGuardedDevirtualizationSupported();
 }
@@ -0,0 +1,11 @@
+TEAVM_SHARED_DEFINITION void** stackTop;
+
+TEAVM_SHARED_DEFINITION void* gc_gcStorageAddress = NULL;
+TEAVM_SHARED_DEFINITION int32_t gc_gcStorageSize = INT32_C(0);
+TEAVM_SHARED_DEFINITION void* gc_heapAddress = NULL;
+TEAVM_SHARED_DEFINITION void* gc_regionsAddress = NULL;
+TEAVM_SHARED_DEFINITION int32_t gc_regionSize = INT32_C(32768);
+TEAVM_SHARED_DEFINITION int32_t gc_regionMaxCount = INT32_C(0);
+TEAVM_SHARED_DEFINITION int64_t gc_availableBytes = INT64_C(0);
+
+TEAVM_SHARED_DEFINITION char TeaVM_beforeClasses[128] = "TEAVM";
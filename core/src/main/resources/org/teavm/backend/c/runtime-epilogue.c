@@ -8,6 +8,16 @@ static inline void* checkcast(void* obj, int32_t (*cls)(JavaClass*)) {
 
 static int32_t teavm_hashCode(JavaString* string) {
     int32_t hashCode = INT32_C(0);
+#ifdef TEAVM_COMPACT_STRINGS
+    if (string->latin1 != NULL) {
+        int32_t length = string->latin1->size;
+        uint8_t* bytes = ARRAY_DATA(string->latin1, uint8_t);
+        for (int32_t i = INT32_C(0); i < length; ++i) {
+            hashCode = 31 * hashCode + bytes[i];
+        }
+        return hashCode;
+    }
+#endif
     int32_t length = string->characters->size;
     char16_t* chars = ARRAY_DATA(string->characters, char16_t);
     for (int32_t i = INT32_C(0); i < length; ++i) {
@@ -17,6 +27,22 @@ static int32_t teavm_hashCode(JavaString* string) {
 }
 
 static int32_t teavm_equals(JavaString* first, JavaString* second) {
+#ifdef TEAVM_COMPACT_STRINGS
+    if (first->latin1 != NULL || second->latin1 != NULL) {
+        if (first->latin1 == NULL || second->latin1 == NULL || first->latin1->size != second->latin1->size) {
+            return 0;
+        }
+        uint8_t* firstBytes = ARRAY_DATA(first->latin1, uint8_t);
+        uint8_t* secondBytes = ARRAY_DATA(second->latin1, uint8_t);
+        int32_t length = first->latin1->size;
+        for (int32_t i = INT32_C(0); i < length; ++i) {
+            if (firstBytes[i] != secondBytes[i]) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+#endif
     if (first->characters->size != second->characters->size) {
         return 0;
     }
@@ -90,6 +116,25 @@ static char* teavm_stringToC(void* obj) {
     }
 
     JavaString* javaString = (JavaString*) obj;
+#ifdef TEAVM_COMPACT_STRINGS
+    if (javaString->latin1 != NULL) {
+        JavaArray* byteArray = javaString->latin1;
+        uint8_t* javaBytes = ARRAY_DATA(byteArray, uint8_t);
+        char buffer[6];
+        size_t sz = 0;
+        for (int32_t i = 0; i < byteArray->size; ++i) {
+            sz += wctomb(buffer, javaBytes[i]);
+        }
+
+        char* result = malloc(sz + 1);
+        char* dst = result;
+        for (int32_t i = 0; i < byteArray->size; ++i) {
+            dst += wctomb(dst, javaBytes[i]);
+        }
+        *dst = '\0';
+        return result;
+    }
+#endif
     JavaArray* charArray = javaString->characters;
     char16_t* javaChars = ARRAY_DATA(charArray, char16_t);
 
@@ -20,6 +20,14 @@
 #include <Windows.h>
 #endif
 
+#ifdef TEAVM_SPLIT_UNITS
+#define TEAVM_SHARED extern
+#define TEAVM_SHARED_DEFINITION
+#else
+#define TEAVM_SHARED static
+#define TEAVM_SHARED_DEFINITION static
+#endif
+
 struct JavaObject;
 struct JavaArray;
 struct JavaClass;
@@ -30,7 +38,7 @@ typedef struct JavaClass JavaClass;
 typedef struct JavaString JavaString;
 
 #define PACK_CLASS(cls) ((int32_t) ((uintptr_t) ((char*) (cls) - (char*) &TeaVM_beforeClasses) >> 3))
-#define UNPACK_CLASS(cls) ((JavaClass*) ((char*) &TeaVM_beforeClasses + ((cls) << 3)))
+#define UNPACK_CLASS(cls) ((JavaClass*) ((char*) &TeaVM_beforeClasses + ((uint32_t) (cls) << 3)))
 #define CLASS_OF(obj) (UNPACK_CLASS(((JavaObject*) (obj))->header))
 #define AS(ptr, type) ((type*) (ptr))
 
@@ -60,7 +68,7 @@ static inline int32_t compare_double(double a, double b) {
 #define ARRAY_DATA(array, type) ((type*) ALIGN((((JavaArray*) (array)) + 1), sizeof(type)))
 #define ARRAY_AT(array, type, index) (((type*) ARRAY_DATA(array, type))[index])
 
-static void* throwClassCastException();
+TEAVM_SHARED void* throwClassCastException();
 static inline int32_t instanceof(void*, int32_t (*)(JavaClass*));
 static inline void* checkcast(void*, int32_t (*)(JavaClass*));
 
@@ -96,17 +104,33 @@ static inline void* checkcast(void*, int32_t (*)(JavaClass*));
     .hashCode = INT32_C(hash) \
 }
 
-static void** stackTop;
+#define TEAVM_STRING_LATIN1(length, hash, s) { \
+    .latin1 = (JavaArray*) & (struct { JavaArray hdr; unsigned char data[(length) + 1]; }) { \
+        .hdr = { .size = length }, \
+        .data = s \
+    }, \
+    .hashCode = INT32_C(hash) \
+}
+
+#define TEAVM_STRING_LATIN1_FROM_CODES(length, hash, ...) { \
+    .latin1 = (JavaArray*) & (struct { JavaArray hdr; unsigned char data[(length) + 1]; }) { \
+        .hdr = { .size = length }, \
+        .data = { __VA_ARGS__ } \
+    }, \
+    .hashCode = INT32_C(hash) \
+}
+
+TEAVM_SHARED void** stackTop;
 
-static void* gc_gcStorageAddress = NULL;
-static int32_t gc_gcStorageSize = INT32_C(0);
-static void* gc_heapAddress = NULL;
-static void* gc_regionsAddress = NULL;
-static int32_t gc_regionSize = INT32_C(32768);
-static int32_t gc_regionMaxCount = INT32_C(0);
-static int64_t gc_availableBytes = INT64_C(0);
+TEAVM_SHARED void* gc_gcStorageAddress;
+TEAVM_SHARED int32_t gc_gcStorageSize;
+TEAVM_SHARED void* gc_heapAddress;
+TEAVM_SHARED void* gc_regionsAddress;
+TEAVM_SHARED int32_t gc_regionSize;
+TEAVM_SHARED int32_t gc_regionMaxCount;
+TEAVM_SHARED int64_t gc_availableBytes;
 
-static char TeaVM_beforeClasses[128] = "TEAVM";
+TEAVM_SHARED char TeaVM_beforeClasses[128];
 
 static double TeaVM_rand() {
     return rand() / ((double) RAND_MAX + 1);
@@ -133,7 +157,7 @@ typedef struct {
 
 static int32_t teavm_hashCode(JavaString*);
 static int32_t teavm_equals(JavaString*, JavaString*);
-static JavaArray* teavm_allocateStringArray(int32_t size);
+TEAVM_SHARED JavaArray* teavm_allocateStringArray(int32_t size);
 
 static TeaVM_ResourceMapEntry* teavm_lookupResource(TeaVM_ResourceMap *map, JavaString* string) {
     uint32_t hashCode = teavm_hashCode(string);
@@ -502,6 +502,64 @@ function $rt_stringPool(strings) {
 function $rt_s(index) {
     return $rt_stringPool_instance[index];
 }
+var $rt_chunks = {};
+function $rt_registerChunks(files) {
+    var base = "";
+    if (typeof document !== 'undefined' && document.currentScript && document.currentScript.src) {
+        base = document.currentScript.src;
+        base = base.substring(0, base.lastIndexOf('/') + 1);
+    }
+    for (var name in files) {
+        if (files.hasOwnProperty(name)) {
+            $rt_chunks[name] = { url: base + files[name], loaded: false, callbacks: null };
+        }
+    }
+}
+function $rt_chunkLoaded(name) {
+    var chunk = $rt_chunks[name];
+    return !chunk || chunk.loaded;
+}
+function $rt_loadChunk(name, callback) {
+    var chunk = $rt_chunks[name];
+    if (!chunk || chunk.loaded) {
+        callback(true);
+        return;
+    }
+    if (chunk.callbacks !== null) {
+        chunk.callbacks.push(callback);
+        return;
+    }
+    chunk.callbacks = [callback];
+    var complete = function(success) {
+        var callbacks = chunk.callbacks;
+        chunk.callbacks = null;
+        chunk.loaded = success;
+        for (var i = 0; i < callbacks.length; ++i) {
+            callbacks[i](success);
+        }
+    };
+    if (typeof importScripts === 'function') {
+        var success = true;
+        try {
+            importScripts(chunk.url);
+        } catch (e) {
+            success = false;
+        }
+        complete(success);
+    } else if (typeof document !== 'undefined') {
+        var script = document.createElement("script");
+        script.onload = function() {
+            complete(true);
+        };
+        script.onerror = function() {
+            complete(false);
+        };
+        script.src = chunk.url;
+        document.head.appendChild(script);
+    } else {
+        complete(false);
+    }
+}
 function TeaVMThread(runner) {
     this.status = 3;
     this.stack = [];
@@ -40,4 +40,141 @@ inline static int32_t reinterpret_float32(double v) {
 inline static float reinterpret_int32(int32_t v) {
     reinterpret_union_32.i = v;
     return reinterpret_union_32.f;
-}
\ No newline at end of file
+}
+
+static inline int32_t ctz(int32_t v) {
+    return v == 0 ? 32 : __builtin_ctz((uint32_t) v);
+}
+
+typedef union {
+    int8_t i8[16];
+    uint8_t u8[16];
+    int16_t i16[8];
+    uint16_t u16[8];
+    int32_t i32[4];
+    uint32_t u32[4];
+    int64_t i64[2];
+} wasm_v128;
+
+static inline wasm_v128 v128_load(void* address) {
+    wasm_v128 result;
+    memcpy(&result, address, sizeof(result));
+    return result;
+}
+
+static inline wasm_v128 v128_load8x8_u(void* address) {
+    wasm_v128 result;
+    for (int i = 0; i < 8; ++i) {
+        result.i16[i] = ((uint8_t*) address)[i];
+    }
+    return result;
+}
+
+static inline wasm_v128 v128_load16x4_u(void* address) {
+    wasm_v128 result;
+    for (int i = 0; i < 4; ++i) {
+        uint16_t lane;
+        memcpy(&lane, (uint8_t*) address + i * 2, sizeof(lane));
+        result.i32[i] = lane;
+    }
+    return result;
+}
+
+static inline void v128_store(void* address, wasm_v128 value) {
+    memcpy(address, &value, sizeof(value));
+}
+
+static inline wasm_v128 v128_const(int32_t a, int32_t b, int32_t c, int32_t d) {
+    wasm_v128 result;
+    result.i32[0] = a;
+    result.i32[1] = b;
+    result.i32[2] = c;
+    result.i32[3] = d;
+    return result;
+}
+
+#define WASM_V128_SPLAT(name, lanes, field, type) \
+    static inline wasm_v128 name(type value) { \
+        wasm_v128 result; \
+        for (int i = 0; i < lanes; ++i) { \
+            result.field[i] = value; \
+        } \
+        return result; \
+    }
+
+WASM_V128_SPLAT(i8x16_splat, 16, i8, int32_t)
+WASM_V128_SPLAT(i16x8_splat, 8, i16, int32_t)
+WASM_V128_SPLAT(i32x4_splat, 4, i32, int32_t)
+WASM_V128_SPLAT(i64x2_splat, 2, i64, int64_t)
+
+#define WASM_V128_BINARY(name, lanes, field, expr) \
+    static inline wasm_v128 name(wasm_v128 a, wasm_v128 b) { \
+        wasm_v128 result; \
+        for (int i = 0; i < lanes; ++i) { \
+            result.field[i] = expr; \
+        } \
+        return result; \
+    }
+
+#define WASM_V128_INT_BINARY(shape, lanes, field, type) \
+    WASM_V128_BINARY(shape##_eq, lanes, field, a.field[i] == b.field[i] ? -1 : 0) \
+    WASM_V128_BINARY(shape##_ne, lanes, field, a.field[i] != b.field[i] ? -1 : 0) \
+    WASM_V128_BINARY(shape##_add, lanes, field, (type) a.field[i] + (type) b.field[i]) \
+    WASM_V128_BINARY(shape##_sub, lanes, field, (type) a.field[i] - (type) b.field[i]) \
+    WASM_V128_BINARY(shape##_mul, lanes, field, (type) a.field[i] * (type) b.field[i])
+
+WASM_V128_INT_BINARY(i8x16, 16, i8, uint8_t)
+WASM_V128_INT_BINARY(i16x8, 8, i16, uint16_t)
+WASM_V128_INT_BINARY(i32x4, 4, i32, uint32_t)
+WASM_V128_INT_BINARY(i64x2, 2, i64, uint64_t)
+WASM_V128_BINARY(v128_and, 2, i64, a.i64[i] & b.i64[i])
+WASM_V128_BINARY(v128_or, 2, i64, a.i64[i] | b.i64[i])
+WASM_V128_BINARY(v128_xor, 2, i64, a.i64[i] ^ b.i64[i])
+
+static inline int32_t v128_any_true(wasm_v128 value) {
+    return value.i64[0] != 0 || value.i64[1] != 0;
+}
+
+#define WASM_V128_REDUCE(shape, lanes, field) \
+    static inline int32_t shape##_all_true(wasm_v128 value) { \
+        for (int i = 0; i < lanes; ++i) { \
+            if (value.field[i] == 0) { \
+                return 0; \
+            } \
+        } \
+        return 1; \
+    } \
+    static inline int32_t shape##_bitmask(wasm_v128 value) { \
+        int32_t result = 0; \
+        for (int i = 0; i < lanes; ++i) { \
+            if (value.field[i] < 0) { \
+                result |= 1 << i; \
+            } \
+        } \
+        return result; \
+    }
+
+WASM_V128_REDUCE(i8x16, 16, i8)
+WASM_V128_REDUCE(i16x8, 8, i16)
+WASM_V128_REDUCE(i32x4, 4, i32)
+WASM_V128_REDUCE(i64x2, 2, i64)
+
+#define WASM_V128_EXTEND(shape, lanes, field, narrowField) \
+    static inline wasm_v128 shape##_extend_low_u(wasm_v128 value) { \
+        wasm_v128 result; \
+        for (int i = 0; i < lanes; ++i) { \
+            result.field[i] = value.narrowField[i]; \
+        } \
+        return result; \
+    } \
+    static inline wasm_v128 shape##_extend_high_u(wasm_v128 value) { \
+        wasm_v128 result; \
+        for (int i = 0; i < lanes; ++i) { \
+            result.field[i] = value.narrowField[i + lanes]; \
+        } \
+        return result; \
+    }
+
+WASM_V128_EXTEND(i16x8, 8, i16, u8)
+WASM_V128_EXTEND(i32x4, 4, i32, u16)
+WASM_V128_EXTEND(i64x2, 2, i64, u32)
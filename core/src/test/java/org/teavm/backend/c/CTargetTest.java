@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.c;
+
+import org.junit.Test;
+import org.teavm.vm.BuildTarget;
+import org.teavm.vm.TeaVMBuilder;
+
+public class CTargetTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroSliceBudget() {
+        new CTarget().setGCSliceBudget(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeSliceBudget() {
+        new CTarget().setGCSliceBudget(-1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsIncrementalGenerationalGC() {
+        CTarget target = new CTarget();
+        target.setGenerationalGC(true);
+        target.setIncrementalGC(true);
+        new TeaVMBuilder(target).build().build((BuildTarget) null, "test");
+    }
+}
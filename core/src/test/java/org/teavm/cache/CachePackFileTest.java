@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachePackFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesSurviveReopening() throws IOException {
+        File file = new File(folder.getRoot(), "test.teavm-pack");
+        CachePackFile pack = new CachePackFile(file);
+        pack.put("a", bytes("first"));
+        pack.put("b", bytes("second"));
+        pack.flush();
+        pack.put("a", bytes("third"));
+        pack.flush();
+
+        pack = new CachePackFile(file);
+        assertEquals("third", string(pack.get("a")));
+        assertEquals("second", string(pack.get("b")));
+        assertNull(pack.get("c"));
+        assertTrue(pack.getTimestamp("a") > 0);
+    }
+
+    @Test
+    public void compactsGarbage() throws IOException {
+        File file = new File(folder.getRoot(), "test.teavm-pack");
+        byte[] data = new byte[64 * 1024];
+        CachePackFile pack = new CachePackFile(file);
+        for (int i = 0; i < 64; ++i) {
+            data[0] = (byte) i;
+            pack.put("a", data.clone());
+            pack.flush();
+        }
+        assertTrue(file.length() < 40 * data.length);
+
+        pack = new CachePackFile(file);
+        assertEquals(63, pack.get("a").get(0));
+    }
+
+    @Test
+    public void corruptedFileIgnored() throws IOException {
+        File file = new File(folder.getRoot(), "test.teavm-pack");
+        Files.write(file.toPath(), bytes("garbage"));
+
+        CachePackFile pack = new CachePackFile(file);
+        assertFalse(pack.contains("a"));
+        pack.put("a", bytes("value"));
+        pack.flush();
+
+        assertEquals("value", string(new CachePackFile(file).get("a")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return new String(result, StandardCharsets.UTF_8);
+    }
+}
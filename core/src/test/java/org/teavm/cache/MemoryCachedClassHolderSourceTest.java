@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderSource;
+
+public class MemoryCachedClassHolderSourceTest {
+    private Map<String, byte[]> hashes = new HashMap<>();
+    private int parseCount;
+    private ClassHolderSource parser = name -> {
+        parseCount++;
+        return new ClassHolder(name);
+    };
+
+    @Test
+    public void reparsesOnlyChangedClasses() {
+        MemoryCachedClassHolderSource source = new MemoryCachedClassHolderSource();
+        hashes.put("A", new byte[] { 1 });
+        hashes.put("B", new byte[] { 2 });
+
+        source.setUnderlyingSource(parser, hashes::get);
+        ClassHolder a = source.get("A");
+        ClassHolder b = source.get("B");
+        assertSame(a, source.get("A"));
+        assertEquals(2, parseCount);
+
+        hashes.put("B", new byte[] { 3 });
+        source.setUnderlyingSource(parser, hashes::get);
+        assertSame(a, source.get("A"));
+        assertNotSame(b, source.get("B"));
+        assertEquals(3, parseCount);
+        assertEquals(1, source.getParsedClassCount());
+    }
+
+    @Test
+    public void checksClassOncePerBuild() {
+        MemoryCachedClassHolderSource source = new MemoryCachedClassHolderSource();
+        hashes.put("A", new byte[] { 1 });
+        source.setUnderlyingSource(parser, hashes::get);
+        ClassHolder a = source.get("A");
+
+        hashes.put("A", new byte[] { 2 });
+        assertSame(a, source.get("A"));
+        assertEquals(1, parseCount);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.teavm.model.ClassHolder;
+
+public class MemoryTransformedClassCacheTest {
+    private Map<String, byte[]> hashes = new HashMap<>();
+    private MemoryTransformedClassCache cache = new MemoryTransformedClassCache(hashes::get);
+
+    @Test
+    public void invalidatedWhenDependencyChanges() {
+        hashes.put("A", new byte[] { 1 });
+        hashes.put("B", new byte[] { 2 });
+        ClassHolder cls = new ClassHolder("A");
+        cls.setParent("B");
+        cache.store("A", "t", cls, Arrays.asList("B", "C"));
+
+        ClassHolder cached = cache.get("A", "t");
+        assertNotNull(cached);
+        assertNotSame(cls, cached);
+        assertEquals("B", cached.getParent());
+        assertNull(cache.get("A", "u"));
+
+        hashes.put("C", new byte[] { 3 });
+        assertNull(cache.get("A", "t"));
+    }
+
+    @Test
+    public void invalidatedWhenClassChanges() {
+        hashes.put("A", new byte[] { 1 });
+        cache.store("A", "t", new ClassHolder("A"), Collections.emptyList());
+        assertNotNull(cache.get("A", "t"));
+
+        hashes.put("A", new byte[] { 2 });
+        assertNull(cache.get("A", "t"));
+    }
+}
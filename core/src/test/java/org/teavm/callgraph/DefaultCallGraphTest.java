@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.callgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+import org.teavm.model.TextLocation;
+import org.teavm.model.ValueType;
+
+public class DefaultCallGraphTest {
+    @Test
+    public void fieldAccessSiteKeepsFieldAndLocation() {
+        DefaultCallGraph graph = new DefaultCallGraph();
+        DefaultCallGraphNode node = graph.getNode(new MethodReference("A", "foo", ValueType.VOID));
+        FieldReference field = new FieldReference("B", "bar");
+        TextLocation location = new TextLocation("A.java", 10);
+        node.addFieldAccess(field, location);
+
+        assertEquals(1, node.getFieldAccessSites().size());
+        DefaultFieldAccessSite site = node.getFieldAccessSites().iterator().next();
+        assertEquals(field, site.getField());
+        assertEquals(location, site.getLocation());
+        assertSame(node, site.getCallee());
+        assertEquals(1, graph.getFieldAccess(field).size());
+    }
+}
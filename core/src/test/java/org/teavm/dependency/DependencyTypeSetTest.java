@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DependencyTypeSetTest {
+    @Test
+    public void sameSetsAreShared() {
+        DependencyTypeSets sets = new DependencyTypeSets();
+        DependencyTypeSet first = sets.add(sets.add(sets.empty(), 3), 1);
+        DependencyTypeSet second = sets.add(sets.add(sets.empty(), 1), 3);
+
+        assertSame(first, second);
+        assertArrayEquals(new int[] { 1, 3 }, first.toArray());
+    }
+
+    @Test
+    public void batchAdditionEqualsSequentialAddition() {
+        DependencyTypeSets sets = new DependencyTypeSets();
+        DependencyTypeSet sequential = sets.empty();
+        for (int i = 0; i < 5; ++i) {
+            sequential = sets.add(sequential, i * 7);
+        }
+        DependencyTypeSet batch = sets.addAll(sets.empty(), new int[] { 28, 0, 14, 7, 21 }, 5);
+
+        assertSame(sequential, batch);
+    }
+
+    @Test
+    public void largeSet() {
+        DependencyTypeSets sets = new DependencyTypeSets();
+        DependencyTypeSet set = sets.empty();
+        int count = DependencyTypeSet.SMALL_SIZE_THRESHOLD * 3;
+        for (int i = 0; i < count; ++i) {
+            set = sets.add(set, i * 5);
+        }
+
+        assertEquals(count, set.size());
+        for (int i = 0; i < count * 5; ++i) {
+            assertEquals(i % 5 == 0, set.contains(i));
+        }
+        assertFalse(set.contains(count * 5 + 1000));
+
+        int[] indexes = set.toArray();
+        assertEquals(count, indexes.length);
+        for (int i = 0; i < count; ++i) {
+            assertEquals(i * 5, indexes[i]);
+        }
+
+        DependencyTypeSet sameSet = sets.addAll(sets.empty(), indexes, indexes.length);
+        assertSame(set, sameSet);
+    }
+
+    @Test
+    public void addingToLargeSetKeepsOriginal() {
+        DependencyTypeSets sets = new DependencyTypeSets();
+        DependencyTypeSet set = sets.empty();
+        for (int i = 0; i < DependencyTypeSet.SMALL_SIZE_THRESHOLD * 2; ++i) {
+            set = sets.add(set, i * 100);
+        }
+
+        DependencyTypeSet extended = sets.addAll(set, new int[] { 1, 5001, 70000 }, 3);
+        assertEquals(set.size() + 3, extended.size());
+        assertTrue(extended.contains(1));
+        assertTrue(extended.contains(5001));
+        assertTrue(extended.contains(70000));
+        assertFalse(set.contains(1));
+        assertFalse(set.contains(5001));
+        assertFalse(set.contains(70000));
+
+        DependencyTypeSet rebuilt = sets.addAll(sets.empty(), extended.toArray(), extended.size());
+        assertSame(extended, rebuilt);
+    }
+
+    @Test
+    public void iteratesInAscendingOrder() {
+        DependencyTypeSets sets = new DependencyTypeSets();
+        int[] indexes = new int[DependencyTypeSet.SMALL_SIZE_THRESHOLD + 8];
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = (indexes.length - i) * 1031;
+        }
+        DependencyTypeSet set = sets.addAll(sets.empty(), indexes, indexes.length);
+
+        int count = 0;
+        int previous = -1;
+        for (int index = set.next(0); index >= 0; index = set.next(index + 1)) {
+            assertTrue(index > previous);
+            assertTrue(set.contains(index));
+            previous = index;
+            ++count;
+        }
+        assertEquals(indexes.length, count);
+        assertEquals(-1, set.next(previous + 1));
+    }
+
+    @Test
+    public void setsAreNotSharedBetweenTables() {
+        DependencyTypeSets first = new DependencyTypeSets();
+        DependencyTypeSets second = new DependencyTypeSets();
+
+        assertNotSame(first.empty(), second.empty());
+        assertNotSame(first.add(first.empty(), 1), second.add(second.empty(), 1));
+    }
+
+    @Test
+    public void emptySet() {
+        DependencyTypeSets sets = new DependencyTypeSets();
+        assertTrue(sets.empty().isEmpty());
+        assertFalse(sets.empty().contains(0));
+        assertEquals(0, sets.empty().toArray().length);
+    }
+}
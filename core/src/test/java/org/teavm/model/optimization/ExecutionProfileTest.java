@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+
+public class ExecutionProfileTest {
+    private static final String SITE = ExecutionProfile.siteKey(new TextLocation("A.java", 10),
+            new MethodDescriptor("foo", int.class), 0);
+
+    @Test
+    public void countsSummedAcrossRuns() throws IOException {
+        ExecutionProfile profile = read(
+                "program output\n"
+                + "teavm-profile:\tcall\t" + SITE + "\t1500\n"
+                + "teavm-profile:\tcall\tA.java:11:0:bar()V\t3\n"
+                + "teavm-profile:\treceiver\t" + SITE + "\tB\t1400\n"
+                + "teavm-profile:\treceiver\t" + SITE + "\tC\t100\n"
+                + "[INFO] teavm-profile:\tcall\t" + SITE + "\t500\n");
+
+        assertEquals(2000, profile.getCallCount(SITE));
+        assertTrue(profile.isHot(SITE));
+        assertFalse(profile.isHot("A.java:11:0:bar()V"));
+        assertEquals("B", profile.getDominantReceiver(SITE));
+    }
+
+    @Test
+    public void diverseReceiversHaveNoDominant() throws IOException {
+        ExecutionProfile profile = read(
+                "teavm-profile:\treceiver\t" + SITE + "\tB\t600\n"
+                + "teavm-profile:\treceiver\t" + SITE + "\tC\t400\n");
+
+        assertNull(profile.getDominantReceiver(SITE));
+        assertNull(profile.getDominantReceiver("A.java:11:0:bar()V"));
+    }
+
+    @Test
+    public void sitesWithoutLocationIgnored() {
+        assertNull(ExecutionProfile.siteKey(null, new MethodDescriptor("foo", int.class), 0));
+        assertEquals("A.java:10:0:foo()I", SITE);
+    }
+
+    @Test
+    public void callsOnSameLineToldApartByOrder() {
+        Program program = new Program();
+        BasicBlock block = program.createBasicBlock();
+        TextLocation location = new TextLocation("A.java", 10);
+        InvokeInstruction first = invoke(location, new MethodReference("A", "foo", ValueType.INTEGER));
+        InvokeInstruction other = invoke(location, new MethodReference("A", "bar", ValueType.VOID));
+        InvokeInstruction second = invoke(location, new MethodReference("B", "foo", ValueType.INTEGER));
+        InvokeInstruction nextLine = invoke(new TextLocation("A.java", 11),
+                new MethodReference("A", "foo", ValueType.INTEGER));
+        block.add(first);
+        block.add(other);
+        block.add(second);
+        block.add(nextLine);
+
+        Map<InvokeInstruction, String> sites = ExecutionProfile.siteKeys(block);
+        assertEquals(SITE, sites.get(first));
+        assertEquals("A.java:10:0:bar()V", sites.get(other));
+        assertEquals("A.java:10:1:foo()I", sites.get(second));
+        assertEquals("A.java:11:0:foo()I", sites.get(nextLine));
+    }
+
+    private static InvokeInstruction invoke(TextLocation location, MethodReference method) {
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.SPECIAL);
+        invoke.setMethod(method);
+        invoke.setLocation(location);
+        return invoke;
+    }
+
+    private static ExecutionProfile read(String text) throws IOException {
+        return ExecutionProfile.read(new StringReader(text));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Collections;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.teavm.interop.SplitPoint;
+import org.teavm.model.AnnotationHolder;
+import org.teavm.model.AnnotationValue;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.optimization.Inlining;
+
+public class InliningTest {
+    private static final MethodReference CALLER = new MethodReference("A", "caller", ValueType.VOID);
+    private static final MethodReference CALLEE = new MethodReference("A", "callee", ValueType.VOID);
+
+    @Test
+    public void inlinesSmallMethod() {
+        assertTrue(inline(callee -> { }));
+    }
+
+    @Test
+    public void synchronizedMethodNotInlined() {
+        // Monitor of synchronized method is only added when method is rendered, so inlining would drop it
+        assertFalse(inline(callee -> callee.getModifiers().add(ElementModifier.SYNCHRONIZED)));
+    }
+
+    @Test
+    public void splitPointNotInlined() {
+        // Classes used by body of split point go to its chunk, so body must not end up in code of main file
+        assertFalse(inline(callee -> {
+            AnnotationHolder annot = new AnnotationHolder(SplitPoint.class.getName());
+            annot.getValues().put("value", new AnnotationValue("chunk"));
+            callee.getAnnotations().add(annot);
+        }));
+    }
+
+    private boolean inline(Consumer<MethodHolder> calleeSetup) {
+        MutableClassHolderSource classSource = new MutableClassHolderSource();
+        ClassHolder cls = new ClassHolder("A");
+        cls.setParent("java.lang.Object");
+        MethodHolder caller = new MethodHolder(CALLER.getDescriptor());
+        caller.getModifiers().add(ElementModifier.STATIC);
+        cls.addMethod(caller);
+        MethodHolder callee = new MethodHolder(CALLEE.getDescriptor());
+        callee.getModifiers().add(ElementModifier.STATIC);
+        calleeSetup.accept(callee);
+        callee.setProgram(createCallee());
+        cls.addMethod(callee);
+        classSource.putClassHolder(cls);
+
+        Program program = createCaller();
+        new Inlining().apply(program, CALLER, classSource,
+                new ProfileGuidedOptimizationTest.TestDependencyInfo(classSource, Collections.emptyMap()));
+        for (BasicBlock block : program.getBasicBlocks()) {
+            for (Instruction instruction : block) {
+                if (instruction instanceof InvokeInstruction
+                        && ((InvokeInstruction) instruction).getMethod().equals(CALLEE)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Program createCaller() {
+        Program program = new Program();
+        BasicBlock block = program.createBasicBlock();
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.SPECIAL);
+        invoke.setMethod(CALLEE);
+        block.add(invoke);
+        block.add(new ExitInstruction());
+        return program;
+    }
+
+    private static Program createCallee() {
+        Program program = new Program();
+        BasicBlock block = program.createBasicBlock();
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setReceiver(program.createVariable());
+        constant.setConstant(1);
+        block.add(constant);
+        block.add(new ExitInstruction());
+        return program;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.dependency.ClassDependencyInfo;
+import org.teavm.dependency.DependencyInfo;
+import org.teavm.dependency.FieldDependencyInfo;
+import org.teavm.dependency.MethodDependencyInfo;
+import org.teavm.dependency.ValueDependencyInfo;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.ListingParseUtils;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.optimization.ExecutionProfile;
+import org.teavm.model.optimization.GuardedDevirtualization;
+import org.teavm.model.optimization.Inlining;
+import org.teavm.model.text.ListingBuilder;
+import org.teavm.model.util.ProgramUtils;
+
+public class ProfileGuidedOptimizationTest {
+    private static final String PREFIX = "model/optimization/guarded-devirtualization/";
+    private static final String FIRST_SITE = "A.java:10:0:foo()I";
+    private static final String SECOND_SITE = "A.java:10:1:foo()I";
+    private static final MethodReference CALLER = new MethodReference("A", "caller", ValueType.INTEGER);
+    private static final MethodReference CALLEE = new MethodReference("A", "callee", ValueType.VOID);
+    @Rule
+    public TestName name = new TestName();
+    private MutableClassHolderSource classSource = new MutableClassHolderSource();
+
+    @Test
+    public void guarded() throws IOException {
+        addClass("A", "java.lang.Object");
+        addClass("B", "A");
+        addClass("C", "A");
+        ExecutionProfile profile = profile(
+                "call\t" + FIRST_SITE + "\t10",
+                "call\t" + SECOND_SITE + "\t5000",
+                "receiver\t" + SECOND_SITE + "\tB\t4900",
+                "receiver\t" + SECOND_SITE + "\tC\t100");
+
+        doGuardTest(profile, "B", "C");
+    }
+
+    @Test
+    public void overriddenInSubclass() throws IOException {
+        addClass("A", "java.lang.Object");
+        addClass("B", "A");
+        addClass("D", "B");
+        ExecutionProfile profile = profile(
+                "call\t" + FIRST_SITE + "\t5000",
+                "receiver\t" + FIRST_SITE + "\tB\t5000");
+
+        doGuardTest(profile, "B", "D");
+    }
+
+    @Test
+    public void hotCallSiteInlinedWithHigherThreshold() throws IOException {
+        Program callee = new Program();
+        callee.createVariable();
+        BasicBlock block = callee.createBasicBlock();
+        for (int i = 0; i < 40; ++i) {
+            block.add(constant(callee.createVariable(), i));
+        }
+        block.add(new ExitInstruction());
+
+        assertFalse(inline(callee, null));
+        assertTrue(inline(callee, profile("call\tA.java:10:0:callee()V\t5000")));
+    }
+
+    private boolean inline(Program callee, ExecutionProfile profile) {
+        classSource = new MutableClassHolderSource();
+        ClassHolder cls = addClass("A", "java.lang.Object");
+        MethodHolder calleeMethod = cls.getMethod(CALLEE.getDescriptor());
+        calleeMethod.setProgram(ProgramUtils.copy(callee));
+
+        Program program = ListingParseUtils.parseFromResource(PREFIX + "hotCallSite.original.txt");
+        new Inlining(profile).apply(program, CALLER, classSource, new TestDependencyInfo(classSource,
+                Collections.emptyMap()));
+        for (BasicBlock block : program.getBasicBlocks()) {
+            for (Instruction instruction : block) {
+                if (instruction instanceof InvokeInstruction
+                        && ((InvokeInstruction) instruction).getMethod().equals(CALLEE)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void doGuardTest(ExecutionProfile profile, String... receiverTypes) {
+        String originalPath = PREFIX + name.getMethodName() + ".original.txt";
+        String expectedPath = PREFIX + name.getMethodName() + ".expected.txt";
+        Program original = ListingParseUtils.parseFromResource(originalPath);
+        Program expected = ListingParseUtils.parseFromResource(expectedPath);
+
+        MethodHolder method = classSource.get("A").getMethod(CALLER.getDescriptor());
+        method.setProgram(original);
+        Map<Integer, String[]> variableTypes = new HashMap<>();
+        variableTypes.put(0, receiverTypes);
+        new GuardedDevirtualization(new TestDependencyInfo(classSource, variableTypes), classSource, profile)
+                .apply(method);
+
+        String originalText = new ListingBuilder().buildListing(original, "");
+        String expectedText = new ListingBuilder().buildListing(expected, "");
+        assertEquals(expectedText, originalText);
+    }
+
+    private ClassHolder addClass(String name, String parent) {
+        ClassHolder cls = new ClassHolder(name);
+        cls.setParent(parent);
+        MethodHolder foo = new MethodHolder("foo", ValueType.INTEGER);
+        cls.addMethod(foo);
+        if (name.equals("A")) {
+            cls.addMethod(new MethodHolder(CALLER.getDescriptor()));
+            MethodHolder callee = new MethodHolder(CALLEE.getDescriptor());
+            callee.getModifiers().add(ElementModifier.STATIC);
+            cls.addMethod(callee);
+        }
+        classSource.putClassHolder(cls);
+        return cls;
+    }
+
+    private static ExecutionProfile profile(String... lines) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append("teavm-profile:\t").append(line).append('\n');
+        }
+        return ExecutionProfile.read(new StringReader(sb.toString()));
+    }
+
+    private static Instruction constant(Variable receiver, int value) {
+        IntegerConstantInstruction insn = new IntegerConstantInstruction();
+        insn.setReceiver(receiver);
+        insn.setConstant(value);
+        return insn;
+    }
+
+    static class TestDependencyInfo implements DependencyInfo {
+        private ClassReaderSource classSource;
+        private Map<Integer, String[]> variableTypes;
+
+        TestDependencyInfo(ClassReaderSource classSource, Map<Integer, String[]> variableTypes) {
+            this.classSource = classSource;
+            this.variableTypes = variableTypes;
+        }
+
+        @Override
+        public ClassReaderSource getClassSource() {
+            return classSource;
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return ProfileGuidedOptimizationTest.class.getClassLoader();
+        }
+
+        @Override
+        public Collection<MethodReference> getReachableMethods() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<FieldReference> getReachableFields() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<String> getReachableClasses() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public FieldDependencyInfo getField(FieldReference fieldRef) {
+            return null;
+        }
+
+        @Override
+        public MethodDependencyInfo getMethod(MethodReference methodRef) {
+            MethodReader method = classSource.resolve(methodRef);
+            return method != null ? new TestMethodDependencyInfo(method, variableTypes) : null;
+        }
+
+        @Override
+        public MethodDependencyInfo getMethodImplementation(MethodReference methodRef) {
+            MethodReader method = classSource.resolveImplementation(methodRef);
+            return method != null ? new TestMethodDependencyInfo(method, variableTypes) : null;
+        }
+
+        @Override
+        public ClassDependencyInfo getClass(String className) {
+            return null;
+        }
+
+        @Override
+        public CallGraph getCallGraph() {
+            return null;
+        }
+
+        @Override
+        public Collection<MethodReference> getSpeculativeCallees(MethodReference caller) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<MethodReference> getRootMethods() {
+            return Collections.emptyList();
+        }
+    }
+
+    static class TestMethodDependencyInfo implements MethodDependencyInfo {
+        private MethodReader method;
+        private Map<Integer, String[]> variableTypes;
+
+        TestMethodDependencyInfo(MethodReader method, Map<Integer, String[]> variableTypes) {
+            this.method = method;
+            this.variableTypes = variableTypes;
+        }
+
+        @Override
+        public ValueDependencyInfo[] getVariables() {
+            return new ValueDependencyInfo[0];
+        }
+
+        @Override
+        public int getVariableCount() {
+            return 0;
+        }
+
+        @Override
+        public ValueDependencyInfo getVariable(int index) {
+            return new TestValueDependencyInfo(variableTypes.getOrDefault(index, new String[0]));
+        }
+
+        @Override
+        public int getParameterCount() {
+            return method.parameterCount();
+        }
+
+        @Override
+        public ValueDependencyInfo getResult() {
+            return new TestValueDependencyInfo(new String[0]);
+        }
+
+        @Override
+        public ValueDependencyInfo getThrown() {
+            return new TestValueDependencyInfo(new String[0]);
+        }
+
+        @Override
+        public MethodReference getReference() {
+            return method.getReference();
+        }
+
+        @Override
+        public boolean isUsed() {
+            return true;
+        }
+
+        @Override
+        public boolean isMissing() {
+            return false;
+        }
+    }
+
+    static class TestValueDependencyInfo implements ValueDependencyInfo {
+        private String[] types;
+
+        TestValueDependencyInfo(String[] types) {
+            this.types = types;
+        }
+
+        @Override
+        public String[] getTypes() {
+            return types.clone();
+        }
+
+        @Override
+        public boolean hasType(String type) {
+            return Arrays.asList(types).contains(type);
+        }
+
+        @Override
+        public boolean hasArrayType() {
+            return false;
+        }
+
+        @Override
+        public ValueDependencyInfo getArrayItem() {
+            return null;
+        }
+
+        @Override
+        public ValueDependencyInfo getClassValueNode() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.transformation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.RaiseInstruction;
+import org.teavm.runtime.ProfileRecorder;
+
+public class ProfilingTransformerTest {
+    private static final MethodReference DUMP = new MethodReference(ProfileRecorder.class, "dump", void.class);
+    private static final MethodReference EXIT = new MethodReference(Runtime.class, "exit", int.class, void.class);
+
+    @Test
+    public void countersWrittenWhenMainThrows() {
+        Program program = new Program();
+        program.createVariable();
+        BasicBlock first = program.createBasicBlock();
+        BasicBlock second = program.createBasicBlock();
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(second);
+        first.add(jump);
+        second.add(new ExitInstruction());
+
+        transform(program);
+
+        BasicBlock handler = program.basicBlockAt(2);
+        for (BasicBlock block : new BasicBlock[] { first, second }) {
+            assertEquals(1, block.getTryCatchBlocks().size());
+            TryCatchBlock tryCatch = block.getTryCatchBlocks().get(0);
+            assertNull(tryCatch.getExceptionType());
+            assertSame(handler, tryCatch.getHandler());
+        }
+
+        assertTrue(isDump(handler.getFirstInstruction()));
+        Instruction rethrow = handler.getLastInstruction();
+        assertTrue(rethrow instanceof RaiseInstruction);
+        assertSame(handler.getExceptionVariable(), ((RaiseInstruction) rethrow).getException());
+        assertTrue(isDump(second.getLastInstruction().getPrevious()));
+    }
+
+    @Test
+    public void countersWrittenBeforeExit() {
+        Program program = new Program();
+        program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        IntegerConstantInstruction status = new IntegerConstantInstruction();
+        status.setReceiver(program.createVariable());
+        block.add(status);
+        InvokeInstruction exit = new InvokeInstruction();
+        exit.setType(InvocationType.SPECIAL);
+        exit.setMethod(EXIT);
+        exit.setInstance(program.createVariable());
+        exit.getArguments().add(status.getReceiver());
+        exit.setLocation(new TextLocation("Main.java", 5));
+        block.add(exit);
+        block.add(new ExitInstruction());
+
+        transform(program);
+
+        assertTrue(isDump(exit.getPrevious()));
+    }
+
+    private static void transform(Program program) {
+        ClassHolder cls = new ClassHolder("Main");
+        MethodHolder main = new MethodHolder("main", ValueType.arrayOf(ValueType.object("java.lang.String")),
+                ValueType.VOID);
+        main.getModifiers().add(ElementModifier.STATIC);
+        main.setProgram(program);
+        cls.addMethod(main);
+        new ProfilingTransformer().transformClass(cls, null, null);
+    }
+
+    private static boolean isDump(Instruction instruction) {
+        return instruction instanceof InvokeInstruction && ((InvokeInstruction) instruction).getMethod().equals(DUMP);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+import org.teavm.model.ClassHolder;
+
+public class PrefetchingClassHolderSourceTest {
+    @Test
+    public void parsesOnCallingThreadAfterClose() {
+        Set<Thread> parsingThreads = ConcurrentHashMap.newKeySet();
+        PrefetchingClassHolderSource source = new PrefetchingClassHolderSource(() -> name -> {
+            parsingThreads.add(Thread.currentThread());
+            ClassHolder cls = new ClassHolder(name);
+            if (name.equals("A")) {
+                cls.setParent("B");
+            }
+            return cls;
+        }, 4);
+        source.close();
+
+        assertNotNull(source.get("A"));
+        assertNotNull(source.get("B"));
+        assertEquals(Collections.singleton(Thread.currentThread()), parsingThreads);
+    }
+}
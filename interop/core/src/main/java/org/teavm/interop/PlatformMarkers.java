@@ -23,4 +23,8 @@ public final class PlatformMarkers {
     public static final String WEBASSEMBLY = "webassembly";
     public static final String C = "c";
     public static final String LOW_LEVEL = "low_level";
+    public static final String COMPACT_STRINGS = "compact_strings";
+    public static final String NATIVE_STRINGS = "native_strings";
+    public static final String SIMD = "simd";
+    public static final String BULK_MEMORY = "bulk_memory";
 }
@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.interop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks method as an entry to a lazily loaded part of application. In JavaScript, classes that are
+ * used only by code reachable through split points with the given name are emitted to a separate file
+ * (chunk), which is downloaded on the first call to any of these split points.</p>
+ *
+ * <p>Split point method becomes asynchronous, since it waits for its chunk to load. Other backends
+ * ignore this annotation, except that split points are never inlined.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SplitPoint {
+    /**
+     * Name of the chunk, which is also a part of chunk's file name. Should consist of letters, digits,
+     * <code>-</code> and <code>_</code>.
+     */
+    String value();
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.platform;
+
+import org.teavm.interop.Async;
+import org.teavm.interop.SplitPoint;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.platform.async.AsyncCallback;
+
+/**
+ * Loads JavaScript chunks produced for methods marked with {@link SplitPoint}. Compiler inserts call to
+ * {@link #load(String)} at the beginning of every such method.
+ */
+public final class ChunkLoader {
+    private ChunkLoader() {
+    }
+
+    public static void load(String name) {
+        if (!isLoaded(name) && !loadChunk(name)) {
+            throw new NoClassDefFoundError("Could not load JavaScript chunk " + name);
+        }
+    }
+
+    @JSBody(params = "name", script = "return $rt_chunkLoaded(name);")
+    private static native boolean isLoaded(String name);
+
+    @Async
+    private static native Boolean loadChunk(String name);
+
+    private static void loadChunk(String name, AsyncCallback<Boolean> callback) {
+        requestChunk(name, success -> callback.complete(success));
+    }
+
+    @JSBody(params = { "name", "callback" }, script = "$rt_loadChunk(name, callback);")
+    private static native void requestChunk(String name, LoadCallback callback);
+
+    @JSFunctor
+    interface LoadCallback extends JSObject {
+        void loaded(boolean success);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.platform.async;
+
+import org.teavm.platform.PlatformRunnable;
+
+/**
+ * Timer registered in {@link Scheduler} by {@link Scheduler#schedule(PlatformRunnable, int, long)}.
+ */
+public final class ScheduledTask {
+    static final int PENDING = 0;
+    static final int FIRED = 1;
+    static final int CANCELLED = 2;
+
+    final PlatformRunnable runnable;
+    final int priority;
+    int expirySlot;
+    int state;
+    ScheduledTask next;
+
+    ScheduledTask(PlatformRunnable runnable, int priority) {
+        this.runnable = runnable;
+        this.priority = priority;
+    }
+
+    /**
+     * Removes this timer from scheduler. Has no effect when the timer has already fired.
+     *
+     * @return {@code true} if the timer was pending and won't fire.
+     */
+    public boolean cancel() {
+        return Scheduler.cancel(this);
+    }
+
+    public boolean isPending() {
+        return state == PENDING;
+    }
+}
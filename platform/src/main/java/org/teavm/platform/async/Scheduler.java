@@ -0,0 +1,317 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.platform.async;
+
+import org.teavm.jso.JSBody;
+import org.teavm.platform.Platform;
+import org.teavm.platform.PlatformRunnable;
+
+/**
+ * <p>Cooperative scheduler of green threads for JavaScript. Tasks that resume threads are put in run queues,
+ * one queue per priority. Queued tasks are resumed in batches, within one event loop turn (tick), highest
+ * priority first, until the queues are empty or the tick runs out of its time budget. A queue that was not
+ * served for several ticks in a row gets one task resumed at the beginning of the next tick,
+ * so low priority threads don't starve.</p>
+ *
+ * <p>Timers are kept in a hashed timer wheel, and only one JavaScript timer is active at a time, set to the
+ * earliest expiration time. Timers that expire together are resumed within one tick.</p>
+ */
+public final class Scheduler {
+    public static final int MIN_PRIORITY = 1;
+    public static final int NORM_PRIORITY = 5;
+    public static final int MAX_PRIORITY = 10;
+    private static final int PRIORITY_COUNT = MAX_PRIORITY - MIN_PRIORITY + 1;
+    private static final double TICK_BUDGET = 8;
+    private static final double TIME_SLICE = 20;
+    private static final int STARVATION_LIMIT = 4;
+    private static final int WHEEL_SIZE = 256;
+    private static final double WHEEL_RESOLUTION = 4;
+
+    private static final Task[] queueHeads = new Task[PRIORITY_COUNT];
+    private static final Task[] queueTails = new Task[PRIORITY_COUNT];
+    private static final int[] queueSizes = new int[PRIORITY_COUNT];
+    private static final int[] skippedTicks = new int[PRIORITY_COUNT];
+    private static final int[] servedTicks = new int[PRIORITY_COUNT];
+    private static int queuedCount;
+    private static boolean tickScheduled;
+    private static boolean inTick;
+
+    private static final ScheduledTask[] wheel = new ScheduledTask[WHEEL_SIZE];
+    private static final double origin = currentTime();
+    private static int wheelSlot;
+    private static int armedSlot = Integer.MAX_VALUE;
+    private static int armedTimerId = -1;
+
+    private static final SchedulerStatistics statistics = new SchedulerStatistics();
+
+    private Scheduler() {
+    }
+
+    /**
+     * Puts task to the run queue of the given priority. The task will run in one of the following ticks.
+     */
+    public static void enqueue(PlatformRunnable runnable, int priority) {
+        push(runnable, priority);
+        requestTick();
+    }
+
+    private static void push(PlatformRunnable runnable, int priority) {
+        int index = priorityIndex(priority);
+        Task task = new Task(runnable);
+        if (queueTails[index] == null) {
+            queueHeads[index] = task;
+        } else {
+            queueTails[index].next = task;
+        }
+        queueTails[index] = task;
+        queueSizes[index]++;
+        queuedCount++;
+    }
+
+    /**
+     * Puts task to the run queue of the given priority after the given delay.
+     *
+     * @param delay delay in milliseconds. Actual delay is rounded up to the resolution of the timer wheel.
+     */
+    public static ScheduledTask schedule(PlatformRunnable runnable, int priority, long delay) {
+        ScheduledTask timer = new ScheduledTask(runnable, priority);
+        statistics.timersScheduled++;
+        if (delay <= 0) {
+            timer.state = ScheduledTask.FIRED;
+            statistics.timersFired++;
+            enqueue(runnable, priority);
+            return timer;
+        }
+
+        double now = currentTime();
+        if (statistics.pendingTimers == 0) {
+            wheelSlot = slotAt(now);
+        }
+        double expiryTime = now - origin + (delay < Integer.MAX_VALUE ? (int) delay : Integer.MAX_VALUE);
+        int slot = (int) Math.ceil(expiryTime / WHEEL_RESOLUTION);
+        if (slot <= wheelSlot) {
+            slot = wheelSlot + 1;
+        }
+        timer.expirySlot = slot;
+        int bucket = slot % WHEEL_SIZE;
+        timer.next = wheel[bucket];
+        wheel[bucket] = timer;
+        statistics.pendingTimers++;
+
+        if (slot < armedSlot) {
+            arm(slot, now);
+        }
+        return timer;
+    }
+
+    static boolean cancel(ScheduledTask timer) {
+        if (timer.state != ScheduledTask.PENDING) {
+            return false;
+        }
+        timer.state = ScheduledTask.CANCELLED;
+        statistics.pendingTimers--;
+        statistics.timersCancelled++;
+        return true;
+    }
+
+    /**
+     * Tells whether a thread of the given priority that runs since {@code sliceStart} should give way
+     * to other threads, i.e. whether a thread of higher priority is waiting or the time slice is over.
+     *
+     * @param sliceStart time when the thread was resumed, as reported by {@link #currentTime()}.
+     */
+    public static boolean shouldYield(int priority, double sliceStart) {
+        for (int i = priorityIndex(priority) + 1; i < PRIORITY_COUNT; ++i) {
+            if (queueHeads[i] != null) {
+                return true;
+            }
+        }
+        return currentTime() - sliceStart >= TIME_SLICE;
+    }
+
+    public static SchedulerStatistics getStatistics() {
+        SchedulerStatistics result = new SchedulerStatistics();
+        result.ticks = statistics.ticks;
+        result.tasksRun = statistics.tasksRun;
+        result.maxBatchSize = statistics.maxBatchSize;
+        result.starvationPromotions = statistics.starvationPromotions;
+        result.timersScheduled = statistics.timersScheduled;
+        result.timersFired = statistics.timersFired;
+        result.timersCancelled = statistics.timersCancelled;
+        result.pendingTimers = statistics.pendingTimers;
+        result.queuedTasks = queueSizes.clone();
+        result.totalTickTime = statistics.totalTickTime;
+        result.maxTickTime = statistics.maxTickTime;
+        return result;
+    }
+
+    @JSBody(script = "return Date.now();")
+    public static native double currentTime();
+
+    static int priorityIndex(int priority) {
+        if (priority < MIN_PRIORITY) {
+            return 0;
+        } else if (priority > MAX_PRIORITY) {
+            return PRIORITY_COUNT - 1;
+        }
+        return priority - MIN_PRIORITY;
+    }
+
+    private static void requestTick() {
+        if (!inTick && !tickScheduled) {
+            tickScheduled = true;
+            Platform.postpone(Scheduler::runTick);
+        }
+    }
+
+    private static void runTick() {
+        tickScheduled = false;
+        if (queuedCount == 0 || inTick) {
+            return;
+        }
+        inTick = true;
+        double start = currentTime();
+        int tick = ++statistics.ticks;
+        int batchSize = 0;
+        try {
+            for (int i = 0; i < PRIORITY_COUNT; ++i) {
+                if (skippedTicks[i] >= STARVATION_LIMIT && queueHeads[i] != null) {
+                    statistics.starvationPromotions++;
+                    batchSize++;
+                    runNext(i, tick);
+                }
+            }
+            while (queuedCount > 0 && (batchSize == 0 || currentTime() - start < TICK_BUDGET)) {
+                batchSize++;
+                runNext(highestQueue(), tick);
+            }
+        } finally {
+            inTick = false;
+            for (int i = 0; i < PRIORITY_COUNT; ++i) {
+                skippedTicks[i] = servedTicks[i] == tick || queueHeads[i] == null ? 0 : skippedTicks[i] + 1;
+            }
+            double time = currentTime() - start;
+            statistics.maxBatchSize = Math.max(statistics.maxBatchSize, batchSize);
+            statistics.totalTickTime += time;
+            statistics.maxTickTime = Math.max(statistics.maxTickTime, time);
+            if (queuedCount > 0) {
+                requestTick();
+            }
+        }
+    }
+
+    private static int highestQueue() {
+        int index = PRIORITY_COUNT - 1;
+        while (queueHeads[index] == null) {
+            --index;
+        }
+        return index;
+    }
+
+    private static void runNext(int index, int tick) {
+        Task task = queueHeads[index];
+        queueHeads[index] = task.next;
+        if (task.next == null) {
+            queueTails[index] = null;
+        }
+        queueSizes[index]--;
+        queuedCount--;
+        servedTicks[index] = tick;
+        statistics.tasksRun++;
+        task.runnable.run();
+    }
+
+    private static int slotAt(double time) {
+        return (int) ((time - origin) / WHEEL_RESOLUTION);
+    }
+
+    private static void arm(int slot, double now) {
+        if (armedTimerId >= 0) {
+            Platform.killSchedule(armedTimerId);
+        }
+        armedSlot = slot;
+        double delay = origin + slot * WHEEL_RESOLUTION - now;
+        armedTimerId = Platform.schedule(Scheduler::fireTimers, delay > 0 ? (int) Math.ceil(delay) : 0);
+    }
+
+    private static void fireTimers() {
+        armedTimerId = -1;
+        armedSlot = Integer.MAX_VALUE;
+        double now = currentTime();
+        int currentSlot = slotAt(now);
+        if (currentSlot > wheelSlot) {
+            int count = Math.min(currentSlot - wheelSlot, WHEEL_SIZE);
+            for (int i = 1; i <= count; ++i) {
+                expireBucket((wheelSlot + i) % WHEEL_SIZE, currentSlot);
+            }
+            wheelSlot = currentSlot;
+        }
+        if (statistics.pendingTimers > 0) {
+            arm(earliestSlot(), now);
+        }
+        runTick();
+    }
+
+    private static void expireBucket(int bucket, int currentSlot) {
+        ScheduledTask previous = null;
+        ScheduledTask timer = wheel[bucket];
+        while (timer != null) {
+            ScheduledTask next = timer.next;
+            if (timer.state != ScheduledTask.PENDING || timer.expirySlot <= currentSlot) {
+                if (previous == null) {
+                    wheel[bucket] = next;
+                } else {
+                    previous.next = next;
+                }
+                timer.next = null;
+                if (timer.state == ScheduledTask.PENDING) {
+                    timer.state = ScheduledTask.FIRED;
+                    statistics.pendingTimers--;
+                    statistics.timersFired++;
+                    push(timer.runnable, timer.priority);
+                }
+            } else {
+                previous = timer;
+            }
+            timer = next;
+        }
+    }
+
+    private static int earliestSlot() {
+        int result = Integer.MAX_VALUE;
+        for (int i = 1; i <= WHEEL_SIZE; ++i) {
+            int slot = wheelSlot + i;
+            for (ScheduledTask timer = wheel[slot % WHEEL_SIZE]; timer != null; timer = timer.next) {
+                if (timer.state == ScheduledTask.PENDING) {
+                    if (timer.expirySlot == slot) {
+                        return slot;
+                    }
+                    result = Math.min(result, timer.expirySlot);
+                }
+            }
+        }
+        return result;
+    }
+
+    static class Task {
+        final PlatformRunnable runnable;
+        Task next;
+
+        Task(PlatformRunnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.platform.async;
+
+/**
+ * Snapshot of {@link Scheduler} counters, taken by {@link Scheduler#getStatistics()}.
+ * Counters accumulate since the start of the program.
+ */
+public final class SchedulerStatistics {
+    int ticks;
+    int tasksRun;
+    int maxBatchSize;
+    int starvationPromotions;
+    int timersScheduled;
+    int timersFired;
+    int timersCancelled;
+    int pendingTimers;
+    int[] queuedTasks;
+    double totalTickTime;
+    double maxTickTime;
+
+    SchedulerStatistics() {
+    }
+
+    /**
+     * Returns number of event loop turns in which scheduler resumed tasks.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getTasksRun() {
+        return tasksRun;
+    }
+
+    /**
+     * Returns maximum number of tasks resumed within one tick.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Returns how many times a task was resumed ahead of higher priority tasks because its run queue
+     * was not served for several ticks in a row.
+     */
+    public int getStarvationPromotions() {
+        return starvationPromotions;
+    }
+
+    public int getTimersScheduled() {
+        return timersScheduled;
+    }
+
+    public int getTimersFired() {
+        return timersFired;
+    }
+
+    public int getTimersCancelled() {
+        return timersCancelled;
+    }
+
+    public int getPendingTimers() {
+        return pendingTimers;
+    }
+
+    /**
+     * Returns number of tasks waiting in run queue of the given priority.
+     *
+     * @param priority priority between {@link Scheduler#MIN_PRIORITY} and {@link Scheduler#MAX_PRIORITY}.
+     */
+    public int getQueuedTasks(int priority) {
+        return queuedTasks[Scheduler.priorityIndex(priority)];
+    }
+
+    public int getQueuedTasks() {
+        int result = 0;
+        for (int count : queuedTasks) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Returns total time in milliseconds spent in ticks, including time taken by resumed tasks.
+     */
+    public double getTotalTickTime() {
+        return totalTickTime;
+    }
+
+    public double getMaxTickTime() {
+        return maxTickTime;
+    }
+}
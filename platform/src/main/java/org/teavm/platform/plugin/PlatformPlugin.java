@@ -43,6 +43,7 @@ public class PlatformPlugin implements TeaVMPlugin {
             host.add(new ResourceTransformer());
             host.add(new ResourceAccessorTransformer(host));
             host.add(new ResourceAccessorDependencyListener());
+            host.add(new SplitPointTransformer());
             host.getExtension(TeaVMJavaScriptHost.class).addGeneratorProvider(context -> {
                 ClassReader cls = context.getClassSource().get(context.getMethod().getClassName());
                 if (cls == null) {
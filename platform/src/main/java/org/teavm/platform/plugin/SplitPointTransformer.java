@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.platform.plugin;
+
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.interop.SplitPoint;
+import org.teavm.model.AnnotationReader;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.CallLocation;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+import org.teavm.platform.ChunkLoader;
+
+public class SplitPointTransformer implements ClassHolderTransformer {
+    private static final MethodReference LOAD_METHOD = new MethodReference(ChunkLoader.class, "load",
+            String.class, void.class);
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
+        for (MethodHolder method : cls.getMethods()) {
+            AnnotationReader annot = method.getAnnotations().get(SplitPoint.class.getName());
+            if (annot == null) {
+                continue;
+            }
+            String name = annot.getValue("value").getString();
+            if (!name.matches("[A-Za-z0-9_\\-]+")) {
+                diagnostics.error(new CallLocation(method.getReference()), "Method {{m0}} marked with {{c1}} "
+                        + "has invalid chunk name: " + name, method.getReference(), SplitPoint.class.getName());
+                continue;
+            }
+            if (method.getProgram() == null) {
+                diagnostics.error(new CallLocation(method.getReference()), "Method {{m0}} marked with {{c1}} "
+                        + "must have body", method.getReference(), SplitPoint.class.getName());
+                continue;
+            }
+            insertChunkLoading(method.getProgram(), name);
+        }
+    }
+
+    private void insertChunkLoading(Program program, String name) {
+        BasicBlock block = program.basicBlockAt(0);
+
+        Variable nameVar = program.createVariable();
+        StringConstantInstruction nameConstant = new StringConstantInstruction();
+        nameConstant.setConstant(name);
+        nameConstant.setReceiver(nameVar);
+
+        InvokeInstruction loadInsn = new InvokeInstruction();
+        loadInsn.setType(InvocationType.SPECIAL);
+        loadInsn.setMethod(LOAD_METHOD);
+        loadInsn.getArguments().add(nameVar);
+
+        if (block.getFirstInstruction() != null) {
+            nameConstant.setLocation(block.getFirstInstruction().getLocation());
+            loadInsn.setLocation(block.getFirstInstruction().getLocation());
+        }
+        block.addFirst(loadInsn);
+        block.addFirst(nameConstant);
+    }
+}
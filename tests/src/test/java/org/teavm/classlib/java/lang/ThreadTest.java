@@ -20,10 +20,14 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.teavm.junit.SkipJVM;
 import org.teavm.junit.TeaVMTestRunner;
+import org.teavm.platform.async.Scheduler;
+import org.teavm.platform.async.SchedulerStatistics;
 
 @RunWith(TeaVMTestRunner.class)
 public class ThreadTest {
@@ -57,6 +61,65 @@ public class ThreadTest {
         }
     }
 
+    @Test
+    public void sleepingThreadsWakeUpInOrder() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            int index = i;
+            Thread sleepingThread = new Thread(() -> {
+                try {
+                    Thread.sleep(300 - index * 30);
+                } catch (InterruptedException e) {
+                    // ok
+                }
+                order.add(index);
+            });
+            threads.add(sleepingThread);
+            sleepingThread.start();
+        }
+        for (Thread sleepingThread : threads) {
+            sleepingThread.join();
+        }
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(9 - i, order.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void waitExpires() throws InterruptedException {
+        Object lock = new Object();
+        long start = System.currentTimeMillis();
+        synchronized (lock) {
+            lock.wait(50);
+        }
+        assertTrue(System.currentTimeMillis() - start >= 50);
+    }
+
+    @Test
+    public void inheritsPriority() throws InterruptedException {
+        Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
+        try {
+            int[] priority = new int[1];
+            Thread childThread = new Thread(() -> priority[0] = Thread.currentThread().getPriority());
+            childThread.start();
+            childThread.join();
+            assertEquals(Thread.MAX_PRIORITY, priority[0]);
+        } finally {
+            Thread.currentThread().setPriority(Thread.NORM_PRIORITY);
+        }
+    }
+
+    @Test
+    @SkipJVM
+    public void reportsSchedulerStatistics() throws InterruptedException {
+        int fired = Scheduler.getStatistics().getTimersFired();
+        Thread.sleep(10);
+        SchedulerStatistics statistics = Scheduler.getStatistics();
+        assertTrue(statistics.getTimersFired() > fired);
+        assertTrue(statistics.getTasksRun() > 0);
+    }
+
     @Test
     public void catchesAsyncException() {
         try {
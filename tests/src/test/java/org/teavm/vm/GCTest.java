@@ -0,0 +1,218 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class GCTest {
+    @Test
+    public void objectsSurviveWhenChunkIsExactlyFilled() {
+        Node[] old = new Node[2000];
+        for (int i = 0; i < old.length; ++i) {
+            old[i] = new Node(i);
+        }
+        long checksum = 0;
+        for (int round = 0; round < 300; ++round) {
+            for (int i = 0; i < 3000; ++i) {
+                Node tmp = new Node(i);
+                tmp.next = new Node(i + 1);
+                tmp.payload = new long[8];
+                checksum += tmp.next.value & 1;
+            }
+            for (int i = 0; i < old.length; i += 7) {
+                old[i].next = new Node(round * 31 + i);
+            }
+        }
+        assertEquals(300 * 1500, checksum);
+        for (int i = 0; i < old.length; ++i) {
+            assertEquals(i, old[i].value);
+            if (i % 7 == 0) {
+                assertEquals(299 * 31 + i, old[i].next.value);
+            } else {
+                assertNull(old[i].next);
+            }
+        }
+    }
+
+    @Test
+    public void multiArraySurvivesCollectionDuringAllocation() {
+        Object[] garbage = new Object[20];
+        for (int i = 0; i < 40; ++i) {
+            int[][] array = new int[1000][1000];
+            for (int j = 0; j < array.length; ++j) {
+                array[j][0] = i + j;
+            }
+            for (int j = 0; j < 1000; ++j) {
+                garbage[j % garbage.length] = new int[1000];
+            }
+            Object object = array;
+            assertTrue(object instanceof int[][]);
+            assertEquals(1000, array.length);
+            for (int j = 0; j < array.length; ++j) {
+                assertEquals(1000, array[j].length);
+                assertEquals(i + j, array[j][0]);
+            }
+        }
+    }
+
+    @Test
+    public void argumentSurvivesCollectionInCallee() {
+        for (int i = 0; i < 20; ++i) {
+            passFreshNode();
+        }
+    }
+
+    private void passFreshNode() {
+        checkNodeSurvivesCollection(new Node(42));
+    }
+
+    private static void checkNodeSurvivesCollection(Node node) {
+        Node[] garbage = new Node[100];
+        for (int i = 0; i < 200000; ++i) {
+            garbage[i % garbage.length] = new Node(i);
+        }
+        assertEquals(42, node.value);
+        assertNull(node.next);
+    }
+
+    @Test
+    public void loopVariableSurvivesCollection() {
+        long sum = 0;
+        List<Object> list = new ArrayList<>(1000);
+        for (int i = 0; i < 1000000; ++i) {
+            long[] garbage = new long[8];
+            sum += garbage.length;
+            if (i % 1000 == 0) {
+                list.add(new int[10]);
+            }
+        }
+        for (Object o : list) {
+            sum += ((int[]) o).length;
+        }
+        assertEquals(8000000 + 10000, sum);
+    }
+
+    @Test
+    public void phiInputSurvivesCollection() {
+        int[] other = { 23 };
+        for (int i = 0; i < 10; ++i) {
+            int[] array = freshOrOther(i % 2 == 0, other, i);
+            allocateGarbage();
+            assertEquals(i % 2 == 0 ? i : 23, array[0]);
+        }
+    }
+
+    private static int[] freshOrOther(boolean fresh, int[] other, int value) {
+        int[] result;
+        if (fresh) {
+            result = new int[] { value };
+            allocateGarbage();
+        } else {
+            result = other;
+        }
+        return result;
+    }
+
+    private static void allocateGarbage() {
+        Object[] garbage = new Object[100];
+        for (int i = 0; i < 1500000; ++i) {
+            garbage[i % garbage.length] = new int[4];
+        }
+    }
+
+    @Test
+    public void objectsSurviveCompaction() {
+        Node[] retained = new Node[30000];
+        for (int i = 0; i < 200000; ++i) {
+            for (int j = 0; j < 16; ++j) {
+                Node node = new Node(i);
+                node.payload = new long[] { i, j };
+                if (j == 0) {
+                    node.next = new Node(-i);
+                    retained[i % retained.length] = node;
+                }
+            }
+        }
+        for (int i = 0; i < retained.length; ++i) {
+            Node node = retained[i];
+            assertEquals(i, node.value % retained.length);
+            assertEquals(node.value, ((long[]) node.payload)[0]);
+            assertEquals(0, ((long[]) node.payload)[1]);
+            assertEquals(-node.value, node.next.value);
+        }
+    }
+
+    @Test
+    public void objectsAllocatedInFreedGapsSurvive() {
+        int[][] retained = new int[20000][];
+        for (int i = 0; i < 2000000; ++i) {
+            if (i % 16 == 0) {
+                int[] array = new int[(i / 16) % 8 + 2];
+                array[0] = i;
+                array[array.length - 1] = -i;
+                retained[(i / 16) % retained.length] = array;
+            } else {
+                int[] garbage = new int[i % 24];
+                if (garbage.length > 0) {
+                    garbage[0] = i;
+                }
+            }
+        }
+        for (int i = 0; i < retained.length; ++i) {
+            int[] array = retained[i];
+            assertEquals(i, (array[0] / 16) % retained.length);
+            assertEquals(i % 8 + 2, array.length);
+            assertEquals(-array[0], array[array.length - 1]);
+        }
+    }
+
+    @Test
+    public void classSimpleNameSurvivesCollection() {
+        assertEquals("GCTest", GCTest.class.getSimpleName());
+        for (int i = 0; i < 3; ++i) {
+            allocateFragmentedGarbage();
+            assertEquals("GCTest", GCTest.class.getSimpleName());
+        }
+    }
+
+    private static void allocateFragmentedGarbage() {
+        Object[] retained = new Object[10000];
+        for (int i = 0; i < 1000000; ++i) {
+            Object garbage = new int[4];
+            if (i % 16 == 0) {
+                retained[(i / 16) % retained.length] = garbage;
+            }
+        }
+    }
+
+    static class Node {
+        Node next;
+        Object payload;
+        int value;
+
+        Node(int value) {
+            this.value = value;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.rmi.NotBoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -49,7 +50,13 @@ import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.tooling.RuntimeCopyOperation;
 import org.teavm.tooling.TeaVMTargetType;
 import org.teavm.tooling.TeaVMTool;
+import org.teavm.tooling.TeaVMToolCache;
 import org.teavm.tooling.TeaVMToolException;
+import org.teavm.tooling.daemon.BuildDaemon;
+import org.teavm.tooling.daemon.BuildDaemonClient;
+import org.teavm.tooling.daemon.RemoteBuildRequest;
+import org.teavm.tooling.daemon.RemoteBuildResponse;
+import org.teavm.tooling.daemon.RemoteBuildService;
 import org.teavm.vm.TeaVMOptimizationLevel;
 import org.teavm.vm.TeaVMPhase;
 import org.teavm.vm.TeaVMProgressFeedback;
@@ -64,6 +71,10 @@ public final class TeaVMRunner {
     private long phaseStartTime;
     private String[] classPath;
     private boolean interactive;
+    private boolean daemon;
+    private boolean daemonUsed;
+    private int daemonPort = RemoteBuildService.DEFAULT_PORT;
+    private RemoteBuildResponse remoteResponse;
 
     static {
         setupOptions();
@@ -97,6 +108,26 @@ public final class TeaVMRunner {
                 .hasArg()
                 .withArgName("number")
                 .create("O"));
+        options.addOption(OptionBuilder
+                .withDescription("number of threads used to optimize methods (1 by default)")
+                .hasArg()
+                .withArgName("number")
+                .withLongOpt("optimization-threads")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("number of threads used to parse classes during dependency analysis "
+                        + "(1 by default)")
+                .hasArg()
+                .withArgName("number")
+                .withLongOpt("analysis-threads")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("number of threads used to decompile and render classes to JavaScript "
+                        + "(1 by default)")
+                .hasArg()
+                .withArgName("number")
+                .withLongOpt("rendering-threads")
+                .create());
         options.addOption(OptionBuilder
                 .withArgName("separate|merge|none")
                 .hasArg()
@@ -121,6 +152,11 @@ public final class TeaVMRunner {
                 .withDescription("Incremental build cache directory")
                 .withLongOpt("cachedir")
                 .create('c'));
+        options.addOption(OptionBuilder
+                .withDescription("Validate incremental build cache by contents of class files instead of "
+                        + "modification dates")
+                .withLongOpt("hash-cache-invalidation")
+                .create());
         options.addOption(OptionBuilder
                 .withDescription("Wait for command after compilation, in order to enable hot recompilation")
                 .withLongOpt("wait")
@@ -143,12 +179,84 @@ public final class TeaVMRunner {
                 .hasArg()
                 .withDescription("WebAssembly binary version (currently, only 1 is supported)")
                 .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("wasm-simd")
+                .withDescription("Use SIMD instructions for bulk array and string operations (for WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("wasm-bulk-memory")
+                .withDescription("Use bulk memory instructions to zero and copy memory blocks (for WebAssembly)")
+                .create());
         options.addOption(OptionBuilder
                 .withLongOpt("min-heap")
                 .withArgName("size")
                 .hasArg()
                 .withDescription("Minimum heap size in bytes (for C and WebAssembly)")
                 .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("generational-gc")
+                .withDescription("Collect young objects separately from old ones (for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("compacting-gc")
+                .withDescription("Compact heap when it gets fragmented (for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("incremental-gc")
+                .withDescription("Collect garbage in slices interleaved with allocation (for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("gc-slice-budget")
+                .withArgName("count")
+                .hasArg()
+                .withDescription("Number of objects incremental GC marks or sweeps in one slice")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("compact-strings")
+                .withDescription("Store Latin-1 strings with one byte per character (for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("native-strings")
+                .withDescription("Back Java strings by JavaScript strings (for JavaScript)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("bigint-longs")
+                .withDescription("Represent long values as JavaScript BigInt (for JavaScript)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("split-units")
+                .withDescription("Write one translation unit per package and a shared header (for C)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("instrument-profile")
+                .withDescription("Make generated program print call counts and receiver types to standard error "
+                        + "on exit, to be used with --profile")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("profile")
+                .withArgName("file")
+                .hasArg()
+                .withDescription("Use execution profile collected by instrumented program to guide "
+                        + "inlining and devirtualization")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("async-report")
+                .withDescription("Write report that tells why each method became asynchronous (for JavaScript)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("daemon")
+                .withDescription("Run build daemon that keeps compiler state in memory between builds")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("use-daemon")
+                .withDescription("Build by running daemon instead of current process")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("daemon-port")
+                .withArgName("port")
+                .hasArg()
+                .withDescription("Port of build daemon, " + RemoteBuildService.DEFAULT_PORT + " by default")
+                .create());
     }
 
     private TeaVMRunner(CommandLine commandLine) {
@@ -186,6 +294,7 @@ public final class TeaVMRunner {
         parseJavaScriptOptions();
         parseWasmOptions();
         parseHeap();
+        parseDaemonOptions();
 
         interactive = commandLine.hasOption('w');
 
@@ -289,6 +398,48 @@ public final class TeaVMRunner {
                     printUsage();
             }
         }
+        if (commandLine.hasOption("optimization-threads")) {
+            int threads;
+            try {
+                threads = Integer.parseInt(commandLine.getOptionValue("optimization-threads"));
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.err.print("Wrong number of optimization threads");
+                printUsage();
+                return;
+            }
+            tool.setOptimizationThreads(threads);
+        }
+        if (commandLine.hasOption("analysis-threads")) {
+            int threads;
+            try {
+                threads = Integer.parseInt(commandLine.getOptionValue("analysis-threads"));
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.err.print("Wrong number of analysis threads");
+                printUsage();
+                return;
+            }
+            tool.setDependencyAnalysisThreads(threads);
+        }
+        if (commandLine.hasOption("rendering-threads")) {
+            int threads;
+            try {
+                threads = Integer.parseInt(commandLine.getOptionValue("rendering-threads"));
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.err.print("Wrong number of rendering threads");
+                printUsage();
+                return;
+            }
+            tool.setRenderingThreads(threads);
+        }
     }
 
     private void parseIncrementalOptions() {
@@ -300,6 +451,9 @@ public final class TeaVMRunner {
         } else {
             tool.setCacheDirectory(new File(tool.getTargetDirectory(), "teavm-cache"));
         }
+        if (commandLine.hasOption("hash-cache-invalidation")) {
+            tool.setHashBasedCacheInvalidation(true);
+        }
     }
 
     private void parseClassPathOptions() {
@@ -326,6 +480,12 @@ public final class TeaVMRunner {
                 printUsage();
             }
         }
+        if (commandLine.hasOption("wasm-simd")) {
+            tool.setWasmSimd(true);
+        }
+        if (commandLine.hasOption("wasm-bulk-memory")) {
+            tool.setWasmBulkMemory(true);
+        }
     }
 
     private void parseHeap() {
@@ -340,6 +500,68 @@ public final class TeaVMRunner {
             }
             tool.setMinHeapSize(size);
         }
+        if (commandLine.hasOption("generational-gc")) {
+            tool.setGenerationalGC(true);
+        }
+        if (commandLine.hasOption("compacting-gc")) {
+            tool.setCompactingGC(true);
+        }
+        if (commandLine.hasOption("incremental-gc")) {
+            tool.setIncrementalGC(true);
+        }
+        if (commandLine.hasOption("gc-slice-budget")) {
+            int budget;
+            try {
+                budget = Integer.parseInt(commandLine.getOptionValue("gc-slice-budget"));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong GC slice budget");
+                printUsage();
+                return;
+            }
+            if (budget <= 0) {
+                System.err.print("GC slice budget must be positive");
+                printUsage();
+            }
+            tool.setGCSliceBudget(budget);
+        }
+        if (tool.isIncrementalGC() && tool.isGenerationalGC()) {
+            System.err.print("Incremental GC can't be combined with generational GC");
+            printUsage();
+        }
+        if (commandLine.hasOption("compact-strings")) {
+            tool.setCompactStrings(true);
+        }
+        if (commandLine.hasOption("native-strings")) {
+            tool.setNativeStrings(true);
+        }
+        if (commandLine.hasOption("bigint-longs")) {
+            tool.setBigIntLongs(true);
+        }
+        if (commandLine.hasOption("split-units")) {
+            tool.setSplitUnits(true);
+        }
+        if (commandLine.hasOption("instrument-profile")) {
+            tool.setProfileInstrumented(true);
+        }
+        if (commandLine.hasOption("profile")) {
+            tool.setProfileFile(new File(commandLine.getOptionValue("profile")));
+        }
+        if (commandLine.hasOption("async-report")) {
+            tool.setAsyncReportGenerated(true);
+        }
+    }
+
+    private void parseDaemonOptions() {
+        daemon = commandLine.hasOption("daemon");
+        daemonUsed = commandLine.hasOption("use-daemon");
+        if (commandLine.hasOption("daemon-port")) {
+            try {
+                daemonPort = Integer.parseInt(commandLine.getOptionValue("daemon-port"));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong daemon port");
+                printUsage();
+            }
+        }
     }
 
     private void setUp() {
@@ -348,15 +570,28 @@ public final class TeaVMRunner {
     }
 
     private void runAll() {
-        if (interactive) {
+        if (daemon) {
+            runDaemon();
+        } else if (interactive) {
             buildInteractive();
         } else {
             buildNonInteractive();
         }
     }
 
+    private void runDaemon() {
+        try {
+            BuildDaemon.start(daemonPort);
+        } catch (IOException e) {
+            System.err.println("Could not start daemon on port " + daemonPort);
+            e.printStackTrace(System.err);
+            System.exit(-1);
+        }
+    }
+
     private void buildInteractive() {
         InteractiveWatcher watcher = new InteractiveWatcher();
+        tool.setCache(new TeaVMToolCache());
 
         while (true) {
             ProgressListenerImpl progressListener = new ProgressListenerImpl();
@@ -540,21 +775,48 @@ public final class TeaVMRunner {
             e.printStackTrace(System.err);
             System.exit(-2);
         }
-        if (!tool.getProblemProvider().getSevereProblems().isEmpty()) {
+        if (remoteResponse != null) {
+            if (remoteResponse.severeProblemsFound) {
+                System.exit(-2);
+            }
+        } else if (!tool.getProblemProvider().getSevereProblems().isEmpty()) {
             System.exit(-2);
         }
     }
 
     private void build(ProgressListenerImpl progressListener) throws TeaVMToolException {
-        tool.setProgressListener(progressListener);
-        resetClassLoader();
         startTime = System.currentTimeMillis();
         phaseStartTime = System.currentTimeMillis();
-        tool.generate();
+        if (daemonUsed) {
+            buildRemotely(progressListener);
+        } else {
+            tool.setProgressListener(progressListener);
+            resetClassLoader();
+            tool.generate();
+        }
         reportPhaseComplete();
         System.out.println("Build complete for " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds");
     }
 
+    private void buildRemotely(ProgressListenerImpl progressListener) throws TeaVMToolException {
+        RemoteBuildRequest request = BuildDaemonClient.createRequest(tool);
+        if (classPath != null) {
+            for (String entry : classPath) {
+                request.classPath.add(new File(entry).getAbsolutePath());
+            }
+        }
+        try {
+            RemoteBuildService service = BuildDaemonClient.connect(daemonPort);
+            request.token = BuildDaemonClient.readToken(daemonPort);
+            remoteResponse = BuildDaemonClient.build(service, request, log, progressListener);
+        } catch (IOException | NotBoundException e) {
+            throw new TeaVMToolException("Could not connect to daemon on port " + daemonPort, e);
+        }
+        if (remoteResponse.errorOccurred) {
+            throw new TeaVMToolException("Daemon failed to build project:\n" + remoteResponse.stackTrace);
+        }
+    }
+
     private void resetClassLoader() {
         if (classPath == null || classPath.length == 0) {
             return;
@@ -18,11 +18,14 @@ package org.teavm.tooling;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -55,6 +58,9 @@ import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.PreOptimizingClassHolderSource;
 import org.teavm.model.ProgramReader;
+import org.teavm.model.TransformedClassCache;
+import org.teavm.model.optimization.ExecutionProfile;
+import org.teavm.model.transformation.ProfilingTransformer;
 import org.teavm.parsing.ClasspathClassHolderSource;
 import org.teavm.tooling.sources.SourceFileProvider;
 import org.teavm.tooling.sources.SourceFilesCopier;
@@ -87,20 +93,39 @@ public class TeaVMTool implements BaseTeaVMTool {
     private DiskCachedClassHolderSource cachedClassSource;
     private DiskProgramCache programCache;
     private DiskRegularMethodNodeCache astCache;
+    private TransformedClassCache transformedClassCache;
     private FileSymbolTable symbolTable;
     private FileSymbolTable fileTable;
     private boolean cancelled;
     private TeaVMProgressListener progressListener;
     private TeaVM vm;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
+    private int optimizationThreads = 1;
+    private int dependencyAnalysisThreads = 1;
+    private int renderingThreads = 1;
+    private boolean hashBasedCacheInvalidation;
     private List<SourceFileProvider> sourceFileProviders = new ArrayList<>();
     private DebugInformationBuilder debugEmitter;
     private JavaScriptTarget javaScriptTarget;
     private WasmTarget webAssemblyTarget;
     private WasmBinaryVersion wasmVersion = WasmBinaryVersion.V_0x1;
+    private boolean wasmSimd;
+    private boolean wasmBulkMemory;
     private CTarget cTarget;
     private Set<File> generatedFiles = new HashSet<>();
     private int minHeapSize = 32 * (1 << 20);
+    private boolean generationalGC;
+    private boolean compactingGC;
+    private boolean incrementalGC;
+    private int gcSliceBudget = 1024;
+    private boolean compactStrings;
+    private boolean nativeStrings;
+    private boolean bigIntLongs;
+    private boolean splitUnits;
+    private boolean profileInstrumented;
+    private File profileFile;
+    private boolean asyncReportGenerated;
+    private TeaVMToolCache cache;
 
     public File getTargetDirectory() {
         return targetDirectory;
@@ -227,10 +252,151 @@ public class TeaVMTool implements BaseTeaVMTool {
         this.optimizationLevel = optimizationLevel;
     }
 
+    public int getOptimizationThreads() {
+        return optimizationThreads;
+    }
+
+    public void setOptimizationThreads(int optimizationThreads) {
+        this.optimizationThreads = optimizationThreads;
+    }
+
+    public int getDependencyAnalysisThreads() {
+        return dependencyAnalysisThreads;
+    }
+
+    public void setDependencyAnalysisThreads(int dependencyAnalysisThreads) {
+        this.dependencyAnalysisThreads = dependencyAnalysisThreads;
+    }
+
+    public int getRenderingThreads() {
+        return renderingThreads;
+    }
+
+    public void setRenderingThreads(int renderingThreads) {
+        this.renderingThreads = renderingThreads;
+    }
+
+    public boolean isHashBasedCacheInvalidation() {
+        return hashBasedCacheInvalidation;
+    }
+
+    public void setHashBasedCacheInvalidation(boolean hashBasedCacheInvalidation) {
+        this.hashBasedCacheInvalidation = hashBasedCacheInvalidation;
+    }
+
+    public int getMinHeapSize() {
+        return minHeapSize;
+    }
+
     public void setMinHeapSize(int minHeapSize) {
         this.minHeapSize = minHeapSize;
     }
 
+    public boolean isGenerationalGC() {
+        return generationalGC;
+    }
+
+    public void setGenerationalGC(boolean generationalGC) {
+        this.generationalGC = generationalGC;
+    }
+
+    public boolean isCompactingGC() {
+        return compactingGC;
+    }
+
+    public void setCompactingGC(boolean compactingGC) {
+        this.compactingGC = compactingGC;
+    }
+
+    public boolean isIncrementalGC() {
+        return incrementalGC;
+    }
+
+    public void setIncrementalGC(boolean incrementalGC) {
+        this.incrementalGC = incrementalGC;
+    }
+
+    public int getGCSliceBudget() {
+        return gcSliceBudget;
+    }
+
+    public void setGCSliceBudget(int gcSliceBudget) {
+        this.gcSliceBudget = gcSliceBudget;
+    }
+
+    public boolean isCompactStrings() {
+        return compactStrings;
+    }
+
+    public void setCompactStrings(boolean compactStrings) {
+        this.compactStrings = compactStrings;
+    }
+
+    public boolean isNativeStrings() {
+        return nativeStrings;
+    }
+
+    public void setNativeStrings(boolean nativeStrings) {
+        this.nativeStrings = nativeStrings;
+    }
+
+    public boolean isAsyncReportGenerated() {
+        return asyncReportGenerated;
+    }
+
+    public void setAsyncReportGenerated(boolean asyncReportGenerated) {
+        this.asyncReportGenerated = asyncReportGenerated;
+    }
+
+    public boolean isBigIntLongs() {
+        return bigIntLongs;
+    }
+
+    public void setBigIntLongs(boolean bigIntLongs) {
+        this.bigIntLongs = bigIntLongs;
+    }
+
+    public boolean isSplitUnits() {
+        return splitUnits;
+    }
+
+    public void setSplitUnits(boolean splitUnits) {
+        this.splitUnits = splitUnits;
+    }
+
+    public boolean isProfileInstrumented() {
+        return profileInstrumented;
+    }
+
+    /**
+     * Makes generated program count calls and receiver types at call sites of application classes and print
+     * the counters to standard error when <code>main</code> exits. The output can be passed to
+     * {@link #setProfileFile(File)} of a subsequent build.
+     */
+    public void setProfileInstrumented(boolean profileInstrumented) {
+        this.profileInstrumented = profileInstrumented;
+    }
+
+    public File getProfileFile() {
+        return profileFile;
+    }
+
+    public void setProfileFile(File profileFile) {
+        this.profileFile = profileFile;
+    }
+
+    public TeaVMToolCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets cache that keeps parsed classes and incremental caches in memory, so that they can be reused
+     * by subsequent builds in the same process. The same cache can be shared by several tools.
+     */
+    public void setCache(TeaVMToolCache cache) {
+        this.cache = cache;
+    }
+
     public ClassLoader getClassLoader() {
         return classLoader;
     }
@@ -248,6 +414,22 @@ public class TeaVMTool implements BaseTeaVMTool {
         this.wasmVersion = wasmVersion;
     }
 
+    public boolean isWasmSimd() {
+        return wasmSimd;
+    }
+
+    public void setWasmSimd(boolean wasmSimd) {
+        this.wasmSimd = wasmSimd;
+    }
+
+    public boolean isWasmBulkMemory() {
+        return wasmBulkMemory;
+    }
+
+    public void setWasmBulkMemory(boolean wasmBulkMemory) {
+        this.wasmBulkMemory = wasmBulkMemory;
+    }
+
     public void setProgressListener(TeaVMProgressListener progressListener) {
         this.progressListener = progressListener;
     }
@@ -309,6 +491,19 @@ public class TeaVMTool implements BaseTeaVMTool {
         sourceFileProviders.add(sourceFileProvider);
     }
 
+    public List<SourceFileProvider> getSourceFileProviders() {
+        return sourceFileProviders;
+    }
+
+    private void validateGCOptions() throws TeaVMToolException {
+        if (gcSliceBudget <= 0) {
+            throw new TeaVMToolException("GC slice budget must be positive: " + gcSliceBudget);
+        }
+        if (incrementalGC && generationalGC) {
+            throw new TeaVMToolException("Incremental GC can't be combined with generational GC");
+        }
+    }
+
     private TeaVMTarget prepareTarget() {
         switch (targetType) {
             case JAVASCRIPT:
@@ -324,6 +519,10 @@ public class TeaVMTool implements BaseTeaVMTool {
     private TeaVMTarget prepareJavaScriptTarget() {
         javaScriptTarget = new JavaScriptTarget();
         javaScriptTarget.setMinifying(minifying);
+        javaScriptTarget.setNativeStrings(nativeStrings);
+        javaScriptTarget.setBigIntLongs(bigIntLongs);
+        javaScriptTarget.setAsyncReportGenerated(asyncReportGenerated);
+        javaScriptTarget.setRenderingThreads(renderingThreads);
 
         debugEmitter = debugInformationGenerated || sourceMapsFileGenerated
                 ? new DebugInformationBuilder() : null;
@@ -342,26 +541,43 @@ public class TeaVMTool implements BaseTeaVMTool {
         webAssemblyTarget.setCEmitted(debugInformationGenerated);
         webAssemblyTarget.setWastEmitted(debugInformationGenerated);
         webAssemblyTarget.setVersion(wasmVersion);
+        webAssemblyTarget.setSimd(wasmSimd);
+        webAssemblyTarget.setBulkMemory(wasmBulkMemory);
         webAssemblyTarget.setMinHeapSize(minHeapSize);
+        webAssemblyTarget.setGenerationalGC(generationalGC);
+        webAssemblyTarget.setCompactingGC(compactingGC);
+        webAssemblyTarget.setIncrementalGC(incrementalGC);
+        webAssemblyTarget.setGCSliceBudget(gcSliceBudget);
+        webAssemblyTarget.setCompactStrings(compactStrings);
         return webAssemblyTarget;
     }
 
     private CTarget prepareCTarget() {
         cTarget = new CTarget();
         cTarget.setMinHeapSize(minHeapSize);
+        cTarget.setGenerationalGC(generationalGC);
+        cTarget.setCompactingGC(compactingGC);
+        cTarget.setIncrementalGC(incrementalGC);
+        cTarget.setGCSliceBudget(gcSliceBudget);
+        cTarget.setCompactStrings(compactStrings);
+        cTarget.setSplitUnits(splitUnits);
         return cTarget;
     }
 
     public void generate() throws TeaVMToolException {
+        validateGCOptions();
         try {
             cancelled = false;
             log.info("Building JavaScript file");
             TeaVMBuilder vmBuilder = new TeaVMBuilder(prepareTarget());
-            if (incremental) {
+            if (cache != null) {
+                setUpCache(vmBuilder);
+            } else if (incremental) {
                 cacheDirectory.mkdirs();
                 symbolTable = new FileSymbolTable(new File(cacheDirectory, "symbols"));
                 fileTable = new FileSymbolTable(new File(cacheDirectory, "files"));
-                ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader);
+                ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader,
+                        dependencyAnalysisThreads);
                 ClassHolderSource classSource = new PreOptimizingClassHolderSource(innerClassSource);
                 cachedClassSource = new DiskCachedClassHolderSource(cacheDirectory, symbolTable, fileTable,
                         classSource, innerClassSource);
@@ -370,16 +586,27 @@ public class TeaVMTool implements BaseTeaVMTool {
                 if (targetType == TeaVMTargetType.JAVASCRIPT) {
                     astCache = new DiskRegularMethodNodeCache(cacheDirectory, symbolTable, fileTable, innerClassSource);
                 }
+                if (hashBasedCacheInvalidation) {
+                    cachedClassSource.setClassHashProvider(innerClassSource);
+                    programCache.setClassHashProvider(innerClassSource);
+                    if (astCache != null) {
+                        astCache.setClassHashProvider(innerClassSource);
+                    }
+                }
                 try {
                     symbolTable.update();
                     fileTable.update();
                 } catch (IOException e) {
                     log.info("Cache is missing");
                 }
-                vmBuilder.setClassLoader(classLoader).setClassSource(cachedClassSource);
+                vmBuilder.setClassLoader(classLoader).setClassSource(cachedClassSource)
+                        .addDependencyAnalysisResource(innerClassSource);
             } else {
-                vmBuilder.setClassLoader(classLoader).setClassSource(new PreOptimizingClassHolderSource(
-                        new ClasspathClassHolderSource(classLoader)));
+                ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader,
+                        dependencyAnalysisThreads);
+                vmBuilder.setClassLoader(classLoader)
+                        .setClassSource(new PreOptimizingClassHolderSource(innerClassSource))
+                        .addDependencyAnalysisResource(innerClassSource);
             }
             vm = vmBuilder.build();
             if (progressListener != null) {
@@ -388,13 +615,23 @@ public class TeaVMTool implements BaseTeaVMTool {
 
             vm.setProperties(properties);
             vm.setProgramCache(programCache);
+            vm.setTransformedClassCache(transformedClassCache);
             vm.setIncremental(incremental);
             vm.setOptimizationLevel(optimizationLevel);
+            vm.setOptimizationThreads(optimizationThreads);
 
             vm.installPlugins();
             for (ClassHolderTransformer transformer : transformers) {
                 vm.add(transformer);
             }
+            if (profileInstrumented) {
+                vm.add(new ProfilingTransformer());
+            }
+            if (profileFile != null) {
+                try (Reader reader = new InputStreamReader(new FileInputStream(profileFile), "UTF-8")) {
+                    vm.setProfile(ExecutionProfile.read(reader));
+                }
+            }
             if (mainClass != null) {
                 MethodDescriptor mainMethodDesc = new MethodDescriptor("main", String[].class, void.class);
                 vm.entryPoint("main", new MethodReference(mainClass, mainMethodDesc))
@@ -442,22 +679,61 @@ public class TeaVMTool implements BaseTeaVMTool {
             }
 
             if (incremental) {
+                programCache.storeNewEntries();
+                if (astCache != null) {
+                    astCache.storeNewEntries();
+                }
+                cachedClassSource.storeNewEntries();
+                symbolTable.flush();
+                fileTable.flush();
                 programCache.flush();
                 if (astCache != null) {
                     astCache.flush();
                 }
                 cachedClassSource.flush();
-                symbolTable.flush();
-                fileTable.flush();
                 log.info("Cache updated");
             }
 
+            if (cache != null) {
+                log.info("Classes parsed: " + cache.getClassSource().getParsedClassCount());
+            }
             printStats();
         } catch (IOException e) {
             throw new TeaVMToolException("IO error occurred", e);
         }
     }
 
+    private void setUpCache(TeaVMBuilder vmBuilder) {
+        ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader,
+                dependencyAnalysisThreads);
+        ClassHolderSource classSource = new PreOptimizingClassHolderSource(innerClassSource);
+        if (incremental) {
+            TeaVMToolCache.IncrementalCaches caches = cache.getIncrementalCaches(cacheDirectory, targetType,
+                    hashBasedCacheInvalidation);
+            if (caches.missing) {
+                log.info("Cache is missing");
+                caches.missing = false;
+            }
+            symbolTable = caches.symbolTable;
+            fileTable = caches.fileTable;
+            programCache = caches.programCache;
+            astCache = caches.astCache;
+            if (targetType == TeaVMTargetType.JAVASCRIPT) {
+                javaScriptTarget.setAstCache(astCache);
+            }
+            cachedClassSource = new DiskCachedClassHolderSource(cacheDirectory, symbolTable, fileTable,
+                    classSource, innerClassSource);
+            if (hashBasedCacheInvalidation) {
+                cachedClassSource.setClassHashProvider(innerClassSource);
+            }
+            classSource = cachedClassSource;
+        }
+        cache.getClassSource().setUnderlyingSource(classSource, innerClassSource);
+        transformedClassCache = cache.getTransformedClassCache();
+        vmBuilder.setClassLoader(classLoader).setClassSource(cache.getClassSource())
+                .addDependencyAnalysisResource(innerClassSource);
+    }
+
     private String getResolvedTargetFileName() {
         if (targetFileName.isEmpty()) {
             switch (targetType) {
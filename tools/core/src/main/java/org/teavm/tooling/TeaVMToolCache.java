@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.teavm.cache.DiskProgramCache;
+import org.teavm.cache.DiskRegularMethodNodeCache;
+import org.teavm.cache.FileSymbolTable;
+import org.teavm.cache.MemoryCachedClassHolderSource;
+import org.teavm.cache.MemoryTransformedClassCache;
+
+/**
+ * Keeps state of {@link TeaVMTool} between builds: parsed and transformed classes, symbol tables and caches
+ * of programs and method bodies. When the same instance is passed to tools that run one after another
+ * in the same process, subsequent builds only reparse and transform class files that changed and take cached
+ * programs from memory instead of reading them from disk.
+ */
+public class TeaVMToolCache {
+    private MemoryCachedClassHolderSource classSource = new MemoryCachedClassHolderSource();
+    private MemoryTransformedClassCache transformedClassCache =
+            new MemoryTransformedClassCache(classSource);
+    private Map<File, IncrementalCaches> incrementalCaches = new HashMap<>();
+
+    MemoryCachedClassHolderSource getClassSource() {
+        return classSource;
+    }
+
+    MemoryTransformedClassCache getTransformedClassCache() {
+        return transformedClassCache;
+    }
+
+    IncrementalCaches getIncrementalCaches(File cacheDirectory, TeaVMTargetType targetType,
+            boolean hashBasedCacheInvalidation) {
+        File key = cacheDirectory.getAbsoluteFile();
+        IncrementalCaches caches = incrementalCaches.get(key);
+        if (caches != null && caches.targetType == targetType
+                && caches.hashBasedCacheInvalidation == hashBasedCacheInvalidation) {
+            caches.programCache.revalidate();
+            if (caches.astCache != null) {
+                caches.astCache.revalidate();
+            }
+            return caches;
+        }
+
+        caches = new IncrementalCaches(targetType, hashBasedCacheInvalidation);
+        cacheDirectory.mkdirs();
+        caches.symbolTable = new FileSymbolTable(new File(cacheDirectory, "symbols"));
+        caches.fileTable = new FileSymbolTable(new File(cacheDirectory, "files"));
+        try {
+            caches.symbolTable.update();
+            caches.fileTable.update();
+        } catch (IOException e) {
+            caches.missing = true;
+        }
+        caches.programCache = new DiskProgramCache(cacheDirectory, caches.symbolTable, caches.fileTable,
+                classSource);
+        if (targetType == TeaVMTargetType.JAVASCRIPT) {
+            caches.astCache = new DiskRegularMethodNodeCache(cacheDirectory, caches.symbolTable, caches.fileTable,
+                    classSource);
+        }
+        if (hashBasedCacheInvalidation) {
+            caches.programCache.setClassHashProvider(classSource);
+            if (caches.astCache != null) {
+                caches.astCache.setClassHashProvider(classSource);
+            }
+        }
+        incrementalCaches.put(key, caches);
+        return caches;
+    }
+
+    static class IncrementalCaches {
+        final TeaVMTargetType targetType;
+        final boolean hashBasedCacheInvalidation;
+        FileSymbolTable symbolTable;
+        FileSymbolTable fileTable;
+        DiskProgramCache programCache;
+        DiskRegularMethodNodeCache astCache;
+        boolean missing;
+
+        IncrementalCaches(TeaVMTargetType targetType, boolean hashBasedCacheInvalidation) {
+            this.targetType = targetType;
+            this.hashBasedCacheInvalidation = hashBasedCacheInvalidation;
+        }
+    }
+}
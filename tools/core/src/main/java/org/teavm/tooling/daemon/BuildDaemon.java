@@ -0,0 +1,284 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.rmi.AlreadyBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.tooling.TeaVMTool;
+import org.teavm.tooling.TeaVMToolCache;
+import org.teavm.tooling.TeaVMToolException;
+import org.teavm.tooling.TeaVMToolLog;
+import org.teavm.tooling.sources.DirectorySourceFileProvider;
+import org.teavm.tooling.sources.JarSourceFileProvider;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMProgressFeedback;
+import org.teavm.vm.TeaVMProgressListener;
+
+/**
+ * <p>Process that builds projects on request of clients (CLI or Maven plugin) connected via RMI.
+ * Unlike separate TeaVM processes, daemon keeps parsed classes, symbol tables and incremental caches
+ * in memory between builds (see {@link TeaVMToolCache}), and runs on warmed up JVM, so rebuilds after
+ * small changes are much faster.</p>
+ *
+ * <p>Daemon accepts connections only from the local machine, and only executes requests that carry
+ * the token it writes to a file readable only by the user who started it (see {@link BuildDaemonToken}).
+ * Builds are run one at a time.</p>
+ */
+public class BuildDaemon extends UnicastRemoteObject implements RemoteBuildService {
+    private TeaVMToolCache cache = new TeaVMToolCache();
+    private Registry registry;
+    private int port;
+    private String token;
+
+    private BuildDaemon(int port, String token) throws RemoteException {
+        super(0, null, LoopbackServerSocketFactory.INSTANCE);
+        this.port = port;
+        this.token = token;
+        registry = LocateRegistry.createRegistry(port, null, LoopbackServerSocketFactory.INSTANCE);
+        try {
+            registry.bind(ID, this);
+        } catch (AlreadyBoundException e) {
+            throw new IllegalStateException("Could not bind build daemon service", e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        start(port);
+    }
+
+    /**
+     * Starts daemon that listens for build requests on the given port. Daemon keeps JVM running
+     * until it is stopped.
+     */
+    public static BuildDaemon start(int port) throws IOException {
+        LoopbackServerSocketFactory.setUpHostName();
+        BuildDaemon daemon = new BuildDaemon(port, BuildDaemonToken.create(port));
+        System.out.println("TeaVM daemon started on port " + port);
+        return daemon;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void stop() throws IOException {
+        unexportObject(this, true);
+        unexportObject(registry, true);
+        BuildDaemonToken.delete(port);
+    }
+
+    @Override
+    public synchronized RemoteBuildResponse build(RemoteBuildRequest request, RemoteBuildCallback callback) {
+        if (!BuildDaemonToken.matches(token, request.token)) {
+            throw new SecurityException("Build request does not carry valid daemon token");
+        }
+        System.out.println("Build started");
+        long startTime = System.currentTimeMillis();
+
+        TeaVMTool tool = new TeaVMTool();
+        tool.setCache(cache);
+        tool.setLog(new CallbackLog(callback));
+        tool.setProgressListener(createProgressListener(callback));
+        tool.setTargetType(request.targetType);
+        tool.setMainClass(request.mainClass);
+        tool.setTargetDirectory(new File(request.targetDirectory));
+        tool.setTargetFileName(request.targetFileName);
+        tool.setMinifying(request.minifying);
+        tool.setRuntime(request.runtime);
+        tool.setIncremental(request.incremental);
+        if (request.cacheDirectory != null) {
+            tool.setCacheDirectory(new File(request.cacheDirectory));
+        }
+        tool.setHashBasedCacheInvalidation(request.hashBasedCacheInvalidation);
+        tool.setDebugInformationGenerated(request.debugInformationGenerated);
+        tool.setSourceMapsFileGenerated(request.sourceMapsFileGenerated);
+        tool.setSourceFilesCopied(request.sourceFilesCopied);
+        tool.setOptimizationLevel(request.optimizationLevel);
+        tool.setOptimizationThreads(request.optimizationThreads);
+        tool.setRenderingThreads(request.renderingThreads);
+        tool.setDependencyAnalysisThreads(request.dependencyAnalysisThreads);
+        tool.setWasmVersion(request.wasmVersion);
+        tool.setWasmSimd(request.wasmSimd);
+        tool.setWasmBulkMemory(request.wasmBulkMemory);
+        tool.setMinHeapSize(request.minHeapSize);
+        tool.setGenerationalGC(request.generationalGC);
+        tool.setCompactingGC(request.compactingGC);
+        tool.setIncrementalGC(request.incrementalGC);
+        tool.setGCSliceBudget(request.gcSliceBudget);
+        tool.setCompactStrings(request.compactStrings);
+        tool.setNativeStrings(request.nativeStrings);
+        tool.setBigIntLongs(request.bigIntLongs);
+        tool.setSplitUnits(request.splitUnits);
+        tool.setProfileInstrumented(request.profileInstrumented);
+        if (request.profileFile != null) {
+            tool.setProfileFile(new File(request.profileFile));
+        }
+        tool.setAsyncReportGenerated(request.asyncReportGenerated);
+        tool.getClassesToPreserve().addAll(request.classesToPreserve);
+        tool.getProperties().putAll(request.properties);
+        for (String sourceDirectory : request.sourceDirectories) {
+            tool.addSourceFileProvider(new DirectorySourceFileProvider(new File(sourceDirectory)));
+        }
+        for (String sourceJar : request.sourceJarFiles) {
+            tool.addSourceFileProvider(new JarSourceFileProvider(new File(sourceJar)));
+        }
+
+        RemoteBuildResponse response = new RemoteBuildResponse();
+        URLClassLoader classLoader = null;
+        try {
+            classLoader = buildClassLoader(request);
+            tool.setClassLoader(classLoader);
+            for (String transformerName : request.transformers) {
+                tool.getTransformers().add(Class.forName(transformerName, true, classLoader)
+                        .asSubclass(ClassHolderTransformer.class).newInstance());
+            }
+            tool.generate();
+            response.cancelled = tool.wasCancelled();
+            response.severeProblemsFound = tool.getProblemProvider() != null
+                    && !tool.getProblemProvider().getSevereProblems().isEmpty();
+        } catch (TeaVMToolException | IOException | ReflectiveOperationException | RuntimeException e) {
+            response.errorOccurred = true;
+            response.stackTrace = stackTrace(e);
+        } finally {
+            if (classLoader != null) {
+                try {
+                    classLoader.close();
+                } catch (IOException e) {
+                    // Class loader only keeps jar files open, nothing to worry about
+                }
+            }
+        }
+        for (File file : tool.getGeneratedFiles()) {
+            response.generatedFiles.add(file.getAbsolutePath());
+        }
+
+        System.out.println("Build " + (response.errorOccurred ? "failed" : "complete") + " for "
+                + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds");
+        return response;
+    }
+
+    private static URLClassLoader buildClassLoader(RemoteBuildRequest request) throws MalformedURLException {
+        URL[] urls = new URL[request.classPath.size()];
+        for (int i = 0; i < urls.length; ++i) {
+            urls[i] = new File(request.classPath.get(i)).toURI().toURL();
+        }
+        return new URLClassLoader(urls, BuildDaemon.class.getClassLoader());
+    }
+
+    private static TeaVMProgressListener createProgressListener(RemoteBuildCallback callback) {
+        return new TeaVMProgressListener() {
+            private long lastReportedTime;
+
+            @Override
+            public TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) {
+                try {
+                    return callback.phaseStarted(phase, count);
+                } catch (RemoteException e) {
+                    return TeaVMProgressFeedback.CANCEL;
+                }
+            }
+
+            @Override
+            public TeaVMProgressFeedback progressReached(int progress) {
+                if (System.currentTimeMillis() - lastReportedTime < 100) {
+                    return TeaVMProgressFeedback.CONTINUE;
+                }
+                lastReportedTime = System.currentTimeMillis();
+                try {
+                    return callback.progressReached(progress);
+                } catch (RemoteException e) {
+                    return TeaVMProgressFeedback.CANCEL;
+                }
+            }
+        };
+    }
+
+    static class CallbackLog implements TeaVMToolLog {
+        private RemoteBuildCallback callback;
+
+        CallbackLog(RemoteBuildCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void info(String text) {
+            try {
+                callback.info(text);
+            } catch (RemoteException e) {
+                // Client is gone, build is going to be cancelled by progress listener
+            }
+        }
+
+        @Override
+        public void debug(String text) {
+        }
+
+        @Override
+        public void warning(String text) {
+            try {
+                callback.warning(text);
+            } catch (RemoteException e) {
+                // Client is gone, build is going to be cancelled by progress listener
+            }
+        }
+
+        @Override
+        public void error(String text) {
+            try {
+                callback.error(text);
+            } catch (RemoteException e) {
+                // Client is gone, build is going to be cancelled by progress listener
+            }
+        }
+
+        @Override
+        public void info(String text, Throwable e) {
+            info(text + "\n" + stackTrace(e));
+        }
+
+        @Override
+        public void debug(String text, Throwable e) {
+        }
+
+        @Override
+        public void warning(String text, Throwable e) {
+            warning(text + "\n" + stackTrace(e));
+        }
+
+        @Override
+        public void error(String text, Throwable e) {
+            error(text + "\n" + stackTrace(e));
+        }
+    }
+
+    private static String stackTrace(Throwable e) {
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import org.teavm.tooling.TeaVMTool;
+import org.teavm.tooling.TeaVMToolLog;
+import org.teavm.tooling.sources.DirectorySourceFileProvider;
+import org.teavm.tooling.sources.JarSourceFileProvider;
+import org.teavm.tooling.sources.SourceFileProvider;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMProgressFeedback;
+import org.teavm.vm.TeaVMProgressListener;
+
+public final class BuildDaemonClient {
+    private BuildDaemonClient() {
+    }
+
+    public static RemoteBuildService connect(int port) throws RemoteException, NotBoundException {
+        Registry registry = LocateRegistry.getRegistry(LoopbackServerSocketFactory.getHostName(), port);
+        return (RemoteBuildService) registry.lookup(RemoteBuildService.ID);
+    }
+
+    /**
+     * Reads token of daemon running on the given port, which should be passed in
+     * {@link RemoteBuildRequest#token}. Only the user who started daemon can read it.
+     */
+    public static String readToken(int port) throws IOException {
+        return BuildDaemonToken.read(port);
+    }
+
+    /**
+     * Creates request that reproduces configuration of the given tool. Class path and transformers
+     * can't be taken from tool, they should be added by caller.
+     */
+    public static RemoteBuildRequest createRequest(TeaVMTool tool) {
+        RemoteBuildRequest request = new RemoteBuildRequest();
+        request.targetType = tool.getTargetType();
+        request.mainClass = tool.getMainClass();
+        request.targetDirectory = tool.getTargetDirectory().getAbsolutePath();
+        request.targetFileName = tool.getTargetFileName();
+        request.minifying = tool.isMinifying();
+        request.runtime = tool.getRuntime();
+        request.incremental = tool.isIncremental();
+        request.cacheDirectory = tool.getCacheDirectory().getAbsolutePath();
+        request.hashBasedCacheInvalidation = tool.isHashBasedCacheInvalidation();
+        request.debugInformationGenerated = tool.isDebugInformationGenerated();
+        request.sourceMapsFileGenerated = tool.isSourceMapsFileGenerated();
+        request.sourceFilesCopied = tool.isSourceFilesCopied();
+        request.optimizationLevel = tool.getOptimizationLevel();
+        request.optimizationThreads = tool.getOptimizationThreads();
+        request.renderingThreads = tool.getRenderingThreads();
+        request.dependencyAnalysisThreads = tool.getDependencyAnalysisThreads();
+        request.wasmVersion = tool.getWasmVersion();
+        request.wasmSimd = tool.isWasmSimd();
+        request.wasmBulkMemory = tool.isWasmBulkMemory();
+        request.minHeapSize = tool.getMinHeapSize();
+        request.generationalGC = tool.isGenerationalGC();
+        request.compactingGC = tool.isCompactingGC();
+        request.incrementalGC = tool.isIncrementalGC();
+        request.gcSliceBudget = tool.getGCSliceBudget();
+        request.compactStrings = tool.isCompactStrings();
+        request.nativeStrings = tool.isNativeStrings();
+        request.bigIntLongs = tool.isBigIntLongs();
+        request.splitUnits = tool.isSplitUnits();
+        request.profileInstrumented = tool.isProfileInstrumented();
+        if (tool.getProfileFile() != null) {
+            request.profileFile = tool.getProfileFile().getAbsolutePath();
+        }
+        request.asyncReportGenerated = tool.isAsyncReportGenerated();
+        request.classesToPreserve.addAll(tool.getClassesToPreserve());
+        request.properties.putAll(tool.getProperties());
+        for (SourceFileProvider provider : tool.getSourceFileProviders()) {
+            if (provider instanceof DirectorySourceFileProvider) {
+                File directory = ((DirectorySourceFileProvider) provider).getBaseDirectory();
+                request.sourceDirectories.add(directory.getAbsolutePath());
+            } else if (provider instanceof JarSourceFileProvider) {
+                request.sourceJarFiles.add(((JarSourceFileProvider) provider).getFile().getAbsolutePath());
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Sends build request to daemon, passing its log messages and progress to the given log and listener.
+     *
+     * @param progressListener listener to pass progress to, may be {@code null}.
+     */
+    public static RemoteBuildResponse build(RemoteBuildService service, RemoteBuildRequest request,
+            TeaVMToolLog log, TeaVMProgressListener progressListener) throws RemoteException {
+        LoopbackServerSocketFactory.setUpHostName();
+        CallbackImpl callback = new CallbackImpl(log, progressListener);
+        RemoteBuildCallback stub = (RemoteBuildCallback) UnicastRemoteObject.exportObject(callback, 0, null,
+                LoopbackServerSocketFactory.INSTANCE);
+        try {
+            return service.build(request, stub);
+        } finally {
+            UnicastRemoteObject.unexportObject(callback, true);
+        }
+    }
+
+    static class CallbackImpl implements RemoteBuildCallback {
+        private TeaVMToolLog log;
+        private TeaVMProgressListener progressListener;
+
+        CallbackImpl(TeaVMToolLog log, TeaVMProgressListener progressListener) {
+            this.log = log;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        public TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) {
+            return progressListener != null
+                    ? progressListener.phaseStarted(phase, count)
+                    : TeaVMProgressFeedback.CONTINUE;
+        }
+
+        @Override
+        public TeaVMProgressFeedback progressReached(int progress) {
+            return progressListener != null
+                    ? progressListener.progressReached(progress)
+                    : TeaVMProgressFeedback.CONTINUE;
+        }
+
+        @Override
+        public void info(String text) {
+            log.info(text);
+        }
+
+        @Override
+        public void warning(String text) {
+            log.warning(text);
+        }
+
+        @Override
+        public void error(String text) {
+            log.error(text);
+        }
+    }
+}
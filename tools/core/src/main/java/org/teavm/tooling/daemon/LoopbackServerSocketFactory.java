@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling.daemon;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * Creates server sockets that only accept connections from the local machine, since build daemon
+ * loads and runs code from class path that clients send.
+ */
+final class LoopbackServerSocketFactory implements RMIServerSocketFactory {
+    static final LoopbackServerSocketFactory INSTANCE = new LoopbackServerSocketFactory();
+    private static final String HOST_NAME_PROPERTY = "java.rmi.server.hostname";
+
+    private LoopbackServerSocketFactory() {
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Makes stubs of objects exported by this JVM refer to loopback address, so that they are reachable
+     * through sockets created by this factory. Should be called before the first object is exported.
+     */
+    static void setUpHostName() {
+        if (System.getProperty(HOST_NAME_PROPERTY) == null) {
+            System.setProperty(HOST_NAME_PROPERTY, getHostName());
+        }
+    }
+
+    static String getHostName() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof LoopbackServerSocketFactory;
+    }
+
+    @Override
+    public int hashCode() {
+        return LoopbackServerSocketFactory.class.hashCode();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling.daemon;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMProgressFeedback;
+
+public interface RemoteBuildCallback extends Remote {
+    TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) throws RemoteException;
+
+    TeaVMProgressFeedback progressReached(int progress) throws RemoteException;
+
+    void info(String text) throws RemoteException;
+
+    void warning(String text) throws RemoteException;
+
+    void error(String text) throws RemoteException;
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling.daemon;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.teavm.backend.wasm.render.WasmBinaryVersion;
+import org.teavm.tooling.RuntimeCopyOperation;
+import org.teavm.tooling.TeaVMTargetType;
+import org.teavm.vm.TeaVMOptimizationLevel;
+
+public class RemoteBuildRequest implements Serializable {
+    public String token;
+    public final List<String> classPath = new ArrayList<>();
+    public final List<String> sourceDirectories = new ArrayList<>();
+    public final List<String> sourceJarFiles = new ArrayList<>();
+    public final List<String> transformers = new ArrayList<>();
+    public final List<String> classesToPreserve = new ArrayList<>();
+    public TeaVMTargetType targetType = TeaVMTargetType.JAVASCRIPT;
+    public String mainClass;
+    public String targetDirectory;
+    public String targetFileName = "";
+    public boolean minifying = true;
+    public RuntimeCopyOperation runtime = RuntimeCopyOperation.SEPARATE;
+    public boolean incremental;
+    public String cacheDirectory;
+    public boolean hashBasedCacheInvalidation;
+    public boolean debugInformationGenerated;
+    public boolean sourceMapsFileGenerated;
+    public boolean sourceFilesCopied;
+    public TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
+    public int optimizationThreads = 1;
+    public int renderingThreads = 1;
+    public int dependencyAnalysisThreads = 1;
+    public WasmBinaryVersion wasmVersion = WasmBinaryVersion.V_0x1;
+    public boolean wasmSimd;
+    public boolean wasmBulkMemory;
+    public int minHeapSize = 32 * (1 << 20);
+    public boolean generationalGC;
+    public boolean compactingGC;
+    public boolean incrementalGC;
+    public int gcSliceBudget = 1024;
+    public boolean compactStrings;
+    public boolean nativeStrings;
+    public boolean bigIntLongs;
+    public boolean splitUnits;
+    public boolean profileInstrumented;
+    public String profileFile;
+    public boolean asyncReportGenerated;
+    public Properties properties = new Properties();
+}
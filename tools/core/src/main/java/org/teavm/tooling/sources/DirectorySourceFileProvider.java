@@ -27,6 +27,10 @@ public class DirectorySourceFileProvider implements SourceFileProvider {
         this.baseDirectory = baseDirectory;
     }
 
+    public File getBaseDirectory() {
+        return baseDirectory;
+    }
+
     @Override
     public void open() throws IOException {
     }
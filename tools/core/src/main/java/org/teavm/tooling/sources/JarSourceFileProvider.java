@@ -33,6 +33,10 @@ public class JarSourceFileProvider implements SourceFileProvider {
         this.file = file;
     }
 
+    public File getFile() {
+        return file;
+    }
+
     @Override
     public void open() throws IOException {
         zipFile = new ZipFile(file);
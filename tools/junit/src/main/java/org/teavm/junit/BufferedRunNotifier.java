@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2018 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+
+/**
+ * Records notifications about a single test until the test finishes, so that they can be passed to
+ * the actual notifier later. Tests are compiled and run concurrently, but their results are reported
+ * in the order of tests.
+ */
+class BufferedRunNotifier extends RunNotifier {
+    private Description description;
+    private List<Consumer<RunNotifier>> events = new ArrayList<>();
+    private CountDownLatch finished = new CountDownLatch(1);
+    private boolean replayed;
+
+    BufferedRunNotifier(Description description) {
+        this.description = description;
+    }
+
+    @Override
+    public void fireTestStarted(Description description) {
+        record(notifier -> notifier.fireTestStarted(description));
+    }
+
+    @Override
+    public void fireTestFailure(Failure failure) {
+        record(notifier -> notifier.fireTestFailure(failure));
+    }
+
+    @Override
+    public void fireTestAssumptionFailed(Failure failure) {
+        record(notifier -> notifier.fireTestAssumptionFailed(failure));
+    }
+
+    @Override
+    public void fireTestIgnored(Description description) {
+        record(notifier -> notifier.fireTestIgnored(description));
+    }
+
+    @Override
+    public void fireTestFinished(Description description) {
+        record(notifier -> notifier.fireTestFinished(description));
+        if (description.equals(this.description)) {
+            finished.countDown();
+        }
+    }
+
+    private synchronized void record(Consumer<RunNotifier> event) {
+        if (!replayed) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Waits until the test finishes and passes recorded notifications to the given notifier.
+     * Notifications that come after that are ignored.
+     */
+    void replay(RunNotifier notifier) throws InterruptedException {
+        finished.await();
+        List<Consumer<RunNotifier>> recordedEvents;
+        synchronized (this) {
+            replayed = true;
+            recordedEvents = events;
+        }
+        for (Consumer<RunNotifier> event : recordedEvents) {
+            event.accept(notifier);
+        }
+    }
+}
@@ -20,10 +20,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 class CRunStrategy implements TestRunStrategy {
     private String compilerCommand;
+    private ConcurrentMap<String, BatchResult> batchResults = new ConcurrentHashMap<>();
 
     CRunStrategy(String compilerCommand) {
         this.compilerCommand = compilerCommand;
@@ -39,19 +44,13 @@ class CRunStrategy implements TestRunStrategy {
 
     @Override
     public void runTest(TestRun run) throws IOException {
+        if (run.getTestName() != null) {
+            runBatchTest(run);
+            return;
+        }
         try {
             File inputFile = new File(run.getBaseDirectory(), run.getFileName());
-            String exeName = run.getFileName();
-            if (exeName.endsWith(".c")) {
-                exeName = exeName.substring(0, exeName.length() - 2);
-            }
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                exeName += ".exe";
-            } else {
-                exeName += ".out";
-            }
-
-            File outputFile = new File(run.getBaseDirectory(), exeName);
+            File outputFile = new File(run.getBaseDirectory(), getExecutableName(run.getFileName()));
             List<String> compilerOutput = new ArrayList<>();
             boolean compilerSuccess = runCompiler(inputFile, outputFile, compilerOutput);
             if (!compilerSuccess) {
@@ -74,6 +73,73 @@ class CRunStrategy implements TestRunStrategy {
         }
     }
 
+    /*
+     * Program that contains several tests runs all of them at once, so the first test of the program compiles
+     * and runs it, while other tests take their results from output of that run.
+     */
+    private void runBatchTest(TestRun run) throws IOException {
+        File inputFile = new File(run.getBaseDirectory(), run.getFileName());
+        String key = inputFile.getPath() + ":" + inputFile.lastModified();
+        BatchResult result = batchResults.computeIfAbsent(key, k -> runBatch(run, inputFile));
+        if (result.error != null) {
+            run.getCallback().error(result.error);
+            return;
+        }
+
+        List<String> output = result.outputs.get(run.getTestName());
+        if (output == null) {
+            run.getCallback().error(new RuntimeException("Test did not run:\n" + mergeLines(result.rest)));
+        } else if (!output.isEmpty() && output.get(output.size() - 1).equals("SUCCESS")) {
+            writeLines(output.subList(0, output.size() - 1));
+            run.getCallback().complete();
+        } else {
+            run.getCallback().error(new RuntimeException("Test failed:\n" + mergeLines(output)));
+        }
+    }
+
+    private BatchResult runBatch(TestRun run, File inputFile) {
+        BatchResult result = new BatchResult();
+        try {
+            File outputFile = new File(run.getBaseDirectory(), getExecutableName(run.getFileName()));
+            List<String> compilerOutput = new ArrayList<>();
+            if (!runCompiler(inputFile, outputFile, compilerOutput)) {
+                result.error = new RuntimeException("C compiler error:\n" + mergeLines(compilerOutput));
+                return result;
+            }
+            writeLines(compilerOutput);
+
+            List<String> runtimeOutput = new ArrayList<>();
+            outputFile.setExecutable(true);
+            runProcess(new ProcessBuilder(outputFile.getPath()).start(), runtimeOutput);
+
+            List<String> current = result.rest;
+            for (String line : runtimeOutput) {
+                if (line.startsWith(TestEntryPoint.TEST_MARKER)) {
+                    current = new ArrayList<>();
+                    result.outputs.put(line.substring(TestEntryPoint.TEST_MARKER.length()), current);
+                } else {
+                    current.add(line);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            result.error = e;
+        }
+        return result;
+    }
+
+    private String getExecutableName(String fileName) {
+        String exeName = fileName;
+        if (exeName.endsWith(".c")) {
+            exeName = exeName.substring(0, exeName.length() - 2);
+        }
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            exeName += ".exe";
+        } else {
+            exeName += ".out";
+        }
+        return exeName;
+    }
+
     private String mergeLines(List<String> lines) {
         StringBuilder sb = new StringBuilder();
         for (String line : lines) {
@@ -118,4 +184,10 @@ class CRunStrategy implements TestRunStrategy {
 
         return process.waitFor() == 0;
     }
+
+    static class BatchResult {
+        Map<String, List<String>> outputs = new HashMap<>();
+        List<String> rest = new ArrayList<>();
+        Throwable error;
+    }
 }
@@ -64,7 +64,8 @@ class HtmlUnitRunStrategy implements TestRunStrategy {
         AsyncResult asyncResult = new AsyncResult();
         Function function = (Function) page.get().executeJavaScript(readResource("teavm-htmlunit-adapter.js"))
                 .getJavaScriptResult();
-        Object[] args = new Object[] { new NativeJavaObject(function, asyncResult, AsyncResult.class) };
+        Object[] args = new Object[] { new NativeJavaObject(function, asyncResult, AsyncResult.class),
+                run.getTestName() };
         page.get().executeJavaScriptFunctionIfPossible(function, function, args, page.get());
         JavaScriptResultParser.parseResult((String) asyncResult.getResult(), run.getCallback());
     }
@@ -69,7 +69,8 @@ class SeleniumRunStrategy implements TestRunStrategy {
                     readResource("teavm-selenium.js"),
                     readFile(new File(run.getBaseDirectory(), "runtime.js")),
                     readFile(new File(run.getBaseDirectory(), run.getFileName())),
-                    readResource("teavm-selenium-adapter.js"));
+                    readResource("teavm-selenium-adapter.js"),
+                    run.getTestName());
         } catch (Throwable e) {
             run.getCallback().error(e);
             @SuppressWarnings("unchecked")
@@ -116,6 +116,42 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         }
     };
 
+    TeaVMTestConfiguration<WasmTarget> WASM_GENERATIONAL = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "generational";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setMinHeapSize(32 * 1024 * 1024);
+            target.setGenerationalGC(true);
+        }
+    };
+
+    TeaVMTestConfiguration<WasmTarget> WASM_COMPACTING = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "compacting";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setMinHeapSize(32 * 1024 * 1024);
+            target.setCompactingGC(true);
+        }
+    };
+
     TeaVMTestConfiguration<CTarget> C_DEFAULT = new TeaVMTestConfiguration<CTarget>() {
         @Override
         public String getSuffix() {
@@ -147,4 +183,38 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         public void apply(CTarget target) {
         }
     };
+
+    TeaVMTestConfiguration<CTarget> C_GENERATIONAL = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "generational";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setGenerationalGC(true);
+        }
+    };
+
+    TeaVMTestConfiguration<CTarget> C_COMPACTING = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "compacting";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setCompactingGC(true);
+        }
+    };
 }
@@ -26,15 +26,19 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -76,6 +80,8 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     private static final String PATH_PARAM = "teavm.junit.target";
     private static final String JS_RUNNER = "teavm.junit.js.runner";
     private static final String THREAD_COUNT = "teavm.junit.js.threads";
+    private static final String C_THREAD_COUNT = "teavm.junit.c.threads";
+    private static final String COMPILE_THREAD_COUNT = "teavm.junit.compile.threads";
     private static final String SELENIUM_URL = "teavm.junit.js.selenium.url";
     private static final String JS_ENABLED = "teavm.junit.js";
     private static final String C_ENABLED = "teavm.junit.c";
@@ -83,6 +89,9 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     private static final String C_COMPILER = "teavm.junit.c.compiler";
     private static final String MINIFIED = "teavm.junit.minified";
     private static final String OPTIMIZED = "teavm.junit.optimized";
+    private static final String GENERATIONAL_GC = "teavm.junit.gc.generational";
+    private static final String COMPACTING_GC = "teavm.junit.gc.compacting";
+    private static final String BATCH = "teavm.junit.batch";
 
     private static final int stopTimeout = 15000;
     private Class<?> testClass;
@@ -95,8 +104,16 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     private Map<Method, Description> descriptions = new HashMap<>();
     private static Map<RunKind, RunnerKindInfo> runners = new HashMap<>();
     private static ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    private static ExecutorService compileExecutor = Executors.newFixedThreadPool(
+            getThreadCount(COMPILE_THREAD_COUNT), runnable -> {
+                Thread thread = new Thread(runnable, "TeaVM test compiler");
+                thread.setDaemon(true);
+                return thread;
+            });
     private CountDownLatch latch;
     private List<Method> filteredChildren;
+    private Map<TeaVMTestConfiguration<?>, CompileResult> batchResults = new HashMap<>();
+    private boolean batchFilesCopied;
 
     static class RunnerKindInfo {
         volatile TestRunner runner;
@@ -179,8 +196,19 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         latch = new CountDownLatch(children.size());
 
         notifier.fireTestStarted(getDescription());
+        List<BufferedRunNotifier> childNotifiers = new ArrayList<>();
         for (Method child : children) {
-            runChild(child, notifier);
+            BufferedRunNotifier childNotifier = new BufferedRunNotifier(describeChild(child));
+            childNotifiers.add(childNotifier);
+            runChild(child, childNotifier);
+        }
+
+        try {
+            for (BufferedRunNotifier childNotifier : childNotifiers) {
+                childNotifier.replay(notifier);
+            }
+        } catch (InterruptedException e) {
+            // do nothing
         }
 
         while (true) {
@@ -245,62 +273,84 @@ public class TeaVMTestRunner extends Runner implements Filterable {
 
         Description description = describeChild(child);
         if (success && outputDir != null) {
-            int[] configurationIndex = new int[] { 0 };
-            List<Consumer<Boolean>> onSuccess = new ArrayList<>();
-
-            List<TestRun> runs = new ArrayList<>();
-            onSuccess.add(runSuccess -> {
-                if (runSuccess && configurationIndex[0] < runs.size()) {
-                    submitRun(runs.get(configurationIndex[0]++));
-                } else {
-                    notifier.fireTestFinished(description);
-                    latch.countDown();
-                }
-            });
+            compileExecutor.execute(() -> compileChild(child, notifier));
+        } else {
+            if (!ran) {
+                notifier.fireTestIgnored(description);
+            }
+            notifier.fireTestFinished(description);
+            latch.countDown();
+        }
+    }
 
-            try {
-                File outputPath = getOutputPath(child);
-                copyJsFilesTo(outputPath);
+    /*
+     * Compilation of tests happens in a pool of threads, so that compilation of a test overlaps with
+     * running previous ones. Notifications are buffered per test and passed to JUnit in the order of tests.
+     */
+    private void compileChild(Method child, RunNotifier notifier) {
+        Description description = describeChild(child);
+        int[] configurationIndex = new int[] { 0 };
+        List<Consumer<Boolean>> onSuccess = new ArrayList<>();
 
-                for (TeaVMTestConfiguration<JavaScriptTarget> configuration : getJavaScriptConfigurations()) {
-                    TestRun run = compile(child, notifier, RunKind.JAVASCRIPT,
-                            m -> compileToJs(m, configuration, outputPath), onSuccess.get(0));
-                    if (run != null) {
-                        runs.add(run);
-                    }
-                }
+        List<TestRun> runs = new ArrayList<>();
+        onSuccess.add(runSuccess -> {
+            if (runSuccess && configurationIndex[0] < runs.size()) {
+                submitRun(runs.get(configurationIndex[0]++));
+            } else {
+                notifier.fireTestFinished(description);
+                latch.countDown();
+            }
+        });
 
-                for (TeaVMTestConfiguration<CTarget> configuration : getCConfigurations()) {
-                    TestRun run = compile(child, notifier, RunKind.C,
-                            m -> compileToC(m, configuration, outputPath), onSuccess.get(0));
-                    if (run != null) {
-                        runs.add(run);
+        try {
+            boolean batch = Boolean.getBoolean(BATCH);
+            File outputPath = batch ? getOutputPath(testClass) : getOutputPath(child);
+            if (!batch) {
+                copyJsFilesTo(outputPath);
+            } else {
+                synchronized (batchResults) {
+                    if (!batchFilesCopied) {
+                        copyJsFilesTo(outputPath);
+                        batchFilesCopied = true;
                     }
                 }
+            }
 
-                for (TeaVMTestConfiguration<WasmTarget> configuration : getWasmConfigurations()) {
-                    TestRun run = compile(child, notifier, RunKind.WASM,
-                            m -> compileToWasm(m, configuration, outputPath), onSuccess.get(0));
-                    if (run != null) {
-                        runs.add(run);
-                    }
+            for (TeaVMTestConfiguration<JavaScriptTarget> configuration : getJavaScriptConfigurations()) {
+                TestRun run = compile(child, notifier, RunKind.JAVASCRIPT,
+                        compiler(batch, configuration, m -> compileToJs(m, configuration, outputPath)),
+                        onSuccess.get(0));
+                if (run != null) {
+                    runs.add(run);
                 }
+            }
 
-            } catch (Throwable e) {
-                notifier.fireTestFailure(new Failure(description, e));
-                notifier.fireTestFinished(description);
-                latch.countDown();
-                return;
+            for (TeaVMTestConfiguration<CTarget> configuration : getCConfigurations()) {
+                TestRun run = compile(child, notifier, RunKind.C,
+                        compiler(batch, configuration, m -> compileToC(m, configuration, outputPath)),
+                        onSuccess.get(0));
+                if (run != null) {
+                    runs.add(run);
+                }
             }
 
-            onSuccess.get(0).accept(true);
-        } else {
-            if (!ran) {
-                notifier.fireTestIgnored(description);
+            for (TeaVMTestConfiguration<WasmTarget> configuration : getWasmConfigurations()) {
+                TestRun run = compile(child, notifier, RunKind.WASM,
+                        compiler(batch, configuration, m -> compileToWasm(m, configuration, outputPath)),
+                        onSuccess.get(0));
+                if (run != null) {
+                    runs.add(run);
+                }
             }
+
+        } catch (Throwable e) {
+            notifier.fireTestFailure(new Failure(description, e));
             notifier.fireTestFinished(description);
             latch.countDown();
+            return;
         }
+
+        onSuccess.get(0).accept(true);
     }
 
     private boolean runInJvm(Method child, RunNotifier notifier, Set<Class<?>> expectedExceptions) {
@@ -341,6 +391,28 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         return true;
     }
 
+    /*
+     * In batch mode all test methods of the class are compiled into one program per configuration,
+     * so that dependency analysis and optimization run once per class instead of once per test method.
+     */
+    private CompileFunction compiler(boolean batch, TeaVMTestConfiguration<?> configuration,
+            BatchCompileFunction compiler) {
+        if (!batch) {
+            return method -> compiler.compile(Collections.singletonList(method));
+        }
+        return method -> {
+            synchronized (batchResults) {
+                CompileResult result = batchResults.get(configuration);
+                if (result == null) {
+                    result = compiler.compile(getFilteredChildren());
+                    result.batch = true;
+                    batchResults.put(configuration, result);
+                }
+                return result;
+            }
+        };
+    }
+
     private TestRun compile(Method child, RunNotifier notifier, RunKind kind,
             CompileFunction compiler, Consumer<Boolean> onComplete) {
         Description description = describeChild(child);
@@ -374,7 +446,7 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         };
 
         return new TestRun(compileResult.file.getParentFile(), child, description, compileResult.file.getName(),
-                kind, callback);
+                kind, compileResult.batch ? child.getName() : null, callback);
     }
 
     private void submitRun(TestRun run) {
@@ -388,11 +460,7 @@ public class TeaVMTestRunner extends Runner implements Filterable {
 
             if (info.runner == null) {
                 info.runner = new TestRunner(info.strategy);
-                try {
-                    info.runner.setNumThreads(Integer.parseInt(System.getProperty(THREAD_COUNT, "1")));
-                } catch (NumberFormatException e) {
-                    info.runner.setNumThreads(1);
-                }
+                info.runner.setNumThreads(getThreadCount(run.getKind() == RunKind.C ? C_THREAD_COUNT : THREAD_COUNT));
                 info.runner.init();
             }
             info.runner.run(run);
@@ -406,6 +474,14 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         }
     }
 
+    private static int getThreadCount(String property) {
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty(property, "1")));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
     private static void cleanupRunner(RunKind kind) {
         synchronized (TeaVMTestRunner.class) {
             RunnerKindInfo info = runners.get(kind);
@@ -416,9 +492,13 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     }
 
     private File getOutputPath(Method method) {
-        File path = outputDir;
-        path = new File(path, method.getDeclaringClass().getName().replace('.', '/'));
-        path = new File(path, method.getName());
+        File path = new File(getOutputPath(method.getDeclaringClass()), method.getName());
+        path.mkdirs();
+        return path;
+    }
+
+    private File getOutputPath(Class<?> cls) {
+        File path = new File(outputDir, cls.getName().replace('.', '/'));
         path.mkdirs();
         return path;
     }
@@ -430,32 +510,35 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         resourceToFile("teavm-run-test-wasm.html", new File(path, "run-test-wasm.html"));
     }
 
-    private CompileResult compileToJs(Method method, TeaVMTestConfiguration<JavaScriptTarget> configuration,
+    private CompileResult compileToJs(List<Method> methods, TeaVMTestConfiguration<JavaScriptTarget> configuration,
             File path) {
-        return compileTest(method, configuration, JavaScriptTarget::new, vm -> {
+        return compileTest(methods, configuration, JavaScriptTarget::new, vm -> {
             MethodReference exceptionMsg = new MethodReference(ExceptionHelper.class, "showException",
                     Throwable.class, String.class);
-            vm.entryPoint("runTest", new MethodReference(TestEntryPoint.class, "run", void.class)).async();
+            vm.entryPoint("runTest", new MethodReference(TestEntryPoint.class, "run", String.class, void.class))
+                    .withValue(1, String.class.getName())
+                    .async();
             vm.entryPoint("extractException", exceptionMsg);
         }, path, ".js");
     }
 
-    private CompileResult compileToC(Method method, TeaVMTestConfiguration<CTarget> configuration,
+    private CompileResult compileToC(List<Method> methods, TeaVMTestConfiguration<CTarget> configuration,
             File path) {
-        return compileTest(method, configuration, CTarget::new, vm -> {
+        return compileTest(methods, configuration, CTarget::new, vm -> {
             vm.entryPoint("main", new MethodReference(TestEntryPoint.class, "main", String[].class, void.class));
         }, path, ".c");
     }
 
-    private CompileResult compileToWasm(Method method, TeaVMTestConfiguration<WasmTarget> configuration,
+    private CompileResult compileToWasm(List<Method> methods, TeaVMTestConfiguration<WasmTarget> configuration,
             File path) {
-        return compileTest(method, configuration, WasmTarget::new, vm -> {
+        return compileTest(methods, configuration, WasmTarget::new, vm -> {
             vm.entryPoint("main", new MethodReference(TestEntryPoint.class, "main", String[].class, void.class));
         }, path, ".wasm");
     }
 
-    private <T extends TeaVMTarget> CompileResult compileTest(Method method, TeaVMTestConfiguration<T> configuration,
-            Supplier<T> targetSupplier, Consumer<TeaVM> preBuild, File path, String extension) {
+    private <T extends TeaVMTarget> CompileResult compileTest(List<Method> methods,
+            TeaVMTestConfiguration<T> configuration, Supplier<T> targetSupplier, Consumer<TeaVM> preBuild,
+            File path, String extension) {
         CompileResult result = new CompileResult();
 
         StringBuilder simpleName = new StringBuilder();
@@ -471,9 +554,6 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         ClassLoader classLoader = TeaVMTestRunner.class.getClassLoader();
         ClassHolderSource classSource = getClassSource(classLoader);
 
-        MethodHolder methodHolder = classHolder.getMethod(getDescriptor(method));
-        Class<?> runnerType = testAdapter.getRunner(methodHolder);
-
         T target = targetSupplier.get();
         configuration.apply(target);
 
@@ -483,7 +563,7 @@ public class TeaVMTestRunner extends Runner implements Filterable {
                 .build();
 
         Properties properties = new Properties();
-        applyProperties(method.getDeclaringClass(), properties);
+        applyProperties(testClass, properties);
         vm.setProperties(properties);
 
         vm.setIncremental(false);
@@ -491,7 +571,18 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         vm.installPlugins();
 
         new TestExceptionPlugin().install(vm);
-        new TestEntryPointTransformer(runnerType.getName(), methodHolder.getReference()).install(vm);
+        if (Boolean.getBoolean(BATCH)) {
+            Map<MethodReference, String> testMethods = new LinkedHashMap<>();
+            for (Method method : methods) {
+                MethodHolder methodHolder = classHolder.getMethod(getDescriptor(method));
+                testMethods.put(methodHolder.getReference(), testAdapter.getRunner(methodHolder).getName());
+            }
+            new TestEntryPointTransformer(testMethods).install(vm);
+        } else {
+            MethodHolder methodHolder = classHolder.getMethod(getDescriptor(methods.get(0)));
+            new TestEntryPointTransformer(testAdapter.getRunner(methodHolder).getName(),
+                    methodHolder.getReference()).install(vm);
+        }
 
         preBuild.accept(vm);
         vm.build(new DirectoryBuildTarget(outputFile.getParentFile()), outputFile.getName());
@@ -524,6 +615,12 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.WASM_OPTIMIZED);
             }
+            if (Boolean.getBoolean(GENERATIONAL_GC)) {
+                configurations.add(TeaVMTestConfiguration.WASM_GENERATIONAL);
+            }
+            if (Boolean.getBoolean(COMPACTING_GC)) {
+                configurations.add(TeaVMTestConfiguration.WASM_COMPACTING);
+            }
         }
         return configurations;
     }
@@ -535,6 +632,12 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.C_OPTIMIZED);
             }
+            if (Boolean.getBoolean(GENERATIONAL_GC)) {
+                configurations.add(TeaVMTestConfiguration.C_GENERATIONAL);
+            }
+            if (Boolean.getBoolean(COMPACTING_GC)) {
+                configurations.add(TeaVMTestConfiguration.C_COMPACTING);
+            }
         }
         return configurations;
     }
@@ -579,7 +682,7 @@ public class TeaVMTestRunner extends Runner implements Filterable {
         }
     }
 
-    private static ClassHolderSource getClassSource(ClassLoader classLoader) {
+    private static synchronized ClassHolderSource getClassSource(ClassLoader classLoader) {
         return classSources.computeIfAbsent(classLoader, cl -> new PreOptimizingClassHolderSource(
                 new ClasspathClassHolderSource(classLoader)));
     }
@@ -598,6 +701,7 @@ public class TeaVMTestRunner extends Runner implements Filterable {
 
     static class CompileResult {
         boolean success = true;
+        boolean batch;
         String errorMessage;
         File file;
     }
@@ -605,4 +709,8 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     interface CompileFunction {
         CompileResult compile(Method method);
     }
+
+    interface BatchCompileFunction {
+        CompileResult compile(List<Method> methods);
+    }
 }
@@ -18,24 +18,48 @@ package org.teavm.junit;
 import org.teavm.testing.TestRunner;
 
 final class TestEntryPoint {
+    static final String TEST_MARKER = "TEST ";
     private static Object testCase;
 
     private TestEntryPoint() {
     }
 
-    public static void run() throws Throwable {
-        createRunner().run(() -> launchTest());
+    /**
+     * Runs the test with the given name. When the program was compiled for a single test,
+     * the name is ignored.
+     */
+    public static void run(String name) throws Throwable {
+        testCase = null;
+        createRunner(name).run(() -> launchTest(name));
     }
 
-    private static native TestRunner createRunner();
+    private static native TestRunner createRunner(String name);
 
-    private static native void launchTest();
+    private static native void launchTest(String name);
+
+    private static native String[] getTestNames();
 
     private static native boolean isExpectedException(Class<?> cls);
 
+    /**
+     * Runs the test, or all tests one by one when the program was compiled for several tests. In the latter case
+     * output of each test is preceded by {@link #TEST_MARKER} followed by name of the test.
+     */
     public static void main(String[] args) throws Exception {
+        String[] names = getTestNames();
+        if (names.length == 0) {
+            runAndReport(null);
+        } else {
+            for (String name : names) {
+                System.out.println(TEST_MARKER + name);
+                runAndReport(name);
+            }
+        }
+    }
+
+    private static void runAndReport(String name) {
         try {
-            run();
+            run(name);
             System.out.println("SUCCESS");
         } catch (Throwable e) {
             e.printStackTrace(System.out);
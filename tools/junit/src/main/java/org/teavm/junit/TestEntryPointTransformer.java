@@ -15,6 +15,8 @@
  */
 package org.teavm.junit;
 
+import java.util.Collections;
+import java.util.Map;
 import org.junit.Test;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.model.AnnotationReader;
@@ -31,17 +33,28 @@ import org.teavm.model.Program;
 import org.teavm.model.TryCatchBlock;
 import org.teavm.model.ValueType;
 import org.teavm.model.emit.ProgramEmitter;
+import org.teavm.model.emit.StringChooseEmitter;
 import org.teavm.model.emit.ValueEmitter;
+import org.teavm.testing.TestRunner;
 import org.teavm.vm.spi.TeaVMHost;
 import org.teavm.vm.spi.TeaVMPlugin;
 
 class TestEntryPointTransformer implements ClassHolderTransformer, TeaVMPlugin {
-    private String runnerClassName;
-    private MethodReference testMethod;
+    private Map<MethodReference, String> testMethods;
+    private boolean batch;
 
     TestEntryPointTransformer(String runnerClassName, MethodReference testMethod) {
-        this.runnerClassName = runnerClassName;
-        this.testMethod = testMethod;
+        this.testMethods = Collections.singletonMap(testMethod, runnerClassName);
+    }
+
+    /**
+     * Creates transformer that makes test entry point dispatch between several test methods by their names.
+     *
+     * @param testMethods map from test methods to names of classes of their runners.
+     */
+    TestEntryPointTransformer(Map<MethodReference, String> testMethods) {
+        this.testMethods = testMethods;
+        batch = true;
     }
 
     @Override
@@ -53,12 +66,19 @@ class TestEntryPointTransformer implements ClassHolderTransformer, TeaVMPlugin {
     public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
         if (cls.getName().equals(TestEntryPoint.class.getName())) {
             for (MethodHolder method : cls.getMethods()) {
-                if (method.getName().equals("createRunner")) {
-                    method.setProgram(generateRunnerProgram(method, innerSource));
-                    method.getModifiers().remove(ElementModifier.NATIVE);
-                } else if (method.getName().equals("launchTest")) {
-                    method.setProgram(generateLaunchProgram(method, innerSource));
-                    method.getModifiers().remove(ElementModifier.NATIVE);
+                switch (method.getName()) {
+                    case "createRunner":
+                        method.setProgram(generateRunnerProgram(method, innerSource));
+                        method.getModifiers().remove(ElementModifier.NATIVE);
+                        break;
+                    case "launchTest":
+                        method.setProgram(generateLaunchProgram(method, innerSource));
+                        method.getModifiers().remove(ElementModifier.NATIVE);
+                        break;
+                    case "getTestNames":
+                        method.setProgram(generateTestNamesProgram(method, innerSource));
+                        method.getModifiers().remove(ElementModifier.NATIVE);
+                        break;
                 }
             }
         }
@@ -66,12 +86,37 @@ class TestEntryPointTransformer implements ClassHolderTransformer, TeaVMPlugin {
 
     private Program generateRunnerProgram(MethodHolder method, ClassReaderSource innerSource) {
         ProgramEmitter pe = ProgramEmitter.create(method, innerSource);
-        pe.construct(runnerClassName).returnValue();
+        if (!batch) {
+            pe.construct(testMethods.values().iterator().next()).returnValue();
+            return pe.getProgram();
+        }
+
+        StringChooseEmitter choice = pe.stringChoice(pe.var(1, String.class));
+        for (Map.Entry<MethodReference, String> entry : testMethods.entrySet()) {
+            choice.option(entry.getKey().getName(), () -> pe.construct(entry.getValue()).returnValue());
+        }
+        choice.otherwise(() -> raiseUnknownTest(pe));
+        pe.constantNull(TestRunner.class).returnValue();
         return pe.getProgram();
     }
 
     private Program generateLaunchProgram(MethodHolder method, ClassReaderSource innerSource) {
         ProgramEmitter pe = ProgramEmitter.create(method, innerSource);
+        if (!batch) {
+            emitLaunch(pe, testMethods.keySet().iterator().next(), innerSource);
+            return pe.getProgram();
+        }
+
+        StringChooseEmitter choice = pe.stringChoice(pe.var(1, String.class));
+        for (MethodReference testMethod : testMethods.keySet()) {
+            choice.option(testMethod.getName(), () -> emitLaunch(pe, testMethod, innerSource));
+        }
+        choice.otherwise(() -> raiseUnknownTest(pe));
+        pe.exit();
+        return pe.getProgram();
+    }
+
+    private void emitLaunch(ProgramEmitter pe, MethodReference testMethod, ClassReaderSource innerSource) {
         ValueEmitter testCaseVar = pe.getField(TestEntryPoint.class, "testCase", Object.class);
         pe.when(testCaseVar.isNull())
             .thenDo(() -> {
@@ -102,6 +147,25 @@ class TestEntryPointTransformer implements ClassHolderTransformer, TeaVMPlugin {
         } else {
             pe.exit();
         }
+    }
+
+    private void raiseUnknownTest(ProgramEmitter pe) {
+        pe.construct(IllegalArgumentException.class, pe.constant("Unknown test")).raise();
+    }
+
+    private Program generateTestNamesProgram(MethodHolder method, ClassReaderSource innerSource) {
+        ProgramEmitter pe = ProgramEmitter.create(method, innerSource);
+        if (!batch) {
+            pe.constructArray(String.class, 0).returnValue();
+            return pe.getProgram();
+        }
+
+        ValueEmitter names = pe.constructArray(String.class, testMethods.size());
+        int index = 0;
+        for (MethodReference testMethod : testMethods.keySet()) {
+            names.setElement(index++, pe.constant(testMethod.getName()));
+        }
+        names.returnValue();
         return pe.getProgram();
     }
 }
@@ -25,15 +25,17 @@ class TestRun {
     private Description description;
     private String fileName;
     private RunKind kind;
+    private String testName;
     private TestRunCallback callback;
 
     TestRun(File baseDirectory, Method method, Description description, String fileName, RunKind kind,
-            TestRunCallback callback) {
+            String testName, TestRunCallback callback) {
         this.baseDirectory = baseDirectory;
         this.method = method;
         this.description = description;
         this.fileName = fileName;
         this.kind = kind;
+        this.testName = testName;
         this.callback = callback;
     }
 
@@ -57,6 +59,13 @@ class TestRun {
         return kind;
     }
 
+    /**
+     * Returns name of the test to run, when the program contains several tests, or {@code null} otherwise.
+     */
+    public String getTestName() {
+        return testName;
+    }
+
     public TestRunCallback getCallback() {
         return callback;
     }
@@ -1,4 +1,4 @@
-function main(callback) {
+function main(callback, testName) {
     $rt_startThread(function () {
         var thread = $rt_nativeThread();
         var instance;
@@ -12,7 +12,7 @@ function main(callback) {
             switch (ptr) {
                 case 0:
                     try {
-                        runTest();
+                        runTest(testName ? $rt_str(testName) : null);
                     } catch (e) {
                         message = {};
                         makeErrorMessage(message, e);
@@ -26,7 +26,7 @@ $rt_startThread(function() {
     loop: while (true) { switch (ptr) {
     case 0:
         try {
-            runTest();
+            runTest(typeof teavmTestName === "string" ? $rt_str(teavmTestName) : null);
         } catch (e) {
             message = {};
             makeErrorMessage(message, e);
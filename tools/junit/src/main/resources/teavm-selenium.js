@@ -17,6 +17,7 @@
 var runtimeSource = arguments[0];
 var testSource = arguments[1];
 var adapterSource = arguments[2];
+var testName = arguments[3];
 var seleniumCallback = arguments[arguments.length - 1];
 
 var iframe = document.createElement("iframe");
@@ -27,7 +28,7 @@ window.jsErrors = [];
 window.onerror = reportError;
 iframe.contentWindow.onerror = reportError;
 
-loadScripts([ runtimeSource, testSource, adapterSource ]);
+loadScripts([ runtimeSource, testSource, "var teavmTestName = " + JSON.stringify(testName) + ";", adapterSource ]);
 window.addEventListener("message", handleMessage);
 
 function handleMessage(event) {
@@ -83,6 +83,8 @@ public abstract class AbstractTeaVMMojo extends AbstractMojo {
 
     protected ClassLoader classLoader;
 
+    protected List<File> classPathEntries = new ArrayList<>();
+
     protected abstract File getTargetDirectory();
 
     protected final List<ClassHolderTransformer> instantiateTransformers(ClassLoader classLoader)
@@ -150,6 +152,7 @@ public abstract class AbstractTeaVMMojo extends AbstractMojo {
             Log log = getLog();
             log.info("Preparing classpath for JavaScript generation");
             List<URL> urls = new ArrayList<>();
+            classPathEntries.clear();
             StringBuilder classpath = new StringBuilder();
             for (Artifact artifact : project.getArtifacts()) {
                 if (!filterByScope(artifact)) {
@@ -161,15 +164,18 @@ public abstract class AbstractTeaVMMojo extends AbstractMojo {
                 }
                 classpath.append(file.getPath());
                 urls.add(file.toURI().toURL());
+                classPathEntries.add(file);
             }
             if (classpath.length() > 0) {
                 classpath.append(':');
             }
             classpath.append(classFiles.getPath());
             urls.add(classFiles.toURI().toURL());
+            classPathEntries.add(classFiles);
             for (File additionalEntry : getAdditionalClassPath()) {
                 classpath.append(':').append(additionalEntry.getPath());
                 urls.add(additionalEntry.toURI().toURL());
+                classPathEntries.add(additionalEntry);
             }
             log.info("Using the following classpath for JavaScript generation: " + classpath);
             classLoader = new URLClassLoader(urls.toArray(new URL[urls.size()]),
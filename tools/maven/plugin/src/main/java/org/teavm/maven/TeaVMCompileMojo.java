@@ -16,6 +16,9 @@
 package org.teavm.maven;
 
 import java.io.File;
+import java.io.IOException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -29,6 +32,10 @@ import org.teavm.tooling.RuntimeCopyOperation;
 import org.teavm.tooling.TeaVMTargetType;
 import org.teavm.tooling.TeaVMTool;
 import org.teavm.tooling.TeaVMToolException;
+import org.teavm.tooling.daemon.BuildDaemonClient;
+import org.teavm.tooling.daemon.RemoteBuildRequest;
+import org.teavm.tooling.daemon.RemoteBuildResponse;
+import org.teavm.tooling.daemon.RemoteBuildService;
 import org.teavm.tooling.sources.DirectorySourceFileProvider;
 import org.teavm.tooling.sources.SourceFileProvider;
 import org.teavm.vm.TeaVMOptimizationLevel;
@@ -67,11 +74,23 @@ public class TeaVMCompileMojo extends AbstractTeaVMMojo {
     @Parameter(defaultValue = "${project.build.directory}/teavm-cache")
     protected File cacheDirectory;
 
+    @Parameter
+    private boolean hashBasedCacheInvalidation;
+
     private TeaVMTool tool = new TeaVMTool();
 
     @Parameter
     private WasmBinaryVersion wasmVersion = WasmBinaryVersion.V_0x1;
 
+    @Parameter
+    private boolean wasmSimd;
+
+    @Parameter
+    private boolean wasmBulkMemory;
+
+    @Parameter
+    private int daemonPort;
+
     @Override
     protected File getTargetDirectory() {
         return targetDirectory;
@@ -93,8 +112,14 @@ public class TeaVMCompileMojo extends AbstractTeaVMMojo {
                 tool.getClassesToPreserve().addAll(Arrays.asList(classesToPreserve));
             }
             tool.setCacheDirectory(cacheDirectory);
+            tool.setHashBasedCacheInvalidation(hashBasedCacheInvalidation);
             tool.setTargetType(targetType);
             tool.setWasmVersion(wasmVersion);
+            tool.setWasmSimd(wasmSimd);
+            tool.setWasmBulkMemory(wasmBulkMemory);
+            if (daemonPort > 0 && buildRemotely()) {
+                return;
+            }
             tool.generate();
             if (stopOnErrors && !tool.getProblemProvider().getSevereProblems().isEmpty()) {
                 throw new MojoExecutionException("Build error");
@@ -106,6 +131,42 @@ public class TeaVMCompileMojo extends AbstractTeaVMMojo {
         }
     }
 
+    private boolean buildRemotely() throws MojoExecutionException {
+        Log log = getLog();
+        RemoteBuildService service;
+        String token;
+        try {
+            service = BuildDaemonClient.connect(daemonPort);
+            token = BuildDaemonClient.readToken(daemonPort);
+        } catch (IOException | NotBoundException e) {
+            log.warn("Could not connect to TeaVM daemon on port " + daemonPort + ", building in Maven process");
+            return false;
+        }
+
+        RemoteBuildRequest request = BuildDaemonClient.createRequest(tool);
+        request.token = token;
+        for (File entry : classPathEntries) {
+            request.classPath.add(entry.getAbsolutePath());
+        }
+        if (transformers != null) {
+            request.transformers.addAll(Arrays.asList(transformers));
+        }
+
+        RemoteBuildResponse response;
+        try {
+            response = BuildDaemonClient.build(service, request, tool.getLog(), null);
+        } catch (RemoteException e) {
+            throw new MojoExecutionException("Error communicating with TeaVM daemon", e);
+        }
+        if (response.errorOccurred) {
+            throw new MojoExecutionException("TeaVM daemon failed to build project:\n" + response.stackTrace);
+        }
+        if (stopOnErrors && response.severeProblemsFound) {
+            throw new MojoExecutionException("Build error");
+        }
+        return true;
+    }
+
     @Override
     protected void addSourceProviders(List<SourceFileProvider> providers) {
         providers.add(new DirectorySourceFileProvider(sourceDirectory));